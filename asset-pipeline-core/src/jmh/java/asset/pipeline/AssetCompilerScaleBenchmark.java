@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline;
+
+import asset.pipeline.fs.AssetResolver;
+import asset.pipeline.fs.FileSystemAssetResolver;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of the compiler bookkeeping on a synthetic tree of 100k assets, served twice by two resolvers so every path
+ * has a duplicate to remove: scanning the assets and diffing the manifest against them. Regressing to quadratic
+ * deduplication shows up here as tens of seconds instead of a few.
+ * Run with {@code ./gradlew :asset-pipeline-core:jmh}
+ * <p>
+ * Budget: each benchmark should stay under 3 seconds. On a single core either scan takes about 1.1 to 1.3
+ * seconds and the diff about 0.3 to 0.7 seconds. The linear growth itself is checked on every build by
+ * {@code AssetCompilerDeduplicationSpec} on 1k and 10k assets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class AssetCompilerScaleBenchmark {
+	static final int DIRECTORIES = 100;
+	static final int FILES_PER_DIRECTORY = 1000;
+
+	private File assetsDir;
+	private File compileDir;
+	private Collection<AssetResolver> originalResolvers;
+	private List<AssetDescriptor> descriptors;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		assetsDir = Files.createTempDirectory("asset-compiler-scale").toFile();
+		for(int directory = 0; directory < DIRECTORIES; directory++) {
+			File scriptDir = new File(assetsDir, "javascripts/module" + directory);
+			File imageDir = new File(assetsDir, "images/module" + directory);
+			scriptDir.mkdirs();
+			imageDir.mkdirs();
+			for(int index = 0; index < FILES_PER_DIRECTORY; index++) {
+				File file = index % 2 == 1 ? new File(imageDir, "image" + index + ".png") : new File(scriptDir, "file" + index + ".js");
+				Files.write(file.toPath(), String.valueOf(index).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		compileDir = Files.createTempDirectory("asset-compiler-scale-compiled").toFile();
+		originalResolvers = AssetPipelineConfigHolder.getResolvers();
+		List<AssetResolver> resolvers = new ArrayList<AssetResolver>();
+		resolvers.add(new FileSystemAssetResolver("first", assetsDir.getCanonicalPath()));
+		resolvers.add(new FileSystemAssetResolver("second", assetsDir.getCanonicalPath()));
+		AssetPipelineConfigHolder.setResolvers(resolvers);
+		descriptors = newCompiler().getAllAssetDescriptors();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		AssetPipelineConfigHolder.setResolvers(originalResolvers);
+		deleteDirectory(assetsDir);
+		deleteDirectory(compileDir);
+	}
+
+	@Benchmark
+	public Object getAllAssets() {
+		return newCompiler().getAllAssets();
+	}
+
+	@Benchmark
+	public Object getAllAssetDescriptors() {
+		return newCompiler().getAllAssetDescriptors();
+	}
+
+	@Benchmark
+	public Object removeDeletedFiles(Manifest manifest) {
+		InvokerHelper.invokeMethod(manifest.compiler, "removeDeletedFiles", new Object[] { descriptors });
+		return manifest.compiler.getManifestProperties();
+	}
+
+	private AssetCompiler newCompiler() {
+		Map<String, Object> options = new HashMap<String, Object>();
+		options.put("compileDir", compileDir.getAbsolutePath());
+		return new AssetCompiler(options);
+	}
+
+	/**
+	 * A manifest listing every asset plus one removed file, rebuilt before each diff
+	 */
+	@State(Scope.Thread)
+	public static class Manifest {
+		AssetCompiler compiler;
+
+		@Setup(Level.Invocation)
+		public void setup(AssetCompilerScaleBenchmark benchmark) throws IOException {
+			compiler = benchmark.newCompiler();
+			for(AssetDescriptor descriptor : benchmark.descriptors) {
+				compiler.getManifestProperties().setProperty(descriptor.getPath(), descriptor.getPath());
+			}
+			Files.write(new File(benchmark.compileDir, "removed.js").toPath(), "removed".getBytes(StandardCharsets.UTF_8));
+			Files.write(new File(benchmark.compileDir, "removed-abc.js.gz").toPath(), "removed".getBytes(StandardCharsets.UTF_8));
+			compiler.getManifestProperties().setProperty("removed.js", "removed-abc.js");
+			InvokerHelper.invokeMethod(compiler, "initializeWorkspace", null);
+		}
+	}
+
+	private static void deleteDirectory(File directory) throws IOException {
+		if(directory == null || !directory.exists()) {
+			return;
+		}
+		try(Stream<Path> paths = Files.walk(directory.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per lookup of the {@link AssetHelper} extension and spec matching hot paths.
+ * Run with {@code ./gradlew :asset-pipeline-core:jmh}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssetHelperBenchmark {
+
+	private static final String[] FILE_NAMES = {
+		"javascripts/application.js",
+		"stylesheets/vendor/bootstrap.min.css",
+		"templates/layout.html",
+		"images/sprites/icons.png",
+		"javascripts/modules/es6/component.es6",
+		"fonts/glyphicons-halflings-regular.woff2",
+		"README"
+	};
+
+	private AssetFile jsAsset;
+
+	@Setup
+	public void setup() {
+		jsAsset = new JsAssetFile();
+	}
+
+	@Benchmark
+	public void assetForFileName(Blackhole blackhole) {
+		for(String fileName : FILE_NAMES) {
+			blackhole.consume(AssetHelper.assetForFileName(fileName));
+		}
+	}
+
+	@Benchmark
+	public void extensionFromURI(Blackhole blackhole) {
+		for(String fileName : FILE_NAMES) {
+			blackhole.consume(AssetHelper.extensionFromURI(fileName));
+		}
+	}
+
+	@Benchmark
+	public void getPossibleFileSpecs(Blackhole blackhole) {
+		blackhole.consume(AssetHelper.getPossibleFileSpecs("application/javascript"));
+		blackhole.consume(AssetHelper.getPossibleFileSpecs("text/css"));
+		blackhole.consume(AssetHelper.getPossibleFileSpecs("text/html"));
+		blackhole.consume(AssetHelper.getPossibleFileSpecs("image/png"));
+	}
+
+	@Benchmark
+	public void fileNameWithoutExtensionFromArtefact(Blackhole blackhole) {
+		blackhole.consume(AssetHelper.fileNameWithoutExtensionFromArtefact("javascripts/application.js", jsAsset));
+		blackhole.consume(AssetHelper.fileNameWithoutExtensionFromArtefact("javascripts/vendor/jquery.min.js", jsAsset));
+	}
+}
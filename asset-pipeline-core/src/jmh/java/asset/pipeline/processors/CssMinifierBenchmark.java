@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.processors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * CSS minification throughput. {@code lineBased} is what {@link CssMinifyPostProcessor} did before {@link CssMinifier}:
+ * a comment regex followed by splitting, trimming and joining every line. The stylesheet is generated with comments,
+ * nested media queries, urls and strings to the given size in kilobytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CssMinifierBenchmark {
+	private static final Pattern COMMENT = Pattern.compile("(/\\*\\*/)|(/\\*(.+?)?\\*/)", Pattern.DOTALL);
+
+	@Param({"64", "1024"})
+	public int kilobytes;
+
+	private String css;
+
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder();
+		int rule = 0;
+		while(sb.length() < kilobytes * 1024) {
+			rule++;
+			sb.append("/*\n * Section ").append(rule).append("\n */\n");
+			sb.append(".block-").append(rule).append(" > .element, .block-").append(rule).append(":hover .element {\n");
+			sb.append("    margin: 0px auto;\n    padding: 10px 0em 4px 0;\n");
+			sb.append("    background: url('../images/sprite-").append(rule).append(".png') no-repeat;\n");
+			sb.append("    font-family: \"Helvetica Neue\", Arial, sans-serif;\n");
+			sb.append("    width: calc(100% - 20px);\n}\n");
+			sb.append("@media screen and (max-width: 768px) {\n    .block-").append(rule).append(" {\n        display: none;\n    }\n}\n\n");
+		}
+		css = sb.toString();
+	}
+
+	@Benchmark
+	public String lineBased() {
+		String processedCss = COMMENT.matcher(css).replaceAll("");
+		processedCss = processedCss.replaceAll("\r\n", "\n");
+		String[] lines = processedCss.split("\n");
+		List<String> trimmed = new ArrayList<>(lines.length);
+		for(String line : lines) {
+			trimmed.add(line.trim());
+		}
+		return String.join("", trimmed);
+	}
+
+	@Benchmark
+	public String singlePass() {
+		return CssMinifier.minify(css, true, true);
+	}
+}
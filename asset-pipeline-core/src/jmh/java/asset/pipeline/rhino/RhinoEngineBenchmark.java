@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.rhino;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per file transpile latency of the CoffeeScript and TypeScript Rhino compilers. {@code perFile} is what the processors
+ * did before {@link RhinoEngine}: every file got a fresh interpreted global scope the compiler was executed into.
+ * {@code engine} compiles through a shared {@link RhinoEngine}. The corpus is a mid sized CoffeeScript class hierarchy
+ * and a TypeScript module with generics, enums and template strings (src/jmh/resources/rhino).
+ * Run with {@code ./gradlew :asset-pipeline-core:jmh} from the root project so the compilers of the sibling modules
+ * are found.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RhinoEngineBenchmark {
+
+	@Param({"coffee", "typescript"})
+	public String compiler;
+
+	private String source;
+	private String command;
+	private Script compilerScript;
+	private Script perFileCommand;
+	private RhinoEngine engine;
+	private Script engineCommand;
+
+	@Setup
+	public void setup() throws IOException {
+		String compilerPath;
+		if("coffee".equals(compiler)) {
+			compilerPath = "../coffee-asset-pipeline/src/main/resources/asset/pipeline/coffee/coffee-script-1.7.1.js";
+			source = corpus("rhino/corpus.coffee");
+			command = "CoffeeScript.compile(src)";
+		} else {
+			compilerPath = "../typescript-asset-pipeline/src/main/resources/asset/pipeline/typescript/tsServices.js";
+			source = corpus("rhino/corpus.ts");
+			command = "ts.transpile(src)";
+		}
+		String compilerSource = new String(Files.readAllBytes(Paths.get(compilerPath)), StandardCharsets.UTF_8);
+
+		Context cx = Context.enter();
+		try {
+			cx.setOptimizationLevel(-1);
+			compilerScript = cx.compileString(compilerSource, compilerPath, 1, null);
+			perFileCommand = cx.compileString(command, "compile command", 0, null);
+		} finally {
+			Context.exit();
+		}
+		engine = new RhinoEngine(compiler, Collections.singletonMap(compilerPath, compilerSource), true, RhinoEngine.configuredOptimizationLevel());
+		engineCommand = engine.compile(command, "compile command");
+	}
+
+	@Benchmark
+	public Object perFile() {
+		Context cx = Context.enter();
+		try {
+			cx.setOptimizationLevel(-1);
+			Scriptable globalScope = cx.initStandardObjects();
+			compilerScript.exec(cx, globalScope);
+			Scriptable compileScope = cx.newObject(globalScope);
+			compileScope.setParentScope(globalScope);
+			compileScope.put("src", compileScope, source);
+			return perFileCommand.exec(cx, compileScope);
+		} finally {
+			Context.exit();
+		}
+	}
+
+	@Benchmark
+	public String engine() {
+		Map<String, Object> variables = Collections.singletonMap("src", source);
+		return engine.evaluate(engineCommand, variables);
+	}
+
+	private static String corpus(String name) throws IOException {
+		try(InputStream in = RhinoEngineBenchmark.class.getClassLoader().getResourceAsStream(name)) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
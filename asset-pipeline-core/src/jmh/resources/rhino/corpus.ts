@@ -0,0 +1,96 @@
+// Task board module, representative of a mid sized TypeScript asset
+interface Identifiable {
+    id: number;
+}
+
+interface Task extends Identifiable {
+    title: string;
+    assignee?: string;
+    estimate: number;
+    status: Status;
+    tags: string[];
+}
+
+enum Status {
+    Backlog,
+    InProgress,
+    Review,
+    Done
+}
+
+type Listener<T> = (value: T) => void;
+
+class Observable<T> {
+    private listeners: Listener<T>[] = [];
+
+    subscribe(listener: Listener<T>): () => void {
+        this.listeners.push(listener);
+        return () => {
+            this.listeners = this.listeners.filter(l => l !== listener);
+        };
+    }
+
+    protected publish(value: T): void {
+        this.listeners.forEach(listener => listener(value));
+    }
+}
+
+class Repository<T extends Identifiable> {
+    private items: { [id: number]: T } = {};
+
+    save(item: T): T {
+        this.items[item.id] = item;
+        return item;
+    }
+
+    find(id: number): T | undefined {
+        return this.items[id];
+    }
+
+    all(): T[] {
+        return Object.keys(this.items).map(key => this.items[+key]);
+    }
+}
+
+class Board extends Observable<Task[]> {
+    private nextId = 1;
+
+    constructor(private repository: Repository<Task>, public readonly name: string) {
+        super();
+    }
+
+    add(title: string, estimate: number, tags: string[] = []): Task {
+        const task: Task = { id: this.nextId++, title, estimate, tags, status: Status.Backlog };
+        this.repository.save(task);
+        this.publish(this.repository.all());
+        return task;
+    }
+
+    move(id: number, status: Status): void {
+        const task = this.repository.find(id);
+        if (!task) {
+            throw new Error(`Unknown task ${id}`);
+        }
+        task.status = status;
+        this.publish(this.repository.all());
+    }
+
+    byStatus(status: Status): Task[] {
+        return this.repository.all().filter(task => task.status === status);
+    }
+
+    remaining(): number {
+        return this.repository.all()
+            .filter(task => task.status !== Status.Done)
+            .reduce((sum, task) => sum + task.estimate, 0);
+    }
+
+    summary(): string {
+        const columns = [Status.Backlog, Status.InProgress, Status.Review, Status.Done];
+        return columns.map(status => `${Status[status]}: ${this.byStatus(status).length}`).join(', ');
+    }
+}
+
+export function createBoard(name: string): Board {
+    return new Board(new Repository<Task>(), name);
+}
@@ -16,6 +16,9 @@
 
 package asset.pipeline
 
+import asset.pipeline.cache.BuildCache
+import asset.pipeline.cache.BuildCacheCapture
+import asset.pipeline.cache.BuildCaches
 import asset.pipeline.fs.AssetResolver
 import asset.pipeline.processors.JsRequireProcessor
 import groovy.transform.CompileStatic
@@ -56,11 +59,13 @@ abstract class AbstractAssetFile implements AssetFile {
 
 	Pattern directivePattern = null
 	Closure inputStreamSource = {} //Implemented by AssetResolver
+	Closure<String> statSource //Implemented by AssetResolver
 	byte[] byteCache
 	List<String> matchedDirectives = []
 	DigestInputStream digestStream
 	MessageDigest digest
 	private String digestString
+	protected String sourceStat
 
     /**
      * Executes the inputStreamSource() closure to fetch a new inputStream object
@@ -70,6 +75,7 @@ abstract class AbstractAssetFile implements AssetFile {
      */
 	InputStream getInputStream() {
 		if(byteCache == null) {
+			sourceStat = getFileStat()
 			digest = MessageDigest.getInstance("MD5")
 			digestStream = new DigestInputStream((InputStream)inputStreamSource(),digest)
 			byteCache = digestStream.getBytes()
@@ -77,6 +83,25 @@ abstract class AbstractAssetFile implements AssetFile {
 		return new ByteArrayInputStream(byteCache)
 	}
 
+    /**
+     * Returns a cheap fingerprint of the underlying file (i.e. size and last modified time) as provided by the resolver
+     * @return the current stat of the file or null if the resolver can not provide one
+     */
+	public String getFileStat() {
+		return statSource?.call()
+	}
+
+    /**
+     * The stat of the file captured right before its contents were read. This is the stat matching {@link #getByteDigest}
+     * @return the stat or null if unavailable
+     */
+	public String getSourceStat() {
+		if(digestStream == null) {
+			getInputStream()
+		}
+		return sourceStat
+	}
+
     /**
      * Returns a HEX encoded byte digest of the file contents (preprocessed)
      * This leverages the DigestStream wrapping the files inputStream for efficient calculation
@@ -92,7 +117,7 @@ abstract class AbstractAssetFile implements AssetFile {
 		}
 
 		try {
-			byte[] buffer = new byte[1024]
+			byte[] buffer = new byte[65536]
 			int nRead
 			while((nRead = digestStream.read(buffer, 0, buffer.length)) != -1) {
 				// noop (just to complete the stream)
@@ -175,13 +200,31 @@ abstract class AbstractAssetFile implements AssetFile {
 				}
 			}
 
-			if(processors != null) {
-				for(Class<Processor> processor in processors) {
-					Processor processInstance = processor.newInstance(precompiler) as Processor
-					fileText = processInstance.process(fileText, this)
-				}	
+			BuildCache buildCache = (skipCaching || !processors) ? null : BuildCaches.forCompiler(precompiler)
+			String buildCacheKey = null
+			BuildCacheCapture buildCacheCapture = null
+			if(buildCache) {
+				buildCacheKey = BuildCaches.cacheKey(this, precompiler)
+				String cachedText = BuildCaches.restore(buildCache, buildCacheKey, this, precompiler, !skipCache)
+				if(cachedText != null) {
+					return cachedText
+				}
+				buildCacheCapture = BuildCacheCapture.start(path)
+			}
+
+			try {
+				if(processors != null) {
+					ProcessorRegistry processorRegistry = ProcessorRegistry.forCompiler(precompiler)
+					for(Class<Processor> processor in processors) {
+						fileText = processorRegistry.process(processor, fileText, this)
+					}
+				}
+			} finally {
+				buildCacheCapture?.stop()
+			}
+			if(buildCacheCapture) {
+				BuildCaches.save(buildCache, buildCacheKey, fileText, buildCacheCapture)
 			}
-		    
 
 			if(!skipCache) {
 				CacheManager.createCache(path, md5, fileText, baseFile?.path)
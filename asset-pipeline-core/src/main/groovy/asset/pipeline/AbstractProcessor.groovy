@@ -20,7 +20,7 @@ package asset.pipeline
  *
  * @author David Estes
  */
-abstract class AbstractProcessor implements Processor {
+abstract class AbstractProcessor implements LifecycleProcessor {
 	AssetCompiler precompiler
 
 	/**
@@ -31,4 +31,17 @@ abstract class AbstractProcessor implements Processor {
 	AbstractProcessor(AssetCompiler precompiler) {
 		this.precompiler = precompiler
 	}
+
+	/**
+	 * Called by the {@link ProcessorRegistry} before first use. Processors reused across files
+	 * (see {@link ProcessorScoped}) should do expensive setup here
+	 */
+	void init() {
+	}
+
+	/**
+	 * Called by the {@link ProcessorRegistry} when the instance is discarded
+	 */
+	void close() {
+	}
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import groovy.util.logging.Slf4j
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinWorkerThread
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Runs the compile task of each asset on a work stealing pool in dependency order. Assets are only started once
+ * every asset they depend on (required files and url references) has finished so dependents pick up the
+ * digests of their dependencies from the {@link CompiledDigestCache} instead of compiling them again. The
+ * dependencies come from the {@link DependencyGraph} of the previous build or, for assets it did not compile, from
+ * the {@link DependencyScanner}.
+ *
+ * Circular dependencies are broken in discovery order. The first failure cancels the rest of the build and is
+ * rethrown on the calling thread.
+ */
+@Slf4j
+class AssetCompileScheduler {
+	ForkJoinPool pool
+
+	/**
+	 * @param parallelism the maximum number of assets compiled concurrently
+	 */
+	AssetCompileScheduler(int parallelism) {
+		ClassLoader contextClassLoader = Thread.currentThread().contextClassLoader
+		ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = { ForkJoinPool forkJoinPool ->
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool)
+			thread.contextClassLoader = contextClassLoader
+			thread.name = "asset-compiler-${thread.poolIndex}"
+			return thread
+		} as ForkJoinPool.ForkJoinWorkerThreadFactory
+		pool = new ForkJoinPool(parallelism, threadFactory, null, true)
+	}
+
+	/**
+	 * Runs all tasks and blocks until they completed
+	 * @param tasks the compile task of each asset keyed by path, in the preferred order of execution
+	 * @param dependencies the paths each asset depends on. Paths without a task are ignored
+	 */
+	void run(Map<String, Closure> tasks, Map<String, Collection<String>> dependencies) {
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>()
+		CompletableFuture<Void> failed = new CompletableFuture<Void>()
+		Map<String, CompletableFuture<Void>> futures = new HashMap<String, CompletableFuture<Void>>(tasks.size() * 2)
+
+		for(String path in sortDependenciesFirst(tasks.keySet(), dependencies)) {
+			Closure task = tasks[path]
+			List<CompletableFuture<Void>> dependencyFutures = dependencies[path]?.findResults { futures[it] } ?: []
+			CompletableFuture<Void> ready = dependencyFutures ? CompletableFuture.allOf(dependencyFutures as CompletableFuture[]) : CompletableFuture.completedFuture(null)
+			CompletableFuture<Void> future = ready.thenRunAsync({ ->
+				if(failure.get() == null) {
+					task.call()
+				}
+			} as Runnable, pool)
+			// waiting on the handled future guarantees the failure is recorded before the build is joined
+			futures[path] = future.whenComplete { result, Throwable ex ->
+				if(ex != null && failure.compareAndSet(null, unwrap(ex))) {
+					failed.complete(null)
+				}
+			}
+		}
+
+		try {
+			CompletableFuture.anyOf(failed, CompletableFuture.allOf(futures.values() as CompletableFuture[])).join()
+		} catch(CompletionException ignored) {
+			// the failure is captured by the whenComplete handlers
+		}
+		if(failure.get() != null) {
+			pool.shutdownNow()
+			throw failure.get()
+		}
+	}
+
+	void shutdown() {
+		pool.shutdown()
+	}
+
+	/**
+	 * Orders the paths so dependencies come before their dependents keeping the original order otherwise
+	 */
+	static List<String> sortDependenciesFirst(Collection<String> paths, Map<String, Collection<String>> dependencies) {
+		List<String> sorted = new ArrayList<String>(paths.size())
+		Set<String> pathSet = new HashSet<String>(paths)
+		Set<String> visited = new HashSet<String>()
+		for(String path in paths) {
+			visit(path, pathSet, dependencies, visited, sorted)
+		}
+		return sorted
+	}
+
+	private static void visit(String root, Set<String> pathSet, Map<String, Collection<String>> dependencies, Set<String> visited, List<String> sorted) {
+		if(!visited.add(root)) {
+			return
+		}
+		// iterative depth first walk so long require chains do not exhaust the stack
+		Deque<Iterator<String>> stack = new ArrayDeque<Iterator<String>>()
+		Deque<String> pathStack = new ArrayDeque<String>()
+		stack.push((dependencies[root] ?: []).iterator())
+		pathStack.push(root)
+		while(!stack.isEmpty()) {
+			Iterator<String> iterator = stack.peek()
+			if(iterator.hasNext()) {
+				String dependency = iterator.next()
+				if(pathSet.contains(dependency) && visited.add(dependency)) {
+					stack.push((dependencies[dependency] ?: []).iterator())
+					pathStack.push(dependency)
+				}
+			} else {
+				stack.pop()
+				sorted << pathStack.pop()
+			}
+		}
+	}
+
+	private static Throwable unwrap(Throwable ex) {
+		while(ex instanceof CompletionException && ex.cause != null) {
+			ex = ex.cause
+		}
+		return ex
+	}
+}
@@ -15,17 +15,28 @@
  */
 package asset.pipeline
 
+import asset.pipeline.cache.BuildCache
+import asset.pipeline.cache.BuildCaches
+import asset.pipeline.cache.DirectoryBuildCache
+import asset.pipeline.compression.PrecompressionEncoder
+import asset.pipeline.compression.PrecompressionEncoders
+import asset.pipeline.fs.AbstractAssetResolver
 import asset.pipeline.processors.ClosureCompilerProcessor
 import asset.pipeline.utils.MultiOutputStream
 import asset.pipeline.processors.CssMinifyPostProcessor
+import groovy.io.FileType
 import groovy.util.logging.Slf4j
 
-import java.util.zip.GZIPOutputStream
-import java.util.concurrent.Callable
-import java.util.concurrent.Executors
-import java.util.concurrent.TimeUnit
-import java.util.concurrent.ExecutorCompletionService
-import java.util.concurrent.CompletionService
+import java.nio.channels.FileChannel
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicReference
+import java.util.regex.Pattern
 
 /**
  * Build time compiler for assets. This does a differential comparison of the source directory
@@ -37,6 +48,11 @@ import java.util.concurrent.CompletionService
  */
 @Slf4j
 class AssetCompiler {
+	static final Long DEFAULT_MAX_IN_FLIGHT_BYTES = 64L * 1024L * 1024L
+	static final Integer DEFAULT_WRITER_THREADS = 2
+	/** Temporary files of {@link #newPendingOutputStream}, left behind when a build is killed before publishing them */
+	static final Pattern PENDING_FILE_PATTERN = ~/^\..+\.[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\.tmp$/
+
 	def includeRules = [:]
 	def excludeRules = [:]
 
@@ -44,7 +60,17 @@ class AssetCompiler {
 	def eventListener
 	def filesToProcess = []
 	Properties manifestProperties
+	DependencyGraph dependencyGraph
+	CompiledDigestCache compiledDigests = new CompiledDigestCache()
+	List<PrecompressionEncoder> precompressionEncoders = []
+	BuildCache buildCache
+	BuildCache minifyCache
+	ProcessorRegistry processorRegistry = new ProcessorRegistry(this)
 	def threadPool
+	/** Budget of the source and output bytes held by compiles at once when the boundedHeap option is enabled */
+	InFlightBudget inFlightBudget
+	/** The stages of the last compile with their utilisation */
+	List<CompileStage> compileStages = []
 
 	/**
 	 * Creates an instance of the compiler given passed input options
@@ -53,9 +79,29 @@ class AssetCompiler {
 	 *  <li>compileDir - String Location of where assets should be compiled into</li>
 	 *  <li>excludesGzip - List of extensions of files that should be excluded from gzip compression. (Most image types included by default)</li>
 	 *  <li>enableGzip - Whether or not we should generate gzip files (default true)</li>
+	 *  <li>gzipLevel - Deflate level (0-9) used for gzip files (default 6)</li>
+	 *  <li>enableBrotli - Whether or not we should generate .br files. Requires brotli4j on the classpath (default false)</li>
+	 *  <li>brotliLevel - Brotli quality (0-11) used for .br files (default 11)</li>
+	 *  <li>excludesBrotli - List of extensions of files that should be excluded from brotli compression. (Most image types included by default)</li>
+	 *  <li>enableZstd - Whether or not we should generate .zst files. Requires zstd-jni on the classpath (default false)</li>
+	 *  <li>zstdLevel - Zstandard level (1-22) used for .zst files (default 19)</li>
+	 *  <li>excludesZstd - List of extensions of files that should be excluded from zstd compression. (Most image types included by default)</li>
+	 *  <li>precompressionEncoders - List of additional {@link PrecompressionEncoder} instances or class names to run alongside the built in encoders</li>
 	 *  <li>enableDigests - Turns on generation of digest named assets (default true)</li>
 	 *  <li>skipNonDigests - If turned on will not generate non digest named files (default false)</li>
 	 *  <li>maxThreads - Compiler can concurrently compile assets now and defaults to a max thread count of 4</li>
+	 *  <li>compressThreads - Threads compressing compiled files with the precompression encoders, writing their plain files in the same pass (default the number of processors)</li>
+	 *  <li>writerThreads - Threads writing compiled files without encoders to the compileDir and publishing all of them (default 2)</li>
+	 *  <li>stageQueueSize - Compiled files waiting for the compress or write stage before processing threads wait for them (default 64)</li>
+	 *  <li>incremental - Only recompiles assets whose inputs changed since the last build based on the dependency graph kept in the compileDir (default false)</li>
+	 *  <li>buildCacheLocation - Directory of a content addressable cache of processed assets that can be shared between builds and machines (default disabled)</li>
+	 *  <li>buildCacheMaxSize - Size in bytes the build cache directory is trimmed to (default 1GB)</li>
+	 *  <li>enableMinifyCache - Reuses javascript minified by previous builds when the unminified content and minifyOptions are unchanged (default false)</li>
+	 *  <li>minifyCacheLocation - Directory of the minification cache (default the build cache if configured, otherwise .asset-minify-cache next to the compileDir)</li>
+	 *  <li>minifyCacheMaxSize - Size in bytes the minification cache directory is trimmed to (default 256MB)</li>
+	 *  <li>linkGenericAssets - Hard links unprocessed files (i.e. images and fonts) into the compileDir instead of copying them when on the same file system (default false)</li>
+	 *  <li>boundedHeap - Scans assets as {@link AssetDescriptor}s and only creates each {@link AssetFile} while it is compiled, so its contents can be collected once written (default false)</li>
+	 *  <li>maxInFlightBytes - Size in bytes of the asset sources, or their compiled output until it is written, held at the same time when boundedHeap is enabled. Workers wait for running compiles to finish once it is exceeded (default 64MB)</li>
 	 * </ul>
 	 * @param eventListener
 	 */
@@ -65,15 +111,23 @@ class AssetCompiler {
 		if(!options.compileDir) {
 			options.compileDir = "target/assets"
 		}
-		if(!options.excludesGzip) {
-			options.excludesGzip = ['png', 'jpg', 'jpeg', 'gif', 'zip', 'gz']
-		} else {
-			options.excludesGzip += ['png', 'jpg', 'jpeg', 'gif', 'zip', 'gz']
+		for(String excludesKey in ['excludesGzip', 'excludesBrotli', 'excludesZstd']) {
+			if(!options[excludesKey]) {
+				options[excludesKey] = new ArrayList<String>(PrecompressionEncoders.DEFAULT_EXCLUDES)
+			} else {
+				options[excludesKey] += PrecompressionEncoders.DEFAULT_EXCLUDES
+			}
 		}
 
 		if(!options.containsKey('enableGzip')) {
 			options.enableGzip = true
 		}
+		if(!options.containsKey('enableBrotli')) {
+			options.enableBrotli = false
+		}
+		if(!options.containsKey('enableZstd')) {
+			options.enableZstd = false
+		}
 
 		if(!options.containsKey('enableDigests')) {
 			options.enableDigests = true
@@ -81,6 +135,12 @@ class AssetCompiler {
 		if(!options.containsKey('skipNonDigests')) {
 			options.skipNonDigests = false
 		}
+		if(!options.containsKey('incremental')) {
+			options.incremental = false
+		}
+		if(!options.containsKey('boundedHeap')) {
+			options.boundedHeap = false
+		}
 		// Load in additional assetSpecs
 		options.specs?.each { spec ->
 			def specClass = this.class.classLoader.loadClass(spec)
@@ -123,23 +183,63 @@ class AssetCompiler {
 	void compile() {
 		def assetDir = initializeWorkspace()
 
-		threadPool = Executors.newFixedThreadPool(options.maxThreads ?: Runtime.getRuntime().availableProcessors())
-	 	CompletionService completionService = new ExecutorCompletionService(threadPool);
+		compiledDigests = new CompiledDigestCache()
+		processorRegistry = new ProcessorRegistry(this)
+		int processThreads = (options.maxThreads ?: Runtime.getRuntime().availableProcessors()) as int
+		int stageQueueSize = (options.stageQueueSize ?: CompileStage.DEFAULT_QUEUE_SIZE) as int
+		AssetCompileScheduler scheduler = new AssetCompileScheduler(processThreads)
+		threadPool = scheduler.pool
+		inFlightBudget = options.boundedHeap ? new InFlightBudget((options.maxInFlightBytes ?: DEFAULT_MAX_IN_FLIGHT_BYTES) as Long) : null
+		CompileStage scanStage = new CompileStage('scan', 1)
+		compileStages = [scanStage]
+		List<CompletableFuture> pendingOutputs = Collections.synchronizedList(new ArrayList<CompletableFuture>())
+		Map<String, Collection<String>> taskDependencies = [:]
+		AtomicReference<Throwable> outputFailure = new AtomicReference<Throwable>()
 		try {
 			def minifyCssProcessor = new CssMinifyPostProcessor()
 
-			filesToProcess = this.getAllAssets()?.sort { a,b -> (a instanceof GenericAssetFile ? 1 : 0) <=> (b instanceof GenericAssetFile ? 1 : 0)}
-			// Lets clean up assets that are no longer being compiled
-			removeDeletedFiles(filesToProcess)
-			def futures = []
+			scanStage.measure { ->
+				if(options.boundedHeap) {
+					// Only descriptors are kept for the whole build, the scanned asset files would retain their contents
+					filesToProcess = this.getAllAssetDescriptors().sort { a,b -> (a.generic ? 1 : 0) <=> (b.generic ? 1 : 0)}
+					dependencyGraph.prepare([])
+				} else {
+					filesToProcess = this.getAllAssets()?.sort { a,b -> (a instanceof GenericAssetFile ? 1 : 0) <=> (b instanceof GenericAssetFile ? 1 : 0)}
+					dependencyGraph.prepare(filesToProcess)
+				}
+				// Lets clean up assets that are no longer being compiled
+				removeDeletedFiles(filesToProcess)
+				// Assets are compiled after the assets they required or referenced in the previous build. Assets the
+				// previous build did not compile (i.e. all of them on a clean build) are scanned for these instead
+				Set<String> sourcePaths = new HashSet<String>(filesToProcess.collect { it.path as String })
+				taskDependencies = dependencyGraph.getPreviousDependencies(sourcePaths)
+				List unscanned = filesToProcess.findAll { !dependencyGraph.hasPreviousEntry(it.path as String) }
+				taskDependencies.putAll(new DependencyScanner(sourcePaths).scan(unscanned, scheduler.pool))
+			}
+			scanStage.shutdown()
+			// Processing threads hand the output of each asset to the compress and write stages instead of waiting on the disk
+			CompileStage processStage = new CompileStage('process', processThreads)
+			CompileStage compressStage = new CompileStage('compress', (options.compressThreads ?: Runtime.getRuntime().availableProcessors()) as int, stageQueueSize)
+			CompileStage writeStage = new CompileStage('write', (options.writerThreads ?: DEFAULT_WRITER_THREADS) as int, stageQueueSize)
+			compileStages.addAll([processStage, compressStage, writeStage])
+			// Before anything is written so only the pending files of an earlier build are removed
+			writeStage.measure { -> removeStalePendingFiles(assetDir as File) }
+			Map<String, Closure> compileTasks = new LinkedHashMap<String, Closure>()
 			for(int index = 0; index < filesToProcess.size(); index++) {
-				def assetFile = filesToProcess[index]
+				def source = filesToProcess[index]
 				def indexPosition = new Integer(index)
-				futures << completionService.submit({ ->
+				Closure processTask = { ->
+					if(outputFailure.get() != null) {
+						// a failed write cancels the rest of the build
+						throw outputFailure.get()
+					}
+					def assetFile = source instanceof AssetDescriptor ? source.load() : source
 					def fileName = assetFile.path
 					String futureResult = assetFile.path
 					def startTime = new Date().time
-					eventListener?.triggerEvent("StatusUpdate", "Processing File ${indexPosition + 1} of ${filesToProcess.size()} - ${fileName}")
+					if(eventListener) {
+						eventListener.triggerEvent("StatusUpdate", "Processing File ${indexPosition + 1} of ${filesToProcess.size()} - ${fileName}")
+					}
 
 					def digestName
 					def isUnchanged = false
@@ -148,181 +248,391 @@ class AssetCompiler {
 					def fileSystemName = fileName.replace(AssetHelper.DIRECTIVE_FILE_SEPARATOR, File.separator)
 
 
-					if(assetFile) {
-						def fileData
-						if(!(assetFile instanceof GenericAssetFile)) {
-							if(assetFile.compiledExtension) {
-								extension = assetFile.compiledExtension
-								fileName = AssetHelper.fileNameWithoutExtensionFromArtefact(fileName, assetFile)
+					if(assetFile && options.incremental) {
+						Map upToDateEntry = dependencyGraph.findUpToDate(assetFile.path)
+						if(upToDateEntry) {
+							compiledDigests.putDigest(assetFile.path, upToDateEntry.digest as String)
+							if(upToDateEntry.manifestKey) {
+								manifestProperties.setProperty(upToDateEntry.manifestKey as String, upToDateEntry.manifestValue as String)
 							}
-							def contentType = (assetFile.contentType instanceof String) ? assetFile.contentType : assetFile.contentType[0]
-							def directiveProcessor = new DirectiveProcessor(contentType, this, options.classLoader)
-							fileData = directiveProcessor.compile(assetFile)
-							digestName = AssetHelper.getByteDigest(fileData.bytes)
-							def existingDigestFile = manifestProperties.getProperty("${fileName}${extension ? ('.' + extension) : ''}")
-							if(existingDigestFile && existingDigestFile == "${fileName}-${digestName}${extension ? ('.' + extension) : ''}") {
-								isUnchanged = true
-							}
-							if(fileName.indexOf(".min") == -1 && contentType == 'application/javascript' && options.minifyJs && !isUnchanged && !isMinifyExcluded(assetFile.path)) {
-								def newFileData = fileData
-								try {
-									def closureCompilerProcessor = new ClosureCompilerProcessor(this)
-									// eventListener?.triggerEvent("StatusUpdate", "- Minifying File")
-									newFileData = closureCompilerProcessor.process(fileName, fileData, options.minifyOptions ?: [:])
-								} catch(e) {
-									log.error("Closure uglify JS Exception", e)
-									throw(e)
-									newFileData = fileData
+							return futureResult
+						}
+					}
+
+					if(assetFile) {
+						long inFlightBytes = inFlightBudget ? inFlightBudget.acquire(source instanceof AssetDescriptor ? source.size : 0L) : 0L
+						DependencyGraph.Recording recording = dependencyGraph.startRecording(assetFile)
+						BundleOutput bundle = null
+						try {
+							def fileData
+							if(!(assetFile instanceof GenericAssetFile)) {
+								if(assetFile.compiledExtension) {
+									extension = assetFile.compiledExtension
+									fileName = AssetHelper.fileNameWithoutExtensionFromArtefact(fileName, assetFile)
 								}
-								fileData = newFileData
-							} else if(fileName.indexOf(".min") == -1 && contentType == 'text/css' && options.minifyCss && !isUnchanged && !isMinifyExcluded(assetFile.path)) {
-								def newFileData = fileData
-								try {
-									// eventListener?.triggerEvent("StatusUpdate", "- Minifying File")
-									newFileData = minifyCssProcessor.process(fileData)
-								} catch(e) {
-									log.error("Minify CSS Exception", e)
-									newFileData = fileData
+								def contentType = (assetFile.contentType instanceof String) ? assetFile.contentType : assetFile.contentType[0]
+								// Compiled through the digest cache so an asset referenced by another one is only compiled once
+								digestName = compiledDigests.getDigest(assetFile.path) { ->
+									bundle = compileBundle(assetFile)
+									return bundle.digest
+								}
+								if(bundle == null) {
+									CompiledDigestCache.CompiledBundle compiled = compiledDigests.takeBundle(assetFile.path)
+									if(compiled) {
+										bundle = compiled.bundle
+										recording.merge(compiled.recording)
+									} else {
+										bundle = compileBundle(assetFile)
+									}
+								}
+								def existingDigestFile = manifestProperties.getProperty("${fileName}${extension ? ('.' + extension) : ''}")
+								if(existingDigestFile && existingDigestFile == "${fileName}-${digestName}${extension ? ('.' + extension) : ''}") {
+									isUnchanged = true
+								}
+								if(fileName.indexOf(".min") == -1 && !isUnchanged && !isMinifyExcluded(assetFile.path)) {
+									// A failed minification fails the build for scripts and stylesheets alike instead of shipping the unminified bundle
+									try {
+										// eventListener?.triggerEvent("StatusUpdate", "- Minifying File")
+										if(contentType == 'application/javascript' && options.minifyJs) {
+											fileData = new ClosureCompilerProcessor(this).process(fileName, bundle.text, options.minifyOptions ?: [:])
+										} else if(contentType == 'text/css' && options.minifyCss) {
+											fileData = minifyCssProcessor.process(bundle.text)
+										}
+									} catch(e) {
+										log.error("Minifying ${assetFile.path} failed", e)
+										throw e
+									}
 								}
-								fileData = newFileData
-							}
 
-							if(assetFile.encoding) {
-								fileData = fileData.getBytes(assetFile.encoding)
-							} else {
-								fileData = fileData.bytes
-							}
+								// Unminified bundles are streamed from the bundle output
+								if(fileData != null) {
+									fileData = fileData.getBytes(bundle.encoding)
+								}
 
-						} else {
-							digestName = assetFile.getByteDigest()
-							def existingDigestFile = manifestProperties.getProperty("${fileName}${extension ? ('.' + extension) : ''}")
-							if(existingDigestFile && existingDigestFile == "${fileName}-${digestName}${extension ? ('.' + extension) : ''}") {
-								isUnchanged = true
-							}
-						}
+								// From here on the task holds its output rather than its source until the output is written
+								if(inFlightBudget) {
+									long outputBytes = (fileData != null ? ((byte[]) fileData).length : 0L) + (bundle.spilled ? 0L : bundle.length)
+									inFlightBytes = inFlightBudget.adjust(inFlightBytes, outputBytes)
+								}
 
-						if(!isUnchanged) {
-							def outputFileName = fileSystemName
-							if(extension) {
-								outputFileName = "${fileSystemName}.${extension}"
+							} else {
+								digestName = compiledDigests.getDigest(assetFile.path) { -> assetFile.getByteDigest() }
+								def existingDigestFile = manifestProperties.getProperty("${fileName}${extension ? ('.' + extension) : ''}")
+								if(existingDigestFile && existingDigestFile == "${fileName}-${digestName}${extension ? ('.' + extension) : ''}") {
+									isUnchanged = true
+								}
 							}
-							def outputFile = new File(options.compileDir, "${outputFileName}")
 
-							def parentTree = new File(outputFile.parent)
-							parentTree.mkdirs()
+							if(!isUnchanged) {
+								def outputFileName = fileSystemName
+								if(extension) {
+									outputFileName = "${fileSystemName}.${extension}"
+								}
+								def outputFile = new File(options.compileDir, "${outputFileName}")
+								List<File> targetFiles = []
+								List<String> outputFileNames = []
+								String manifestKey = null
+
+								def parentTree = new File(outputFile.parent)
+								parentTree.mkdirs()
+
+								// Generic files on the local file system are copied by the file system instead of streamed through the heap
+								File directSource = assetFile instanceof GenericAssetFile ? assetFile.sourceFile : null
+								Closure<InputStream> openSource
+								if(fileData != null) {
+									byte[] outputBytes = fileData
+									openSource = { -> new ByteArrayInputStream(outputBytes) }
+								} else if(bundle) {
+									BundleOutput bundleOutput = bundle
+									openSource = { -> bundleOutput.newInputStream() }
+								} else if(directSource) {
+									openSource = { -> directSource.newInputStream() }
+								} else {
+									openSource = { -> assetFile.inputStream }
+									if(!(assetFile instanceof GenericAssetFile)) {
+										digestName = assetFile.getByteDigest()
+									}
+								}
 
-							byte[] outputBytes
-							InputStream writeInputStream;
-							if(fileData) {
-								writeInputStream = new ByteArrayInputStream(fileData)
-								// outputBytes = fileData
+								List<PrecompressionEncoder> encoders = precompressionEncoders.findAll { !it.isExcluded(extension) }
+								Map<PrecompressionEncoder, List<File>> encodedFiles = encoders.collectEntries { [(it): []] }
 
-							} else {
-								if(assetFile instanceof GenericAssetFile) {
-									writeInputStream = assetFile.inputStream
-									outputBytes = assetFile.bytes
-								} else {
-									writeInputStream = assetFile.inputStream
-									outputBytes = assetFile.inputStream.bytes
-									digestName = assetFile.getByteDigest()
+								if(!options.skipNonDigests) {
+									targetFiles << outputFile
+									outputFileNames << outputFileName.toString()
+									for(PrecompressionEncoder encoder in encoders) {
+										encodedFiles[encoder] << new File("${outputFile.getAbsolutePath()}.${encoder.extension}")
+										outputFileNames << "${outputFileName}.${encoder.extension}".toString()
+									}
 								}
-							}
-							// TODO: Streamify!
-							// eventListener?.triggerEvent("StatusUpdate","- Writing File")
-
-							byte[] buffer = new byte[8192]
-							int nRead
-							def outputFileStream
-							def digestFileStream
-							def gzipFileStream
-							def gzipStreamCollection = []
-
-							if(!options.skipNonDigests) {
-								outputFile.createNewFile()
-								outputFileStream = outputFile.newOutputStream()
-								if(options.enableGzip == true && !options.excludesGzip.find {
-									it.toLowerCase() == extension?.toLowerCase()
-								}) {
-									File zipFile = new File("${outputFile.getAbsolutePath()}.gz")
-									zipFile.createNewFile()
-									gzipStreamCollection << zipFile.newOutputStream()
+								if(extension) {
+									if(options.enableDigests) {
+										String digestedFileName = "${fileSystemName}-${digestName}${extension ? ('.' + extension) : ''}"
+										def digestedFile = new File(options.compileDir, digestedFileName)
+										targetFiles << digestedFile
+										outputFileNames << digestedFileName
+										for(PrecompressionEncoder encoder in encoders) {
+											encodedFiles[encoder] << new File("${digestedFile.getAbsolutePath()}.${encoder.extension}")
+											outputFileNames << "${digestedFileName}.${encoder.extension}".toString()
+										}
+										manifestProperties.setProperty("${fileName}${extension ? ('.' + extension) : ''}", "${fileName}-${digestName}${extension ? ('.' + extension) : ''}")
+									} else {
+										manifestProperties.setProperty("${fileName}${extension ? ('.' + extension) : ''}", "${fileName}${extension ? ('.' + extension) : ''}")
+									}
+									manifestKey = "${fileName}${extension ? ('.' + extension) : ''}"
 								}
-							}
-							if(extension) {
-								if(options.enableDigests) {
-									def digestedFile = new File(options.compileDir, "${fileSystemName}-${digestName}${extension ? ('.' + extension) : ''}")
-									digestedFile.createNewFile()
-									digestFileStream = digestedFile.newOutputStream()
-									if(options.enableGzip == true && !options.excludesGzip.find {
-										it.toLowerCase() == extension?.toLowerCase()
-									}) {
-										File zipFileDigest = new File("${digestedFile.getAbsolutePath()}.gz")
-										zipFileDigest.createNewFile()
-										gzipStreamCollection << zipFileDigest.newOutputStream()
+								String manifestValue = manifestKey ? manifestProperties.getProperty(manifestKey) : null
+								String outputDigest = digestName
+
+								// Every file is written under a temporary name and renamed into place once all are complete.
+								// The output is read once: with encoders the compress stage tees it into every encoder and the
+								// plain files, only hard links and assets without encoders are left to the write stage
+								Map<File, File> pendingFiles = new ConcurrentHashMap<File, File>()
+								Map<PrecompressionEncoder, List<File>> encoderTargets = encodedFiles.findAll { it.value }
+								boolean linkPlainFiles = directSource && options.linkGenericAssets
+								List<File> streamedFiles = encoderTargets && !linkPlainFiles ? targetFiles : []
+								List<File> copiedFiles = streamedFiles ? [] : targetFiles
+								CompletableFuture compressed = encoderTargets ? compressStage.submit { -> encodeToPendingFiles(encoderTargets, streamedFiles, openSource, pendingFiles) } : CompletableFuture.completedFuture(null)
+								CompletableFuture written = compressed.thenCompose { ignored ->
+									writeStage.submit { ->
+										writeToPendingFiles(copiedFiles, directSource, openSource, pendingFiles)
+										publishPendingFiles(pendingFiles)
+										dependencyGraph.finishRecording(recording, outputFileNames, manifestKey, manifestValue, outputDigest)
 									}
-									manifestProperties.setProperty("${fileName}${extension ? ('.' + extension) : ''}", "${fileName}-${digestName}${extension ? ('.' + extension) : ''}")
-								} else {
-									manifestProperties.setProperty("${fileName}${extension ? ('.' + extension) : ''}", "${fileName}${extension ? ('.' + extension) : ''}")
 								}
-							}
 
-							if(gzipStreamCollection) {
-								MultiOutputStream targetStream = new MultiOutputStream(gzipStreamCollection)
-								gzipFileStream = new GZIPOutputStream(targetStream, true)
-							}
-							while((nRead = writeInputStream.read(buffer, 0, buffer.length)) != -1) {
-								// noop (just to complete the stream)
-								outputFileStream?.write(buffer, 0, nRead);
-								digestFileStream?.write(buffer, 0, nRead);
-								gzipFileStream?.write(buffer, 0, nRead);
-							}
-							if(gzipFileStream) {
-								gzipFileStream.finish()
-								gzipFileStream.flush()
-								gzipFileStream.close()
-								gzipStreamCollection.each { stream ->
-									stream.flush()
-									stream.close()
+								// The bundle and the in flight bytes are released once the output is published
+								BundleOutput writtenBundle = bundle
+								long writtenBytes = inFlightBytes
+								bundle = null
+								inFlightBytes = 0L
+								pendingOutputs << written.whenComplete { result, Throwable ex ->
+									writtenBundle?.close()
+									pendingFiles.keySet()*.delete()
+									inFlightBudget?.release(writtenBytes)
+									if(ex != null) {
+										outputFailure.compareAndSet(null, ex instanceof CompletionException && ex.cause ? ex.cause : ex)
+									}
 								}
+								return futureResult
 							}
-
-							digestFileStream?.flush()
-							outputFileStream?.flush()
-							digestFileStream?.close()
-							outputFileStream?.close()
-							writeInputStream.close()
-							return futureResult
+						} finally {
+							bundle?.close()
+							DependencyGraph.stopRecording()
+							inFlightBudget?.release(inFlightBytes)
 						}
-
 					}
-				} as Callable)
+				}
+				compileTasks[source.path as String] = { -> processStage.measure(processTask) }
+			}
+			scheduler.run(compileTasks, taskDependencies)
+			try {
+				CompletableFuture.allOf(pendingOutputs as CompletableFuture[]).join()
+			} catch(CompletionException ignored) {
+				// the failure is captured by the whenComplete handlers
+			}
+			if(outputFailure.get() != null) {
+				throw outputFailure.get()
 			}
-			int pending = futures.size()
-		  	while (pending > 0) {
-			      // Wait for up to 100ms to see if anything has completed.
-			      // The completed future is returned if one is found; otherwise null.
-			      // (Tune 100ms as desired)
-			      def completed = completionService.poll(100, TimeUnit.MILLISECONDS);
-			      
-			      if (completed != null) {
-			      		completed.get() //need this to throw exceptions on main thread it seems
-			          --pending;
-		    		}
-			  }
-			// Integer futureCounter = 1
-			// for(future in futures) {
-			// 	while(!future.isDone()) { sleep(100)}
-			// 	eventListener?.triggerEvent("StatusUpdate", "Future Completed ${futureCounter++}")
-			// }
 		} finally {
 			// eventListener?.triggerEvent("StatusUpdate", "Shutting Down ThreadPool")
-			threadPool.shutdown()
+			scheduler.shutdown()
+			compileStages*.shutdown()
+			processorRegistry.close()
+			compiledDigests.close()
 		}
 		// eventListener?.triggerEvent("StatusUpdate", "Saving Manifest")
 		saveManifest()
+		dependencyGraph.save()
+		log.debug("Compiled digest cache: ${compiledDigests.hits} hits, ${compiledDigests.misses} misses")
+		if(buildCache instanceof DirectoryBuildCache) {
+			log.debug("Build cache: ${buildCache.hits} hits, ${buildCache.misses} misses")
+		}
+		if(minifyCache instanceof DirectoryBuildCache && !minifyCache.is(buildCache)) {
+			log.debug("Minify cache: ${minifyCache.hits} hits, ${minifyCache.misses} misses")
+		}
+		for(CompileStage stage in compileStages) {
+			log.info("Stage ${stage}")
+			eventListener?.triggerEvent("StatusUpdate", "Stage ${stage}")
+		}
+		if(inFlightBudget) {
+			String peakMemory = "Peak heap usage ${inFlightBudget.peakHeapUsed.intdiv(1024 * 1024)}MB with at most ${inFlightBudget.peakInFlight.intdiv(1024)}KB of assets in flight"
+			log.info(peakMemory)
+			eventListener?.triggerEvent("StatusUpdate", peakMemory)
+		}
 		eventListener?.triggerEvent("StatusUpdate", "Finished Precompiling Assets")
 	}
 
+	/**
+	 * Reads the output of an asset once, compressing it into the files of every encoder and writing it to the plain
+	 * files at the same time. Runs on the compress stage
+	 * @param plainTargets the uncompressed files written in the same pass, empty if the write stage writes them
+	 */
+	private static void encodeToPendingFiles(Map<PrecompressionEncoder, List<File>> encoderTargets, List<File> plainTargets, Closure<InputStream> openSource, Map<File, File> pendingFiles) {
+		List<OutputStream> streamCollection = plainTargets.collect { File target -> newPendingOutputStream(target, pendingFiles) }
+		List<OutputStream> outputStreams = new ArrayList<OutputStream>(streamCollection)
+		List<OutputStream> encodedStreams = []
+		try {
+			encoderTargets.each { PrecompressionEncoder encoder, List<File> targets ->
+				List<OutputStream> encodedFileStreams = targets.collect { File target -> newPendingOutputStream(target, pendingFiles) }
+				streamCollection.addAll(encodedFileStreams)
+				OutputStream encodedStream = encoder.encode(new MultiOutputStream(encodedFileStreams))
+				encodedStreams << encodedStream
+				outputStreams << encodedStream
+			}
+			InputStream inputStream = openSource.call()
+			try {
+				copyStream(inputStream, outputStreams)
+			} finally {
+				inputStream.close()
+			}
+			for(OutputStream encodedStream in encodedStreams) {
+				encodedStream.flush()
+				encodedStream.close()
+			}
+		} finally {
+			streamCollection.each { stream ->
+				stream.flush()
+				stream.close()
+			}
+		}
+	}
+
+	/**
+	 * Writes the output of an asset to its plain and digested file unless the compress stage wrote them in its pass.
+	 * Runs on the write stage
+	 */
+	private void writeToPendingFiles(List<File> targets, File directSource, Closure<InputStream> openSource, Map<File, File> pendingFiles) {
+		if(!targets) {
+			return
+		}
+		if(directSource) {
+			for(File target in targets) {
+				copyToPendingFile(directSource, target, pendingFiles)
+			}
+			return
+		}
+		List<OutputStream> streamCollection = targets.collect { File target -> newPendingOutputStream(target, pendingFiles) }
+		try {
+			InputStream inputStream = openSource.call()
+			try {
+				copyStream(inputStream, streamCollection)
+			} finally {
+				inputStream.close()
+			}
+		} finally {
+			streamCollection.each { stream ->
+				stream.flush()
+				stream.close()
+			}
+		}
+	}
+
+	private static void copyStream(InputStream inputStream, List<OutputStream> outputStreams) {
+		byte[] buffer = new byte[8192]
+		int nRead
+		while((nRead = inputStream.read(buffer, 0, buffer.length)) != -1) {
+			for(OutputStream outputStream in outputStreams) {
+				outputStream.write(buffer, 0, nRead)
+			}
+		}
+	}
+
+	/**
+	 * Deletes the temporary files an earlier build left in the compileDir when it was killed while writing
+	 */
+	private static void removeStalePendingFiles(File compileDir) {
+		if(!compileDir.exists()) {
+			return
+		}
+		compileDir.eachFileRecurse(FileType.FILES) { File file ->
+			if(PENDING_FILE_PATTERN.matcher(file.name).matches() && !file.delete()) {
+				log.warn("Unable to delete stale pending file ${file}")
+			}
+		}
+	}
+
+	/**
+	 * Opens a stream to a temporary file next to the target which {@link #publishPendingFiles} moves into place
+	 */
+	private static OutputStream newPendingOutputStream(File target, Map<File, File> pendingFiles) {
+		File pendingFile = new File(target.parentFile, ".${target.name}.${UUID.randomUUID()}.tmp")
+		pendingFiles[pendingFile] = target
+		return pendingFile.newOutputStream()
+	}
+
+	/**
+	 * Copies a file to a temporary file next to the target which {@link #publishPendingFiles} moves into place. The
+	 * copy is made by the operating system via {@link FileChannel#transferTo} without passing through the heap or,
+	 * when the linkGenericAssets option is enabled, as a hard link to the source where the file system supports it.
+	 */
+	private void copyToPendingFile(File source, File target, Map<File, File> pendingFiles) {
+		File pendingFile = new File(target.parentFile, ".${target.name}.${UUID.randomUUID()}.tmp")
+		pendingFiles[pendingFile] = target
+		if(options.linkGenericAssets) {
+			try {
+				Files.createLink(pendingFile.toPath(), source.toPath())
+				return
+			} catch(IOException | UnsupportedOperationException ex) {
+				// i.e. on another file system, fall back to copying
+			}
+		}
+		FileChannel sourceChannel = FileChannel.open(source.toPath(), StandardOpenOption.READ)
+		try {
+			FileChannel targetChannel = FileChannel.open(pendingFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)
+			try {
+				long size = sourceChannel.size()
+				long position = 0
+				while(position < size) {
+					position += sourceChannel.transferTo(position, size - position, targetChannel)
+				}
+			} finally {
+				targetChannel.close()
+			}
+		} finally {
+			sourceChannel.close()
+		}
+	}
+
+	/**
+	 * Writes a file into the compileDir outside of the write stage (i.e. the source maps of a processor) through a
+	 * temporary file that is renamed into place, the same way compiled files are published
+	 */
+	static void writePendingText(File target, String text) {
+		target.parentFile.mkdirs()
+		Map<File, File> pendingFiles = [:]
+		try {
+			OutputStream outputStream = newPendingOutputStream(target, pendingFiles)
+			try {
+				outputStream.write(text.getBytes('UTF-8'))
+			} finally {
+				outputStream.close()
+			}
+			publishPendingFiles(pendingFiles)
+		} finally {
+			for(File pendingFile in pendingFiles.keySet()) {
+				pendingFile.delete()
+			}
+		}
+	}
+
+	/**
+	 * Atomically renames completely written temporary files to their targets so a compiled file is never observed
+	 * partially written
+	 */
+	private static void publishPendingFiles(Map<File, File> pendingFiles) {
+		Iterator<Map.Entry<File, File>> pending = pendingFiles.entrySet().iterator()
+		while(pending.hasNext()) {
+			Map.Entry<File, File> entry = pending.next()
+			try {
+				Files.move(entry.key.toPath(), entry.value.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+			} catch(AtomicMoveNotSupportedException ex) {
+				Files.move(entry.key.toPath(), entry.value.toPath(), StandardCopyOption.REPLACE_EXISTING)
+			}
+			pending.remove()
+		}
+	}
+
 	private initializeWorkspace() {
 		// Check for existing Compiled Assets
 		def assetDir = new File(options.compileDir)
@@ -333,9 +643,47 @@ class AssetCompiler {
 		} else {
 			assetDir.mkdirs()
 		}
+		precompressionEncoders = PrecompressionEncoders.fromOptions(options, options.classLoader as ClassLoader)
+		buildCache = BuildCaches.fromOptions(options)
+		minifyCache = options.minifyJs ? BuildCaches.minifyCacheFromOptions(options, buildCache) : null
+		dependencyGraph = new DependencyGraph(assetDir, getBuildDigest())
+		dependencyGraph.load()
 		return assetDir
 	}
 
+	/**
+	 * The digest used in the compiled file name of an asset. Memoized per build so each referenced asset
+	 * is only compiled once.
+	 */
+	String compiledDigestOf(AssetFile assetFile) {
+		return compiledDigests.getDigest(assetFile.path) { ->
+			if(assetFile instanceof GenericAssetFile) {
+				return assetFile.getByteDigest()
+			}
+			DependencyGraph.Recording recording = new DependencyGraph.Recording(assetFile)
+			BundleOutput bundle = DependencyGraph.recordNested(recording) { -> compileBundle(assetFile) }
+			// the compile task of the asset writes this bundle instead of compiling it again
+			compiledDigests.keepBundle(assetFile.path, bundle, recording)
+			return bundle.digest
+		}
+	}
+
+	private BundleOutput compileBundle(AssetFile assetFile) {
+		def contentType = (assetFile.contentType instanceof String) ? assetFile.contentType : assetFile.contentType[0]
+		return new DirectiveProcessor(contentType, this, options.classLoader).compileBundle(assetFile)
+	}
+
+	/**
+	 * Generates a digest of everything besides the asset sources that affects the compiled output.
+	 * When this changes the persisted {@link DependencyGraph} is discarded and all assets are recompiled.
+	 */
+	protected String getBuildDigest() {
+		def specs = AssetHelper.assetSpecs.collect { spec -> [spec.name, spec.processors?.collect { it.name }] }
+		def compilerOptions = options.subMap(['minifyJs', 'minifyCss', 'minifyOptions', 'enableSourceMaps', 'enableDigests', 'skipNonDigests', 'enableGzip', 'excludesGzip', 'gzipLevel', 'enableBrotli', 'excludesBrotli', 'brotliLevel', 'enableZstd', 'excludesZstd', 'zstdLevel'])
+		def encoders = precompressionEncoders.collect { [it.class.name, it.extension] }
+		return AssetHelper.getByteDigest([config: AssetPipelineConfigHolder.getDigestString(), options: compilerOptions, specs: specs, encoders: encoders].toString().bytes)
+	}
+
 	/**
 	 * Checks any user passed minification exclude patterns at (minifyOptions.excludes=['blah.js'])
 	 * Exclude patterns can use glob patterns by default or regular expressions by prefixing the pattern with 'regex:'
@@ -376,14 +724,28 @@ class AssetCompiler {
 
 
 	def getAllAssets() {
-		def filesToProcess = []
+		List<AssetFile> filesToProcess = []
 		AssetPipelineConfigHolder.resolvers.each { resolver ->
-			def files = resolver.scanForFiles(getExcludesForPathKey(resolver.name), getIncludesForPathKey(resolver.name))
-			filesToProcess += files
+			filesToProcess.addAll(resolver.scanForFiles(getExcludesForPathKey(resolver.name), getIncludesForPathKey(resolver.name)))
 		}
 
-		filesToProcess.unique { a, b -> a.path <=> b.path }
-		return filesToProcess //Make sure we have a unique set
+		return AssetHelper.uniqueByPath(filesToProcess) //Make sure we have a unique set
+	}
+
+	/**
+	 * Like {@link #getAllAssets} but describes the assets without creating them for the boundedHeap option
+	 */
+	List<AssetDescriptor> getAllAssetDescriptors() {
+		Map<String, AssetDescriptor> descriptors = new LinkedHashMap<String, AssetDescriptor>()
+		AssetPipelineConfigHolder.resolvers.each { resolver ->
+			def excludes = getExcludesForPathKey(resolver.name)
+			def includes = getIncludesForPathKey(resolver.name)
+			def scanned = resolver instanceof AbstractAssetResolver ? resolver.scanForDescriptors(excludes, includes) : resolver.scanForFiles(excludes, includes).collect { AssetDescriptor.of(it) }
+			for(AssetDescriptor descriptor in scanned) {
+				descriptors.putIfAbsent(descriptor.path, descriptor)
+			}
+		}
+		return new ArrayList<AssetDescriptor>(descriptors.values())
 	}
 
 	private saveManifest() {
@@ -394,7 +756,14 @@ class AssetCompiler {
 
 
 	private removeDeletedFiles(filesToProcess) {
-		def compiledFileNames = filesToProcess.collect { assetFile ->
+		Set<String> sourcePaths = new HashSet<String>(filesToProcess.collect { it.path })
+		dependencyGraph.removeDeletedAssets(sourcePaths).each { manifestKey ->
+			manifestProperties.remove(manifestKey)
+		}
+		Set<String> compiledFileNames = new HashSet<String>()
+		filesToProcess.each { source ->
+			// Descriptors are only loaded for their compiled extension and released right after
+			def assetFile = source instanceof AssetDescriptor ? source.load() : source
 			def fileName = assetFile.path
 			def extension = AssetHelper.extensionFromURI(fileName)
 			fileName = AssetHelper.nameWithoutExtension(fileName)
@@ -403,50 +772,37 @@ class AssetCompiler {
 				extension = assetFile.compiledExtension
 				fileName = AssetHelper.fileNameWithoutExtensionFromArtefact(fileName, assetFile)
 			}
-			return "${fileName}${extension ? ('.' + extension) : ''}"
-		}
-
-		def propertiesToRemove = []
-		manifestProperties.keySet().each { compiledUri ->
-			def compiledName = compiledUri//.replace(AssetHelper.DIRECTIVE_FILE_SEPARATOR,File.separator)
-
-			def fileFound = compiledFileNames.find { it == compiledName.toString() }
-			if(!fileFound) {
-				def digestedUri = manifestProperties.getProperty(compiledName)
-				def digestedName = digestedUri//.replace(AssetHelper.DIRECTIVE_FILE_SEPARATOR,File.separator)
-				def compiledFile = new File(options.compileDir, compiledName)
-				def digestedFile = new File(options.compileDir, digestedName)
-				def zippedFile = new File(options.compileDir, "${compiledName}.gz")
-				def zippedDigestFile = new File(options.compileDir, "${digestedName}.gz")
-				if(compiledFile.exists()) {
-					compiledFile.delete()
-				}
-				if(digestedFile.exists()) {
-					digestedFile.delete()
-				}
-				if(zippedFile.exists()) {
-					zippedFile.delete()
-				}
-				if(zippedDigestFile.exists()) {
-					zippedDigestFile.delete()
-				}
-				propertiesToRemove << compiledName
-			} else {
-				def compiledFile = new File(options.compileDir, compiledName)
-				def zippedFile = new File(options.compileDir, "${compiledName}.gz")
+			compiledFileNames << "${fileName}${extension ? ('.' + extension) : ''}".toString()
+		}
 
-				if(compiledFile.exists() && options.skipNonDigests == true) {
-					compiledFile.delete()
-				}
-				if(zippedFile.exists() && options.skipNonDigests == true) {
-					zippedFile.delete()
-				}
-				propertiesToRemove << compiledName
+		// Variants of encoders that have since been disabled are removed as well
+		Set<String> encodedExtensions = new LinkedHashSet<String>(['gz', 'br', 'zst'] + precompressionEncoders*.extension)
+		// Single pass over the manifest. Every entry is dropped and set again by the compile task of its asset
+		for(String compiledName in manifestProperties.stringPropertyNames()) {
+			if(!compiledFileNames.contains(compiledName)) {
+				String digestedName = manifestProperties.getProperty(compiledName)
+				deleteCompiledFile(compiledName, encodedExtensions)
+				deleteCompiledFile(digestedName, encodedExtensions)
+			} else if(options.skipNonDigests == true) {
+				deleteCompiledFile(compiledName, encodedExtensions)
 			}
 		}
+		manifestProperties.clear()
+	}
 
-		propertiesToRemove.each {
-			manifestProperties.remove(it)
+	/**
+	 * Deletes a compiled file and its precompressed variants if they exist
+	 */
+	private void deleteCompiledFile(String compiledName, Collection<String> encodedExtensions) {
+		def compiledFile = new File(options.compileDir, compiledName)
+		if(compiledFile.exists()) {
+			compiledFile.delete()
+		}
+		for(String encodedExtension in encodedExtensions) {
+			def encodedFile = new File(options.compileDir, "${compiledName}.${encodedExtension}")
+			if(encodedFile.exists()) {
+				encodedFile.delete()
+			}
 		}
 	}
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import groovy.transform.CompileStatic
+
+/**
+ * A file found while scanning for assets to precompile, holding only what is needed to schedule its compile. The
+ * {@link AssetFile} itself, which keeps the contents of the file once read, is created by {@link #load} when the
+ * file is compiled and can be released right after.
+ */
+@CompileStatic
+class AssetDescriptor {
+	final String path
+	/** Size of the source in bytes or 0 if unknown */
+	final long size
+	final long lastModified
+	/** The {@link AssetFile} class handling the file or null for a {@link GenericAssetFile} */
+	final Class<AssetFile> assetFileClass
+
+	private final Closure<AssetFile> factory
+
+	AssetDescriptor(String path, long size, long lastModified, Class<AssetFile> assetFileClass, Closure<AssetFile> factory) {
+		this.path = path
+		this.size = size
+		this.lastModified = lastModified
+		this.assetFileClass = assetFileClass
+		this.factory = factory
+	}
+
+	/**
+	 * Describes an already created asset file. {@link #load} returns that same instance
+	 */
+	static AssetDescriptor of(AssetFile assetFile) {
+		File sourceFile = assetFile instanceof GenericAssetFile ? ((GenericAssetFile) assetFile).sourceFile : null
+		Class<AssetFile> assetFileClass = assetFile instanceof GenericAssetFile ? null : (Class<AssetFile>) assetFile.getClass()
+		return new AssetDescriptor(assetFile.path, sourceFile?.length() ?: 0L, sourceFile?.lastModified() ?: 0L, assetFileClass, { -> assetFile })
+	}
+
+	boolean isGeneric() {
+		return assetFileClass == null
+	}
+
+	/**
+	 * Creates the asset file described
+	 */
+	AssetFile load() {
+		return factory.call()
+	}
+}
@@ -22,6 +22,7 @@ import java.nio.file.Paths
 import java.util.regex.Pattern
 import java.security.MessageDigest
 import java.nio.channels.FileChannel
+import java.util.concurrent.ConcurrentHashMap
 import groovy.transform.CompileStatic
 
 /**
@@ -35,6 +36,9 @@ public class AssetHelper {
     static final Collection<Class<AssetFile>> assetSpecs = AssetSpecLoader.loadSpecifications()
     static final String QUOTED_FILE_SEPARATOR = Pattern.quote(File.separator)
     static final String DIRECTIVE_FILE_SEPARATOR = '/'
+    private static volatile AssetSpecMatcher specMatcher
+    /** Matchers of the include and exclude patterns by pattern */
+    private static final Map<String, List<PathMatcher>> compiledPatterns = new ConcurrentHashMap<String, List<PathMatcher>>()
 
     /**
      * Resolve an {@link AssetFile} for the given URI
@@ -63,27 +67,34 @@ public class AssetHelper {
         return assetSpecs;
     }
 
+    /**
+     * The matcher for the currently registered specs. It is rebuilt when specs are added
+     * or after {@link #resetSpecMatcher()} is called.
+     */
+    @CompileStatic
+    static AssetSpecMatcher getSpecMatcher() {
+        AssetSpecMatcher matcher = specMatcher
+        if (matcher == null || matcher.specs.size() != assetSpecs.size()) {
+            matcher = new AssetSpecMatcher(assetSpecs)
+            specMatcher = matcher
+        }
+        return matcher
+    }
+
+    /**
+     * Discards the spec matcher. Needs to be called when the extensions or content types of a registered spec change.
+     */
+    static void resetSpecMatcher() {
+        specMatcher = null
+    }
+
     /**
      * Finds the AssetFile definition for the specified file name based on its extension
      * @param filename String filename representation
      */
+    @CompileStatic
     static Class<AssetFile> assetForFileName(String filename) {
-        Map<String, Class<AssetFile>> extensionMap = [:]
-        for (fileSpec in assetFileClasses()) {
-            for (extension in fileSpec.extensions) {
-                if (extensionMap[extension] == null) {
-                    extensionMap[extension] = fileSpec
-                }
-            }
-        }
-
-        List<String> extensions = extensionMap.keySet().sort(false) { String a, String b -> -(a.size()) <=> -(b.size()) }
-        String matchedExtension = extensions.find { filename.endsWith(".${it}".toString()) }
-        if (matchedExtension) {
-            return extensionMap[matchedExtension]
-        } else {
-            return null
-        }
+        return getSpecMatcher().specForFileName(filename)
     }
 
     /**
@@ -114,9 +125,7 @@ public class AssetHelper {
             return null
         }
         String lastUriComponent = uriComponents[uriComponents.length - 1]
-        List<String> extensions = (List<String>) (AssetHelper.assetSpecs.collect { Class<AssetFile> it -> it.extensions }.flatten().sort(false) { String a, String b -> -(a.size()) <=> -(b.size()) })
-        String extension = null
-        extension = extensions.find { lastUriComponent.endsWith(".${it}".toString()) }
+        String extension = getSpecMatcher().extensionForFileName(lastUriComponent)
         if (!extension) {
             if (lastUriComponent.lastIndexOf(".") >= 0) {
                 extension = uri.substring(uri.lastIndexOf(".") + 1)
@@ -143,15 +152,23 @@ public class AssetHelper {
     }
 
 
+    @CompileStatic
     static String fileNameWithoutExtensionFromArtefact(String filename, AssetFile assetFile) {
         if (assetFile == null) {
             return null
         }
 
+        AssetSpecMatcher matcher = getSpecMatcher()
+        Class assetClass = assetFile.getClass()
+        if (matcher.isKnownSpec(assetClass)) {
+            String extension = matcher.extensionForFileName(filename, assetClass)
+            return extension ? filename.substring(0, filename.length() - extension.length() - 1) : filename
+        }
+
         String rootName = filename
-        assetFile.extensions.toList().sort(false) { String a, String b -> -(a.size()) <=> -(b.size()) }.each { extension ->
-            if (filename.endsWith(".${extension}")) {
-                String potentialName = filename.substring(0, filename.lastIndexOf(".${extension}"))
+        for (String extension in artefactExtensions(assetFile)) {
+            if (filename.endsWith(".${extension}".toString())) {
+                String potentialName = filename.substring(0, filename.lastIndexOf(".${extension}".toString()))
                 if (potentialName.length() < rootName.length()) {
                     rootName = potentialName
                 }
@@ -160,6 +177,10 @@ public class AssetHelper {
         return rootName
     }
 
+    private static List<String> artefactExtensions(AssetFile assetFile) {
+        return (assetFile.extensions ?: []).toList() as List<String>
+    }
+
     /**
      * The asset content type for the given URI
      *
@@ -200,8 +221,35 @@ public class AssetHelper {
      * @param contentType The content type
      * @return The {@link AssetFile} classes
      */
+    @CompileStatic
     static Collection<Class<AssetFile>> getPossibleFileSpecs(String contentType) {
-        return assetFileClasses().findAll { Class<AssetFile> it -> (it.contentType instanceof String) ? it.contentType == contentType : contentType in it.contentType }
+        return getSpecMatcher().specsForContentType(contentType)
+    }
+
+    /**
+     * Returns the {@link AssetFile} classes declaring the given extension
+     *
+     * @param extension The extension without the leading dot
+     * @return The {@link AssetFile} classes
+     */
+    @CompileStatic
+    static Collection<Class<AssetFile>> getFileSpecsForExtension(String extension) {
+        return getSpecMatcher().specsForExtension(extension)
+    }
+
+    /**
+     * Removes assets sharing a path with an earlier asset in a single pass
+     *
+     * @param assetFiles The assets in order of precedence
+     * @return The first asset found for each path
+     */
+    @CompileStatic
+    static List<AssetFile> uniqueByPath(Collection<AssetFile> assetFiles) {
+        Map<String, AssetFile> assetsByPath = new LinkedHashMap<String, AssetFile>(assetFiles.size() * 2)
+        for(AssetFile assetFile in assetFiles) {
+            assetsByPath.putIfAbsent(assetFile.path, assetFile)
+        }
+        return new ArrayList<AssetFile>(assetsByPath.values())
     }
 
     /**
@@ -230,6 +278,27 @@ public class AssetHelper {
         return md.digest().encodeHex().toString()
     }
 
+    /**
+     * Generates the same digest as {@link #getByteDigest} while reading a stream to its end. The stream is not closed
+     * @param inputStream the contents of a file
+     * @return md5 String
+     */
+    static String getStreamDigest(InputStream inputStream) {
+        def hashAlgorithm = AssetPipelineConfigHolder.getConfig()?.digestAlgorithm ?: 'MD5'
+        def salt = AssetPipelineConfigHolder.getConfig()?.digestSalt ?: ''
+
+        MessageDigest md = MessageDigest.getInstance(hashAlgorithm)
+        byte[] buffer = new byte[8192]
+        int nRead
+        while((nRead = inputStream.read(buffer, 0, buffer.length)) != -1) {
+            md.update(buffer, 0, nRead)
+        }
+        if(salt) {
+            md.update(salt.bytes)
+        }
+        return md.digest().encodeHex().toString()
+    }
+
 
     /**
      * Normalizes a path into a standard path, stripping out all path elements that walk the path (i.e. '..' and '.')
@@ -266,26 +335,43 @@ public class AssetHelper {
      */
     @CompileStatic
     static boolean isFileMatchingPatterns(String filePath, List<String> patterns) {
-        for(pattern in patterns) {
+        if(!patterns) {
+            return false
+        }
+        def path = Paths.get(filePath)
+        for(String pattern in patterns) {
+            for(PathMatcher pathMatcher in pathMatchersFor(pattern)) {
+                if(pathMatcher.matches(path)) {
+                    return true
+                }
+            }
+        }
+        return false
+    }
+
+    /**
+     * The compiled matchers of a pattern. Globs starting a segment with a double star also match the pattern
+     * without it so they apply to files in the root directory
+     */
+    @CompileStatic
+    private static List<PathMatcher> pathMatchersFor(String pattern) {
+        List<PathMatcher> pathMatchers = compiledPatterns.get(pattern)
+        if(pathMatchers == null) {
             String syntax = "glob"
+            String expression = pattern
             if(pattern.startsWith('regex:')) {
                 syntax = "regex"
-                pattern = pattern.substring(6)
+                expression = pattern.substring(6)
             } else if(pattern.startsWith('glob:')) {
-                pattern = pattern.substring(5)
+                expression = pattern.substring(5)
             }
-            PathMatcher pathMatcher = FileSystems.getDefault().getPathMatcher("${syntax}:${pattern}")
-            if(pathMatcher.matches(Paths.get(filePath))) {
-                return true
-            }
-            if(syntax == "glob" && pattern.contains('**/')) {
-                pathMatcher = FileSystems.getDefault().getPathMatcher("${syntax}:${pattern.replace('**/','')}")
-                if(pathMatcher.matches(Paths.get(filePath))) {
-                    return true
-                }
+            pathMatchers = [FileSystems.getDefault().getPathMatcher("${syntax}:${expression}".toString())]
+            if(syntax == "glob" && expression.contains('**/')) {
+                pathMatchers << FileSystems.getDefault().getPathMatcher("${syntax}:${expression.replace('**/','')}".toString())
             }
+            compiledPatterns.putIfAbsent(pattern, pathMatchers)
         }
-        return false
+        return pathMatchers
     }
 
 }
@@ -27,7 +27,12 @@ class AssetPipeline {
 	* This method is NOT recommended for public use as behavior changes in production mode.
 	*/
 	static byte[] serveAsset(String uri, String contentType = null, String extension = null, String encoding = null) {
+		return CacheManager.withValidationScope {
+			serveAssetInScope(uri, contentType, extension, encoding)
+		}
+	}
 
+	private static byte[] serveAssetInScope(String uri, String contentType, String extension, String encoding) {
 		def assetFile = AssetHelper.fileForUri(uri, contentType, extension)
 
 		def directiveProcessor = new DirectiveProcessor(contentType)
@@ -53,6 +58,12 @@ class AssetPipeline {
 	* This method is NOT recommended for public use as behavior changes in production mode.
 	*/
 	static byte[] serveUncompiledAsset(String uri, String contentType, String extension = null, String encoding=null) {
+		return CacheManager.withValidationScope {
+			serveUncompiledAssetInScope(uri, contentType, extension, encoding)
+		}
+	}
+
+	private static byte[] serveUncompiledAssetInScope(String uri, String contentType, String extension, String encoding) {
 		def assetFile = AssetHelper.fileForUri(uri, contentType, extension)
 
 		def directiveProcessor = new DirectiveProcessor(contentType)
@@ -98,5 +98,6 @@ class AssetSpecLoader {
                 }
             }
         }
+        AssetHelper.resetSpecMatcher()
     }
 }
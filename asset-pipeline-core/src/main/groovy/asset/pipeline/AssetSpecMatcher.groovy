@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import groovy.transform.CompileDynamic
+import groovy.transform.CompileStatic
+
+/**
+ * Immutable lookup structure for matching file names to {@link AssetFile} specs. The extensions of all specs are
+ * stored in a trie of their reversed characters so the longest matching extension is found in a single pass over
+ * the end of the file name. The specs of each content type are precomputed as well.
+ *
+ * Instances are built by {@link AssetHelper} from the loaded specs and rebuilt when specs are added or processors change.
+ */
+@CompileStatic
+class AssetSpecMatcher {
+	final List<Class<AssetFile>> specs
+	private final SuffixNode root = new SuffixNode()
+	private final Map<Class, SuffixNode> rootsBySpec = new HashMap<Class, SuffixNode>()
+	private final Map<String, List<Class<AssetFile>>> specsByContentType = new HashMap<String, List<Class<AssetFile>>>()
+	private final Map<String, List<Class<AssetFile>>> specsByExtension = new HashMap<String, List<Class<AssetFile>>>()
+
+	AssetSpecMatcher(Collection<Class<AssetFile>> specs) {
+		this.specs = Collections.unmodifiableList(new ArrayList<Class<AssetFile>>(specs))
+		for(Class<AssetFile> spec in this.specs) {
+			SuffixNode specRoot = new SuffixNode()
+			rootsBySpec.put(spec, specRoot)
+			for(String extension in extensionsOf(spec)) {
+				// the first spec declaring an extension wins
+				insert(root, extension, spec)
+				insert(specRoot, extension, spec)
+				List<Class<AssetFile>> extensionSpecs = specsByExtension.get(extension)
+				if(extensionSpecs == null) {
+					extensionSpecs = new ArrayList<Class<AssetFile>>()
+					specsByExtension.put(extension, extensionSpecs)
+				}
+				if(!extensionSpecs.contains(spec)) {
+					extensionSpecs.add(spec)
+				}
+			}
+			for(String contentType in contentTypesOf(spec)) {
+				List<Class<AssetFile>> contentTypeSpecs = specsByContentType.get(contentType)
+				if(contentTypeSpecs == null) {
+					contentTypeSpecs = new ArrayList<Class<AssetFile>>()
+					specsByContentType.put(contentType, contentTypeSpecs)
+				}
+				if(!contentTypeSpecs.contains(spec)) {
+					contentTypeSpecs.add(spec)
+				}
+			}
+		}
+		specsByContentType.replaceAll { String key, List<Class<AssetFile>> value -> Collections.unmodifiableList(value) }
+		specsByExtension.replaceAll { String key, List<Class<AssetFile>> value -> Collections.unmodifiableList(value) }
+	}
+
+	/**
+	 * @return the spec with the longest extension the file name ends with or null
+	 */
+	Class<AssetFile> specForFileName(String fileName) {
+		return longestMatch(root, fileName)?.spec
+	}
+
+	/**
+	 * @return the longest known extension (without the leading dot) the file name ends with or null
+	 */
+	String extensionForFileName(String fileName) {
+		return longestMatch(root, fileName)?.extension
+	}
+
+	/**
+	 * @return the longest extension of the given spec the file name ends with or null if the spec is unknown or not matching
+	 */
+	String extensionForFileName(String fileName, Class spec) {
+		SuffixNode specRoot = rootsBySpec.get(spec)
+		return specRoot != null ? longestMatch(specRoot, fileName)?.extension : null
+	}
+
+	/**
+	 * @return true if the spec was part of the specs this matcher was built from
+	 */
+	boolean isKnownSpec(Class spec) {
+		return rootsBySpec.containsKey(spec)
+	}
+
+	/**
+	 * @return the specs handling the content type in registration order
+	 */
+	List<Class<AssetFile>> specsForContentType(String contentType) {
+		List<Class<AssetFile>> contentTypeSpecs = contentType != null ? specsByContentType.get(contentType) : null
+		return contentTypeSpecs != null ? contentTypeSpecs : Collections.<Class<AssetFile>>emptyList()
+	}
+
+	/**
+	 * @return the specs declaring the extension in registration order
+	 */
+	List<Class<AssetFile>> specsForExtension(String extension) {
+		List<Class<AssetFile>> extensionSpecs = extension != null ? specsByExtension.get(extension) : null
+		return extensionSpecs != null ? extensionSpecs : Collections.<Class<AssetFile>>emptyList()
+	}
+
+	private static SuffixNode longestMatch(SuffixNode start, String fileName) {
+		SuffixNode match = null
+		SuffixNode node = start
+		for(int index = fileName.length() - 1; index >= 0; index--) {
+			char character = fileName.charAt(index)
+			if(character == '.' as char && node.extension != null) {
+				match = node
+			}
+			node = node.children.get(character)
+			if(node == null) {
+				break
+			}
+		}
+		return match
+	}
+
+	private static void insert(SuffixNode start, String extension, Class<AssetFile> spec) {
+		SuffixNode node = start
+		for(int index = extension.length() - 1; index >= 0; index--) {
+			char character = extension.charAt(index)
+			SuffixNode child = node.children.get(character)
+			if(child == null) {
+				child = new SuffixNode()
+				node.children.put(character, child)
+			}
+			node = child
+		}
+		if(node.extension == null) {
+			node.extension = extension
+			node.spec = spec
+		}
+	}
+
+	@CompileDynamic
+	private static Collection<String> extensionsOf(Class<AssetFile> spec) {
+		return (spec.extensions ?: []) as Collection<String>
+	}
+
+	@CompileDynamic
+	private static Collection<String> contentTypesOf(Class<AssetFile> spec) {
+		def contentType = spec.contentType
+		if(contentType == null) {
+			return []
+		}
+		return contentType instanceof String ? [contentType] : contentType as Collection<String>
+	}
+
+	private static class SuffixNode {
+		final Map<Character, SuffixNode> children = new HashMap<Character, SuffixNode>(4)
+		String extension
+		Class<AssetFile> spec
+	}
+}
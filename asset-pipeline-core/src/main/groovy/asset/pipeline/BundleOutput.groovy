@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import groovy.transform.CompileStatic
+
+import java.nio.charset.Charset
+
+/**
+ * The compiled contents of a bundle written by {@link DirectiveProcessor#compileBundle}. Each processed part is
+ * encoded as it is appended, kept in memory up to a threshold and spilled to a temporary file beyond it, so the
+ * compiled bundle is never held as a String. An optional prefix (i.e. the CommonJs module table, only known once
+ * every part is processed) is emitted ahead of the appended contents.
+ *
+ * The bundle must be closed to remove its temporary file.
+ */
+@CompileStatic
+class BundleOutput implements Closeable {
+	static final int DEFAULT_SPILL_THRESHOLD = 1024 * 1024
+
+	final String encoding
+	/** Text emitted before the appended contents */
+	String prefix
+
+	private final File spillDirectory
+	private final int spillThreshold
+	private final SpillOutputStream bytes
+	private final Writer writer
+	private String digest
+
+	BundleOutput(String encoding, File spillDirectory = null, int spillThreshold = DEFAULT_SPILL_THRESHOLD) {
+		this.encoding = encoding ?: Charset.defaultCharset().name()
+		this.spillDirectory = spillDirectory
+		this.spillThreshold = spillThreshold
+		this.bytes = new SpillOutputStream()
+		this.writer = new BufferedWriter(new OutputStreamWriter(bytes, this.encoding), 8192)
+	}
+
+	/**
+	 * The writer the bundle contents are appended to
+	 */
+	Writer getWriter() {
+		return writer
+	}
+
+	/**
+	 * @return true if the contents were spilled to a temporary file
+	 */
+	boolean isSpilled() {
+		return bytes.file != null
+	}
+
+	/**
+	 * @return the encoded size of the bundle including its prefix
+	 */
+	long getLength() {
+		writer.flush()
+		return prefixBytes().length + bytes.count
+	}
+
+	/**
+	 * Opens the encoded bundle, prefix first. Every call returns a new stream
+	 */
+	InputStream newInputStream() {
+		writer.flush()
+		InputStream contents = bytes.file != null ? new BufferedInputStream(new FileInputStream(bytes.file), 8192) : new ByteArrayInputStream(bytes.memory.toByteArray())
+		return new SequenceInputStream(new ByteArrayInputStream(prefixBytes()), contents)
+	}
+
+	/**
+	 * The digest of the encoded bundle as computed by {@link AssetHelper#getByteDigest}
+	 */
+	String getDigest() {
+		if(digest == null) {
+			InputStream inputStream = newInputStream()
+			try {
+				digest = AssetHelper.getStreamDigest(inputStream)
+			} finally {
+				inputStream.close()
+			}
+		}
+		return digest
+	}
+
+	/**
+	 * Decodes the whole bundle, for consumers that need it as a String (i.e. minifiers)
+	 */
+	String getText() {
+		InputStream inputStream = newInputStream()
+		try {
+			return inputStream.getText(encoding)
+		} finally {
+			inputStream.close()
+		}
+	}
+
+	@Override
+	void close() {
+		try {
+			writer.close()
+		} finally {
+			bytes.file?.delete()
+		}
+	}
+
+	private byte[] prefixBytes() {
+		return prefix ? prefix.getBytes(encoding) : new byte[0]
+	}
+
+	/**
+	 * Buffers in memory up to the spill threshold and moves to a temporary file beyond it
+	 */
+	private class SpillOutputStream extends OutputStream {
+		ByteArrayOutputStream memory = new ByteArrayOutputStream(8192)
+		File file
+		OutputStream fileStream
+		long count
+
+		@Override
+		void write(int b) throws IOException {
+			write([(byte) b] as byte[], 0, 1)
+		}
+
+		@Override
+		void write(byte[] b, int off, int len) throws IOException {
+			if(fileStream == null && count + len > spillThreshold) {
+				spill()
+			}
+			(fileStream ?: memory).write(b, off, len)
+			count += len
+		}
+
+		@Override
+		void flush() throws IOException {
+			fileStream?.flush()
+		}
+
+		@Override
+		void close() throws IOException {
+			fileStream?.close()
+		}
+
+		private void spill() {
+			if(spillDirectory != null) {
+				spillDirectory.mkdirs()
+			}
+			file = File.createTempFile('bundle', '.tmp', spillDirectory)
+			fileStream = new BufferedOutputStream(new FileOutputStream(file), 65536)
+			memory.writeTo(fileStream)
+			memory = null
+		}
+	}
+}
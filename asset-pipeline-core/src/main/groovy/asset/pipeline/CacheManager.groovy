@@ -16,6 +16,7 @@
 
 package asset.pipeline
 
+import asset.pipeline.cache.BuildCacheCapture
 import java.util.concurrent.ConcurrentHashMap
 import groovy.transform.CompileStatic
 import groovy.util.logging.Slf4j
@@ -23,7 +24,16 @@ import groovy.util.logging.Slf4j
 /**
  * A Cache Manager for the Asset-Pipeline runtime. This reduces repeat processing
  * of files that have already been processed during the runtime of the asset-pipeline.
- * It also is capable of persisting this cache as an ObjectStream to the '.assetcache' file
+ * It also is capable of persisting this cache to the '.assetcache' file via the {@link CacheStore}
+ *
+ * Cache records are immutable maps held in a {@link ConcurrentHashMap}. Updates replace the record of a key atomically
+ * so lookups from concurrent compile threads never block each other. Persisted records are decoded lazily on their
+ * first lookup and only changed records are written back by the {@link CachePersister}.
+ *
+ * The memory held by the cache is bounded by the cacheMaxWeight config option (bytes of cached text, 128MB by default,
+ * 0 disables the bound). Least recently used records are evicted by a {@link SegmentedLruPolicy} once they have been
+ * persisted and are decoded from the store again on their next lookup. With the cacheCompression option records hold
+ * their text as deflated UTF-8 bytes.
  * Private API Class
  *
  * @author David Estes
@@ -34,11 +44,20 @@ import groovy.util.logging.Slf4j
 public class CacheManager {
 	static final String CACHE_LOCATION = ".assetcache"
 	static final Integer CACHE_DEBOUNCE_MS = 5000 // De-bounce 5 seconds
-	static Map<String, Map<String, Object>> cache = [:]
-    static String configCacheBustDigest
+	static final Long DEFAULT_CACHE_MAX_WEIGHT = 128L * 1024L * 1024L
+	static Map<String, Map<String, Object>> cache = new ConcurrentHashMap<String, Map<String, Object>>()
+    static volatile String configCacheBustDigest
 	static final Object LOCK_OBJECT = new Object()
 	static final Object LOCK_FETCH_OBJECT = new Object()
 	static CachePersister cachePersister
+	static volatile CacheStore cacheStore
+	static volatile SegmentedLruPolicy<String, Map<String, Object>> evictionPolicy
+	static volatile boolean cacheCompression = false
+
+	/** Keys changed since the last flush to the {@link CacheStore} */
+	private static final Set<String> dirtyKeys = ConcurrentHashMap.newKeySet()
+	/** Current digest of each dependency validated in the active {@link #withValidationScope} */
+	private static final ThreadLocal<Map<String, String>> validationScope = new ThreadLocal<Map<String, String>>()
 
     /**
      * Returns the cache string value of a file if it exists in the cache and is unmodified since last checked
@@ -50,34 +69,79 @@ public class CacheManager {
 	public static Map<String,Object> findCache(String fileName, String md5, String originalFileName = null) {
 		loadPersistedCache()
         checkCacheValidity()
-        def cacheRecord
-        synchronized(LOCK_FETCH_OBJECT) {
-			cacheRecord = cache[fileName]
-			if(cacheRecord && cacheRecord.md5 == md5 && cacheRecord.originalFileName == originalFileName) {
-				def cacheFiles = cacheRecord.dependencies.keySet()
-				def expiredCacheFound = cacheFiles.find { String cacheFileName ->
-					def cacheFile = AssetHelper.fileForUri(cacheFileName)
-					if(!cacheFile) {
-						return true
-					}
-					def depMd5 = AssetHelper.getByteDigest(cacheFile.inputStream.bytes)
-					if(cacheRecord.dependencies[cacheFileName] != depMd5) {
-						return true
-					}
-					return false
-				}
+		Map<String, Object> cacheRecord = getCacheRecord(fileName)
+		if(cacheRecord && cacheRecord.md5 == md5 && cacheRecord.originalFileName == originalFileName) {
+			Map<String, String> dependencies = cacheRecord.dependencies as Map<String, String>
+			Map<String, String> dependencyStats = cacheRecord.dependencyStats as Map<String, String>
+			Map<String, String> refreshedStats = [:]
+			def expiredCacheFound = dependencies?.keySet()?.find { String cacheFileName ->
+				return !isDependencyCurrent(cacheFileName, dependencies[cacheFileName], dependencyStats?.get(cacheFileName), refreshedStats)
+			}
 
-				if(expiredCacheFound) {
-					cache.remove(fileName)
+			if(expiredCacheFound) {
+				removeCacheRecord(fileName, cacheRecord)
+				return null
+			}
+			if(refreshedStats) {
+				// the content was unchanged, remember the new stat so the next lookup does not rehash it
+				CacheRecord refreshedRecord = ((CacheRecord) cacheRecord).copyWith(dependencyStats: (dependencyStats ?: [:]) + refreshedStats)
+				if(cache.replace(fileName, cacheRecord, refreshedRecord)) {
+					dirtyKeys.add(fileName)
+					recordWrite(fileName, refreshedRecord)
 					asyncCacheSave()
-					return null
+					return refreshedRecord
 				}
-				return cacheRecord
-			} else if (cacheRecord) {
-				cache.remove(fileName)
-				asyncCacheSave()
-				return null
 			}
+			return cacheRecord
+		} else if (cacheRecord) {
+			removeCacheRecord(fileName, cacheRecord)
+		}
+		return null
+	}
+
+	/**
+	 * Checks a recorded cache dependency against its current state. The dependency is only rehashed when its stat
+	 * changed since it was recorded. Within a {@link #withValidationScope} the outcome is memoized per dependency.
+	 * @param refreshedStats receives the new stat of dependencies that were rehashed but found unchanged
+	 */
+	private static boolean isDependencyCurrent(String cacheFileName, String recordedDigest, String recordedStat, Map<String, String> refreshedStats) {
+		Map<String, String> memo = validationScope.get()
+		String currentDigest = memo?.get(cacheFileName)
+		if(currentDigest == null) {
+			def cacheFile = AssetHelper.fileForUri(cacheFileName)
+			if(!cacheFile) {
+				currentDigest = ''
+			} else {
+				String stat = cacheFile instanceof AbstractAssetFile ? cacheFile.fileStat : null
+				if(stat != null && stat == recordedStat) {
+					currentDigest = recordedDigest
+				} else {
+					currentDigest = cacheFile.getByteDigest()
+					String sourceStat = cacheFile instanceof AbstractAssetFile ? cacheFile.sourceStat : null
+					if(sourceStat != null && currentDigest == recordedDigest) {
+						refreshedStats[cacheFileName] = sourceStat
+					}
+				}
+			}
+			memo?.put(cacheFileName, currentDigest)
+		}
+		return currentDigest == recordedDigest
+	}
+
+	/**
+	 * Runs the work with dependency validation memoized for its duration. Each cache dependency is then checked at most
+	 * once no matter how many cache records share it. Typically wraps a single request or compile.
+	 * Nested calls share the outer scope.
+	 */
+	public static <T> T withValidationScope(Closure<T> work) {
+		if(validationScope.get() != null) {
+			return work.call()
+		}
+		validationScope.set(new HashMap<String, String>())
+		try {
+			return work.call()
+		} finally {
+			validationScope.remove()
 		}
 	}
 
@@ -89,28 +153,15 @@ public class CacheManager {
      * @param originalFileName The original file name of the base file being persisted
      */
 	public static void createCache(String fileName, String md5Hash, String processedFileText, String originalFileName = null) {
-        synchronized(LOCK_FETCH_OBJECT) {
-	        loadPersistedCache()
-	        checkCacheValidity()
-	        def thisCache = cache
-	        def cacheRecord = thisCache[fileName]
-			if(cacheRecord) {
-				thisCache[fileName] = cacheRecord + [
-					md5: md5Hash,
-					originalFileName: originalFileName,
-					processedFileText: processedFileText
-				]
-			} else {
-				thisCache[fileName] = [
-					md5: md5Hash,
-					originalFileName: originalFileName,
-					processedFileText: processedFileText,
-					requireModules: [:],
-					dependencies: [:]
-				]
-			}
-			asyncCacheSave()
-		}
+        loadPersistedCache()
+        checkCacheValidity()
+        updateCacheRecord(fileName) { CacheRecord cacheRecord ->
+			cacheRecord.copyWith(
+				md5: md5Hash,
+				originalFileName: originalFileName,
+				processedFileText: processedFileText
+			)
+        }
 	}
 
     /**
@@ -120,16 +171,18 @@ public class CacheManager {
      * @param dependentFile the AssetFile object we are adding as a dependency
      */
 	public static void addCacheDependency(String fileName, AssetFile dependentFile) {
-		synchronized(LOCK_FETCH_OBJECT) {
-			def cacheRecord = cache[fileName]
-			if(!cacheRecord) {
-				createCache(fileName, null, null)
-				cacheRecord = cache[fileName]
+		DependencyGraph.recordInput(dependentFile)
+		BuildCacheCapture.recordInput(dependentFile)
+		def newMd5 = dependentFile.getByteDigest()
+		String newStat = dependentFile instanceof AbstractAssetFile ? dependentFile.sourceStat : null
+		updateCacheRecord(fileName) { CacheRecord cacheRecord ->
+			Map<String, String> dependencyStats = new LinkedHashMap<String, String>(cacheRecord.dependencyStats as Map ?: [:])
+			if(newStat != null) {
+				dependencyStats[dependentFile.path] = newStat
+			} else {
+				dependencyStats.remove(dependentFile.path)
 			}
-
-			def newMd5 = dependentFile.getByteDigest()
-			cacheRecord.dependencies[dependentFile.path] = newMd5
-			asyncCacheSave()
+			cacheRecord.copyWith(dependencies: (cacheRecord.dependencies as Map) + [(dependentFile.path): newMd5], dependencyStats: dependencyStats)
 		}
 	}
 
@@ -141,78 +194,182 @@ public class CacheManager {
      * @param dependentModuleContent the AssetFile object we are adding as a dependency
      */
 	public static void addCacheModule(String fileName, String moduleName, String dependentModuleContent) {
-		synchronized(LOCK_FETCH_OBJECT) {
-			def cacheRecord = cache[fileName]
-			if(!cacheRecord) {
-				createCache(fileName, null, null)
-				cacheRecord = cache[fileName]
+		BuildCacheCapture.recordModule(fileName, moduleName, dependentModuleContent)
+		updateCacheRecord(fileName) { CacheRecord cacheRecord ->
+			cacheRecord.withRequireModule(moduleName, dependentModuleContent)
+		}
+	}
+
+	/**
+	 * Looks up a cache record decoding it from the persisted store on first access
+	 */
+	private static Map<String, Object> getCacheRecord(String fileName) {
+		if(fileName == null) {
+			return null
+		}
+		Map<String, Object> cacheRecord = cache.get(fileName)
+		if(cacheRecord == null) {
+			CacheStore store = cacheStore
+			Map<String, Object> persistedRecord = store?.contains(fileName) ? store.read(fileName) : null
+			if(persistedRecord != null) {
+				CacheRecord loadedRecord = CacheRecord.of(persistedRecord, cacheCompression)
+				cacheRecord = cache.putIfAbsent(fileName, loadedRecord)
+				if(cacheRecord == null) {
+					cacheRecord = loadedRecord
+					recordWrite(fileName, loadedRecord)
+				}
 			}
-			cacheRecord.requireModules[moduleName] = dependentModuleContent
+		} else {
+			evictionPolicy?.recordAccess(fileName)
+		}
+		return cacheRecord
+	}
+
+	/**
+	 * Atomically replaces the record of a key with the result of the update closure
+	 * @param update receives the current record (or an empty record) and returns the new record
+	 */
+	private static void updateCacheRecord(String fileName, Closure<CacheRecord> update) {
+		if(fileName == null) {
+			return
+		}
+		getCacheRecord(fileName)
+		Map<String, Object> updatedRecord = cache.compute(fileName) { String key, Map<String, Object> cacheRecord ->
+			update.call(cacheRecord ?: CacheRecord.of([:], cacheCompression))
+		}
+		dirtyKeys.add(fileName)
+		recordWrite(fileName, updatedRecord)
+		asyncCacheSave()
+	}
+
+	private static void removeCacheRecord(String fileName, Map<String, Object> cacheRecord) {
+		if(cache.remove(fileName, cacheRecord)) {
+			evictionPolicy?.recordRemoval(fileName, cacheRecord)
+			cacheStore?.remove(fileName)
 			asyncCacheSave()
 		}
 	}
 
+	/**
+	 * Tracks the weight of a record and evicts least recently used records once the cache exceeds its budget
+	 */
+	private static void recordWrite(String fileName, Map<String, Object> cacheRecord) {
+		SegmentedLruPolicy<String, Map<String, Object>> policy = evictionPolicy
+		if(policy == null) {
+			return
+		}
+		policy.recordWrite(fileName, cacheRecord, ((CacheRecord) cacheRecord).getWeight())
+		evictIfNeeded()
+	}
+
+	/**
+	 * Records not yet persisted stay pinned so evicted records can always be decoded from the {@link CacheStore} again
+	 */
+	private static void evictIfNeeded() {
+		SegmentedLruPolicy<String, Map<String, Object>> policy = evictionPolicy
+		if(policy == null || policy.weightedSize <= policy.maximumWeight) {
+			return
+		}
+		for(Map.Entry<String, Map<String, Object>> victim in policy.evict({ String key -> dirtyKeys.contains(key) })) {
+			cache.remove(victim.key, victim.value)
+		}
+	}
+
+	/**
+	 * Applies the cacheMaxWeight and cacheCompression config options
+	 */
+	private static void configureEviction() {
+		def config = AssetPipelineConfigHolder.config
+		Long maxWeight = config?.cacheMaxWeight != null ? config.cacheMaxWeight as Long : DEFAULT_CACHE_MAX_WEIGHT
+		cacheCompression = config?.cacheCompression == true
+		evictionPolicy = maxWeight > 0 ? new SegmentedLruPolicy<String, Map<String, Object>>(maxWeight) : null
+	}
+
     /**
-     * Asynchronously starts a thread used to persist the cache to disk
+     * Schedules the changed cache records to be persisted to disk
      * It also performs a debounce behavior so rapid calls to the save do not cause repeat saves
      */
 	public static void asyncCacheSave() {
-		synchronized(LOCK_OBJECT) {
-			if(!cachePersister) {
-				cachePersister = new CachePersister()
-				cachePersister.start()
-			}	
+		CachePersister persister = cachePersister
+		if(!persister) {
+			synchronized(LOCK_OBJECT) {
+				if(!cachePersister) {
+					cachePersister = new CachePersister()
+				}
+				persister = cachePersister
+			}
 		}
-		cachePersister.debounceSave(CACHE_DEBOUNCE_MS);
+		persister.debounceSave(CACHE_DEBOUNCE_MS)
 	}
 
     /**
-     * Called by the async {@link CachePersister} class to save the cache map to disk
+     * Called by the async {@link CachePersister} class to append the changed cache records to disk
+     * Keys stay dirty (and therefore pinned against eviction) until the store has accepted their records
      */
 	public static void save() {
-		synchronized(LOCK_FETCH_OBJECT) {
-	        String cacheLocation = AssetPipelineConfigHolder.config?.cacheLocation ?: CACHE_LOCATION
-			FileOutputStream fos = new FileOutputStream(cacheLocation);
-	        Map<String, Map<String, Object>> cacheSaveData = [configCacheBustDigest: configCacheBustDigest, cache: cache]
-			ObjectOutputStream oos = new ObjectOutputStream(fos);
-			oos.writeObject(cacheSaveData)
-			oos.close()
+		synchronized(LOCK_OBJECT) {
+			CacheStore store = cacheStore
+			if(store == null) {
+				store = new CacheStore(new File(AssetPipelineConfigHolder.config?.cacheLocation ?: CACHE_LOCATION))
+				cacheStore = store
+			}
+			if(store.configDigest != configCacheBustDigest) {
+				store.reset(configCacheBustDigest)
+			}
+			Map<String, Map<String, Object>> puts = [:]
+			Set<String> written = new HashSet<String>(dirtyKeys)
+			for(String key in written) {
+				Map<String, Object> cacheRecord = cache.get(key)
+				if(cacheRecord != null) {
+					puts[key] = cacheRecord
+				}
+			}
+			store.write(puts)
+			for(String key in written) {
+				dirtyKeys.remove(key)
+				if(!cache.get(key).is(puts[key])) {
+					// replaced while the store was writing, keep it for the next save
+					dirtyKeys.add(key)
+				}
+			}
+		}
+		evictIfNeeded()
+	}
+
+	/**
+	 * Flushes pending changes and stops the background {@link CachePersister}
+	 */
+	public static void shutdown() {
+		synchronized(LOCK_OBJECT) {
+			cachePersister?.shutdown()
+			cachePersister = null
 		}
 	}
 
 	/**
-	* Loads an Asset Cache dependency graph for asset-pipeline.
-	* This is currently encoded in JSON
+	* Opens the persisted asset cache store for asset-pipeline.
+	* Only the index of the store is read here, records are decoded when they are first looked up.
 	*
-	* If the asset cache file does not exist or a cache is already loaded, the cache store is not parsed.
+	* If the asset cache file does not exist or a store is already open, the cache store is not parsed.
 	*/
 	public static void loadPersistedCache() {
-		if(cache) {
-			return;
-		}
-        String cacheLocation = AssetPipelineConfigHolder.config?.cacheLocation ?: CACHE_LOCATION
-		File assetFile = new File(cacheLocation)
-		if(!assetFile.exists()) {
-			return;
+		if(cacheStore != null) {
+			return
 		}
-
-		try {
-			FileInputStream fis = new FileInputStream(cacheLocation);
-		    ObjectInputStream ois = new ObjectInputStream(fis);
-		    def fileCache = ois.readObject()
-            if(fileCache?.configCacheBustDigest) {
-                configCacheBustDigest = fileCache.configCacheBustDigest
-            }
-            if(fileCache?.cache) {
-                fileCache.cache.each{ entry ->
-                    cache[entry.key] = entry.value
-                }
-            }
-
-		} catch(ex) {
-			// If there is a parser error from a previous bad cache flush ignore it and move on
+		synchronized(LOCK_OBJECT) {
+			if(cacheStore != null) {
+				return
+			}
+	        String cacheLocation = AssetPipelineConfigHolder.config?.cacheLocation ?: CACHE_LOCATION
+			CacheStore store = new CacheStore(new File(cacheLocation))
+			// If there is a parser error from a previous bad cache flush the store starts empty
+			store.open()
+			if(store.configDigest && !configCacheBustDigest) {
+				configCacheBustDigest = store.configDigest
+			}
+			configureEviction()
+			cacheStore = store
 		}
-		
 	}
 
     /**
@@ -220,11 +377,18 @@ public class CacheManager {
      * If they have the cache needs to be reset and marked as expired
      */
     private static void checkCacheValidity() {
-        if(configCacheBustDigest != AssetPipelineConfigHolder.getDigestString()) {
-        	synchronized(LOCK_FETCH_OBJECT) {
-        		cache.clear()	
+        String digest = AssetPipelineConfigHolder.getDigestString()
+        if(configCacheBustDigest != digest) {
+        	synchronized(LOCK_OBJECT) {
+        		if(configCacheBustDigest != digest) {
+	        		cache.clear()
+	        		dirtyKeys.clear()
+	        		configureEviction()
+	        		cacheStore?.reset(digest)
+		            configCacheBustDigest = digest
+	        	}
         	}
-            configCacheBustDigest = AssetPipelineConfigHolder.getDigestString()
+        	asyncCacheSave()
         }
     }
 }
@@ -1,30 +1,44 @@
 package asset.pipeline
 
 import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.TimeUnit
 
 /**
  * Receives asynchronous cache persistance requests and executes them.
- * Also acts as a debouncer
+ * Also acts as a debouncer. Requests only record a timestamp, a scheduled daemon thread checks
+ * once per {@link #RUN_DELAY} and flushes once no change happened for the debounce delay.
+ * Pending changes are flushed on JVM shutdown.
  *
  * @author David Estes
  */
-// @CompileStatic
-public class CachePersister extends Thread {
-	public Integer delay = 0
-	public Boolean ran = true
-	public final Integer RUN_DELAY = 1000
-	public void run() {
-		while(true) {
-			sleep(RUN_DELAY)
-			if(ran == false) {
-				delay -= RUN_DELAY
-				if(delay <= 0) {
-					CacheManager.save()
-					ran = true
-				}
+@Slf4j
+@CompileStatic
+public class CachePersister {
+	public static final Integer RUN_DELAY = 1000
+
+	private volatile long saveAfter = 0
+	private volatile boolean pending = false
+	private final ScheduledExecutorService executor
+	private final Thread shutdownHook
+
+	public CachePersister() {
+		executor = Executors.newSingleThreadScheduledExecutor({ Runnable runnable ->
+			Thread thread = new Thread(runnable, "asset-pipeline-cache-persister")
+			thread.daemon = true
+			return thread
+		} as ThreadFactory)
+		executor.scheduleWithFixedDelay({ ->
+			if(pending && System.currentTimeMillis() >= saveAfter) {
+				flush()
 			}
-			
-		}
+		} as Runnable, RUN_DELAY, RUN_DELAY, TimeUnit.MILLISECONDS)
+		shutdownHook = new Thread({ -> flush() } as Runnable, "asset-pipeline-cache-shutdown")
+		Runtime.runtime.addShutdownHook(shutdownHook)
 	}
 
 	/**
@@ -32,7 +46,35 @@ public class CachePersister extends Thread {
 	 * @param delay (milliseconds) between debounce save
 	 */
 	public void debounceSave(Integer delay) {
-		this.delay = delay
-		ran = false
+		saveAfter = System.currentTimeMillis() + delay
+		pending = true
+	}
+
+	/**
+	 * Persists any pending changes immediately
+	 */
+	public synchronized void flush() {
+		if(!pending) {
+			return
+		}
+		pending = false
+		try {
+			CacheManager.save()
+		} catch(Exception ex) {
+			log.warn("Unable to persist asset cache", ex)
+		}
+	}
+
+	/**
+	 * Stops the scheduled flusher after persisting any pending changes
+	 */
+	public void shutdown() {
+		executor.shutdown()
+		try {
+			Runtime.runtime.removeShutdownHook(shutdownHook)
+		} catch(IllegalStateException ignored) {
+			// already shutting down, the hook performs the flush
+		}
+		flush()
 	}
-}
\ No newline at end of file
+}
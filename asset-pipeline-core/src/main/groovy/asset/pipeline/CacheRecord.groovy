@@ -0,0 +1,230 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import groovy.transform.CompileStatic
+
+import java.nio.charset.StandardCharsets
+import java.util.zip.Deflater
+import java.util.zip.Inflater
+
+/**
+ * An immutable entry of the {@link CacheManager}. Records are exposed as read only maps so existing callers can keep
+ * using {@code record.processedFileText} and {@code record.requireModules}.
+ *
+ * When created with compression enabled the processed text and require module contents are held as deflated UTF-8
+ * bytes instead of UTF-16 strings and inflated each time they are read. The weight of a record approximates the
+ * number of bytes its text occupies on the heap and is used by the {@link SegmentedLruPolicy} to bound the cache.
+ * Private API Class
+ */
+@CompileStatic
+class CacheRecord extends AbstractMap<String, Object> {
+	static final int RECORD_OVERHEAD = 96
+	static final int COMPRESSION_THRESHOLD = 512
+
+	private final Map<String, Object> fields
+	private final boolean compressed
+	final long weight
+
+	private CacheRecord(Map<String, Object> fields, boolean compressed) {
+		this.fields = Collections.unmodifiableMap(fields)
+		this.compressed = compressed
+		this.weight = RECORD_OVERHEAD + weigh(fields)
+	}
+
+	/**
+	 * Creates a record from a plain map (i.e. one decoded from the {@link CacheStore})
+	 * @param values the record fields
+	 * @param compressed whether text values should be held deflated
+	 */
+	static CacheRecord of(Map<String, Object> values, boolean compressed) {
+		CacheRecord record = new CacheRecord(new LinkedHashMap<String, Object>(), compressed)
+		return record.copyWith([
+			md5: values.md5,
+			originalFileName: values.originalFileName,
+			processedFileText: values.processedFileText,
+			requireModules: values.requireModules ?: [:],
+			dependencies: values.dependencies ?: [:],
+			dependencyStats: values.dependencyStats ?: [:]
+		] as Map<String, Object>)
+	}
+
+	/**
+	 * @return a copy of this record with the given fields replaced. Unchanged text is not recompressed
+	 */
+	CacheRecord copyWith(Map<String, Object> changes) {
+		Map<String, Object> updated = new LinkedHashMap<String, Object>(fields)
+		for(Map.Entry<String, Object> change in changes.entrySet()) {
+			Object value = change.value
+			if(change.key == 'processedFileText') {
+				value = encodeText((String) value)
+			} else if(change.key == 'requireModules') {
+				value = new TextMap(encodeValues((Map) value))
+			} else if(value instanceof Map) {
+				value = Collections.unmodifiableMap(new LinkedHashMap((Map) value))
+			}
+			updated.put(change.key, value)
+		}
+		return new CacheRecord(updated, compressed)
+	}
+
+	/**
+	 * @return a copy of this record with one require module added. Existing module contents are not recompressed
+	 */
+	CacheRecord withRequireModule(String moduleName, String content) {
+		Map<String, Object> modules = new LinkedHashMap<String, Object>(((TextMap) fields.requireModules)?.encodedValues() ?: [:])
+		modules.put(moduleName, encodeText(content))
+		Map<String, Object> updated = new LinkedHashMap<String, Object>(fields)
+		updated.put('requireModules', new TextMap(modules))
+		return new CacheRecord(updated, compressed)
+	}
+
+	@Override
+	Object get(Object key) {
+		return decodeText(fields.get(key))
+	}
+
+	@Override
+	boolean containsKey(Object key) {
+		return fields.containsKey(key)
+	}
+
+	@Override
+	int size() {
+		return fields.size()
+	}
+
+	@Override
+	Set<Map.Entry<String, Object>> entrySet() {
+		Set<Map.Entry<String, Object>> entries = new LinkedHashSet<Map.Entry<String, Object>>()
+		for(Map.Entry<String, Object> field in fields.entrySet()) {
+			entries.add(new AbstractMap.SimpleImmutableEntry<String, Object>(field.key, decodeText(field.value)))
+		}
+		return Collections.unmodifiableSet(entries)
+	}
+
+	private Object encodeText(String text) {
+		if(!compressed || text == null || text.length() < COMPRESSION_THRESHOLD) {
+			return text
+		}
+		byte[] input = text.getBytes(StandardCharsets.UTF_8)
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED)
+		try {
+			deflater.setInput(input)
+			deflater.finish()
+			ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length.intdiv(4) as int))
+			byte[] buffer = new byte[8192]
+			while(!deflater.finished()) {
+				out.write(buffer, 0, deflater.deflate(buffer))
+			}
+			return out.toByteArray()
+		} finally {
+			deflater.end()
+		}
+	}
+
+	private Map<String, Object> encodeValues(Map values) {
+		Map<String, Object> encoded = new LinkedHashMap<String, Object>()
+		if(values instanceof TextMap) {
+			encoded.putAll(((TextMap) values).encodedValues())
+			return encoded
+		}
+		for(Object entry in values.entrySet()) {
+			Map.Entry value = (Map.Entry) entry
+			encoded.put(value.key?.toString(), encodeText(value.value?.toString()))
+		}
+		return encoded
+	}
+
+	private static Object decodeText(Object value) {
+		if(!(value instanceof byte[])) {
+			return value
+		}
+		byte[] input = (byte[]) value
+		Inflater inflater = new Inflater()
+		try {
+			inflater.setInput(input)
+			ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4)
+			byte[] buffer = new byte[8192]
+			while(!inflater.finished()) {
+				int count = inflater.inflate(buffer)
+				if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break
+				}
+				out.write(buffer, 0, count)
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8)
+		} finally {
+			inflater.end()
+		}
+	}
+
+	private static long weigh(Object value) {
+		if(value instanceof CharSequence) {
+			return ((CharSequence) value).length() * 2L
+		} else if(value instanceof byte[]) {
+			return ((byte[]) value).length
+		} else if(value instanceof TextMap) {
+			return weigh(((TextMap) value).encodedValues())
+		} else if(value instanceof Map) {
+			long weight = 0
+			for(Object entry in ((Map) value).entrySet()) {
+				weight += 32 + weigh(((Map.Entry) entry).key) + weigh(((Map.Entry) entry).value)
+			}
+			return weight
+		}
+		return 0
+	}
+
+	/**
+	 * Read only view of text values that are inflated on access
+	 */
+	private static class TextMap extends AbstractMap<String, String> {
+		private final Map<String, Object> values
+
+		TextMap(Map<String, Object> values) {
+			this.values = Collections.unmodifiableMap(values)
+		}
+
+		Map<String, Object> encodedValues() {
+			return values
+		}
+
+		@Override
+		String get(Object key) {
+			return (String) decodeText(values.get(key))
+		}
+
+		@Override
+		boolean containsKey(Object key) {
+			return values.containsKey(key)
+		}
+
+		@Override
+		int size() {
+			return values.size()
+		}
+
+		@Override
+		Set<Map.Entry<String, String>> entrySet() {
+			Set<Map.Entry<String, String>> entries = new LinkedHashSet<Map.Entry<String, String>>()
+			for(Map.Entry<String, Object> value in values.entrySet()) {
+				entries.add(new AbstractMap.SimpleImmutableEntry<String, String>(value.key, (String) decodeText(value.value)))
+			}
+			return Collections.unmodifiableSet(entries)
+		}
+	}
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+import java.lang.reflect.Field
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.locks.ReentrantReadWriteLock
+
+/**
+ * Binary persistent store backing the {@link CacheManager}. The file starts with a header holding the format version
+ * and the config digest the cache was built with followed by an append only log of put and remove entries.
+ *
+ * On open the log is scanned once to index the position of the latest entry of each key. The file is memory mapped and
+ * entries are only decoded when they are first requested. Changed entries are appended to the end of the file through
+ * a {@link FileChannel} and the file is only mapped again once an entry past the mapped region is read. The file is
+ * compacted once most of it consists of superseded entries. The mapping is released before the compacted file
+ * replaces it, as a mapped file can not be replaced on Windows.
+ * Private API Class
+ */
+@Slf4j
+@CompileStatic
+class CacheStore {
+	static final int MAGIC = 0x41504331 // APC1
+	static final int VERSION = 1
+	static final byte OP_PUT = 1
+	static final byte OP_REMOVE = 2
+	static final int COMPACTION_MIN_ENTRIES = 256
+
+	final File file
+	String configDigest
+
+	private final Map<String, long[]> index = new ConcurrentHashMap<String, long[]>()
+	private final Set<String> pendingRemovals = ConcurrentHashMap.newKeySet()
+	private final ReentrantReadWriteLock mappingLock = new ReentrantReadWriteLock()
+	private volatile MappedByteBuffer mapped
+	private long validLength = 0
+	private int entryCount = 0
+	private boolean rewriteRequired = true
+
+	CacheStore(File file) {
+		this.file = file
+	}
+
+	/**
+	 * Reads the header and indexes the entries of an existing store. Unreadable or older formats are discarded.
+	 */
+	void open() {
+		if(!file.exists() || file.length() == 0) {
+			return
+		}
+		if(file.length() > Integer.MAX_VALUE) {
+			log.warn("Asset cache ${file} exceeds 2GB and will be rebuilt")
+			return
+		}
+		try {
+			remap()
+			ByteBuffer buffer = mapped.duplicate()
+			if(buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				releaseMapping()
+				return
+			}
+			configDigest = readString(buffer)
+			while(buffer.remaining() >= 5) {
+				int entryStart = buffer.position()
+				byte op = buffer.get()
+				int keyLength = buffer.getInt()
+				if(keyLength < 0 || buffer.remaining() < keyLength + 4) {
+					buffer.position(entryStart)
+					break
+				}
+				byte[] keyBytes = new byte[keyLength]
+				buffer.get(keyBytes)
+				int payloadLength = buffer.getInt()
+				if(payloadLength < 0 || buffer.remaining() < payloadLength) {
+					buffer.position(entryStart)
+					break
+				}
+				String key = new String(keyBytes, StandardCharsets.UTF_8)
+				if(op == OP_PUT) {
+					index.put(key, [buffer.position() as long, payloadLength as long] as long[])
+				} else {
+					index.remove(key)
+				}
+				buffer.position(buffer.position() + payloadLength)
+				entryCount++
+			}
+			validLength = buffer.position()
+			// a truncated tail from an interrupted write is dropped by rewriting the file
+			rewriteRequired = validLength != file.length()
+		} catch(Exception ex) {
+			log.warn("Unable to read asset cache ${file} - it will be rebuilt", ex)
+			index.clear()
+			releaseMapping()
+			configDigest = null
+			rewriteRequired = true
+		}
+	}
+
+	boolean contains(String key) {
+		return index.containsKey(key)
+	}
+
+	Set<String> keys() {
+		return Collections.unmodifiableSet(index.keySet())
+	}
+
+	/**
+	 * Decodes the persisted record of a key
+	 * @return the record or null if the key is not persisted
+	 */
+	Map<String, Object> read(String key) {
+		long[] location = index.get(key)
+		if(location == null) {
+			return null
+		}
+		if(!isMapped(location)) {
+			// the entry was appended after the file was last mapped
+			mappingLock.writeLock().lock()
+			try {
+				location = index.get(key)
+				if(location != null && !isMapped(location)) {
+					releaseMapping()
+					remap()
+				}
+			} catch(IOException ex) {
+				log.warn("Unable to map asset cache ${file}", ex)
+			} finally {
+				mappingLock.writeLock().unlock()
+			}
+		}
+		mappingLock.readLock().lock()
+		try {
+			location = index.get(key)
+			if(location == null || !isMapped(location)) {
+				return null
+			}
+			ByteBuffer buffer = mapped.duplicate()
+			buffer.position((int) location[0])
+			buffer.limit((int) (location[0] + location[1]))
+			return decodeRecord(buffer)
+		} catch(Exception ex) {
+			log.warn("Unable to read asset cache entry ${key}", ex)
+			return null
+		} finally {
+			mappingLock.readLock().unlock()
+		}
+	}
+
+	/**
+	 * Removes a key from the store. The removal is persisted on the next {@link #write}
+	 */
+	void remove(String key) {
+		mappingLock.readLock().lock()
+		try {
+			if(index.remove(key) != null) {
+				pendingRemovals.add(key)
+			}
+		} finally {
+			mappingLock.readLock().unlock()
+		}
+	}
+
+	/**
+	 * Discards all persisted entries. The file is rewritten on the next {@link #write}
+	 */
+	void reset(String configDigest) {
+		mappingLock.writeLock().lock()
+		try {
+			this.configDigest = configDigest
+			index.clear()
+			pendingRemovals.clear()
+			entryCount = 0
+			rewriteRequired = true
+		} finally {
+			mappingLock.writeLock().unlock()
+		}
+	}
+
+	/**
+	 * Appends changed records and pending removals to the store
+	 * @param puts records keyed by cache key to persist
+	 */
+	void write(Map<String, Map<String, Object>> puts) {
+		mappingLock.writeLock().lock()
+		try {
+			List<String> removes = new ArrayList<String>(pendingRemovals)
+			pendingRemovals.removeAll(removes)
+			if(rewriteRequired || (entryCount > COMPACTION_MIN_ENTRIES && entryCount > index.size() * 2)) {
+				rewrite(puts)
+			} else {
+				append(puts, removes)
+			}
+		} finally {
+			mappingLock.writeLock().unlock()
+		}
+	}
+
+	private void append(Map<String, Map<String, Object>> puts, Collection<String> removes) {
+		if(!puts && !removes) {
+			return
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+		DataOutputStream out = new DataOutputStream(bytes)
+		Map<String, long[]> written = new HashMap<String, long[]>()
+		long offset = validLength
+		for(String key in removes) {
+			offset += writeEntry(out, OP_REMOVE, key, new byte[0])
+		}
+		for(Map.Entry<String, Map<String, Object>> entry in puts.entrySet()) {
+			byte[] payload = encodeRecord(entry.value)
+			int entryLength = writeEntry(out, OP_PUT, entry.key, payload)
+			written.put(entry.key, [offset + entryLength - payload.length, payload.length as long] as long[])
+			offset += entryLength
+		}
+		out.flush()
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)
+		try {
+			channel.position(validLength)
+			ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray())
+			while(buffer.hasRemaining()) {
+				channel.write(buffer)
+			}
+		} finally {
+			channel.close()
+		}
+		validLength = offset
+		index.putAll(written)
+		entryCount += removes.size() + puts.size()
+	}
+
+	/**
+	 * Writes a fresh file holding only the live entries and atomically replaces the store with it
+	 */
+	private void rewrite(Map<String, Map<String, Object>> puts) {
+		File tmpFile = new File(file.parentFile, file.name + ".tmp")
+		if(file.parentFile != null && !file.parentFile.exists()) {
+			file.parentFile.mkdirs()
+		}
+		if(validLength > 0 && file.exists() && (mapped == null || mapped.capacity() < validLength)) {
+			// live entries are copied from the mapping, including those appended since the file was last mapped
+			releaseMapping()
+			remap()
+		}
+		Map<String, long[]> written = new HashMap<String, long[]>()
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 65536))
+		long offset = 0
+		try {
+			out.writeInt(MAGIC)
+			out.writeInt(VERSION)
+			offset = 8 + writeString(out, configDigest)
+			for(Map.Entry<String, long[]> entry in index.entrySet()) {
+				if(puts.containsKey(entry.key) || mapped == null) {
+					continue
+				}
+				byte[] payload = new byte[(int) entry.value[1]]
+				ByteBuffer buffer = mapped.duplicate()
+				buffer.position((int) entry.value[0])
+				buffer.get(payload)
+				int entryLength = writeEntry(out, OP_PUT, entry.key, payload)
+				written.put(entry.key, [offset + entryLength - payload.length, payload.length as long] as long[])
+				offset += entryLength
+			}
+			for(Map.Entry<String, Map<String, Object>> entry in puts.entrySet()) {
+				byte[] payload = encodeRecord(entry.value)
+				int entryLength = writeEntry(out, OP_PUT, entry.key, payload)
+				written.put(entry.key, [offset + entryLength - payload.length, payload.length as long] as long[])
+				offset += entryLength
+			}
+		} finally {
+			out.close()
+		}
+		releaseMapping()
+		try {
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+		} catch(IOException ex) {
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING)
+		}
+		index.clear()
+		index.putAll(written)
+		validLength = offset
+		entryCount = written.size()
+		rewriteRequired = false
+	}
+
+	private boolean isMapped(long[] location) {
+		MappedByteBuffer buffer = mapped
+		return buffer != null && location[0] + location[1] <= buffer.capacity()
+	}
+
+	/**
+	 * Unmaps the file. Only called while no reader holds the mapping, i.e. under the write lock
+	 */
+	private void releaseMapping() {
+		MappedByteBuffer buffer = mapped
+		mapped = null
+		if(buffer != null) {
+			unmap(buffer)
+		}
+	}
+
+	/**
+	 * Releases a mapping right away instead of when it is garbage collected
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName('sun.misc.Unsafe')
+			Field theUnsafe = unsafeClass.getDeclaredField('theUnsafe')
+			theUnsafe.accessible = true
+			unsafeClass.getMethod('invokeCleaner', ByteBuffer).invoke(theUnsafe.get(null), buffer)
+		} catch(Exception ex) {
+			log.debug("Unable to unmap asset cache, it is released once garbage collected", ex)
+		}
+	}
+
+	private void remap() {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)
+		try {
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+		} finally {
+			channel.close()
+		}
+	}
+
+	private static int writeEntry(DataOutputStream out, byte op, String key, byte[] payload) {
+		out.writeByte(op)
+		int length = 1 + writeString(out, key)
+		out.writeInt(payload.length)
+		out.write(payload)
+		return length + 4 + payload.length
+	}
+
+	/**
+	 * Records are the maps created by the {@link CacheManager}. Only string values and maps of strings are persisted
+	 */
+	static byte[] encodeRecord(Map<String, Object> record) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+		DataOutputStream out = new DataOutputStream(bytes)
+		List<Map.Entry<String, Object>> fields = record.entrySet().findAll { Map.Entry<String, Object> field ->
+			field.value == null || field.value instanceof CharSequence || field.value instanceof Map
+		} as List<Map.Entry<String, Object>>
+		out.writeInt(fields.size())
+		for(Map.Entry<String, Object> field in fields) {
+			writeString(out, field.key)
+			if(field.value instanceof Map) {
+				Map<Object, Object> values = (Map<Object, Object>) field.value
+				out.writeByte(1)
+				out.writeInt(values.size())
+				for(Map.Entry<Object, Object> value in values.entrySet()) {
+					writeString(out, value.key?.toString())
+					writeString(out, value.value?.toString())
+				}
+			} else {
+				out.writeByte(0)
+				writeString(out, field.value?.toString())
+			}
+		}
+		out.flush()
+		return bytes.toByteArray()
+	}
+
+	static Map<String, Object> decodeRecord(ByteBuffer buffer) {
+		Map<String, Object> record = new LinkedHashMap<String, Object>()
+		int fieldCount = buffer.getInt()
+		for(int i = 0; i < fieldCount; i++) {
+			String name = readString(buffer)
+			if(buffer.get() == (byte) 1) {
+				int size = buffer.getInt()
+				Map<String, String> values = new LinkedHashMap<String, String>(size * 2)
+				for(int j = 0; j < size; j++) {
+					String key = readString(buffer)
+					values.put(key, readString(buffer))
+				}
+				record.put(name, values)
+			} else {
+				record.put(name, readString(buffer))
+			}
+		}
+		return record
+	}
+
+	private static int writeString(DataOutputStream out, String value) {
+		if(value == null) {
+			out.writeInt(-1)
+			return 4
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8)
+		out.writeInt(bytes.length)
+		out.write(bytes)
+		return 4 + bytes.length
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt()
+		if(length < 0) {
+			return null
+		}
+		byte[] bytes = new byte[length]
+		buffer.get(bytes)
+		return new String(bytes, StandardCharsets.UTF_8)
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import groovy.transform.CompileStatic
+
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.RejectedExecutionHandler
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.function.Supplier
+
+/**
+ * A stage of the {@link AssetCompiler} pipeline (scan, process, compress and write). Stages with their own pool
+ * run work submitted from the previous stage behind a bounded queue. Submitting to a full queue blocks the
+ * submitting thread, so a slow stage holds back the stages feeding it instead of buffering their output.
+ * The scan and process stages have no pool of their own: scanning runs on the thread calling the compiler and
+ * processing on the threads of the {@link AssetCompileScheduler}, and they are only measured.
+ *
+ * Every stage records the time its threads spent working to report its utilisation, the share of the available
+ * thread time that was used. A stage that is always busy limits the build and benefits from more threads while a
+ * mostly idle stage can do with fewer.
+ */
+@CompileStatic
+class CompileStage {
+	static final int DEFAULT_QUEUE_SIZE = 64
+
+	final String name
+	final int threads
+
+	private final ThreadPoolExecutor executor
+	private final AtomicLong busyNanos = new AtomicLong()
+	private final AtomicLong completed = new AtomicLong()
+	private final long startedNanos = System.nanoTime()
+	private volatile long stoppedNanos
+
+	/**
+	 * Creates a stage that only measures work run on threads it does not own
+	 * @param threads the number of threads running the work of this stage
+	 */
+	CompileStage(String name, int threads) {
+		this.name = name
+		this.threads = threads
+		this.executor = null
+	}
+
+	/**
+	 * Creates a stage with its own pool
+	 * @param threads the size of the pool
+	 * @param queueSize the number of submitted jobs waiting for a thread before submitters block
+	 */
+	CompileStage(String name, int threads, int queueSize) {
+		this.name = name
+		this.threads = threads
+		ClassLoader contextClassLoader = Thread.currentThread().contextClassLoader
+		AtomicInteger threadIndex = new AtomicInteger()
+		ThreadFactory threadFactory = { Runnable runnable ->
+			Thread thread = new Thread(runnable, "asset-compiler-${name}-${threadIndex.getAndIncrement()}".toString())
+			thread.contextClassLoader = contextClassLoader
+			thread.daemon = true
+			return thread
+		} as ThreadFactory
+		RejectedExecutionHandler blockWhenFull = { Runnable runnable, ThreadPoolExecutor pool ->
+			if(pool.isShutdown()) {
+				throw new RejectedExecutionException("Compile stage ${name} is shut down".toString())
+			}
+			try {
+				pool.queue.put(runnable)
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt()
+				throw new RejectedExecutionException("Interrupted while waiting for compile stage ${name}".toString(), ex)
+			}
+		} as RejectedExecutionHandler
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueSize), threadFactory, blockWhenFull)
+	}
+
+	/**
+	 * Runs work on the pool of this stage, blocking while its queue is full
+	 */
+	public <T> CompletableFuture<T> submit(Closure<T> work) {
+		Supplier<T> supplier = { ->
+			try {
+				return measure(work)
+			} catch(RuntimeException | Error ex) {
+				throw ex
+			} catch(Throwable ex) {
+				// checked exceptions i.e. of failed writes reach the future as its cause
+				throw new CompletionException(ex)
+			}
+		} as Supplier<T>
+		return CompletableFuture.supplyAsync(supplier, executor)
+	}
+
+	/**
+	 * Runs work on the current thread recording it as work of this stage
+	 */
+	public <T> T measure(Closure<T> work) {
+		long started = System.nanoTime()
+		try {
+			return work.call()
+		} finally {
+			busyNanos.addAndGet(System.nanoTime() - started)
+			completed.incrementAndGet()
+		}
+	}
+
+	/**
+	 * Ends the measurement and stops the threads of this stage
+	 */
+	void shutdown() {
+		if(stoppedNanos == 0L) {
+			stoppedNanos = System.nanoTime()
+		}
+		executor?.shutdown()
+	}
+
+	long getCompleted() {
+		return completed.get()
+	}
+
+	long getBusyMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(busyNanos.get())
+	}
+
+	long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis((stoppedNanos ?: System.nanoTime()) - startedNanos)
+	}
+
+	/**
+	 * @return the share of the thread time of this stage spent working, from 0 to 1
+	 */
+	double getUtilisation() {
+		long elapsed = (stoppedNanos ?: System.nanoTime()) - startedNanos
+		if(elapsed <= 0L || threads <= 0) {
+			return 0d
+		}
+		return Math.min(1d, busyNanos.get() / (double) (elapsed * threads))
+	}
+
+	@Override
+	String toString() {
+		return "${name}: ${threads} threads ${Math.round(utilisation * 100)}% utilised (${completed} jobs, ${busyMillis}ms busy in ${elapsedMillis}ms)".toString()
+	}
+}
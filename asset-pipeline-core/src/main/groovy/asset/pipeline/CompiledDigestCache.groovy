@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Build scoped memo of the digest used in the compiled file name of each asset (keyed by path).
+ * It is owned by the {@link AssetCompiler} and shared between the main compile loop and the url rewriting
+ * processors so a referenced bundle is only compiled once to find its digest no matter how often it is referenced.
+ *
+ * Concurrent lookups of the same asset wait for the thread already computing it. A lookup that would wait on
+ * itself (i.e. circular url references) computes the digest directly instead.
+ *
+ * A bundle compiled for a reference before its own compile task ran is kept together with its recorded inputs
+ * until that task {@link #takeBundle takes} it, so it is written without being compiled again. Bundles no task
+ * took are closed with the cache at the end of the build.
+ */
+class CompiledDigestCache {
+	private static final Map<Thread, Entry> waiting = new ConcurrentHashMap<Thread, Entry>()
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>()
+	private final Map<String, CompiledBundle> bundles = new ConcurrentHashMap<String, CompiledBundle>()
+	private final AtomicLong hits = new AtomicLong()
+	private final AtomicLong misses = new AtomicLong()
+
+	/**
+	 * Returns the digest of an asset, computing it once per build
+	 * @param path the path of the asset
+	 * @param digestCalculator computes the digest if it is not known yet
+	 * @return the digest
+	 */
+	String getDigest(String path, Closure<String> digestCalculator) {
+		Thread currentThread = Thread.currentThread()
+		Entry entry = entries.get(path)
+		if(entry == null) {
+			Entry created = new Entry(currentThread)
+			entry = entries.putIfAbsent(path, created)
+			if(entry == null) {
+				misses.incrementAndGet()
+				try {
+					created.future.complete(digestCalculator.call())
+				} catch(Throwable ex) {
+					entries.remove(path, created)
+					created.future.completeExceptionally(ex)
+					throw ex
+				} finally {
+					created.owner = null
+				}
+				return created.future.get()
+			}
+		}
+		if(entry.future.isDone()) {
+			hits.incrementAndGet()
+			return await(entry)
+		}
+		waiting.put(currentThread, entry)
+		try {
+			if(isWaitingOn(entry, currentThread)) {
+				misses.incrementAndGet()
+				return digestCalculator.call()
+			}
+			hits.incrementAndGet()
+			return await(entry)
+		} finally {
+			waiting.remove(currentThread)
+		}
+	}
+
+	/**
+	 * Stores a digest the compiler already calculated while compiling the asset
+	 */
+	void putDigest(String path, String digest) {
+		if(digest == null) {
+			return
+		}
+		Entry created = new Entry(null)
+		created.future.complete(digest)
+		Entry existing = entries.putIfAbsent(path, created)
+		if(existing != null) {
+			existing.future.complete(digest)
+		}
+	}
+
+	/**
+	 * Keeps a bundle compiled to find the digest of an asset for the compile task of that asset
+	 * @param recording the inputs captured while the bundle compiled
+	 */
+	void keepBundle(String path, BundleOutput bundle, DependencyGraph.Recording recording) {
+		if(bundles.putIfAbsent(path, new CompiledBundle(bundle, recording)) != null) {
+			bundle.close()
+		}
+	}
+
+	/**
+	 * @return the bundle kept for an asset or null, the caller is responsible for closing it
+	 */
+	CompiledBundle takeBundle(String path) {
+		return bundles.remove(path)
+	}
+
+	/**
+	 * Closes the bundles no compile task took, i.e. of assets that were not compiled in this build
+	 */
+	void close() {
+		for(String path in bundles.keySet()) {
+			bundles.remove(path)?.bundle?.close()
+		}
+	}
+
+	long getHits() {
+		return hits.get()
+	}
+
+	long getMisses() {
+		return misses.get()
+	}
+
+	int size() {
+		return entries.size()
+	}
+
+	/**
+	 * Follows the chain of threads waiting on one another starting at the owner of the entry
+	 */
+	private static boolean isWaitingOn(Entry entry, Thread currentThread) {
+		Set<Thread> visited = new HashSet<Thread>()
+		Thread owner = entry.owner
+		while(owner != null && visited.add(owner)) {
+			if(owner == currentThread) {
+				return true
+			}
+			owner = waiting.get(owner)?.owner
+		}
+		return false
+	}
+
+	private static String await(Entry entry) {
+		try {
+			return entry.future.get()
+		} catch(ExecutionException ex) {
+			throw ex.cause
+		}
+	}
+
+	static class CompiledBundle {
+		final BundleOutput bundle
+		final DependencyGraph.Recording recording
+
+		CompiledBundle(BundleOutput bundle, DependencyGraph.Recording recording) {
+			this.bundle = bundle
+			this.recording = recording
+		}
+	}
+
+	private static class Entry {
+		final CompletableFuture<String> future = new CompletableFuture<String>()
+		volatile Thread owner
+
+		Entry(Thread owner) {
+			this.owner = owner
+		}
+	}
+}
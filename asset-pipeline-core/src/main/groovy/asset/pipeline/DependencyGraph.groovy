@@ -0,0 +1,361 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import asset.pipeline.fs.AssetResolver
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import groovy.util.logging.Slf4j
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Build time dependency graph persisted alongside the manifest.properties file in the compileDir.
+ * Each compiled asset (keyed by its source path) records the files that went into it along with
+ * their digests, the require_tree listings it was built from, the assets it references by url
+ * and the files that were written for it. The {@link AssetCompiler} uses this on the next build to
+ * skip any asset whose input closure is unchanged and to remove outputs whose sources are gone.
+ *
+ * Inputs are captured while an asset compiles via a thread bound {@link Recording} that the
+ * {@link DirectiveProcessor}, the {@link CacheManager} and the url rewriting processors report into.
+ */
+@Slf4j
+class DependencyGraph {
+	static final String GRAPH_FILE = "dependency-graph.json"
+	static final Integer GRAPH_VERSION = 1
+	static final ThreadLocal<Recording> activeRecording = new ThreadLocal<Recording>()
+
+	File compileDir
+	String buildDigest
+
+	/** Entries carried over from the previous build (only when the build digest matches) */
+	private Map<String, Map> previousEntries = [:]
+	/** Entries for the build currently being compiled */
+	private Map<String, Map> entries = new ConcurrentHashMap<String, Map>()
+	private Map<String, AssetFile> currentAssets = [:]
+	private Map<String, String> fingerprints = new ConcurrentHashMap<String, String>()
+	private Map<String, Boolean> upToDate = new ConcurrentHashMap<String, Boolean>()
+
+	/**
+	 * @param compileDir the directory the graph is persisted to
+	 * @param buildDigest digest of the configuration affecting compiled output. A change invalidates the whole graph
+	 */
+	DependencyGraph(File compileDir, String buildDigest) {
+		this.compileDir = compileDir
+		this.buildDigest = buildDigest
+	}
+
+	/**
+	 * Loads the graph persisted by a previous build if it exists and was built with the same configuration
+	 */
+	void load() {
+		File graphFile = new File(compileDir, GRAPH_FILE)
+		if(!graphFile.exists()) {
+			return
+		}
+		try {
+			Map graph = graphFile.withReader('UTF-8') { reader -> new JsonSlurper().parse(reader) } as Map
+			if(graph?.version == GRAPH_VERSION && graph.buildDigest == buildDigest && graph.assets instanceof Map) {
+				previousEntries = graph.assets as Map<String, Map>
+			}
+		} catch(ex) {
+			// A corrupt graph simply means a full build
+			log.warn("Unable to read asset dependency graph ${graphFile} - performing full build", ex)
+		}
+	}
+
+	/**
+	 * Registers the assets found during the scan of this build. These are used for input fingerprints
+	 * before falling back to resolving the path through the registered resolvers
+	 */
+	void prepare(Collection<AssetFile> assetFiles) {
+		Map<String, AssetFile> assets = new HashMap<String, AssetFile>(assetFiles.size() * 2)
+		for(AssetFile assetFile in assetFiles) {
+			assets[assetFile.path] = assetFile
+		}
+		currentAssets = assets
+	}
+
+	/**
+	 * Removes the outputs of any asset compiled in a previous build whose source no longer exists
+	 * @param sourcePaths the set of asset paths found in this build
+	 * @return the manifest keys belonging to removed assets
+	 */
+	List<String> removeDeletedAssets(Set<String> sourcePaths) {
+		List<String> removedKeys = []
+		Iterator<Map.Entry<String, Map>> iterator = previousEntries.entrySet().iterator()
+		while(iterator.hasNext()) {
+			Map.Entry<String, Map> entry = iterator.next()
+			if(!sourcePaths.contains(entry.key)) {
+				for(String output in entry.value.outputs) {
+					File outputFile = new File(compileDir, output)
+					if(outputFile.exists()) {
+						outputFile.delete()
+					}
+				}
+				if(entry.value.manifestKey) {
+					removedKeys << (entry.value.manifestKey as String)
+				}
+				iterator.remove()
+			}
+		}
+		return removedKeys
+	}
+
+	/**
+	 * @return true if the previous build compiled the asset and so knows its dependencies
+	 */
+	boolean hasPreviousEntry(String path) {
+		return previousEntries.containsKey(path)
+	}
+
+	/**
+	 * The assets each asset depended on in the previous build (required files and url references)
+	 * @param sourcePaths the set of asset paths found in this build
+	 * @return the dependencies keyed by asset path, restricted to assets compiled in this build
+	 */
+	Map<String, Collection<String>> getPreviousDependencies(Set<String> sourcePaths) {
+		Map<String, Collection<String>> dependencies = [:]
+		previousEntries.each { String path, Map entry ->
+			Set<String> entryDependencies = new LinkedHashSet<String>()
+			for(String reference in entry.references) {
+				if(reference != path && sourcePaths.contains(reference)) {
+					entryDependencies << reference
+				}
+			}
+			for(String input in (entry.inputs as Map)?.keySet()) {
+				if(input != path && sourcePaths.contains(input)) {
+					entryDependencies << input
+				}
+			}
+			if(entryDependencies) {
+				dependencies[path] = entryDependencies
+			}
+		}
+		return dependencies
+	}
+
+	/**
+	 * Determines if the outputs of an asset from the previous build are still valid. An asset is up to date
+	 * when all of its outputs exist, none of its inputs or require_tree listings changed and every asset it
+	 * references is itself up to date.
+	 * @param path the source path of the asset
+	 * @return the previous graph entry if the asset is up to date otherwise null
+	 */
+	Map findUpToDate(String path) {
+		Map entry = previousEntries[path]
+		if(entry != null && isUpToDate(path, new HashSet<String>())) {
+			entries[path] = entry
+			return entry
+		}
+		return null
+	}
+
+	private boolean isUpToDate(String path, Set<String> visiting) {
+		Boolean cached = upToDate[path]
+		if(cached != null) {
+			return cached
+		}
+		Map entry = previousEntries[path]
+		if(entry == null) {
+			return false
+		}
+		if(!visiting.add(path)) {
+			// circular url references are resolved by the rest of the walk
+			return true
+		}
+		boolean result = entry.outputs.every { String output -> new File(compileDir, output).exists() } &&
+			(entry.inputs as Map<String, String>).every { String inputPath, String digest -> fingerprint(inputPath) == digest } &&
+			(entry.trees as Map<String, String>).every { String treeKey, String digest -> treeFingerprint(treeKey) == digest } &&
+			entry.references.every { String reference -> previousEntries[reference] == null || isUpToDate(reference, visiting) }
+		visiting.remove(path)
+		upToDate[path] = result
+		return result
+	}
+
+	/**
+	 * Starts capturing the inputs of an asset on the current thread
+	 */
+	Recording startRecording(AssetFile assetFile) {
+		Recording recording = new Recording(assetFile)
+		activeRecording.set(recording)
+		return recording
+	}
+
+	/**
+	 * Stores the captured inputs of an asset together with the files written for it
+	 * @param recording the recording returned by {@link #startRecording}
+	 * @param outputs the files written relative to the compileDir
+	 * @param manifestKey the manifest.properties key of this asset (if any)
+	 * @param manifestValue the manifest.properties value of this asset (if any)
+	 * @param digest the digest used in the digested file name
+	 */
+	void finishRecording(Recording recording, List<String> outputs, String manifestKey, String manifestValue, String digest) {
+		Map<String, String> inputDigests = [:]
+		recording.inputs.each { String inputPath, AssetFile inputFile ->
+			String inputDigest = inputFile.getByteDigest()
+			inputDigests[inputPath] = inputDigest
+			fingerprints.putIfAbsent(inputPath, inputDigest)
+		}
+		Map<String, String> treeDigests = [:]
+		recording.trees.each { String treeKey ->
+			treeDigests[treeKey] = treeFingerprint(treeKey)
+		}
+		entries[recording.path] = [
+			outputs: outputs,
+			manifestKey: manifestKey,
+			manifestValue: manifestValue,
+			digest: digest,
+			inputs: inputDigests,
+			trees: treeDigests,
+			references: recording.references.toList()
+		]
+	}
+
+	/**
+	 * Persists the graph of the current build to the compileDir
+	 */
+	void save() {
+		File graphFile = new File(compileDir, GRAPH_FILE)
+		File tmpFile = new File(compileDir, GRAPH_FILE + ".tmp")
+		Map<String, Map> sortedEntries = new TreeMap<String, Map>(entries)
+		tmpFile.withWriter('UTF-8') { writer ->
+			writer.write(JsonOutput.toJson([version: GRAPH_VERSION, buildDigest: buildDigest, assets: sortedEntries]))
+		}
+		if(!tmpFile.renameTo(graphFile)) {
+			graphFile.delete()
+			tmpFile.renameTo(graphFile)
+		}
+	}
+
+	private String fingerprint(String path) {
+		String digest = fingerprints[path]
+		if(digest == null) {
+			AssetFile assetFile = currentAssets[path] ?: AssetHelper.fileForUri(path)
+			digest = assetFile ? assetFile.getByteDigest() : ''
+			fingerprints[path] = digest
+		}
+		return digest
+	}
+
+	private String treeFingerprint(String treeKey) {
+		String digest = fingerprints[treeKey]
+		if(digest == null) {
+			List<String> treeArgs = treeKey.tokenize('|')
+			String contentType = treeArgs[1]
+			String treePath = treeArgs.size() > 2 ? treeArgs[2] : ''
+			List<String> paths = []
+			for(AssetResolver resolver in AssetPipelineConfigHolder.resolvers) {
+				for(AssetFile file in resolver.getAssets(treePath, contentType, null, true, null, null)) {
+					paths << file.path
+				}
+			}
+			digest = AssetHelper.getByteDigest(paths.sort().join('\n').getBytes('UTF-8'))
+			fingerprints[treeKey] = digest
+		}
+		return digest
+	}
+
+	/**
+	 * Records a file as an input of the asset currently compiling on this thread
+	 */
+	static void recordInput(AssetFile file) {
+		Recording recording = activeRecording.get()
+		if(recording != null && file != null) {
+			recording.inputs.putIfAbsent(file.path, file)
+		}
+	}
+
+	/**
+	 * Records an asset whose compiled name is referenced (i.e. via url rewriting) by the asset currently compiling
+	 */
+	static void recordReference(AssetFile file) {
+		Recording recording = activeRecording.get()
+		if(recording != null && file != null) {
+			recording.inputs.putIfAbsent(file.path, file)
+			recording.references << file.path
+		}
+	}
+
+	/**
+	 * Records a require_tree style listing so additions and removals within the tree invalidate the asset
+	 * @param treePath the path of the tree relative to the resolvers
+	 * @param contentType the content type the tree was filtered by
+	 */
+	static void recordTree(String treePath, String contentType) {
+		Recording recording = activeRecording.get()
+		if(recording != null) {
+			recording.trees << "tree|${contentType}|${treePath ?: ''}".toString()
+		}
+	}
+
+	/**
+	 * Captures the inputs of another asset compiled while the current one compiles (i.e. a bundle compiled to find
+	 * the digest of a url reference) in a recording of its own. They are added to the current recording as well
+	 * since its output depends on them
+	 */
+	static <T> T recordNested(Recording recording, Closure<T> work) {
+		Recording outer = activeRecording.get()
+		activeRecording.set(recording)
+		try {
+			return work.call()
+		} finally {
+			if(outer != null) {
+				outer.merge(recording)
+				activeRecording.set(outer)
+			} else {
+				activeRecording.remove()
+			}
+		}
+	}
+
+	/**
+	 * Stops capturing on the current thread
+	 */
+	static void stopRecording() {
+		activeRecording.remove()
+	}
+
+	/**
+	 * The inputs captured for a single asset while it compiles
+	 */
+	static class Recording {
+		String path
+		Map<String, AssetFile> inputs = [:]
+		Set<String> references = new LinkedHashSet<String>()
+		Set<String> trees = new LinkedHashSet<String>()
+
+		Recording(String path) {
+			this.path = path
+		}
+
+		Recording(AssetFile assetFile) {
+			this(assetFile.path)
+			inputs[assetFile.path] = assetFile
+		}
+
+		/**
+		 * Adds the inputs captured by another recording, i.e. of the same asset compiled on another thread
+		 */
+		void merge(Recording other) {
+			other.inputs.each { String inputPath, AssetFile inputFile ->
+				inputs.putIfAbsent(inputPath, inputFile)
+			}
+			references.addAll(other.references)
+			trees.addAll(other.trees)
+		}
+	}
+}
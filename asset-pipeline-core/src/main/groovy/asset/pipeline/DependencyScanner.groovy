@@ -0,0 +1,175 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import asset.pipeline.processors.CssProcessor
+import asset.pipeline.processors.HtmlProcessor
+import asset.pipeline.processors.JsProcessor
+import groovy.util.logging.Slf4j
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ForkJoinPool
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+import static asset.pipeline.utils.net.Urls.isRelative
+
+/**
+ * Finds the assets an asset depends on without compiling it, for the assets the previous build did not compile
+ * (i.e. on a clean build). The {@link AssetCompileScheduler} uses these to compile referenced bundles before the
+ * assets referencing them, which would otherwise compile them on demand to find their digest.
+ *
+ * Two kinds of dependencies are found: files included by a 'require' directive in the header read by the
+ * {@link DirectiveScanner} and assets referenced by the same url patterns the url rewriting processors replace.
+ * Every asset is read once. The dependencies are only used for ordering, so unresolved or unreadable files are
+ * skipped.
+ */
+@Slf4j
+class DependencyScanner {
+	/** The patterns of the url rewriting processors by content type, the last group matched is the url */
+	static final Map<String, Pattern> REFERENCE_PATTERNS = [
+		'text/css': CssProcessor.URL_CALL_PATTERN,
+		'text/html': HtmlProcessor.QUOTED_ASSET_PATH_PATTERN,
+		'application/javascript': JsProcessor.URL_CALL_PATTERN
+	]
+
+	/** The url of javascript asset_url calls is resolved from the root instead of the referencing file */
+	private static final Set<String> ROOT_RELATIVE_TYPES = ['application/javascript'] as Set
+
+	private final Set<String> sourcePaths
+	private final Map<String, String> resolvedPaths = new ConcurrentHashMap<String, String>()
+
+	/**
+	 * @param sourcePaths the paths of the assets compiled in this build, dependencies on other files are dropped
+	 */
+	DependencyScanner(Set<String> sourcePaths) {
+		this.sourcePaths = sourcePaths
+	}
+
+	/**
+	 * Scans the sources in parallel on the pool
+	 * @param sources the asset files or descriptors to scan
+	 * @return the dependencies keyed by asset path, assets without dependencies are left out
+	 */
+	Map<String, Collection<String>> scan(Collection sources, ForkJoinPool pool) {
+		Map<String, Collection<String>> dependencies = new ConcurrentHashMap<String, Collection<String>>()
+		pool.submit({ ->
+			sources.parallelStream().forEach { source ->
+				Collection<String> sourceDependencies = dependenciesOf(source)
+				if(sourceDependencies) {
+					dependencies[source.path as String] = sourceDependencies
+				}
+			}
+		} as Callable).get()
+		return dependencies
+	}
+
+	/**
+	 * @param source an asset file or descriptor
+	 * @return the paths of the compiled assets the source requires or references
+	 */
+	Collection<String> dependenciesOf(source) {
+		if(source instanceof AssetDescriptor ? source.generic : source instanceof GenericAssetFile) {
+			return []
+		}
+		AssetFile assetFile = source instanceof AssetDescriptor ? source.load() : source
+		if(!assetFile) {
+			return []
+		}
+		Set<String> dependencies = new LinkedHashSet<String>()
+		try {
+			String contentType = (assetFile.contentType instanceof String) ? assetFile.contentType : assetFile.contentType[0]
+			Pattern referencePattern = REFERENCE_PATTERNS[contentType]
+			String header
+			if(referencePattern) {
+				String text = assetFile.inputStream.getText(assetFile.encoding ?: 'UTF-8')
+				header = DirectiveScanner.header(new BufferedReader(new StringReader(text)))
+				addReferences(assetFile, contentType, referencePattern.matcher(text), dependencies)
+			} else {
+				header = assetFile.directivePattern ? DirectiveScanner.header(assetFile.inputStream, assetFile.encoding ?: 'UTF-8') : ''
+			}
+			if(assetFile.directivePattern) {
+				addRequires(assetFile, contentType, header, dependencies)
+			}
+		} catch(Exception ex) {
+			log.debug("Unable to scan ${assetFile.path} for dependencies", ex)
+		}
+		dependencies.remove(assetFile.path)
+		return dependencies
+	}
+
+	private void addRequires(AssetFile assetFile, String contentType, String header, Set<String> dependencies) {
+		Matcher matcher = header =~ assetFile.directivePattern
+		while(matcher.find()) {
+			String[] arguments = matcher.group(1).trim().split(/\s+/)
+			// GString directives depend on the build and trees are listed when the asset compiles
+			if(arguments.length < 2 || arguments[0].toLowerCase() != 'require' || arguments[1].contains('$')) {
+				continue
+			}
+			for(String fileName in arguments[1].tokenize(',')) {
+				String relativeName = fileName.startsWith(AssetHelper.DIRECTIVE_FILE_SEPARATOR) ? fileName : [assetFile.parentPath, fileName].findAll().join(AssetHelper.DIRECTIVE_FILE_SEPARATOR)
+				String path = resolve(relativeName, contentType)
+				if(!path && !fileName.startsWith(AssetHelper.DIRECTIVE_FILE_SEPARATOR)) {
+					path = resolve(AssetHelper.DIRECTIVE_FILE_SEPARATOR + fileName, contentType)
+				}
+				if(path) {
+					dependencies << path
+				}
+			}
+		}
+	}
+
+	private void addReferences(AssetFile assetFile, String contentType, Matcher matcher, Set<String> dependencies) {
+		boolean rootRelative = ROOT_RELATIVE_TYPES.contains(contentType)
+		while(matcher.find()) {
+			String url = null
+			for(int group = matcher.groupCount(); group > 0 && url == null; group--) {
+				url = matcher.group(group)
+			}
+			url = url?.trim()
+			if(!url || !(rootRelative || isRelative(url))) {
+				continue
+			}
+			int queryStart = url.indexOf('?')
+			int fragmentStart = url.indexOf('#')
+			int end = [queryStart, fragmentStart, url.length()].findAll { it >= 0 }.min()
+			String assetPath = rootRelative || !assetFile.parentPath ? url.substring(0, end) : AssetHelper.normalizePath(assetFile.parentPath + AssetHelper.DIRECTIVE_FILE_SEPARATOR + url.substring(0, end))
+			String path = resolve(assetPath, null)
+			if(path) {
+				dependencies << path
+			}
+		}
+	}
+
+	/**
+	 * @return the path of the compiled asset a uri resolves to or null
+	 */
+	private String resolve(String uri, String contentType) {
+		String key = "${contentType}|${uri}".toString()
+		String path = resolvedPaths[key]
+		if(path == null) {
+			List<String> mimeTypes = contentType ? [contentType] : AssetHelper.assetMimeTypeForURI(uri)
+			AssetFile file = AssetHelper.fileForUri(uri, mimeTypes ? mimeTypes[0] : null)
+			if(!file && !contentType) {
+				file = AssetHelper.fileForFullName(uri)
+			}
+			path = file && sourcePaths.contains(file.path) ? file.path : ''
+			resolvedPaths[key] = path
+		}
+		return path ?: null
+	}
+}
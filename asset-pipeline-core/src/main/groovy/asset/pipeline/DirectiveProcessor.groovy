@@ -17,8 +17,12 @@ package asset.pipeline
 
 import groovy.util.logging.Slf4j
 import asset.pipeline.processors.JsRequireProcessor
+import groovy.text.GStringTemplateEngine
+import groovy.text.Template
 import groovy.transform.CompileStatic
 
+import java.lang.ref.SoftReference
+
 /**
  * This processor is a base processor put in front of most asset processing. It is responsible for parsing directives
  * like '//=require file' or '//=require_tree .' or '//=require_self'. It is capable of creating a dependency graph
@@ -35,6 +39,13 @@ class DirectiveProcessor {
     */
     static DIRECTIVES = [require_self: "requireSelfDirective" ,require_tree: "requireTreeDirective", require_full_tree: "requireFullTreeDirective" , require: "requireFileDirective", encoding: "encodingTypeDirective"]
 
+    static final int MAX_DIRECTIVE_TEMPLATES = 256
+    /**
+    * Compiled templates by class loader. The loaders are held weakly and the templates softly, since a template's
+    * class references its loader and would otherwise keep a discarded (i.e. reloaded) loader alive
+    */
+    private static final Map<ClassLoader, Map<String, SoftReference<Template>>> directiveTemplates = new WeakHashMap<ClassLoader, Map<String, SoftReference<Template>>>()
+
     private String contentType
     private AssetCompiler precompiler
     private Map files = [:]
@@ -81,6 +92,38 @@ class DirectiveProcessor {
         
     }
 
+    /**
+    * Compiles an AssetFile like {@link #compile} but streams each processed part into a {@link BundleOutput} instead
+    * of building the bundle as a String. The caller must close the returned bundle.
+    * @param file an instance of an AbstractAssetFile (i.e. JsAssetFile or CssAssetFile), not a GenericAssetFile
+    * @param spillDirectory where the bundle is spilled to once it outgrows memory (defaults to the temp directory)
+    */
+    @CompileStatic
+    BundleOutput compileBundle(AssetFile file, File spillDirectory = null) {
+        BundleOutput bundle = null
+        try {
+            this.baseFile = file
+            this.files = [:]
+            Map tree = getDependencyTree(file)
+            JsRequireProcessor.withinDirectiveTree.set(true)
+            JsRequireProcessor.commonJsModules.set([:] as Map<String,String>)
+
+            bundle = new BundleOutput(file.encoding, spillDirectory)
+            loadContentsForTree(tree, bundle.writer)
+            if(JsRequireProcessor.commonJsModules.get()) {
+                bundle.prefix = JsRequireProcessor.requireMethod + JsRequireProcessor.modulesJs()
+            }
+            bundle.writer.flush()
+            return bundle
+        } catch(Throwable ex) {
+            bundle?.close()
+            throw ex
+        } finally {
+            JsRequireProcessor.commonJsModules.set([:] as Map<String,String>)
+            JsRequireProcessor.withinDirectiveTree.set(false)
+        }
+    }
+
     /**
     * Returns a Flattened list of files based on the require tree
     * This is useful for converting a script tag into several script tags for debugging
@@ -126,7 +169,7 @@ class DirectiveProcessor {
     /**
     * Scans through a generated tree and builds a files contents recursively
     */
-    protected void loadContentsForTree(Map treeSet,StringBuilder buffer) {
+    protected void loadContentsForTree(Map treeSet,Appendable buffer) {
 
         Boolean selfLoaded = false
         for(childTree in treeSet.tree) {
@@ -149,6 +192,7 @@ class DirectiveProcessor {
     @CompileStatic
     protected Map getDependencyTree(AssetFile file) {
         this.files[file.path] = file
+        DependencyGraph.recordInput(file)
         Map tree = [file:file,tree:[]]
         if(!(file instanceof GenericAssetFile)) {
             this.findDirectives(file as AssetFile,tree)
@@ -165,10 +209,10 @@ class DirectiveProcessor {
     @CompileStatic
     protected findDirectives(AssetFile fileSpec, Map tree) {
 
-        String line = fileSpec.inputStream.getText("UTF-8")
         List directives = []
         if(fileSpec.directivePattern) {
-            directives = (line =~ fileSpec.directivePattern)?.collect { List it -> it[1] as String }
+            String header = DirectiveScanner.header(fileSpec.inputStream)
+            directives = (header =~ fileSpec.directivePattern)?.collect { List it -> it[1] as String }
         }
         for(String directive in directives) {
             directive = directive.trim()
@@ -193,7 +237,7 @@ class DirectiveProcessor {
 
     public String[] directiveArgumentsFromGString(String directive) {
         try {
-            return new groovy.text.GStringTemplateEngine(classLoader ?: this.class.classLoader).createTemplate(directive).make().toString().split(/\s+/)
+            return directiveTemplate(classLoader ?: this.class.classLoader, directive).make().toString().split(/\s+/)
         } catch(ex) {
             println "Error Processing GString Template Engine ${ex}"
             log.error("Error Processing GString Template Engine",ex)
@@ -201,6 +245,40 @@ class DirectiveProcessor {
         }
     }
 
+    /**
+    * Compiles a directive containing GString expressions into a template. Compiled templates are kept per class loader
+    * in a bounded cache since each one defines a new class
+    */
+    @CompileStatic
+    protected static Template directiveTemplate(ClassLoader loader, String directive) {
+        Template template
+        synchronized(directiveTemplates) {
+            template = directiveTemplates.get(loader)?.get(directive)?.get()
+        }
+        if(template == null) {
+            template = new GStringTemplateEngine(loader).createTemplate(directive)
+            synchronized(directiveTemplates) {
+                Map<String, SoftReference<Template>> templates = directiveTemplates.get(loader)
+                if(templates == null) {
+                    templates = newTemplateCache()
+                    directiveTemplates.put(loader, templates)
+                }
+                templates.put(directive, new SoftReference<Template>(template))
+            }
+        }
+        return template
+    }
+
+    @CompileStatic
+    private static Map<String, SoftReference<Template>> newTemplateCache() {
+        return new LinkedHashMap<String, SoftReference<Template>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SoftReference<Template>> eldest) {
+                return size() > MAX_DIRECTIVE_TEMPLATES
+            }
+        }
+    }
+
     public void callDirective(String name, String[] directiveArguments, AssetFile fileSpec, Map tree) {
         this."${name}"(directiveArguments, fileSpec,tree)
     }
@@ -233,6 +311,7 @@ class DirectiveProcessor {
         String directivePath = command[1]
         def resolver = fileSpec.sourceResolver
         def files = resolver.getAssets(directivePath,contentType,null,true ,fileSpec,baseFile)
+        DependencyGraph.recordTree(treePathForDirective(directivePath, fileSpec), contentType)
 
         files.each { file ->
             if(!isFileInTree(file)) {
@@ -248,6 +327,7 @@ class DirectiveProcessor {
     */
     def requireFullTreeDirective(command, fileSpec, tree) {
         String directivePath = command[1]
+        DependencyGraph.recordTree(treePathForDirective(directivePath, fileSpec), contentType)
         for(resolver in AssetPipelineConfigHolder.resolvers) {
             def files = resolver.getAssets(directivePath,contentType,null,true ,fileSpec,baseFile)
             files.each { file ->
@@ -258,6 +338,20 @@ class DirectiveProcessor {
         }
     }
 
+    /**
+    * Translates a tree directive path into a path relative to the resolvers
+    * so the listing can be re-evaluated by the {@link DependencyGraph}
+    */
+    protected String treePathForDirective(String directivePath, fileSpec) {
+        if(directivePath.startsWith(AssetHelper.DIRECTIVE_FILE_SEPARATOR)) {
+            return AssetHelper.normalizePath(directivePath.substring(1))
+        }
+        if(fileSpec.parentPath) {
+            return AssetHelper.normalizePath([fileSpec.parentPath, directivePath].join(AssetHelper.DIRECTIVE_FILE_SEPARATOR))
+        }
+        return AssetHelper.normalizePath(directivePath)
+    }
+
     /**
     * Directive which allows inclusion of individual files
     * Example: //=require sample.js
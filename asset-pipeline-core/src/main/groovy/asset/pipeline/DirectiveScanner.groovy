@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import groovy.transform.CompileStatic
+
+import java.util.regex.Pattern
+
+/**
+ * Reads the header of an asset, the leading block of comments and blank lines, which is where directives like
+ * '//=require file' or '*= require_tree .' live. Reading stops at the first line of code so large files are not
+ * decoded and scanned beyond their header.
+ *
+ * Lines starting with '//' or '#' and block comments ('/* ... *&#47;' and CoffeeScript '### ... ###') are considered
+ * part of the header, as are the statements that must or usually come first in a file: '@charset', '@import' and
+ * the 'use strict' directive.
+ */
+@CompileStatic
+class DirectiveScanner {
+	private static final Pattern PREAMBLE = ~/^(@charset\s.*|@import\s.*|(['"])use strict\2;?)$/
+
+	/**
+	 * @return the header lines of the stream joined by new lines. The stream is closed
+	 */
+	static String header(InputStream inputStream, String encoding = 'UTF-8') {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, encoding))
+		try {
+			return header(reader)
+		} finally {
+			reader.close()
+		}
+	}
+
+	static String header(BufferedReader reader) {
+		StringBuilder header = new StringBuilder()
+		boolean inBlockComment = false
+		boolean inHashBlockComment = false
+		String line
+		while((line = reader.readLine()) != null) {
+			String trimmed = line.trim()
+			if(inBlockComment) {
+				inBlockComment = !trimmed.contains('*/')
+			} else if(inHashBlockComment) {
+				inHashBlockComment = !trimmed.startsWith('###')
+			} else if(trimmed.startsWith('/*')) {
+				inBlockComment = trimmed.indexOf('*/', 2) < 0
+			} else if(trimmed.startsWith('###')) {
+				inHashBlockComment = trimmed.length() < 6 || !trimmed.endsWith('###')
+			} else if(!(trimmed.isEmpty() || trimmed.startsWith('//') || trimmed.startsWith('#') || PREAMBLE.matcher(trimmed).matches())) {
+				break
+			}
+			header.append(line).append('\n')
+		}
+		return header.toString()
+	}
+}
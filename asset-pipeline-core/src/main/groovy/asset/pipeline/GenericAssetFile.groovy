@@ -33,6 +33,8 @@ class GenericAssetFile extends AbstractAssetFile {
 	String path
 
 	Closure inputStreamSource = {} //Implemented by AssetResolver
+	/** The file on the local file system when the resolver has one, used to copy the file without reading it */
+	File sourceFile
 
     /**
      * Returns an inputStream reference to the file. Since it is not a processed file this content is not saved in
@@ -40,6 +42,7 @@ class GenericAssetFile extends AbstractAssetFile {
      * @return inputStream of file being read
      */
 	InputStream getInputStream() {
+		this.sourceStat = getFileStat()
 		this.digest = MessageDigest.getInstance("MD5")
 		this.digestStream = new DigestInputStream((InputStream)inputStreamSource(),digest)
 		return digestStream
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import groovy.transform.CompileStatic
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Limits the bytes of asset sources being compiled at the same time. Compile tasks acquire the size of their asset
+ * before loading it and block while the budget is exhausted which holds back the {@link AssetCompileScheduler}
+ * until running tasks finish. An asset larger than the whole budget is compiled on its own. Once compiled, a task
+ * {@link #adjust adjusts} its share to the size of the output it holds until the output is written, since a bundle
+ * is often much larger than the source of its manifest.
+ *
+ * The peak of bytes in flight and the peak heap usage observed by the tasks are kept for reporting.
+ */
+@CompileStatic
+class InFlightBudget {
+	final long maxBytes
+
+	private long inFlight
+	private long peakInFlight
+	private final AtomicLong peakHeapUsed = new AtomicLong()
+
+	InFlightBudget(long maxBytes) {
+		this.maxBytes = maxBytes
+	}
+
+	/**
+	 * Blocks until the bytes fit within the budget
+	 * @return the bytes acquired which must be handed to {@link #release}
+	 */
+	long acquire(long bytes) throws InterruptedException {
+		long granted = Math.max(0L, Math.min(bytes, maxBytes))
+		synchronized(this) {
+			while(inFlight > 0 && inFlight + granted > maxBytes) {
+				wait()
+			}
+			inFlight += granted
+			peakInFlight = Math.max(peakInFlight, inFlight)
+		}
+		sampleHeap()
+		return granted
+	}
+
+	/**
+	 * Changes the bytes held by a running task without blocking, since a task waiting for more while holding some
+	 * could deadlock with another one doing the same. Growing beyond the budget holds back later acquisitions until
+	 * the task releases its bytes
+	 * @param held the bytes currently held by the task
+	 * @param bytes the bytes the task holds from now on
+	 * @return the bytes now held which must be handed to {@link #release}
+	 */
+	long adjust(long held, long bytes) {
+		long granted = Math.max(0L, Math.min(bytes, maxBytes))
+		synchronized(this) {
+			inFlight += granted - held
+			peakInFlight = Math.max(peakInFlight, inFlight)
+			if(granted < held) {
+				notifyAll()
+			}
+		}
+		sampleHeap()
+		return granted
+	}
+
+	void release(long bytes) {
+		sampleHeap()
+		synchronized(this) {
+			inFlight -= bytes
+			notifyAll()
+		}
+	}
+
+	synchronized long getInFlight() {
+		return inFlight
+	}
+
+	synchronized long getPeakInFlight() {
+		return peakInFlight
+	}
+
+	long getPeakHeapUsed() {
+		return peakHeapUsed.get()
+	}
+
+	/**
+	 * Records the heap currently in use if it is the highest seen so far
+	 */
+	void sampleHeap() {
+		Runtime runtime = Runtime.runtime
+		long used = runtime.totalMemory() - runtime.freeMemory()
+		long peak = peakHeapUsed.get()
+		while(used > peak && !peakHeapUsed.compareAndSet(peak, used)) {
+			peak = peakHeapUsed.get()
+		}
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+/**
+ * A {@link Processor} that is notified when the {@link ProcessorRegistry} puts it into service and when it is
+ * discarded. Expensive setup such as loading a script engine belongs in {@link #init()} rather than the constructor
+ * so it runs once per reusable instance.
+ */
+interface LifecycleProcessor extends Processor {
+	/**
+	 * Called once after construction before the first file is processed
+	 */
+	void init()
+
+	/**
+	 * Called once when the instance is discarded (end of a precompile or application shutdown)
+	 */
+	void close()
+}
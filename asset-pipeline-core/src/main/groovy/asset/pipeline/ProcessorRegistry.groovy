@@ -0,0 +1,227 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import groovy.transform.CompileDynamic
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedDeque
+
+/**
+ * Hands out {@link Processor} instances according to their declared {@link ProcessorScope} so warm instances
+ * are reused for the lifetime of a precompile or, in development, of the application.
+ *
+ * Each {@link AssetCompiler} owns a registry that is closed when its compile finishes. Assets processed at
+ * runtime share a development registry which is closed on JVM shutdown.
+ */
+@Slf4j
+@CompileStatic
+class ProcessorRegistry {
+	private static volatile ProcessorRegistry developmentRegistry
+
+	final AssetCompiler precompiler
+
+	private final Map<Class, ProcessorScope> scopes = new ConcurrentHashMap<Class, ProcessorScope>()
+	private final Map<Class, Processor> sharedInstances = new ConcurrentHashMap<Class, Processor>()
+	/** Guards the creation of each shared instance so a slow init() only holds up callers of the same class */
+	private final Map<Class, Object> sharedLocks = new ConcurrentHashMap<Class, Object>()
+	private final Map<Class, ConcurrentLinkedDeque<Processor>> pools = new ConcurrentHashMap<Class, ConcurrentLinkedDeque<Processor>>()
+	private final Map<Class, ThreadLocal<Processor>> confined = new ConcurrentHashMap<Class, ThreadLocal<Processor>>()
+	/** Every reusable instance handed out, closed together with the registry */
+	private final Set<Processor> retained = Collections.newSetFromMap(new ConcurrentHashMap<Processor, Boolean>())
+	private volatile boolean closed = false
+
+	ProcessorRegistry(AssetCompiler precompiler) {
+		this.precompiler = precompiler
+	}
+
+	/**
+	 * @return the registry of the precompiler or the development registry when precompiler is null
+	 */
+	static ProcessorRegistry forCompiler(AssetCompiler precompiler) {
+		if(precompiler != null) {
+			return precompiler.processorRegistry
+		}
+		ProcessorRegistry registry = developmentRegistry
+		if(registry == null) {
+			synchronized(ProcessorRegistry) {
+				registry = developmentRegistry
+				if(registry == null) {
+					registry = new ProcessorRegistry(null)
+					Runtime.runtime.addShutdownHook(new Thread({ -> registry.close() } as Runnable, 'asset-pipeline-processor-shutdown'))
+					developmentRegistry = registry
+				}
+			}
+		}
+		return registry
+	}
+
+	/**
+	 * Closes the processors held for development (i.e. when the application is reloaded). A new registry is
+	 * created if assets are processed again
+	 */
+	static void shutdownDevelopment() {
+		ProcessorRegistry registry
+		synchronized(ProcessorRegistry) {
+			registry = developmentRegistry
+			developmentRegistry = null
+		}
+		registry?.close()
+	}
+
+	/**
+	 * Runs a processor over the given text using an instance from this registry
+	 */
+	String process(Class<Processor> processorClass, String inputText, AssetFile assetFile) {
+		Processor processor = acquire(processorClass)
+		try {
+			return processor.process(inputText, assetFile)
+		} finally {
+			release(processor)
+		}
+	}
+
+	/**
+	 * Obtains an instance of a processor. Every acquired instance must be handed back via {@link #release}
+	 */
+	Processor acquire(Class<Processor> processorClass) {
+		if(closed) {
+			return create(processorClass)
+		}
+		switch(scopeOf(processorClass)) {
+			case ProcessorScope.SHARED:
+				Processor shared = sharedInstances.get(processorClass)
+				if(shared == null) {
+					synchronized(sharedLockFor(processorClass)) {
+						shared = sharedInstances.get(processorClass)
+						if(shared == null) {
+							shared = retain(create(processorClass))
+							sharedInstances.put(processorClass, shared)
+						}
+					}
+				}
+				return shared
+			case ProcessorScope.POOLED:
+				Processor pooled = poolFor(processorClass).pollFirst()
+				return pooled != null ? pooled : retain(create(processorClass))
+			case ProcessorScope.THREAD_CONFINED:
+				ThreadLocal<Processor> local = confined.get(processorClass)
+				if(local == null) {
+					confined.putIfAbsent(processorClass, new ThreadLocal<Processor>())
+					local = confined.get(processorClass)
+				}
+				Processor threadInstance = local.get()
+				if(threadInstance == null) {
+					threadInstance = retain(create(processorClass))
+					local.set(threadInstance)
+				}
+				return threadInstance
+			default:
+				return create(processorClass)
+		}
+	}
+
+	/**
+	 * Hands back an instance obtained from {@link #acquire}
+	 */
+	void release(Processor processor) {
+		if(processor == null) {
+			return
+		}
+		if(retained.contains(processor)) {
+			if(!closed && scopeOf(processor.getClass()) == ProcessorScope.POOLED) {
+				poolFor(processor.getClass()).offerFirst(processor)
+			}
+		} else {
+			closeProcessor(processor)
+		}
+	}
+
+	/**
+	 * Closes every reusable processor instance held by this registry. Later requests get a new instance per file
+	 */
+	void close() {
+		closed = true
+		for(Processor processor in retained) {
+			closeProcessor(processor)
+		}
+		sharedInstances.clear()
+		sharedLocks.clear()
+		pools.clear()
+		confined.clear()
+	}
+
+	/**
+	 * @return the scope declared by a processor class via {@link ProcessorScoped} or PER_FILE if none is declared
+	 */
+	ProcessorScope scopeOf(Class processorClass) {
+		ProcessorScope scope = scopes.get(processorClass)
+		if(scope == null) {
+			ProcessorScoped declared = (ProcessorScoped) processorClass.getAnnotation(ProcessorScoped)
+			scope = declared != null ? declared.value() : ProcessorScope.PER_FILE
+			scopes.put(processorClass, scope)
+		}
+		return scope
+	}
+
+	private Object sharedLockFor(Class processorClass) {
+		Object lock = sharedLocks.get(processorClass)
+		if(lock == null) {
+			sharedLocks.putIfAbsent(processorClass, new Object())
+			lock = sharedLocks.get(processorClass)
+		}
+		return lock
+	}
+
+	private ConcurrentLinkedDeque<Processor> poolFor(Class processorClass) {
+		ConcurrentLinkedDeque<Processor> pool = pools.get(processorClass)
+		if(pool == null) {
+			pools.putIfAbsent(processorClass, new ConcurrentLinkedDeque<Processor>())
+			pool = pools.get(processorClass)
+		}
+		return pool
+	}
+
+	private Processor retain(Processor processor) {
+		retained.add(processor)
+		return processor
+	}
+
+	private Processor create(Class<Processor> processorClass) {
+		Processor processor = instantiate(processorClass)
+		if(processor instanceof LifecycleProcessor) {
+			((LifecycleProcessor) processor).init()
+		}
+		return processor
+	}
+
+	@CompileDynamic
+	private Processor instantiate(Class<Processor> processorClass) {
+		return processorClass.newInstance(precompiler) as Processor
+	}
+
+	private static void closeProcessor(Processor processor) {
+		if(processor instanceof LifecycleProcessor) {
+			try {
+				((LifecycleProcessor) processor).close()
+			} catch(Exception ex) {
+				log.warn("Error closing processor ${processor.getClass().name}", ex)
+			}
+		}
+	}
+}
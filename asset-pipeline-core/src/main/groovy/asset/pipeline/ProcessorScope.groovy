@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+/**
+ * Describes how instances of a {@link Processor} may be reused by the {@link ProcessorRegistry}.
+ * Processors declare their scope with the {@link ProcessorScoped} annotation.
+ */
+enum ProcessorScope {
+	/** A new instance is created for every file processed. The default for processors that declare nothing */
+	PER_FILE,
+	/** Processor is stateless or thread safe. A single instance is shared by all threads */
+	SHARED,
+	/** Instances are not thread safe but may be reused. Idle instances are handed to whichever thread needs one */
+	POOLED,
+	/** Instances are bound to the thread that created them (i.e. script engines that must be entered on one thread) */
+	THREAD_CONFINED
+}
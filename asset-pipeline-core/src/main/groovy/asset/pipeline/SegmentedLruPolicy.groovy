@@ -0,0 +1,199 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import groovy.transform.CompileStatic
+
+import java.util.concurrent.locks.ReentrantLock
+import java.util.function.Predicate
+
+/**
+ * Weight bounded segmented LRU eviction policy. New entries enter a probation segment and are promoted to a protected
+ * segment when accessed again. The protected segment is capped at a share of the maximum weight with its least
+ * recently used entries demoted back to probation. Victims are taken from the probation segment first so entries
+ * only used once never push out entries used repeatedly.
+ *
+ * The policy only tracks keys, values and weights. The owner removes the returned victims from its own map.
+ * Accesses are recorded with a tryLock so concurrent readers never wait on the policy, under contention some
+ * accesses are simply not recorded.
+ * Private API Class
+ */
+@CompileStatic
+class SegmentedLruPolicy<K, V> {
+	static final double PROTECTED_RATIO = 0.8d
+
+	final long maximumWeight
+	final long protectedMaximumWeight
+
+	private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<K, Node<V>>()
+	private final LinkedHashMap<K, Node<V>> protectedSegment = new LinkedHashMap<K, Node<V>>()
+	private final ReentrantLock lock = new ReentrantLock()
+	private long probationWeight = 0
+	private long protectedWeight = 0
+
+	SegmentedLruPolicy(long maximumWeight) {
+		this.maximumWeight = maximumWeight
+		this.protectedMaximumWeight = (long) (maximumWeight * PROTECTED_RATIO)
+	}
+
+	/**
+	 * Records a new or replaced value. Replacing a value counts as an access
+	 */
+	void recordWrite(K key, V value, long weight) {
+		lock.lock()
+		try {
+			Node<V> node = probation.remove(key)
+			if(node != null) {
+				probationWeight -= node.weight
+				promote(key, node, value, weight)
+				return
+			}
+			node = protectedSegment.remove(key)
+			if(node != null) {
+				protectedWeight -= node.weight
+				promote(key, node, value, weight)
+				return
+			}
+			probation.put(key, new Node<V>(value, weight))
+			probationWeight += weight
+		} finally {
+			lock.unlock()
+		}
+	}
+
+	/**
+	 * Records a read of a key. Skipped if another thread holds the policy
+	 */
+	void recordAccess(K key) {
+		if(!lock.tryLock()) {
+			return
+		}
+		try {
+			Node<V> node = probation.remove(key)
+			if(node != null) {
+				probationWeight -= node.weight
+			} else {
+				node = protectedSegment.remove(key)
+				if(node == null) {
+					return
+				}
+				protectedWeight -= node.weight
+			}
+			promote(key, node, node.value, node.weight)
+		} finally {
+			lock.unlock()
+		}
+	}
+
+	/**
+	 * Stops tracking a key if it is still mapped to the given value
+	 */
+	void recordRemoval(K key, V value) {
+		lock.lock()
+		try {
+			Node<V> node = probation.get(key)
+			if(node != null && node.value.is(value)) {
+				probation.remove(key)
+				probationWeight -= node.weight
+				return
+			}
+			node = protectedSegment.get(key)
+			if(node != null && node.value.is(value)) {
+				protectedSegment.remove(key)
+				protectedWeight -= node.weight
+			}
+		} finally {
+			lock.unlock()
+		}
+	}
+
+	/**
+	 * Selects least recently used entries until the total weight fits the maximum weight
+	 * @param pinned keys that may not be evicted right now
+	 * @return the evicted keys and the values they were tracked with
+	 */
+	List<Map.Entry<K, V>> evict(Predicate<K> pinned) {
+		List<Map.Entry<K, V>> victims = new ArrayList<Map.Entry<K, V>>()
+		lock.lock()
+		try {
+			Iterator<Map.Entry<K, Node<V>>> iterator = probation.entrySet().iterator()
+			while(getWeightedSize() > maximumWeight && iterator.hasNext()) {
+				Map.Entry<K, Node<V>> entry = iterator.next()
+				if(!pinned.test(entry.key)) {
+					iterator.remove()
+					probationWeight -= entry.value.weight
+					victims.add(new AbstractMap.SimpleImmutableEntry<K, V>(entry.key, entry.value.value))
+				}
+			}
+			iterator = protectedSegment.entrySet().iterator()
+			while(getWeightedSize() > maximumWeight && iterator.hasNext()) {
+				Map.Entry<K, Node<V>> entry = iterator.next()
+				if(!pinned.test(entry.key)) {
+					iterator.remove()
+					protectedWeight -= entry.value.weight
+					victims.add(new AbstractMap.SimpleImmutableEntry<K, V>(entry.key, entry.value.value))
+				}
+			}
+		} finally {
+			lock.unlock()
+		}
+		return victims
+	}
+
+	long getWeightedSize() {
+		return probationWeight + protectedWeight
+	}
+
+	void clear() {
+		lock.lock()
+		try {
+			probation.clear()
+			protectedSegment.clear()
+			probationWeight = 0
+			protectedWeight = 0
+		} finally {
+			lock.unlock()
+		}
+	}
+
+	private void promote(K key, Node<V> node, V value, long weight) {
+		node.value = value
+		node.weight = weight
+		protectedSegment.put(key, node)
+		protectedWeight += weight
+		Iterator<Map.Entry<K, Node<V>>> iterator = protectedSegment.entrySet().iterator()
+		while(protectedWeight > protectedMaximumWeight && iterator.hasNext()) {
+			Map.Entry<K, Node<V>> demoted = iterator.next()
+			if(demoted.key == key) {
+				break
+			}
+			iterator.remove()
+			protectedWeight -= demoted.value.weight
+			probation.put(demoted.key, demoted.value)
+			probationWeight += demoted.value.weight
+		}
+	}
+
+	private static class Node<V> {
+		V value
+		long weight
+
+		Node(V value, long weight) {
+			this.value = value
+			this.weight = weight
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.cache
+
+/**
+ * A content addressable store of processed asset contents. Entries are keyed by a digest of everything that
+ * affects the output of the processors (see {@link BuildCaches#cacheKey}) so they can be shared between working
+ * directories, machines and concurrently running builds.
+ */
+interface BuildCache {
+	/**
+	 * @param key the cache key
+	 * @return the stored entry or null if absent or unreadable
+	 */
+	BuildCacheEntry load(String key)
+
+	/**
+	 * Stores an entry. Implementations must tolerate concurrent writers of the same key
+	 */
+	void store(String key, BuildCacheEntry entry)
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.cache
+
+import asset.pipeline.AssetFile
+import groovy.transform.CompileStatic
+
+/**
+ * Captures what the processors of an asset read while it is processed so the resulting {@link BuildCacheEntry}
+ * can be validated on a later hit. Captures are thread bound and nest, inputs and references are reported to every
+ * active capture since an enclosing asset depends on them as well.
+ */
+@CompileStatic
+class BuildCacheCapture {
+	private static final ThreadLocal<Deque<BuildCacheCapture>> activeCaptures = new ThreadLocal<Deque<BuildCacheCapture>>()
+
+	final String path
+	final BuildCacheEntry entry = new BuildCacheEntry()
+
+	private BuildCacheCapture(String path) {
+		this.path = path
+	}
+
+	/**
+	 * Starts capturing for an asset on the current thread. Must be paired with {@link #stop}
+	 */
+	static BuildCacheCapture start(String path) {
+		Deque<BuildCacheCapture> captures = activeCaptures.get()
+		if(captures == null) {
+			captures = new ArrayDeque<BuildCacheCapture>()
+			activeCaptures.set(captures)
+		}
+		BuildCacheCapture capture = new BuildCacheCapture(path)
+		captures.push(capture)
+		return capture
+	}
+
+	void stop() {
+		Deque<BuildCacheCapture> captures = activeCaptures.get()
+		captures?.remove(this)
+		if(!captures) {
+			activeCaptures.remove()
+		}
+	}
+
+	/**
+	 * Records a file read by a processor of the assets being captured
+	 */
+	static void recordInput(AssetFile file) {
+		Deque<BuildCacheCapture> captures = activeCaptures.get()
+		if(captures && file != null) {
+			String digest = file.getByteDigest()
+			for(BuildCacheCapture capture in captures) {
+				capture.entry.inputs.put(file.path, digest)
+			}
+		}
+	}
+
+	/**
+	 * Records an asset referenced by url
+	 * @param compiledDigest the compiled digest written into the output or an empty string if none was used
+	 */
+	static void recordReference(String path, String compiledDigest) {
+		Deque<BuildCacheCapture> captures = activeCaptures.get()
+		if(captures && path != null) {
+			for(BuildCacheCapture capture in captures) {
+				String existing = capture.entry.references.get(path)
+				if(!existing) {
+					capture.entry.references.put(path, compiledDigest ?: '')
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records a commonJs module produced for the asset with the given path
+	 */
+	static void recordModule(String fileName, String moduleName, String content) {
+		Deque<BuildCacheCapture> captures = activeCaptures.get()
+		if(captures && moduleName != null) {
+			for(BuildCacheCapture capture in captures) {
+				if(capture.path == fileName) {
+					capture.entry.modules.put(moduleName, content)
+				}
+			}
+		}
+	}
+}
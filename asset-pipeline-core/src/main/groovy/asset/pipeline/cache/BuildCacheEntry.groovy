@@ -0,0 +1,49 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.cache
+
+import groovy.transform.CompileStatic
+
+/**
+ * The processed contents of an asset together with everything it was built from besides its own source.
+ */
+@CompileStatic
+class BuildCacheEntry {
+	/** The output of the processors */
+	String processedText
+	/** Digests of files read by the processors (i.e. imported partials) keyed by asset path */
+	Map<String, String> inputs = [:]
+	/** Compiled digests of assets referenced by url keyed by asset path. Empty when the digest was not used */
+	Map<String, String> references = [:]
+	/** CommonJs module contents produced while processing keyed by module path */
+	Map<String, String> modules = [:]
+	/** Further outputs stored alongside the processed text (i.e. the source map of a minified file) keyed by name */
+	Map<String, String> attachments = [:]
+
+	Map<String, Object> toRecord() {
+		return [processedText: processedText, inputs: inputs, references: references, modules: modules, attachments: attachments] as Map<String, Object>
+	}
+
+	static BuildCacheEntry fromRecord(Map<String, Object> record) {
+		return new BuildCacheEntry(
+			processedText: record.processedText as String,
+			inputs: (record.inputs ?: [:]) as Map<String, String>,
+			references: (record.references ?: [:]) as Map<String, String>,
+			modules: (record.modules ?: [:]) as Map<String, String>,
+			attachments: (record.attachments ?: [:]) as Map<String, String>
+		)
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.cache
+
+import asset.pipeline.AssetCompiler
+import asset.pipeline.AssetFile
+import asset.pipeline.AssetHelper
+import asset.pipeline.AssetPipelineConfigHolder
+import asset.pipeline.CacheManager
+import asset.pipeline.DependencyGraph
+import asset.pipeline.processors.JsRequireProcessor
+import groovy.util.logging.Slf4j
+
+import java.security.MessageDigest
+
+/**
+ * Entry points to the {@link BuildCache} used by {@link asset.pipeline.AbstractAssetFile#processedStream}.
+ * <ul>
+ *  <li>buildCacheLocation - directory of the shared build cache, disabled when unset</li>
+ *  <li>buildCacheMaxSize - size in bytes the build cache directory is trimmed to (default 1GB)</li>
+ *  <li>enableMinifyCache - keeps minified javascript between builds (default false)</li>
+ *  <li>minifyCacheLocation - directory of the minification cache (default the build cache if configured, otherwise
+ *  .asset-minify-cache next to the compileDir)</li>
+ *  <li>minifyCacheMaxSize - size in bytes the minification cache directory is trimmed to (default 256MB)</li>
+ * </ul>
+ * These are read from the {@link AssetCompiler} options when precompiling and from the
+ * {@link AssetPipelineConfigHolder} config otherwise.
+ */
+@Slf4j
+class BuildCaches {
+	static final Integer KEY_VERSION = 1
+	/** Config options that only describe the local machine and never affect processed output */
+	static final List<String> LOCAL_CONFIG_KEYS = ['cacheLocation', 'cacheMaxWeight', 'cacheCompression', 'resolverIndex', 'buildCacheLocation', 'buildCacheMaxSize', 'enableMinifyCache', 'minifyCacheLocation', 'minifyCacheMaxSize']
+	static final Long DEFAULT_MINIFY_CACHE_MAX_SIZE = 256L * 1024L * 1024L
+	static final String DEFAULT_MINIFY_CACHE_DIRECTORY = '.asset-minify-cache'
+
+	private static BuildCache developmentCache
+	private static String developmentCacheLocation
+	/** The config hash code and the digest computed for it */
+	private static volatile List configDigestEntry
+
+	/**
+	 * Creates the build cache configured in an options map
+	 * @return the build cache or null if none is configured
+	 */
+	static BuildCache fromOptions(Map options) {
+		if(options?.buildCache instanceof BuildCache) {
+			return options.buildCache as BuildCache
+		}
+		if(!options?.buildCacheLocation) {
+			return null
+		}
+		return new DirectoryBuildCache(new File(options.buildCacheLocation.toString()), options.buildCacheMaxSize as Long)
+	}
+
+	/**
+	 * Creates the cache of minification results configured in the options of a precompiler. Minified output is keyed
+	 * by the unminified content so the cache may share the directory of the build cache.
+	 * @param buildCache the build cache of the precompiler if any
+	 * @return the minification cache or null unless enabled by enableMinifyCache
+	 */
+	static BuildCache minifyCacheFromOptions(Map options, BuildCache buildCache) {
+		if(options?.enableMinifyCache != true) {
+			return null
+		}
+		if(options?.minifyCacheLocation) {
+			return new DirectoryBuildCache(new File(options.minifyCacheLocation.toString()), (options.minifyCacheMaxSize ?: DEFAULT_MINIFY_CACHE_MAX_SIZE) as Long)
+		}
+		if(buildCache != null) {
+			return buildCache
+		}
+		File compileDir = new File((options?.compileDir ?: 'target/assets').toString()).absoluteFile
+		return new DirectoryBuildCache(new File(compileDir.parentFile, DEFAULT_MINIFY_CACHE_DIRECTORY), (options?.minifyCacheMaxSize ?: DEFAULT_MINIFY_CACHE_MAX_SIZE) as Long)
+	}
+
+	/**
+	 * @return the build cache of the precompiler or the build cache configured for development
+	 */
+	static BuildCache forCompiler(AssetCompiler precompiler) {
+		if(precompiler != null) {
+			return precompiler.buildCache
+		}
+		return getDevelopmentCache()
+	}
+
+	private static synchronized BuildCache getDevelopmentCache() {
+		Map config = AssetPipelineConfigHolder.config
+		String location = config?.buildCacheLocation?.toString()
+		if(location != developmentCacheLocation) {
+			developmentCache = fromOptions(config)
+			developmentCacheLocation = location
+		}
+		return developmentCache
+	}
+
+	/**
+	 * The key of an asset is a digest of its source contents, its processor chain, the pipeline configuration and
+	 * what else the processors take into account (the asset path for relative urls and module names, its base file,
+	 * its encoding and whether it is precompiled)
+	 */
+	static String cacheKey(AssetFile assetFile, AssetCompiler precompiler) {
+		List<String> parts = [
+			"v${KEY_VERSION}".toString(),
+			assetFile.class.name,
+			assetFile.path,
+			assetFile.baseFile?.path ?: '',
+			assetFile.baseFile?.encoding ?: assetFile.encoding ?: '',
+			assetFile.getByteDigest(),
+			processorsKey(assetFile),
+			getConfigDigest(),
+			precompiler ? "compile|digests:${precompiler.options.enableDigests}".toString() : 'development',
+			"tree:${JsRequireProcessor.withinDirectiveTree.get() == true}".toString()
+		]
+		MessageDigest digest = MessageDigest.getInstance('SHA-256')
+		digest.update(parts.join('\n').getBytes('UTF-8'))
+		return digest.digest().encodeHex().toString()
+	}
+
+	/**
+	 * Looks up and validates the build cache entry of an asset. On a hit the recorded inputs, references and modules
+	 * are reported as if the asset had been processed.
+	 * @param updateCacheManager true to also populate the development {@link CacheManager}
+	 * @return the processed text or null on a miss
+	 */
+	static String restore(BuildCache buildCache, String key, AssetFile assetFile, AssetCompiler precompiler, boolean updateCacheManager) {
+		BuildCacheEntry entry = buildCache.load(key)
+		if(entry == null) {
+			return null
+		}
+		Map<String, AssetFile> inputFiles = [:]
+		for(Map.Entry<String, String> input in entry.inputs) {
+			AssetFile inputFile = AssetHelper.fileForUri(input.key)
+			if(inputFile == null || inputFile.getByteDigest() != input.value) {
+				return null
+			}
+			inputFiles[input.key] = inputFile
+		}
+		Map<String, AssetFile> referenceFiles = [:]
+		for(Map.Entry<String, String> reference in entry.references) {
+			AssetFile referenceFile = AssetHelper.fileForUri(reference.key) ?: AssetHelper.fileForFullName(reference.key)
+			if(referenceFile == null) {
+				return null
+			}
+			if(reference.value && (precompiler == null || precompiler.compiledDigestOf(referenceFile) != reference.value)) {
+				return null
+			}
+			referenceFiles[reference.key] = referenceFile
+		}
+
+		inputFiles.each { String path, AssetFile inputFile ->
+			DependencyGraph.recordInput(inputFile)
+			BuildCacheCapture.recordInput(inputFile)
+		}
+		referenceFiles.each { String path, AssetFile referenceFile ->
+			DependencyGraph.recordReference(referenceFile)
+			BuildCacheCapture.recordReference(path, entry.references[path])
+		}
+		if(entry.modules) {
+			Map<String, String> moduleMaps = JsRequireProcessor.commonJsModules.get()
+			if(moduleMaps != null) {
+				JsRequireProcessor.commonJsModules.set(entry.modules + moduleMaps)
+			}
+		}
+		if(updateCacheManager) {
+			CacheManager.createCache(assetFile.path, assetFile.getByteDigest(), entry.processedText, assetFile.baseFile?.path)
+			inputFiles.each { String path, AssetFile inputFile ->
+				CacheManager.addCacheDependency(assetFile.path, inputFile)
+			}
+			entry.modules.each { String moduleName, String content ->
+				CacheManager.addCacheModule(assetFile.path, moduleName, content)
+			}
+		}
+		return entry.processedText
+	}
+
+	/**
+	 * Stores the output of a processed asset together with what was captured while processing it
+	 */
+	static void save(BuildCache buildCache, String key, String processedText, BuildCacheCapture capture) {
+		if(processedText == null) {
+			return
+		}
+		BuildCacheEntry entry = capture.entry
+		entry.processedText = processedText
+		try {
+			buildCache.store(key, entry)
+		} catch(Exception ex) {
+			log.warn("Unable to store build cache entry for ${capture.path}", ex)
+		}
+	}
+
+	private static String processorsKey(AssetFile assetFile) {
+		return assetFile.processors?.collect { Class processor ->
+			"${processor.name}@${processor.package?.implementationVersion ?: ''}"
+		}?.join(',') ?: ''
+	}
+
+	/**
+	 * Like {@link AssetPipelineConfigHolder#getDigestString} but without the options that differ between machines
+	 * sharing a build cache
+	 */
+	static String getConfigDigest() {
+		Map config = AssetPipelineConfigHolder.config
+		Integer hashCode = config?.hashCode()
+		List entry = configDigestEntry
+		if(entry == null || entry[0] != hashCode) {
+			Map sharedConfig = config ? config.findAll { key, value -> !LOCAL_CONFIG_KEYS.contains(key) } : [:]
+			entry = [hashCode, AssetHelper.getByteDigest(sharedConfig.sort().toString().getBytes('UTF-8'))]
+			configDigestEntry = entry
+		}
+		return entry[1]
+	}
+}
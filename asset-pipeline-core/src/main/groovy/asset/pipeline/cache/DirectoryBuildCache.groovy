@@ -0,0 +1,237 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.cache
+
+import asset.pipeline.CacheStore
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.channels.FileLock
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.zip.CRC32
+
+/**
+ * {@link BuildCache} backed by a local directory which may live on a mount shared by several machines.
+ *
+ * Entries are written to a uniquely named temporary file and atomically moved into place so concurrent writers,
+ * even from different JVMs, never expose a partially written entry. Each entry carries a checksum and entries that
+ * fail to verify are treated as misses and removed. Hits refresh the modification time of the entry which is used
+ * to evict the least recently used entries once the directory grows beyond its maximum size. Only one process trims
+ * the directory at a time, guarded by a file lock.
+ */
+@Slf4j
+@CompileStatic
+class DirectoryBuildCache implements BuildCache {
+	static final int MAGIC = 0x41504243 // APBC
+	static final int VERSION = 1
+	static final String ENTRY_EXTENSION = '.entry'
+	static final String TEMP_EXTENSION = '.tmp'
+	static final long DEFAULT_MAX_SIZE = 1024L * 1024L * 1024L
+	static final double TRIM_RATIO = 0.8d
+	static final long STALE_TEMP_MS = 60L * 60L * 1000L
+
+	final File directory
+	final long maxSize
+
+	final AtomicLong hits = new AtomicLong()
+	final AtomicLong misses = new AtomicLong()
+	private final AtomicLong bytesSinceTrim = new AtomicLong()
+	private final AtomicBoolean trimming = new AtomicBoolean()
+
+	DirectoryBuildCache(File directory, Long maxSize = null) {
+		this.directory = directory
+		this.maxSize = maxSize != null ? maxSize : DEFAULT_MAX_SIZE
+		directory.mkdirs()
+	}
+
+	@Override
+	BuildCacheEntry load(String key) {
+		File entryFile = entryFile(key)
+		if(!entryFile.exists()) {
+			misses.incrementAndGet()
+			return null
+		}
+		try {
+			BuildCacheEntry entry = decode(entryFile.bytes)
+			if(entry == null) {
+				log.warn("Removing corrupt asset build cache entry ${entryFile}")
+				entryFile.delete()
+				misses.incrementAndGet()
+				return null
+			}
+			entryFile.setLastModified(System.currentTimeMillis())
+			hits.incrementAndGet()
+			return entry
+		} catch(IOException ex) {
+			// removed by another process while reading
+			misses.incrementAndGet()
+			return null
+		}
+	}
+
+	@Override
+	void store(String key, BuildCacheEntry entry) {
+		File entryFile = entryFile(key)
+		if(entryFile.exists()) {
+			// content addressed, an existing entry holds the same output
+			return
+		}
+		entryFile.parentFile.mkdirs()
+		byte[] bytes = encode(entry)
+		File tmpFile = new File(entryFile.parentFile, "${key}.${UUID.randomUUID()}${TEMP_EXTENSION}".toString())
+		try {
+			FileChannel channel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(bytes)
+				while(buffer.hasRemaining()) {
+					channel.write(buffer)
+				}
+				channel.force(true)
+			} finally {
+				channel.close()
+			}
+			try {
+				Files.move(tmpFile.toPath(), entryFile.toPath(), StandardCopyOption.ATOMIC_MOVE)
+			} catch(AtomicMoveNotSupportedException ex) {
+				Files.move(tmpFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING)
+			}
+		} catch(IOException ex) {
+			log.warn("Unable to store asset build cache entry ${entryFile}", ex)
+		} finally {
+			tmpFile.delete()
+		}
+		if(bytesSinceTrim.addAndGet(bytes.length) > maxSize - (long) (maxSize * TRIM_RATIO)) {
+			trim()
+		}
+	}
+
+	/**
+	 * Evicts the least recently used entries until the directory is below its trim size. Skipped if another thread
+	 * or process is already trimming
+	 */
+	void trim() {
+		if(!trimming.compareAndSet(false, true)) {
+			return
+		}
+		bytesSinceTrim.set(0)
+		try {
+			FileChannel lockChannel = FileChannel.open(new File(directory, '.lock').toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+			try {
+				FileLock lock = lockChannel.tryLock()
+				if(lock == null) {
+					return
+				}
+				try {
+					trimEntries()
+				} finally {
+					lock.release()
+				}
+			} finally {
+				lockChannel.close()
+			}
+		} catch(IOException ex) {
+			log.warn("Unable to trim asset build cache ${directory}", ex)
+		} finally {
+			trimming.set(false)
+		}
+	}
+
+	private void trimEntries() {
+		List<File> entries = []
+		long totalSize = 0
+		long staleBefore = System.currentTimeMillis() - STALE_TEMP_MS
+		directory.listFiles()?.each { File bucket ->
+			if(!bucket.isDirectory()) {
+				return
+			}
+			bucket.listFiles()?.each { File file ->
+				if(file.name.endsWith(ENTRY_EXTENSION)) {
+					entries << file
+					totalSize += file.length()
+				} else if(file.name.endsWith(TEMP_EXTENSION) && file.lastModified() < staleBefore) {
+					// left behind by a crashed writer
+					file.delete()
+				}
+			}
+		}
+		if(totalSize <= maxSize) {
+			return
+		}
+		long targetSize = (long) (maxSize * TRIM_RATIO)
+		Map<File, Long> lastModified = entries.collectEntries { File file -> [(file): file.lastModified()] }
+		entries.sort { File file -> lastModified[file] }
+		for(File file in entries) {
+			if(totalSize <= targetSize) {
+				break
+			}
+			long length = file.length()
+			if(file.delete()) {
+				totalSize -= length
+			}
+		}
+	}
+
+	private File entryFile(String key) {
+		return new File(new File(directory, key.substring(0, 2)), key + ENTRY_EXTENSION)
+	}
+
+	static byte[] encode(BuildCacheEntry entry) {
+		byte[] payload = CacheStore.encodeRecord(entry.toRecord())
+		CRC32 crc = new CRC32()
+		crc.update(payload)
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 20)
+		DataOutputStream out = new DataOutputStream(bytes)
+		out.writeInt(MAGIC)
+		out.writeInt(VERSION)
+		out.writeInt(payload.length)
+		out.write(payload)
+		out.writeLong(crc.value)
+		out.flush()
+		return bytes.toByteArray()
+	}
+
+	/**
+	 * @return the decoded entry or null if the bytes are not a complete entry of this version
+	 */
+	static BuildCacheEntry decode(byte[] bytes) {
+		if(bytes.length < 20) {
+			return null
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes)
+		if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			return null
+		}
+		int payloadLength = buffer.getInt()
+		if(payloadLength < 0 || payloadLength != bytes.length - 20) {
+			return null
+		}
+		CRC32 crc = new CRC32()
+		crc.update(bytes, 12, payloadLength)
+		buffer.position(12 + payloadLength)
+		if(buffer.getLong() != crc.value) {
+			return null
+		}
+		ByteBuffer payload = ByteBuffer.wrap(bytes, 12, payloadLength).slice()
+		return BuildCacheEntry.fromRecord(CacheStore.decodeRecord(payload))
+	}
+}
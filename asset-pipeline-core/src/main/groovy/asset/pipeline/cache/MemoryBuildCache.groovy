@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.cache
+
+import groovy.transform.CompileStatic
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * {@link BuildCache} held in memory for the life of the JVM, evicting the least recently used entries once it
+ * holds more than its maximum number of entries. Used for intermediate results such as processed imports which are
+ * shared by several assets within a build and between development requests.
+ */
+@CompileStatic
+class MemoryBuildCache implements BuildCache {
+	static final int DEFAULT_MAX_ENTRIES = 1000
+
+	final int maxEntries
+	final AtomicLong hits = new AtomicLong()
+	final AtomicLong misses = new AtomicLong()
+
+	private final LinkedHashMap<String, BuildCacheEntry> entries
+
+	MemoryBuildCache(int maxEntries = DEFAULT_MAX_ENTRIES) {
+		this.maxEntries = maxEntries
+		this.entries = new LinkedHashMap<String, BuildCacheEntry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, BuildCacheEntry> eldest) {
+				return size() > MemoryBuildCache.this.maxEntries
+			}
+		}
+	}
+
+	@Override
+	BuildCacheEntry load(String key) {
+		BuildCacheEntry entry
+		synchronized(entries) {
+			entry = entries.get(key)
+		}
+		(entry != null ? hits : misses).incrementAndGet()
+		return entry
+	}
+
+	@Override
+	void store(String key, BuildCacheEntry entry) {
+		synchronized(entries) {
+			entries.put(key, entry)
+		}
+	}
+
+	int size() {
+		synchronized(entries) {
+			return entries.size()
+		}
+	}
+
+	void clear() {
+		synchronized(entries) {
+			entries.clear()
+		}
+	}
+}
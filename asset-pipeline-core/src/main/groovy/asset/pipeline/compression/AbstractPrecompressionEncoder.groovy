@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.compression
+
+/**
+ * Base class for {@link PrecompressionEncoder} implementations providing the compression level and
+ * the list of excluded extensions.
+ */
+abstract class AbstractPrecompressionEncoder implements PrecompressionEncoder {
+	Integer level
+	List<String> excludes = []
+
+	AbstractPrecompressionEncoder(Integer level, List<String> excludes) {
+		this.level = level
+		this.excludes = excludes ?: []
+	}
+
+	boolean isAvailable() {
+		return true
+	}
+
+	boolean isExcluded(String extension) {
+		String lowerExtension = extension?.toLowerCase()
+		return excludes.any { it.toLowerCase() == lowerExtension }
+	}
+}
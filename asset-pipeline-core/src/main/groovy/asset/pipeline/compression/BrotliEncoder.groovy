@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.compression
+
+import com.aayushatharva.brotli4j.encoder.BrotliOutputStream
+import com.aayushatharva.brotli4j.encoder.Encoder
+import groovy.util.logging.Slf4j
+
+/**
+ * Writes .br variants using brotli4j. The com.aayushatharva.brotli4j:brotli4j library (and the native
+ * artifact for the build platform) must be added to the classpath of the build for this encoder to be available.
+ */
+@Slf4j
+class BrotliEncoder extends AbstractPrecompressionEncoder {
+	static final Integer DEFAULT_LEVEL = 11
+
+	private static Boolean available
+
+	BrotliEncoder(Integer level = null, List<String> excludes = []) {
+		super(level != null ? level : DEFAULT_LEVEL, excludes)
+	}
+
+	String getExtension() {
+		return 'br'
+	}
+
+	boolean isAvailable() {
+		if(available == null) {
+			try {
+				available = Class.forName('com.aayushatharva.brotli4j.Brotli4jLoader', true, BrotliEncoder.classLoader).isAvailable()
+				if(!available) {
+					log.warn("Brotli native library could not be loaded - skipping .br generation")
+				}
+			} catch(ClassNotFoundException | LinkageError ex) {
+				log.warn("Brotli support requires com.aayushatharva.brotli4j:brotli4j on the classpath - skipping .br generation")
+				available = false
+			}
+		}
+		return available
+	}
+
+	OutputStream encode(OutputStream target) throws IOException {
+		return new BrotliOutputStream(target, new Encoder.Parameters().setQuality(level))
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.compression
+
+/**
+ * Produces a precompressed variant (i.e. .gz or .br) of a compiled asset. Encoders are handed the output
+ * streams of the asset by the {@link asset.pipeline.AssetCompiler} so they run in the same pass that writes
+ * the non digest and digest files.
+ */
+interface PrecompressionEncoder {
+	/**
+	 * @return the extension appended to the compiled file name (without the leading dot)
+	 */
+	String getExtension()
+
+	/**
+	 * @return false if the libraries required by this encoder are not present at runtime
+	 */
+	boolean isAvailable()
+
+	/**
+	 * @param extension the extension of the compiled file
+	 * @return true if files with this extension should not be compressed by this encoder
+	 */
+	boolean isExcluded(String extension)
+
+	/**
+	 * Wraps the target stream in a compressing stream. Closing the returned stream must finish the encoding
+	 * but is not required to close the target.
+	 * @param target the stream the compressed bytes are written to
+	 * @return the stream uncompressed bytes are written into
+	 */
+	OutputStream encode(OutputStream target) throws IOException
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.compression
+
+import groovy.util.logging.Slf4j
+
+/**
+ * Builds the list of {@link PrecompressionEncoder} instances the {@link asset.pipeline.AssetCompiler} should run
+ * from its options map.
+ * <ul>
+ *  <li>enableGzip / gzipLevel / excludesGzip</li>
+ *  <li>enableBrotli / brotliLevel / excludesBrotli</li>
+ *  <li>enableZstd / zstdLevel / excludesZstd</li>
+ *  <li>precompressionEncoders - additional {@link PrecompressionEncoder} instances or class names</li>
+ * </ul>
+ */
+@Slf4j
+class PrecompressionEncoders {
+	/** Extensions of already compressed formats that are never worth compressing again */
+	static final List<String> DEFAULT_EXCLUDES = ['png', 'jpg', 'jpeg', 'gif', 'zip', 'gz', 'br', 'zst']
+
+	static List<PrecompressionEncoder> fromOptions(Map options, ClassLoader classLoader = null) {
+		List<PrecompressionEncoder> encoders = []
+		if(options.enableGzip == true) {
+			encoders << new GzipEncoder(options.gzipLevel as Integer, options.excludesGzip as List<String>)
+		}
+		if(options.enableBrotli == true) {
+			encoders << new BrotliEncoder(options.brotliLevel as Integer, options.excludesBrotli as List<String>)
+		}
+		if(options.enableZstd == true) {
+			encoders << new ZstdEncoder(options.zstdLevel as Integer, options.excludesZstd as List<String>)
+		}
+		options.precompressionEncoders?.each { encoder ->
+			if(encoder instanceof PrecompressionEncoder) {
+				encoders << encoder
+			} else {
+				Class encoderClass = (classLoader ?: PrecompressionEncoders.classLoader).loadClass(encoder.toString())
+				encoders << (PrecompressionEncoder) encoderClass.newInstance()
+			}
+		}
+		return encoders.findAll { it.isAvailable() }
+	}
+}
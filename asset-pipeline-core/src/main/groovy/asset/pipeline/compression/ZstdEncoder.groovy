@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.compression
+
+import com.github.luben.zstd.ZstdOutputStream
+import groovy.util.logging.Slf4j
+
+/**
+ * Writes .zst variants using zstd-jni. The com.github.luben:zstd-jni library must be added to the classpath of
+ * the build for this encoder to be available.
+ */
+@Slf4j
+class ZstdEncoder extends AbstractPrecompressionEncoder {
+	static final Integer DEFAULT_LEVEL = 19
+
+	private static Boolean available
+
+	ZstdEncoder(Integer level = null, List<String> excludes = []) {
+		super(level != null ? level : DEFAULT_LEVEL, excludes)
+	}
+
+	String getExtension() {
+		return 'zst'
+	}
+
+	boolean isAvailable() {
+		if(available == null) {
+			try {
+				Class.forName('com.github.luben.zstd.util.Native', true, ZstdEncoder.classLoader).load()
+				available = true
+			} catch(ClassNotFoundException ex) {
+				log.warn("Zstandard support requires com.github.luben:zstd-jni on the classpath - skipping .zst generation")
+				available = false
+			} catch(LinkageError ex) {
+				log.warn("Zstandard native library could not be loaded - skipping .zst generation")
+				available = false
+			}
+		}
+		return available
+	}
+
+	OutputStream encode(OutputStream target) throws IOException {
+		return new ZstdOutputStream(target, level)
+	}
+}
@@ -16,14 +16,19 @@
 
 package asset.pipeline.fs
 
+import asset.pipeline.AbstractAssetFile
+import asset.pipeline.AssetDescriptor
 import asset.pipeline.AssetFile
 import asset.pipeline.AssetHelper
+import asset.pipeline.AssetPipelineConfigHolder
 import asset.pipeline.GenericAssetFile
 import groovy.transform.CompileStatic
 import java.nio.file.FileSystems
 import java.nio.file.PathMatcher
 import java.nio.file.Paths
 import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
 import java.util.jar.JarEntry
 import java.util.regex.Pattern
 import java.util.zip.ZipEntry
@@ -34,33 +39,135 @@ import java.util.zip.ZipEntry
  * @author David Estes
  */
 abstract class AbstractAssetResolver<T> implements AssetResolver {
+    private static final Map<Collection, List<Object[]>> extensionCandidatesBySpecs = new ConcurrentHashMap<Collection, List<Object[]>>()
+
     String name
 
+    /**
+     * When enabled candidate files are looked up in an in memory index of the resolver contents instead of
+     * probing the file system or class loader once per candidate extension. Defaults to the resolverIndex config option.
+     * Index lookups match file names exactly, even on case insensitive file systems.
+     */
+    Boolean indexed
+
+    protected final Map<String, Map<String, T>> pathIndexes = new ConcurrentHashMap<String, Map<String, T>>()
+    protected final Set<String> unresolvedPaths = ConcurrentHashMap.newKeySet()
+    protected final AtomicLong indexGeneration = new AtomicLong()
+
     AbstractAssetResolver(String name) {
         this.name = name
     }
 
+    boolean isIndexed() {
+        return indexed != null ? indexed : AssetPipelineConfigHolder.config?.resolverIndex == true
+    }
+
+    /**
+     * Discards the index so it is rebuilt on the next lookup
+     */
+    void invalidateIndex() {
+        indexGeneration.incrementAndGet()
+        pathIndexes.clear()
+        unresolvedPaths.clear()
+    }
+
+    /**
+     * Records that files were added or removed after they were updated in the index in place. Only the cached misses
+     * are dropped, the index is kept.
+     */
+    protected void indexChanged() {
+        indexGeneration.incrementAndGet()
+        unresolvedPaths.clear()
+    }
+
+    /**
+     * @return a counter incremented whenever files are added to or removed from the index or it is discarded
+     */
+    long getIndexGeneration() {
+        return indexGeneration.get()
+    }
+
+    /**
+     * Lists every file below the prefixPath keyed by its path relative to the prefixPath.
+     * Resolvers that cannot list their contents return null and are probed for each candidate instead.
+     */
+    protected Map<String, T> buildPathIndex(String prefixPath) {
+        return null
+    }
+
+    protected T findRelativeFile(String prefixPath, String name) {
+        if(isIndexed() && !name.contains('..')) {
+            Map<String, T> index = pathIndexes.get(prefixPath)
+            if(index == null) {
+                long generation = indexGeneration.get()
+                index = buildPathIndex(prefixPath)
+                if(index != null && generation == indexGeneration.get()) {
+                    pathIndexes.put(prefixPath, index)
+                }
+            }
+            if(index != null) {
+                return index.get(AssetHelper.normalizePath(name))
+            }
+        }
+        return getRelativeFile(prefixPath, name)
+    }
+
+    /**
+     * Scans for the files to precompile like {@link #scanForFiles} but returns lightweight descriptors the
+     * {@link AssetFile} is only created from when it is compiled. Resolvers that can not describe their files
+     * without creating them wrap the result of {@link #scanForFiles}
+     */
+    Collection<AssetDescriptor> scanForDescriptors(List<String> excludePatterns, List<String> includePatterns) {
+        return scanForFiles(excludePatterns, includePatterns).collect { AssetFile assetFile -> AssetDescriptor.of(assetFile) }
+    }
+
     protected abstract String relativePathToResolver(T file, String scanDirectoryPath)
 
     protected abstract T getRelativeFile(String relativePath, String name)
 
     protected abstract Closure<InputStream> createInputStreamClosure(T file)
 
+    /**
+     * Creates a closure returning a cheap fingerprint of the file (i.e. its size and last modified time).
+     * The {@link asset.pipeline.CacheManager} uses it to skip rehashing cache dependencies that did not change.
+     * Resolvers unable to stat their files return null
+     */
+    protected Closure<String> createStatClosure(T file) {
+        return null
+    }
+
+    /**
+     * Returns the file on the local file system backing a resolved file so generic assets can be copied without
+     * being read through the JVM. Resolvers whose files are not plain files (i.e. jar entries) return null
+     */
+    protected File localFile(T file) {
+        return null
+    }
+
+    protected AssetFile withStatSource(AssetFile assetFile, T file) {
+        if(assetFile instanceof AbstractAssetFile) {
+            ((AbstractAssetFile) assetFile).statSource = createStatClosure(file)
+        }
+        if(assetFile instanceof GenericAssetFile) {
+            ((GenericAssetFile) assetFile).sourceFile = localFile(file)
+        }
+        return assetFile
+    }
+
 
     protected AssetFile resolveAsset(specs, String prefixPath, String normalizedPath, AssetFile baseFile, String extension) {
-        if (specs) {
-            def extensionMap = [:]
-            for(fileSpec in specs) {
-                for(ext in fileSpec.extensions) {
-                    if(extensionMap[ext] == null) {
-                        extensionMap[ext] = fileSpec
-                    }
-                }
+        String unresolvedKey = null
+        long generation = indexGeneration.get()
+        if(isIndexed()) {
+            unresolvedKey = "${prefixPath}|${normalizedPath}|${extension}|${specs?.collect { it.name }}".toString()
+            if(unresolvedPaths.contains(unresolvedKey)) {
+                return null
             }
-            def extensions = extensionMap.keySet().sort{a,b -> -(a.size()) <=> -(b.size())}
-
-            for (ext in extensions) {
-                def fileSpec = extensionMap[ext]
+        }
+        if (specs) {
+            for (Object[] candidate in extensionCandidates(specs)) {
+                def ext = candidate[0]
+                def fileSpec = candidate[1]
                 def fileName = normalizedPath
                 if (fileName.endsWith(".${fileSpec.compiledExtension}")) {
                     fileName = fileName.substring(0, fileName.lastIndexOf(".${fileSpec.compiledExtension}"))
@@ -70,11 +177,11 @@ abstract class AbstractAssetResolver<T> implements AssetResolver {
                 if (!tmpFileName.endsWith("." + ext)) {
                     tmpFileName += "." + ext
                 }
-                def file = getRelativeFile(prefixPath, tmpFileName)
+                def file = findRelativeFile(prefixPath, tmpFileName)
                 def inputStreamClosure = createInputStreamClosure(file)
 
                 if (inputStreamClosure && file != null) {
-                    return fileSpec.newInstance(inputStreamSource: inputStreamClosure, baseFile: baseFile, path: relativePathToResolver(file, prefixPath), sourceResolver: this)
+                    return withStatSource(fileSpec.newInstance(inputStreamSource: inputStreamClosure, baseFile: baseFile, path: relativePathToResolver(file, prefixPath), sourceResolver: this) as AssetFile, file)
                 }
                 
             }
@@ -86,15 +193,38 @@ abstract class AbstractAssetResolver<T> implements AssetResolver {
                 fileName += ".${extension}"
             }
         }
-        def file = getRelativeFile(prefixPath, fileName)
+        def file = findRelativeFile(prefixPath, fileName)
         def inputStreamClosure = createInputStreamClosure(file)
         if (inputStreamClosure && file != null) {
-            return new GenericAssetFile(inputStreamSource: inputStreamClosure, path: relativePathToResolver(file, prefixPath))
+            return withStatSource(new GenericAssetFile(inputStreamSource: inputStreamClosure, path: relativePathToResolver(file, prefixPath)), file)
+        }
+        if(unresolvedKey && generation == indexGeneration.get()) {
+            unresolvedPaths.add(unresolvedKey)
         }
-        
         return null
     }
 
+    /**
+     * The extensions of the given specs longest first each paired with the first spec declaring it
+     */
+    protected static List<Object[]> extensionCandidates(Collection specs) {
+        List<Object[]> candidates = extensionCandidatesBySpecs.get(specs)
+        if(candidates == null) {
+            def extensionMap = [:]
+            for(fileSpec in specs) {
+                for(ext in fileSpec.extensions) {
+                    if(extensionMap[ext] == null) {
+                        extensionMap[ext] = fileSpec
+                    }
+                }
+            }
+            def extensions = extensionMap.keySet().sort{a,b -> -(a.size()) <=> -(b.size())}
+            candidates = extensions.collect { ext -> [ext, extensionMap[ext]] as Object[] }
+            extensionCandidatesBySpecs.put(new ArrayList(specs), candidates)
+        }
+        return candidates
+    }
+
     /**
      * A method for converting glob patterns into regex. Not used anymore as Java 7 Path patterns are now used
      * @deprecated
@@ -206,7 +336,7 @@ abstract class AbstractAssetResolver<T> implements AssetResolver {
         }
 
         if(contentType == null) {
-            return new GenericAssetFile(inputStreamSource: createInputStreamClosure(file), path: relativePathToResolver(file,sourceDirectory))
+            return withStatSource(new GenericAssetFile(inputStreamSource: createInputStreamClosure(file), path: relativePathToResolver(file,sourceDirectory)), file)
         }
 
         def possibleFileSpecs = AssetHelper.getPossibleFileSpecs(contentType)
@@ -225,10 +355,10 @@ abstract class AbstractAssetResolver<T> implements AssetResolver {
         }
         
         if(matchingSpec) {
-            return matchingSpec.newInstance(inputStreamSource: createInputStreamClosure(file), baseFile: baseFile, path: relativePathToResolver(file,sourceDirectory), sourceResolver: this)
+            return withStatSource(matchingSpec.newInstance(inputStreamSource: createInputStreamClosure(file), baseFile: baseFile, path: relativePathToResolver(file,sourceDirectory), sourceResolver: this) as AssetFile, file)
         }
 
-        return new GenericAssetFile(inputStreamSource: createInputStreamClosure(file), path: relativePathToResolver(file,sourceDirectory))
+        return withStatSource(new GenericAssetFile(inputStreamSource: createInputStreamClosure(file), path: relativePathToResolver(file,sourceDirectory)), file)
     }
 
     protected abstract String getFileName(T file)
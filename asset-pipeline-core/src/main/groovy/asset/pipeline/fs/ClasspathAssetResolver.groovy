@@ -58,7 +58,7 @@ public class ClasspathAssetResolver extends AbstractAssetResolver<URL> {
             if (!extension) {
                 extension = AssetHelper.extensionFromURI(relativePath)
             }
-            specs = AssetHelper.assetFileClasses().findAll { it.extensions.contains(extension) }
+            specs = AssetHelper.getFileSpecsForExtension(extension)
         }
 
         AssetFile assetFile = resolveAsset(specs, prefixPath, normalizedPath, baseFile, extension)
@@ -73,6 +73,18 @@ public class ClasspathAssetResolver extends AbstractAssetResolver<URL> {
         return null
     }
 
+    /**
+     * Only exploded class path entries can be checked without reading them
+     */
+    @Override
+    protected Closure<String> createStatClosure(URL file) {
+        if(file?.protocol == 'file') {
+            File classpathFile = new File(file.toURI())
+            return {-> "${classpathFile.length()}:${classpathFile.lastModified()}".toString() }
+        }
+        return null
+    }
+
     String relativePathToResolver(URL file, String scanDirectoryPath) {
 
         if (!file) {
@@ -87,6 +99,24 @@ public class ClasspathAssetResolver extends AbstractAssetResolver<URL> {
         }
     }
 
+    /**
+     * The class path can only be listed when an asset list is available. The index built from it never changes
+     */
+    @Override
+    protected Map<String, URL> buildPathIndex(String relativePath) {
+        if(!assetList) {
+            return null
+        }
+        Map<String, URL> index = new HashMap<String, URL>()
+        for(String filePath in assetList) {
+            URL file = getRelativeFile(relativePath, filePath)
+            if(file) {
+                index.put(AssetHelper.normalizePath(filePath), file)
+            }
+        }
+        return index
+    }
+
     @CompileStatic
     URL getRelativeFile(String relativePath, String name) {
         if (name.startsWith('/')) {
@@ -182,7 +212,7 @@ public class ClasspathAssetResolver extends AbstractAssetResolver<URL> {
                 }
             }
         }
-        return fileList.unique { AssetFile a, AssetFile b -> a.path <=> b.path }
+        return AssetHelper.uniqueByPath(fileList)
     }
 
 }
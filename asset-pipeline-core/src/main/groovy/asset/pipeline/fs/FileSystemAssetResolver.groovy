@@ -20,8 +20,21 @@ import asset.pipeline.*
 import groovy.transform.CompileStatic
 import groovy.util.logging.Slf4j
 
+import java.util.concurrent.ConcurrentHashMap
 import java.util.regex.Pattern
+import java.nio.file.ClosedWatchServiceException
+import java.nio.file.FileSystems
+import java.nio.file.FileVisitOption
+import java.nio.file.FileVisitResult
+import java.nio.file.Files
 import java.nio.file.LinkOption
+import java.nio.file.Path
+import java.nio.file.SimpleFileVisitor
+import java.nio.file.StandardWatchEventKinds
+import java.nio.file.WatchEvent
+import java.nio.file.WatchKey
+import java.nio.file.WatchService
+import java.nio.file.attribute.BasicFileAttributes
 
 
 /**
@@ -35,11 +48,16 @@ import java.nio.file.LinkOption
 class FileSystemAssetResolver extends AbstractAssetResolver<File> {
 	static String QUOTED_FILE_SEPARATOR = Pattern.quote(File.separator)
 	static String DIRECTIVE_FILE_SEPARATOR = '/'
+	/** Editor swap, backup and lock files and vim's numbered write probe, no asset is looked up by these names */
+	static final Pattern TEMPORARY_FILE_PATTERN = ~/^(\..*|#.*|.*~|.*\.(swp|swx|swo|tmp|bak)|\d+)$/
 
 	File baseDirectory
 	List<String> scanDirectories = []
 	List<FileSystemAssetResolver> resolvers = []
 
+	private WatchService indexWatchService
+	private final Map<WatchKey, WatchedDirectory> watchedDirectories = new ConcurrentHashMap<WatchKey, WatchedDirectory>()
+
 	FileSystemAssetResolver(String name,String basePath, boolean flattenSubDirectories=true) {
 		super(name)
 		baseDirectory = new File(basePath)
@@ -72,7 +90,7 @@ class FileSystemAssetResolver extends AbstractAssetResolver<File> {
 			if(!extension) {
 				extension = AssetHelper.extensionFromURI(relativePath)
 			}
-			specs = AssetHelper.assetFileClasses().findAll { it.extensions.contains(extension) }
+			specs = AssetHelper.getFileSpecsForExtension(extension)
 		}
 
 		for(directoryPath in scanDirectories) {
@@ -90,6 +108,154 @@ class FileSystemAssetResolver extends AbstractAssetResolver<File> {
 		return null
 	}
 
+	void setIndexed(Boolean indexed) {
+		super.setIndexed(indexed)
+		resolvers*.indexed = indexed
+	}
+
+	@Override
+	long getIndexGeneration() {
+		long generation = super.getIndexGeneration()
+		for(resolver in resolvers) {
+			generation += resolver.getIndexGeneration()
+		}
+		return generation
+	}
+
+	/**
+	 * Walks the scan directory to build the index. Every directory visited is registered with a {@link WatchService}
+	 * so files added or removed later are added to or removed from the index as they change.
+	 */
+	@Override
+	protected Map<String, File> buildPathIndex(String relativePath) {
+		Map<String, File> index = new ConcurrentHashMap<String, File>()
+		Path rootPath = new File(relativePath).toPath()
+		if(!Files.isDirectory(rootPath)) {
+			return index
+		}
+		indexTree(startIndexWatcher(), relativePath, rootPath, rootPath, index)
+		return index
+	}
+
+	private void indexTree(WatchService watchService, String prefixPath, Path rootPath, Path directory, Map<String, File> index) {
+		Files.walkFileTree(directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+			@Override
+			FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE)
+				watchedDirectories.put(key, new WatchedDirectory(prefixPath, rootPath, dir))
+				return FileVisitResult.CONTINUE
+			}
+
+			@Override
+			FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				String relativeFileName = indexName(rootPath, file)
+				index.put(relativeFileName, new File(prefixPath, relativeFileName))
+				return FileVisitResult.CONTINUE
+			}
+
+			@Override
+			FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+				return FileVisitResult.CONTINUE
+			}
+		})
+	}
+
+	private static String indexName(Path rootPath, Path file) {
+		return rootPath.relativize(file).toString().replace(File.separator, DIRECTIVE_FILE_SEPARATOR)
+	}
+
+	private synchronized WatchService startIndexWatcher() {
+		if(indexWatchService == null) {
+			WatchService watchService = FileSystems.getDefault().newWatchService()
+			indexWatchService = watchService
+			Thread watcherThread = new Thread({ ->
+				while(true) {
+					WatchKey key
+					try {
+						key = watchService.take()
+					} catch(InterruptedException | ClosedWatchServiceException ex) {
+						return
+					}
+					WatchedDirectory watched = watchedDirectories.get(key)
+					boolean overflow = watched == null
+					boolean changed = false
+					for(WatchEvent<?> event in key.pollEvents()) {
+						if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							overflow = true
+						} else if(!overflow) {
+							changed |= updateIndex(watchService, watched, watched.directory.resolve((Path) event.context()), event.kind() == StandardWatchEventKinds.ENTRY_CREATE)
+						}
+					}
+					if(!key.reset()) {
+						watchedDirectories.remove(key)
+					}
+					if(overflow) {
+						invalidateIndex()
+					} else if(changed) {
+						indexChanged()
+					}
+				}
+			} as Runnable, "asset-pipeline-index-watcher")
+			watcherThread.daemon = true
+			watcherThread.start()
+		}
+		return indexWatchService
+	}
+
+	/**
+	 * Adds or removes a single path of a watched directory in its index, new directories are watched and indexed
+	 * @return whether lookups may now resolve differently, false for temporary files no asset is looked up by
+	 */
+	private boolean updateIndex(WatchService watchService, WatchedDirectory watched, Path path, boolean created) {
+		String relativeFileName = indexName(watched.rootPath, path)
+		Map<String, File> index = pathIndexes.get(watched.prefixPath)
+		if(created && Files.isDirectory(path)) {
+			try {
+				indexTree(watchService, watched.prefixPath, watched.rootPath, path, index != null ? index : new HashMap<String, File>())
+			} catch(IOException | ClosedWatchServiceException ex) {
+				log.debug("Unable to index ${path}", ex)
+				invalidateIndex()
+			}
+			return true
+		}
+		if(created) {
+			index?.put(relativeFileName, new File(watched.prefixPath, relativeFileName))
+		} else if(index != null && index.remove(relativeFileName) == null) {
+			// Not an indexed file so a directory, whose own watch key is cancelled by the file system
+			String directoryPrefix = relativeFileName + DIRECTIVE_FILE_SEPARATOR
+			if(index.keySet().removeIf { String name -> name.startsWith(directoryPrefix) }) {
+				return true
+			}
+		}
+		return !TEMPORARY_FILE_PATTERN.matcher(path.fileName.toString()).matches()
+	}
+
+	/**
+	 * Stops watching the scan directories for changes and discards the index
+	 */
+	synchronized void closeIndex() {
+		indexWatchService?.close()
+		indexWatchService = null
+		watchedDirectories.clear()
+		invalidateIndex()
+		resolvers*.closeIndex()
+	}
+
+    /**
+     * A directory registered with the index watcher and the index its files belong to
+     */
+    private static class WatchedDirectory {
+        final String prefixPath
+        final Path rootPath
+        final Path directory
+
+        WatchedDirectory(String prefixPath, Path rootPath, Path directory) {
+            this.prefixPath = prefixPath
+            this.rootPath = rootPath
+            this.directory = directory
+        }
+    }
+
     @Override
     protected File getRelativeFile(String relativePath, String name) {
         return new File(relativePath, name)
@@ -97,12 +263,25 @@ class FileSystemAssetResolver extends AbstractAssetResolver<File> {
 
     @Override
     protected Closure<InputStream> createInputStreamClosure(File file) {
-        if(file.exists() && !file.isDirectory()) {
+        if(file?.exists() && !file.isDirectory()) {
             return {-> file.newInputStream() }
         }
         return null
     }
 
+    @Override
+    protected File localFile(File file) {
+        return file
+    }
+
+    @Override
+    protected Closure<String> createStatClosure(File file) {
+        if(file != null) {
+            return {-> "${file.length()}:${file.lastModified()}".toString() }
+        }
+        return null
+    }
+
     /**
 	* Implementation Requirements
 	* Should be able to take a relative to baseFile scenario
@@ -127,7 +306,7 @@ class FileSystemAssetResolver extends AbstractAssetResolver<File> {
 			}
 		}
 		for(resolver in resolvers) {
-			fileList += resolver.getAssets(basePath, contentType, extension, recursive, relativeFile, baseFile)
+			fileList.addAll(resolver.getAssets(basePath, contentType, extension, recursive, relativeFile, baseFile))
 		}
 
 		return fileList
@@ -191,31 +370,61 @@ class FileSystemAssetResolver extends AbstractAssetResolver<File> {
 			iterateOverFileSystem(scanPath,excludedPatternRegex,includedPatternRegex, fileList, scanDirectory)
 		}
 		for(resolver in resolvers) {
-			fileList += resolver.scanForFiles(excludePatterns, includePatterns)
+			fileList.addAll(resolver.scanForFiles(excludePatterns, includePatterns))
 		}
-		fileList.unique { AssetFile a, AssetFile b -> a.path <=> b.path }
-		return fileList
+		return AssetHelper.uniqueByPath(fileList)
+	}
+
+	/**
+	* Scans like {@link #scanForFiles} but only records the path, size, modification time and spec of each file
+	*/
+    @CompileStatic
+	@Override
+	public Collection<AssetDescriptor> scanForDescriptors(List<String> excludePatterns, List<String> includePatterns) {
+		List<AssetDescriptor> descriptors = []
+		List<String> excludedPatternRegex =  excludePatterns ? excludePatterns  as List<String> : new ArrayList<String>()
+        List<String> includedPatternRegex =  includePatterns ? includePatterns as List<String> : new ArrayList<String>()
+
+		for(String scanDirectory in scanDirectories) {
+			walkFileSystem(new File(scanDirectory), excludedPatternRegex, includedPatternRegex, scanDirectory) { File file, String relativePath ->
+				Class<AssetFile> assetFileClass = AssetHelper.assetForFileName(relativePath) as Class<AssetFile>
+				descriptors.add(new AssetDescriptor(relativePath, file.length(), file.lastModified(), assetFileClass, { -> scannedFile(file, relativePath) }))
+			}
+		}
+		for(resolver in resolvers) {
+			descriptors.addAll(resolver.scanForDescriptors(excludePatterns, includePatterns))
+		}
+		return descriptors
 	}
 
     @CompileStatic
 	protected iterateOverFileSystem(File dir, List<String> excludePatterns, List<String> includePatterns, List<AssetFile> fileList, String sourcePath) {
+		walkFileSystem(dir, excludePatterns, includePatterns, sourcePath) { File file, String relativePath ->
+			fileList.add(scannedFile(file, relativePath))
+		}
+	}
+
+    @CompileStatic
+	private void walkFileSystem(File dir, List<String> excludePatterns, List<String> includePatterns, String sourcePath, Closure visitor) {
 		dir.listFiles()?.each { File file ->
 			def relativePath = relativePathToResolver(file, sourcePath)
 			if(file.isDirectory()) {
-					iterateOverFileSystem(file,excludePatterns, includePatterns, fileList, sourcePath)
+					walkFileSystem(file,excludePatterns, includePatterns, sourcePath, visitor)
 			} else if(!isFileMatchingPatterns(relativePath,excludePatterns) || isFileMatchingPatterns(relativePath,includePatterns)) {
-				if(!file.isDirectory()) {
-					def assetFileClass = AssetHelper.assetForFileName(relativePath)
-					if(assetFileClass) {
-						fileList.add(assetFileClass.newInstance(inputStreamSource: { new BufferedInputStream(file.newInputStream(),512) }, baseFile: null, path: relativePath, sourceResolver: this) as AssetFile)
-					} else {
-						fileList.add(new GenericAssetFile(inputStreamSource: { new BufferedInputStream(file.newInputStream(),512) }, path: relativePath))
-					}
-				}
-
+				visitor.call(file, relativePath)
 			}
 		}
 	}
 
+    @CompileStatic
+	private AssetFile scannedFile(File file, String relativePath) {
+		def assetFileClass = AssetHelper.assetForFileName(relativePath)
+		if(assetFileClass) {
+			return assetFileClass.newInstance(inputStreamSource: { new BufferedInputStream(file.newInputStream(),512) }, baseFile: null, path: relativePath, sourceResolver: this) as AssetFile
+		} else {
+			return new GenericAssetFile(inputStreamSource: { new BufferedInputStream(file.newInputStream(),512) }, path: relativePath, sourceFile: file)
+		}
+	}
+
 
 }
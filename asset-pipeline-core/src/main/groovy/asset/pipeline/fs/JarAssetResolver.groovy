@@ -70,7 +70,7 @@ class JarAssetResolver extends AbstractAssetResolver<ZipEntry> {
 			if(!extension) {
 				extension = AssetHelper.extensionFromURI(relativePath)
 			}
-			specs = AssetHelper.assetFileClasses().findAll { it.extensions.contains(extension) }
+			specs = AssetHelper.getFileSpecsForExtension(extension)
 		}
 
 
@@ -87,6 +87,18 @@ class JarAssetResolver extends AbstractAssetResolver<ZipEntry> {
 		return null
     }
 
+    /**
+     * Jar entries never change while the jar is open so the entry metadata serves as the stat
+     */
+    @Override
+    protected Closure<String> createStatClosure(ZipEntry file) {
+        if(file) {
+            String stat = "${file.size}:${file.time}:${file.crc}".toString()
+            return {-> stat }
+        }
+        return null
+    }
+
     @CompileStatic
 	public List<AssetFile> getAssets(String basePath, String contentType = null, String extension = null,  Boolean recursive = true, AssetFile relativeFile=null, AssetFile baseFile = null) {
 		ArrayList<AssetFile> fileList = []
@@ -120,6 +132,22 @@ class JarAssetResolver extends AbstractAssetResolver<ZipEntry> {
         return file.name
     }
 
+    /**
+     * Jar contents never change so the index is built once from the entry list
+     */
+    @Override
+    @CompileStatic
+    protected Map<String, ZipEntry> buildPathIndex(String relativePath) {
+        Map<String, ZipEntry> index = new HashMap<String, ZipEntry>()
+        String entryPrefix = relativePath + "/"
+        for(JarEntry entry in baseJar.entries()) {
+            if(!entry.isDirectory() && entry.name.startsWith(entryPrefix)) {
+                index.put(entry.name.substring(entryPrefix.length()), entry)
+            }
+        }
+        return index
+    }
+
     @CompileStatic
     protected ZipEntry getRelativeFile(String relativePath, String name) {
 		return baseJar.getEntry([relativePath, name].join("/"))
@@ -160,7 +188,7 @@ class JarAssetResolver extends AbstractAssetResolver<ZipEntry> {
 			}
 		}
 
-		return fileList.unique { AssetFile a,  AssetFile b -> a.path <=> b.path }
+		return AssetHelper.uniqueByPath(fileList)
 	}
 
 }
@@ -20,13 +20,13 @@ import asset.pipeline.AbstractProcessor
 import asset.pipeline.AssetCompiler
 import asset.pipeline.AssetPipelineConfigHolder
 import asset.pipeline.AssetFile
-import asset.pipeline.DirectiveProcessor
+import asset.pipeline.DependencyGraph
 import asset.pipeline.GenericAssetFile
+import asset.pipeline.cache.BuildCacheCapture
 import asset.pipeline.AssetHelper
 import static asset.pipeline.AssetHelper.DIRECTIVE_FILE_SEPARATOR
 import static asset.pipeline.AssetHelper.extensionFromURI
 import static asset.pipeline.AssetHelper.fileForUri
-import static asset.pipeline.AssetHelper.getByteDigest
 import static asset.pipeline.AssetHelper.nameWithoutExtension
 import static asset.pipeline.AssetHelper.normalizePath
 import static asset.pipeline.utils.net.Urls.getSchemeWithColon
@@ -79,6 +79,8 @@ abstract class AbstractUrlRewritingProcessor extends AbstractProcessor {
         if (! currFile) {
             return null
         }
+        DependencyGraph.recordReference(currFile)
+        BuildCacheCapture.recordReference(currFile.path, '')
 
         final StringBuilder replacementPathSb = new StringBuilder()
 
@@ -115,13 +117,13 @@ abstract class AbstractUrlRewritingProcessor extends AbstractProcessor {
         final String fileName = nameWithoutExtension(currFile.name)
         if(precompiler && precompiler.options.enableDigests) {
             if(currFile instanceof GenericAssetFile) {
-                replacementPathSb << fileName << '-' << currFile.getByteDigest() << '.' << extensionFromURI(currFile.name)
+                replacementPathSb << fileName << '-' << compiledDigest(currFile) << '.' << extensionFromURI(currFile.name)
             } else {
                 final String compiledExtension = currFile.compiledExtension
                 if (NO_CACHE_DIGEST_FOR_COMPILED_EXTENSION_SET.contains(compiledExtension)) {
                     replacementPathSb << fileName << '.' << compiledExtension
                 } else {
-                    replacementPathSb << fileName << '-' << getByteDigest(new DirectiveProcessor(currFile.contentType[0], precompiler).compile(currFile).bytes) << '.' << compiledExtension
+                    replacementPathSb << fileName << '-' << compiledDigest(currFile) << '.' << compiledExtension
                 }
             }
         } else {
@@ -148,6 +150,8 @@ abstract class AbstractUrlRewritingProcessor extends AbstractProcessor {
 
     protected String replacementAssetPath(final AssetFile assetFile, final AssetFile currFile, Boolean preferRelative=false) {
 
+        DependencyGraph.recordReference(currFile)
+        BuildCacheCapture.recordReference(currFile.path, '')
         final StringBuilder replacementPathSb = new StringBuilder()
         def urlConfig = AssetPipelineConfigHolder.config?.url
         String baseUrl
@@ -169,13 +173,13 @@ abstract class AbstractUrlRewritingProcessor extends AbstractProcessor {
         final String fileName = nameWithoutExtension(currFile.path)
         if(precompiler && precompiler.options.enableDigests) {
             if(currFile instanceof GenericAssetFile) {
-                replacementPathSb << fileName << '-' << currFile.getByteDigest() << '.' << extensionFromURI(currFile.name)
+                replacementPathSb << fileName << '-' << compiledDigest(currFile) << '.' << extensionFromURI(currFile.name)
             } else {
                 final String compiledExtension = currFile.compiledExtension
                 if (NO_CACHE_DIGEST_FOR_COMPILED_EXTENSION_SET.contains(compiledExtension)) {
                     replacementPathSb << fileName << '.' << compiledExtension
                 } else {
-                    replacementPathSb << fileName << '-' << getByteDigest(new DirectiveProcessor(currFile.contentType[0], precompiler).compile(currFile).bytes) << '.' << compiledExtension
+                    replacementPathSb << fileName << '-' << compiledDigest(currFile) << '.' << compiledExtension
                 }
             }
         } else {
@@ -188,4 +192,15 @@ abstract class AbstractUrlRewritingProcessor extends AbstractProcessor {
 
         return replacementPathSb.toString()
     }
+
+
+    /**
+     * The digest used in the compiled file name of a referenced asset. This is looked up in the digest memo
+     * of the precompiler so each referenced asset is only compiled once per build.
+     */
+    protected String compiledDigest(final AssetFile currFile) {
+        final String digest = precompiler.compiledDigestOf(currFile)
+        BuildCacheCapture.recordReference(currFile.path, digest)
+        return digest
+    }
 }
@@ -0,0 +1,249 @@
+/*
+* Copyright 2026 the original author or authors.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package asset.pipeline.processors
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.graalvm.polyglot.Context
+import org.graalvm.polyglot.Engine
+import org.graalvm.polyglot.HostAccess
+import org.graalvm.polyglot.PolyglotException
+import org.graalvm.polyglot.Source
+import org.graalvm.polyglot.Value
+
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A fixed size pool of GraalJS contexts with Babel loaded, used by the {@link BabelJsProcessor}.
+ *
+ * All contexts are created from one shared polyglot {@link Engine} so the parsed babel.min.js source is cached
+ * once and reused by every context. A context may only be used by one thread at a time, so each transform checks
+ * a context out of the pool and returns it afterwards. Contexts are created lazily up to the pool size unless
+ * the pool is warmed up.
+ */
+@Slf4j
+@CompileStatic
+class BabelContextPool {
+	static final String DEFAULT_PRESETS = "{ \"presets\": [\"es2015\",[\"stage-2\",{\"decoratorsLegacy\": true}],\"react\"], \"compact\": false }"
+
+	private static volatile Engine sharedEngine
+	private static volatile Source babelSource
+
+	final int size
+	final String optionsJson
+
+	private final LinkedBlockingQueue<Context> idle = new LinkedBlockingQueue<Context>()
+	private final AtomicInteger created = new AtomicInteger()
+	private volatile boolean closed = false
+
+	final AtomicLong transforms = new AtomicLong()
+	final AtomicLong waitNanos = new AtomicLong()
+	final AtomicLong transformNanos = new AtomicLong()
+
+	/**
+	 * @param size the maximum number of contexts (and so of concurrent transforms)
+	 * @param optionsJson the Babel options as json or null for the default presets
+	 */
+	BabelContextPool(int size, String optionsJson = null) {
+		this.size = Math.max(1, size)
+		this.optionsJson = optionsJson ?: DEFAULT_PRESETS
+	}
+
+	/**
+	 * Creates all contexts of the pool up front in parallel so the first files compiled do not wait on Babel loading
+	 */
+	void warmUp() {
+		List<Thread> threads = []
+		while(created.get() < size) {
+			if(created.incrementAndGet() > size) {
+				created.decrementAndGet()
+				break
+			}
+			Thread thread = new Thread({ ->
+				try {
+					checkin(newContext())
+				} catch(Throwable ex) {
+					created.decrementAndGet()
+					log.warn("Unable to warm up Babel context", ex)
+				}
+			} as Runnable, 'asset-pipeline-babel-warmup')
+			thread.daemon = true
+			thread.start()
+			threads << thread
+		}
+		for(Thread thread in threads) {
+			thread.join()
+		}
+	}
+
+	/**
+	 * Transpiles javascript with one of the pooled contexts, waiting for a context to free up if all are in use
+	 * @param input the javascript source
+	 * @param name the name of the file being transformed (used for logging)
+	 * @return the transpiled javascript
+	 * @throws IllegalStateException if the pool is closed
+	 */
+	String transform(String input, String name = null) {
+		long waitStart = System.nanoTime()
+		Context context = checkout()
+		long transformStart = System.nanoTime()
+		Value bindings = null
+		boolean healthy = false
+		try {
+			bindings = context.getBindings('js')
+			bindings.putMember('input', input)
+			String code = context.eval('js', 'Babel.transform(input, options).code').asString()
+			healthy = true
+			return code
+		} catch(PolyglotException ex) {
+			// Babel threw (i.e. a syntax error in the source), the context itself is fine
+			healthy = ex.guestException && !(ex.cancelled || ex.exit || ex.interrupted || ex.internalError || ex.resourceExhausted)
+			throw ex
+		} finally {
+			long end = System.nanoTime()
+			release(context, bindings, healthy)
+			long waited = transformStart - waitStart
+			long transformed = end - transformStart
+			transforms.incrementAndGet()
+			waitNanos.addAndGet(waited)
+			transformNanos.addAndGet(transformed)
+			if(log.debugEnabled) {
+				log.debug("Babel transform of ${name}: waited ${TimeUnit.NANOSECONDS.toMillis(waited)}ms, transformed in ${TimeUnit.NANOSECONDS.toMillis(transformed)}ms")
+			}
+		}
+	}
+
+	/**
+	 * Closes every context of the pool. Contexts still checked out are closed when returned and transforms waiting
+	 * for a context fail
+	 */
+	void close() {
+		closed = true
+		Context context
+		while((context = idle.poll()) != null) {
+			discard(context)
+		}
+		if(transforms.get() > 0) {
+			log.debug("Babel context pool: ${transforms.get()} transforms, ${TimeUnit.NANOSECONDS.toMillis(waitNanos.get())}ms waiting, ${TimeUnit.NANOSECONDS.toMillis(transformNanos.get())}ms transforming")
+		}
+	}
+
+	private Context checkout() {
+		while(true) {
+			if(closed) {
+				throw new IllegalStateException("Babel context pool is closed")
+			}
+			Context context = idle.poll()
+			if(context != null) {
+				return context
+			}
+			if(created.incrementAndGet() <= size) {
+				try {
+					return newContext()
+				} catch(Throwable ex) {
+					created.decrementAndGet()
+					throw ex
+				}
+			}
+			created.decrementAndGet()
+			// poll rather than take so a context discarded meanwhile can be replaced and a closed pool noticed
+			context = idle.poll(100, TimeUnit.MILLISECONDS)
+			if(context != null) {
+				return context
+			}
+		}
+	}
+
+	/**
+	 * Returns a context to the pool once its input is unbound, a failed transform must not leave its source bound.
+	 * Contexts the engine failed, cancelled or closed are discarded instead
+	 */
+	private void release(Context context, Value bindings, boolean healthy) {
+		if(healthy) {
+			try {
+				bindings.removeMember('input')
+			} catch(Exception ex) {
+				log.debug("Unable to unbind the Babel input", ex)
+				healthy = false
+			}
+		}
+		if(healthy) {
+			checkin(context)
+		} else {
+			discard(context)
+		}
+	}
+
+	private void checkin(Context context) {
+		if(closed) {
+			discard(context)
+		} else {
+			idle.offer(context)
+		}
+	}
+
+	private Context newContext() {
+		Context context = Context.newBuilder('js')
+			.engine(getEngine())
+			.allowExperimentalOptions(true)
+			.allowHostAccess(HostAccess.newBuilder().allowListAccess(true).allowMapAccess(true).allowArrayAccess(true).build())
+			.build()
+		context.eval(getBabelSource())
+		Value bindings = context.getBindings('js')
+		bindings.putMember('optionsJson', optionsJson)
+		context.eval('js', 'var options = JSON.parse(optionsJson);')
+		return context
+	}
+
+	private void discard(Context context) {
+		created.decrementAndGet()
+		try {
+			context.close()
+		} catch(Exception ex) {
+			log.debug("Error closing Babel context", ex)
+		}
+	}
+
+	/**
+	 * The engine shared by all pools in this JVM. Parsed sources are cached per engine
+	 */
+	static Engine getEngine() {
+		if(sharedEngine == null) {
+			synchronized(BabelContextPool) {
+				if(sharedEngine == null) {
+					sharedEngine = Engine.newBuilder().option('engine.WarnInterpreterOnly', 'false').build()
+				}
+			}
+		}
+		return sharedEngine
+	}
+
+	private static Source getBabelSource() {
+		if(babelSource == null) {
+			synchronized(BabelContextPool) {
+				if(babelSource == null) {
+					URL babelJsResource = BabelContextPool.classLoader.getResource('asset/pipeline/babel.min.js')
+					babelSource = Source.newBuilder('js', babelJsResource.getText('UTF-8'), 'babel.min.js').cached(true).build()
+				}
+			}
+		}
+		return babelSource
+	}
+}
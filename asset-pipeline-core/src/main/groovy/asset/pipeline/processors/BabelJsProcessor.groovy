@@ -21,15 +21,14 @@ import asset.pipeline.AbstractProcessor
 import asset.pipeline.AssetCompiler
 import asset.pipeline.JsAssetFile
 import asset.pipeline.AssetPipelineConfigHolder
+import asset.pipeline.ProcessorScope
+import asset.pipeline.ProcessorScoped
 import groovy.util.logging.Slf4j
 
 import javax.script.Invocable
 import javax.script.ScriptEngine
 import javax.script.ScriptEngineManager
 import javax.script.SimpleBindings
-import org.graalvm.polyglot.Context
-import org.graalvm.polyglot.HostAccess
-import org.graalvm.polyglot.Value
 import groovy.transform.CompileStatic
 
 // CoffeeScript engine will attempt to use Node.JS coffee if it is available on
@@ -37,40 +36,120 @@ import groovy.transform.CompileStatic
 // template using the javascript in-browser compiler.
 @Slf4j
 @CompileStatic
+@ProcessorScoped(ProcessorScope.SHARED)
 class BabelJsProcessor extends AbstractProcessor {
 
 	static Boolean SWC_SUPPORTED
 	static Boolean BABEL_NATIVE_SUPPORTED
-	ClassLoader classLoader
-
-	static Context context
-	static Value bindings
+	static String GLOBAL_MODULES
 	private static final $LOCK = new Object[0]
+	private BabelContextPool contextPool
+	private Map<String,TranspileWorkerPool> workerPools = [:]
+
 	BabelJsProcessor(AssetCompiler precompiler) {
 		super(precompiler)
 	}
 
-	protected void loadBabelJs() {
-		if(!context) {
-			synchronized($LOCK) {
-				if(!context) {
-					def babelJsResource = classLoader.getResource('asset/pipeline/babel.min.js')
-					context = Context.newBuilder().allowExperimentalOptions(true).allowHostAccess(HostAccess.newBuilder().allowListAccess(true).allowMapAccess(true).allowArrayAccess(true).build()).build()
+	/**
+	 * Warms up the GraalJS context pool when babel.warmUp is configured
+	 */
+	@Override
+	void init() {
+		Map<String,Object> babelOptions = AssetPipelineConfigHolder.config?.babel as Map<String,Object>
+		if(babelOptions?.warmUp) {
+			getContextPool().warmUp()
+		}
+	}
 
-					context.eval("js",babelJsResource.getText('UTF-8'))
-					def presets = "{ \"presets\": [\"es2015\",[\"stage-2\",{\"decoratorsLegacy\": true}],\"react\"], \"compact\": false }"
-					String options = getOptions()
-					if(options) {
-						presets = options
-					}
-					bindings = context.getBindings("js")
-					bindings.putMember("optionsJson", presets);
-					context.eval("js","var options = JSON.parse(optionsJson);");
+	@Override
+	void close() {
+		synchronized(this) {
+			contextPool?.close()
+			contextPool = null
+			for(TranspileWorkerPool workerPool in workerPools.values()) {
+				workerPool.close()
+			}
+			workerPools.clear()
+		}
+	}
 
+	/**
+	 * The resident worker processes for swc or babel. Sized by babel.workers (0 disables workers and spawns a
+	 * process per file) and babel.workerBatchSize
+	 * @return the worker pool or null if workers are disabled
+	 */
+	protected synchronized TranspileWorkerPool getWorkerPool(String tool) {
+		TranspileWorkerPool workerPool = workerPools[tool]
+		if(workerPool == null) {
+			Map<String,Object> babelOptions = AssetPipelineConfigHolder.config?.babel as Map<String,Object>
+			Integer workers = (babelOptions?.workers != null ? babelOptions.workers : Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors().intdiv(2) as int))) as Integer
+			if(!workers) {
+				return null
+			}
+			Integer batchSize = (babelOptions?.workerBatchSize ?: TranspileWorkerPool.DEFAULT_BATCH_SIZE) as Integer
+			Map<String,Object> workerOptions = [:]
+			if(tool == 'swc' && AssetPipelineConfigHolder.config?.swcrc) {
+				workerOptions.swcrc = AssetPipelineConfigHolder.config.swcrc as String
+			}
+			workerPool = new TranspileWorkerPool(tool, workers, batchSize, getGlobalModules(), workerOptions)
+			workerPools[tool] = workerPool
+		}
+		return workerPool
+	}
+
+	/**
+	 * Transpiles with a resident swc or babel worker
+	 * @return the result or null if no worker is available and a process should be spawned instead
+	 */
+	protected String processWithWorker(String tool, String input, AssetFile assetFile) {
+		TranspileWorkerPool workerPool = getWorkerPool(tool)
+		if(workerPool == null || !workerPool.available) {
+			return null
+		}
+		try {
+			return workerPool.transform(input, assetFile?.path)
+		} catch(TranspileWorkerPool.WorkerUnavailableException ex) {
+			return null
+		}
+	}
+
+	/**
+	 * The global node_modules directory. Taken from the globalModules config or resolved once via npm
+	 */
+	protected String getGlobalModules() {
+		String globalLocation = AssetPipelineConfigHolder.config?.globalModules as String
+		if(globalLocation) {
+			return globalLocation
+		}
+		if(GLOBAL_MODULES == null) {
+			synchronized($LOCK) {
+				if(GLOBAL_MODULES == null) {
+					StringBuilder globalLibLoc = new StringBuilder()
+					StringBuilder err = new StringBuilder()
+					try {
+						Process npmProc = "${ isWindows() ? 'cmd /c ' : '' }npm get prefix".toString().execute()
+						npmProc.waitForProcessOutput(globalLibLoc, err)
+						GLOBAL_MODULES = "${globalLibLoc.toString().trim()}/lib/node_modules/".toString()
+					} catch(IOException ex) {
+						GLOBAL_MODULES = ''
+					}
 				}
 			}
 		}
+		return GLOBAL_MODULES
+	}
 
+	/**
+	 * The pool of Babel contexts used by this processor. Sized by babel.poolSize, defaulting to the maxThreads of
+	 * the precompiler or the number of processors
+	 */
+	protected synchronized BabelContextPool getContextPool() {
+		if(contextPool == null) {
+			Map<String,Object> babelOptions = AssetPipelineConfigHolder.config?.babel as Map<String,Object>
+			Integer poolSize = (babelOptions?.poolSize ?: precompiler?.options?.maxThreads ?: Runtime.getRuntime().availableProcessors()) as Integer
+			contextPool = new BabelContextPool(poolSize, getOptions())
+		}
+		return contextPool
 	}
 
 
@@ -98,7 +177,10 @@ class BabelJsProcessor extends AbstractProcessor {
 		String result = null
 		if(isSwcSupported()) {
 			try {
-				result = processWithSwcBinary(input, assetFile)
+				result = processWithWorker('swc', input, assetFile)
+				if(result == null) {
+					result = processWithSwcBinary(input, assetFile)
+				}
 				processed = true	
 			} catch(ex) {
 				log.error("Error Processing from SWC...continuing with fallback option ", {})
@@ -107,7 +189,10 @@ class BabelJsProcessor extends AbstractProcessor {
 		}
 		if(!processed && isBabelSupported()) {
 			try {
-				result = processWithBabelBinary(input, assetFile)
+				result = processWithWorker('babel', input, assetFile)
+				if(result == null) {
+					result = processWithBabelBinary(input, assetFile)
+				}
 				processed = true	
 			} catch(ex) {
 				log.error("Error Processing from SWC...continuing with fallback option ", {})
@@ -115,31 +200,18 @@ class BabelJsProcessor extends AbstractProcessor {
 		}
 		
 		if(!processed) {
+			BabelContextPool pool
 			try {
-				classLoader = getClass().getClassLoader()
-				//cx.setOptimizationLevel(-1)
-				//globalScope = cx.initStandardObjects()
-				loadBabelJs()
+				pool = getContextPool()
 			} catch(Exception e) {
 				throw new Exception("BabelJs Engine initialization failed.", e)
-			} finally {
-				try {
-				} catch(IllegalStateException e) {
-				}
 			}
 			try {
-				
-
-				synchronized($LOCK) {
-					bindings.putMember("input", input);
-					result = context.eval("js","Babel.transform(input, options).code") as String;
-					
-				}
+				result = pool.transform(input, assetFile?.path)
 			} catch(Exception e) {
 				throw new Exception("""BabelJs Engine compilation of javascript failed.
 				$e
 				""",e)
-			} finally {
 			}
 		}
 		return result
@@ -167,22 +239,9 @@ class BabelJsProcessor extends AbstractProcessor {
 		def nodeProcess
 		def output = new StringBuilder()
 		def err = new StringBuilder()
-		def globalLocation = AssetPipelineConfigHolder.config?.globalModules
+		def globalLocation = getGlobalModules()
 
 		try {
-			if (!globalLocation) {
-				synchronized($LOCK) {
-					if (!globalLocation) {
-						def npmProc
-						def globalLibLoc = new StringBuilder()
-						def npmCmd = "${ isWindows() ? 'cmd /c ' : '' }npm get prefix"
-						npmProc = npmCmd.execute()
-						npmProc.waitForProcessOutput(globalLibLoc, err)
-						globalLocation = "${globalLibLoc.toString().trim()}/lib/node_modules/"	
-					}
-				}
-				
-			}
 			def presets = "--presets=${globalLocation}@babel/preset-env"
 			def command = "${ isWindows() ? 'cmd /c ' : '' }babel --no-babelrc ${presets}"
 			nodeProcess = command.execute()
@@ -17,11 +17,16 @@
 package asset.pipeline.processors
 
 import asset.pipeline.AssetCompiler
+import asset.pipeline.AssetHelper
+import asset.pipeline.cache.BuildCache
+import asset.pipeline.cache.BuildCacheEntry
 import com.google.javascript.jscomp.*
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode
 
+import java.security.MessageDigest
 import java.util.logging.Level
 import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
 
 /**
  * A PostProcessor designed to minify javascript utilizing the Google Closure javascript compiler
@@ -30,9 +35,20 @@ import groovy.transform.CompileStatic
  *
  * @author David Estes
  */
+@Slf4j
 @CompileStatic
 class ClosureCompilerProcessor {
 	static contentTypes = ['application/javascript']
+	static final Integer CACHE_KEY_VERSION = 1
+	static final String SOURCE_MAP_ATTACHMENT = 'sourceMap'
+	static final Map DEFAULT_MINIFY_OPTIONS = [
+		// languageMode: 'ECMASCRIPT_NEXT',
+		optimizationLevel: 'SIMPLE' //WHITESPACE , ADVANCED
+	]
+	/** minifyOptions that select files rather than affect the minified output */
+	static final List<String> NON_OUTPUT_OPTIONS = ['excludes']
+
+	private static Map<String, String> builtinExterns
 
 	AssetCompiler assetCompiler
 	ClosureCompilerProcessor(AssetCompiler compiler) {
@@ -41,7 +57,43 @@ class ClosureCompilerProcessor {
 	}
 
 
+	/**
+	 * Minifies a javascript file. Results are looked up in and stored to the minify cache of the {@link AssetCompiler}
+	 * by a digest of the unminified text and the effective minify options, along with the source map if enabled.
+	 */
 	public String process(String fileName, String inputText, Map minifyOptions = [:]) {
+		boolean sourceMaps = assetCompiler.options.enableSourceMaps as boolean
+		String baseFileName = new File(fileName).name
+		BuildCache minifyCache = assetCompiler.minifyCache
+		String cacheKey = minifyCache != null ? minifyCacheKey(fileName, inputText, minifyOptions, sourceMaps) : null
+		BuildCacheEntry entry = cacheKey ? minifyCache.load(cacheKey) : null
+		if(entry == null) {
+			entry = minify(fileName, inputText, minifyOptions, sourceMaps)
+			if(cacheKey) {
+				try {
+					minifyCache.store(cacheKey, entry)
+				} catch(Exception ex) {
+					log.warn("Unable to store minified ${fileName} in the minify cache", ex)
+				}
+			}
+		}
+
+		String output = entry.processedText
+		String sourceMap = entry.attachments.get(SOURCE_MAP_ATTACHMENT)
+		if(sourceMap != null) {
+			// written through temporary files since cache hits rewrite them while a server may be serving them
+			AssetCompiler.writePendingText(new File(assetCompiler.options.compileDir as String,fileName + ".unminified.js"), inputText)
+			AssetCompiler.writePendingText(new File(assetCompiler.options.compileDir as String,fileName + ".js.map"), sourceMap)
+			output = "//# sourceMappingURL=${baseFileName + '.js.map'}\n" + output
+		}
+
+		if(!output) {
+			return inputText
+		}
+		return output
+	}
+
+	private BuildCacheEntry minify(String fileName, String inputText, Map minifyOptions, boolean sourceMaps) {
 		def compiler = new Compiler()
 		CompilerOptions options = new CompilerOptions()
 		options.trustedStrings = true
@@ -49,7 +101,7 @@ class ClosureCompilerProcessor {
 
 		translateMinifyOptions(options,minifyOptions)
 
-		if(assetCompiler.options.enableSourceMaps) {
+		if(sourceMaps) {
 			setSourceMapOptions(options,minifyOptions, fileName)
 		}
 		java.util.logging.Logger.getLogger(com.google.javascript.jscomp.PhaseOptimizer.class.getName()).setLevel(java.util.logging.Level.SEVERE);
@@ -58,43 +110,77 @@ class ClosureCompilerProcessor {
 		SourceFile sourceFile = SourceFile.fromCode(baseFileName + ".unminified.js", inputText)
 		// def sourceFile = new SourceFile.Preloaded(fileName + ".unminified.js",fileName, inputText)
 		// sourceFile.setCode(inputText)
-		def result = compiler.compile(CommandLineRunner.getBuiltinExterns(CompilerOptions.Environment.BROWSER),[sourceFile] as List<SourceFile>,options)
-		def output
+		def result = compiler.compile(getBuiltinExterns(),[sourceFile] as List<SourceFile>,options)
+		BuildCacheEntry entry = new BuildCacheEntry()
 		if(result.success) {
-			output = compiler.toSource()
+			entry.processedText = compiler.toSource()
 			if(compiler.sourceMap) {
-				File mapFile = new File(assetCompiler.options.compileDir as String,fileName + ".js.map")
-
-				if(!mapFile.exists()) {
-					mapFile.parentFile.mkdirs()
-				}
-				File unminifiedFile = new File(assetCompiler.options.compileDir as String,fileName + ".unminified.js")
-				unminifiedFile.text = inputText
-				mapFile.createNewFile()
-				FileWriter outputWriter = new FileWriter(mapFile)
+				StringBuilder sourceMap = new StringBuilder()
 				compiler.sourceMap.setWrapperPrefix("//# sourceMappingURL=${baseFileName + '.js.map'}\n")
-				compiler.sourceMap.appendTo(outputWriter,baseFileName + ".js")
-				outputWriter.close();
-				output = "//# sourceMappingURL=${baseFileName + '.js.map'}\n" + output
+				compiler.sourceMap.appendTo(sourceMap,baseFileName + ".js")
+				entry.attachments.put(SOURCE_MAP_ATTACHMENT, sourceMap.toString())
 			}
 		} else {
 			throw new MinifyException(result.errors.toString())
 		}
-		
-		
-		if(!output) {
-			return inputText
+		return entry
+	}
+
+	/**
+	 * The externs of the browser environment. Their code is read from the compiler jar once per JVM, but every
+	 * compiler gets its own source files since compilers release and reload the code of their inputs.
+	 */
+	static List<SourceFile> getBuiltinExterns() {
+		return getBuiltinExternsCode().collect { String name, String code ->
+			SourceFile.fromCode(name, code)
 		}
-		return output
 	}
 
-	public void translateMinifyOptions(CompilerOptions compilerOptions, Map minifyOptions) {
-		def defaultOptions = [
-			// languageMode: 'ECMASCRIPT_NEXT',
-			optimizationLevel: 'SIMPLE' //WHITESPACE , ADVANCED
-		]
+	private static synchronized Map<String, String> getBuiltinExternsCode() {
+		if(builtinExterns == null) {
+			Map<String, String> externs = new LinkedHashMap<String, String>()
+			for(SourceFile extern in CommandLineRunner.getBuiltinExterns(CompilerOptions.Environment.BROWSER)) {
+				externs.put(extern.name, extern.code)
+			}
+			builtinExterns = Collections.unmodifiableMap(externs)
+		}
+		return builtinExterns
+	}
+
+	/**
+	 * Digest of everything the minified output depends on. The file name only affects the output when source maps
+	 * are enabled.
+	 */
+	static String minifyCacheKey(String fileName, String inputText, Map minifyOptions, boolean sourceMaps) {
+		Map effectiveOptions = new TreeMap(DEFAULT_MINIFY_OPTIONS + (minifyOptions ?: [:]))
+		effectiveOptions.keySet().removeAll(NON_OUTPUT_OPTIONS)
+		List<String> parts = [
+			"minify-v${CACHE_KEY_VERSION}".toString(),
+			compilerVersion(),
+			effectiveOptions.toString(),
+			sourceMaps ? "sourceMaps:${fileName}".toString() : 'noSourceMaps',
+			AssetHelper.getByteDigest(inputText.getBytes('UTF-8'))
+		] as List<String>
+		MessageDigest digest = MessageDigest.getInstance('SHA-256')
+		digest.update(parts.join('\n').getBytes('UTF-8'))
+		return digest.digest().encodeHex().toString()
+	}
 
-		minifyOptions = defaultOptions + minifyOptions
+	/**
+	 * The closure compiler jars carry no implementation version so the name of the jar (i.e.
+	 * closure-compiler-unshaded-v20240317.jar) identifies the release
+	 */
+	private static String compilerVersion() {
+		String version = com.google.javascript.jscomp.Compiler.package?.implementationVersion
+		if(!version) {
+			URL location = com.google.javascript.jscomp.Compiler.protectionDomain?.codeSource?.location
+			version = location ? new File(location.path).name : ''
+		}
+		return version
+	}
+
+	public void translateMinifyOptions(CompilerOptions compilerOptions, Map minifyOptions) {
+		minifyOptions = DEFAULT_MINIFY_OPTIONS + minifyOptions
 		LanguageMode languageIn = evaluateLanguageMode(minifyOptions.get('languageMode') as String)
 		if(minifyOptions.targetLanguage) {
 			LanguageMode languageOut = evaluateLanguageMode(minifyOptions.get('targetLanguage') as String)
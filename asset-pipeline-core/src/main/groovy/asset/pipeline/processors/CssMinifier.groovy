@@ -0,0 +1,345 @@
+/*
+* Copyright 2026 the original author or authors.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package asset.pipeline.processors
+
+import groovy.transform.CompileStatic
+
+/**
+ * Single pass CSS minifier. The input is tokenized a character at a time into one output buffer:
+ * <ul>
+ *  <li>comments are removed</li>
+ *  <li>whitespace is collapsed to a single space and dropped around <code>{ } ; , &gt;</code> and after <code>:</code></li>
+ *  <li>the last semicolon of a block is dropped</li>
+ *  <li>units of zero lengths outside of functions are dropped (<code>0px</code> becomes <code>0</code>), except in
+ *  custom properties and <code>flex</code> declarations where a unitless zero means something else</li>
+ * </ul>
+ * Strings and <code>url()</code> values are copied untouched. Whitespace before <code>:</code> is kept since it is
+ * significant in selectors (<code>a :hover</code>).
+ */
+@CompileStatic
+class CssMinifier {
+	private static final int EOF = -1
+	private static final String NO_SPACE_AFTER = '{};,>:('
+	private static final String NO_SPACE_BEFORE = '{};,>)'
+	private static final Set<String> LENGTH_UNITS = ['px', 'em', 'rem', 'ex', 'ch', 'vw', 'vh', 'vmin', 'vmax', 'cm', 'mm', 'q', 'in', 'pt', 'pc'] as Set<String>
+	private static final int MAX_UNIT_LENGTH = 4
+	/** Properties whose zero lengths keep their unit (a unitless flex-basis or a custom property used in calc() breaks) */
+	private static final Set<String> UNIT_PROPERTIES = ['flex', 'flex-basis'] as Set<String>
+
+	private final CharSequence sequence
+	private final Reader reader
+	private final char[] buffer
+	private int position
+	private int limit
+
+	private final boolean removeComments
+	private final boolean stripWhitespace
+	private final StringBuilder out
+	private boolean pendingSpace
+	private boolean pendingSemicolon
+	private int parenDepth
+	private boolean keepZeroUnits
+
+	private CssMinifier(CharSequence sequence, Reader reader, StringBuilder out, boolean removeComments, boolean stripWhitespace) {
+		this.sequence = sequence
+		this.reader = reader
+		this.buffer = reader != null ? new char[8192] : null
+		this.limit = sequence != null ? sequence.length() : 0
+		this.out = out
+		this.removeComments = removeComments
+		this.stripWhitespace = stripWhitespace
+	}
+
+	static String minify(CharSequence css, boolean removeComments = true, boolean stripWhitespace = true) {
+		StringBuilder out = new StringBuilder(css.length())
+		new CssMinifier(css, null, out, removeComments, stripWhitespace).run()
+		return out.toString()
+	}
+
+	/**
+	 * Minifies css read from a reader into the output buffer. The reader is not closed
+	 */
+	static void minify(Reader reader, StringBuilder out, boolean removeComments = true, boolean stripWhitespace = true) {
+		new CssMinifier(null, reader, out, removeComments, stripWhitespace).run()
+	}
+
+	private void run() {
+		int c
+		while((c = next()) != EOF) {
+			char ch = (char) c
+			if(ch == (char) '/' && peek(0) == (int) ((char) '*')) {
+				if(removeComments) {
+					skipComment()
+				} else {
+					emit(ch)
+					copyComment()
+				}
+			} else if(isWhitespace(c) && stripWhitespace) {
+				pendingSpace = true
+			} else if(ch == (char) '"' || ch == (char) '\'') {
+				emit(ch)
+				copyString(ch)
+			} else if(ch == (char) '\\') {
+				emit(ch)
+				int escaped = next()
+				if(escaped != EOF) {
+					out.append((char) escaped)
+				}
+			} else if(ch == (char) ';' && stripWhitespace) {
+				pendingSemicolon = true
+				pendingSpace = false
+				keepZeroUnits = false
+			} else if(isUrlStart(ch)) {
+				emit(ch)
+				for(int i = 0; i < 3; i++) {
+					out.append((char) next())
+				}
+				copyUrl()
+			} else if(ch == (char) '0' && stripWhitespace && parenDepth == 0 && !keepZeroUnits && isNumberStart()) {
+				emit(ch)
+				skipZeroUnit()
+			} else {
+				emit(ch)
+				if(ch == (char) '(') {
+					parenDepth++
+				} else if(ch == (char) ')' && parenDepth > 0) {
+					parenDepth--
+				} else if(ch == (char) ':' && parenDepth == 0) {
+					keepZeroUnits = keepsZeroUnits(propertyBefore(out.length() - 1))
+				} else if(ch == (char) '{' || ch == (char) '}' || ch == (char) ';') {
+					keepZeroUnits = false
+				}
+			}
+		}
+		if(pendingSemicolon) {
+			out.append((char) ';')
+		}
+	}
+
+	/**
+	 * Appends a character that is not whitespace, deciding whether the pending space and semicolon are needed
+	 */
+	private void emit(char ch) {
+		if(pendingSemicolon) {
+			pendingSemicolon = false
+			if(ch == (char) '}') {
+				pendingSpace = false
+			} else {
+				out.append((char) ';')
+				pendingSpace = false
+			}
+		}
+		if(pendingSpace) {
+			pendingSpace = false
+			if(out.length() > 0 && NO_SPACE_AFTER.indexOf((int) out.charAt(out.length() - 1)) < 0 && NO_SPACE_BEFORE.indexOf((int) ch) < 0) {
+				out.append((char) ' ')
+			}
+		}
+		out.append(ch)
+	}
+
+	private void skipComment() {
+		next()
+		int c
+		while((c = next()) != EOF) {
+			if(c == (int) ((char) '*') && peek(0) == (int) ((char) '/')) {
+				next()
+				return
+			}
+		}
+	}
+
+	private void copyComment() {
+		out.append((char) next())
+		int c
+		while((c = next()) != EOF) {
+			out.append((char) c)
+			if(c == (int) ((char) '*') && peek(0) == (int) ((char) '/')) {
+				out.append((char) next())
+				return
+			}
+		}
+	}
+
+	private void copyString(char quote) {
+		int c
+		while((c = next()) != EOF) {
+			out.append((char) c)
+			if(c == (int) ((char) '\\')) {
+				int escaped = next()
+				if(escaped == EOF) {
+					return
+				}
+				out.append((char) escaped)
+			} else if(c == (int) quote) {
+				return
+			}
+		}
+	}
+
+	/**
+	 * Copies the value of a url( up to and including its closing parenthesis
+	 */
+	private void copyUrl() {
+		int c
+		while((c = next()) != EOF) {
+			char ch = (char) c
+			if(ch == (char) '"' || ch == (char) '\'') {
+				out.append(ch)
+				copyString(ch)
+			} else if(ch == (char) '\\') {
+				out.append(ch)
+				int escaped = next()
+				if(escaped != EOF) {
+					out.append((char) escaped)
+				}
+			} else {
+				out.append(ch)
+				if(ch == (char) ')') {
+					return
+				}
+			}
+		}
+	}
+
+	private boolean isUrlStart(char ch) {
+		if(ch != (char) 'u' && ch != (char) 'U') {
+			return false
+		}
+		if(!(lower(peek(0)) == (int) ((char) 'r') && lower(peek(1)) == (int) ((char) 'l') && peek(2) == (int) ((char) '('))) {
+			return false
+		}
+		return out.length() == 0 || pendingSpace || !isNameChar((int) out.charAt(out.length() - 1))
+	}
+
+	/**
+	 * @return true if a zero at the current position starts a number rather than continuing a name or number
+	 */
+	private boolean isNumberStart() {
+		if(out.length() == 0 || pendingSpace || pendingSemicolon) {
+			return true
+		}
+		char previous = out.charAt(out.length() - 1)
+		return !(isNameChar((int) previous) || previous == (char) '.' || previous == (char) '#' || previous == (char) '%')
+	}
+
+	/**
+	 * @return the lower case name ending at the given output index if it starts a declaration, otherwise null
+	 */
+	private String propertyBefore(int end) {
+		int start = end
+		while(start > 0 && isNameChar((int) out.charAt(start - 1))) {
+			start--
+		}
+		if(start > 0 && '{; '.indexOf((int) out.charAt(start - 1)) < 0) {
+			return null
+		}
+		return out.substring(start, end).toLowerCase()
+	}
+
+	private static boolean keepsZeroUnits(String property) {
+		if(property == null) {
+			return false
+		}
+		if(property.startsWith('--')) {
+			return true
+		}
+		if(property.startsWith('-') && property.indexOf('-', 1) > 0) {
+			// vendor prefixed, i.e. -webkit-flex
+			property = property.substring(property.indexOf('-', 1) + 1)
+		}
+		return UNIT_PROPERTIES.contains(property)
+	}
+
+	/**
+	 * Drops the length unit following a zero (i.e. 0px) when nothing but the unit follows
+	 */
+	private void skipZeroUnit() {
+		int length = 0
+		while(length <= MAX_UNIT_LENGTH && isLetter(peek(length))) {
+			length++
+		}
+		if(length == 0 || length > MAX_UNIT_LENGTH || isNameChar(peek(length))) {
+			return
+		}
+		StringBuilder unit = new StringBuilder(length)
+		for(int i = 0; i < length; i++) {
+			unit.append((char) lower(peek(i)))
+		}
+		if(LENGTH_UNITS.contains(unit.toString())) {
+			for(int i = 0; i < length; i++) {
+				next()
+			}
+		}
+	}
+
+	private int next() {
+		int c = peek(0)
+		if(c != EOF) {
+			position++
+		}
+		return c
+	}
+
+	private int peek(int offset) {
+		int index = position + offset
+		if(sequence != null) {
+			return index < limit ? (int) sequence.charAt(index) : EOF
+		}
+		if(index >= limit) {
+			fill(offset)
+			index = position + offset
+			if(index >= limit) {
+				return EOF
+			}
+		}
+		return (int) buffer[index]
+	}
+
+	/**
+	 * Moves the unread characters to the start of the buffer and reads until the lookahead is available
+	 */
+	private void fill(int offset) {
+		if(position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position)
+			limit -= position
+			position = 0
+		}
+		while(limit <= offset) {
+			int read = reader.read(buffer, limit, buffer.length - limit)
+			if(read < 0) {
+				return
+			}
+			limit += read
+		}
+	}
+
+	private static boolean isWhitespace(int c) {
+		return c == (int) ((char) ' ') || c == (int) ((char) '\n') || c == (int) ((char) '\r') || c == (int) ((char) '\t') || c == (int) ((char) '\f')
+	}
+
+	private static boolean isLetter(int c) {
+		return (c >= (int) ((char) 'a') && c <= (int) ((char) 'z')) || (c >= (int) ((char) 'A') && c <= (int) ((char) 'Z'))
+	}
+
+	private static boolean isNameChar(int c) {
+		return isLetter(c) || (c >= (int) ((char) '0') && c <= (int) ((char) '9')) || c == (int) ((char) '-') || c == (int) ((char) '_') || c > 127
+	}
+
+	private static int lower(int c) {
+		return (c >= (int) ((char) 'A') && c <= (int) ((char) 'Z')) ? c + 32 : c
+	}
+}
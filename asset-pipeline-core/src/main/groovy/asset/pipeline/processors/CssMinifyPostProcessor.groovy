@@ -15,11 +15,11 @@
  */
 
 package asset.pipeline.processors
-import java.util.regex.Pattern
 
 /**
  * Minifies CSS as a PostProcessor.
- * Currently the most minification this class performs is a removal of whitespace and comments
+ * Comments and whitespace are removed in a single pass by {@link CssMinifier} which also drops trailing semicolons
+ * of blocks and the units of zero lengths.
  * Duplicate match patterns are not currently combined.
  *
  * @author David Estes
@@ -35,22 +35,9 @@ class CssMinifyPostProcessor {
     	def removeComments = options.containsKey('removeComments') ? options.removeComments : true
     	def stripWhitespace = options.containsKey('stripWhitespace') ? options.stripWhitespace : true
 
-
-
-        def processedCss = inputText
-        if(removeComments) {
-            Pattern p = Pattern.compile("(/\\*\\*/)|(/\\*(.+?)?\\*/)", Pattern.DOTALL);
-
-        	processedCss = processedCss.replaceAll(p,"")
+        if(inputText == null || (!removeComments && !stripWhitespace)) {
+            return inputText
         }
-        if(stripWhitespace) {
-        	processedCss = processedCss.replaceAll("\r\n","\n")
-        	def cssLines = processedCss.split("\n")
-        	cssLines = cssLines.collect { it.trim() }
-        	processedCss = cssLines.join("")
-        }
-
-        return processedCss
-
+        return CssMinifier.minify(inputText.toString(), removeComments as boolean, stripWhitespace as boolean)
     }
 }
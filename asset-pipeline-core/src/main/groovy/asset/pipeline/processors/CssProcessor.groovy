@@ -18,6 +18,8 @@ package asset.pipeline.processors
 
 import asset.pipeline.AssetCompiler
 import asset.pipeline.AssetFile
+import asset.pipeline.ProcessorScope
+import asset.pipeline.ProcessorScoped
 import java.util.regex.Pattern
 
 import static asset.pipeline.utils.net.Urls.isRelative
@@ -31,9 +33,10 @@ import static asset.pipeline.utils.net.Urls.isRelative
  * @author David Estes
  * @author Ross Goldberg
  */
+@ProcessorScoped(ProcessorScope.SHARED)
 class CssProcessor extends AbstractUrlRewritingProcessor {
 
-    private static final Pattern URL_CALL_PATTERN = ~/url\((?:\s*)(['"]?)([a-zA-Z0-9\-_.:\/@#? &+%=$]++)\1?(?:\s*)\)/
+    static final Pattern URL_CALL_PATTERN = ~/url\((?:\s*)(['"]?)([a-zA-Z0-9\-_.:\/@#? &+%=$]++)\1?(?:\s*)\)/
 
 
     CssProcessor(final AssetCompiler precompiler) {
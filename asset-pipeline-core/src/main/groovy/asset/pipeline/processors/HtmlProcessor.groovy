@@ -18,6 +18,8 @@ package asset.pipeline.processors
 
 import asset.pipeline.AssetCompiler
 import asset.pipeline.AssetFile
+import asset.pipeline.ProcessorScope
+import asset.pipeline.ProcessorScoped
 import java.util.regex.Pattern
 
 import static asset.pipeline.utils.net.Urls.isRelative
@@ -31,9 +33,10 @@ import static asset.pipeline.utils.net.Urls.isRelative
  * @author David Estes
  * @author Ross Goldberg
  */
+@ProcessorScoped(ProcessorScope.SHARED)
 class HtmlProcessor extends AbstractUrlRewritingProcessor {
 
-    private static final Pattern QUOTED_ASSET_PATH_PATTERN = ~/"([a-zA-Z0-9\-_.:\/@#? $&+%=']++)"|'([a-zA-Z0-9\-_.:\/@#? $&+%="]++)'/
+    static final Pattern QUOTED_ASSET_PATH_PATTERN = ~/"([a-zA-Z0-9\-_.:\/@#? $&+%=']++)"|'([a-zA-Z0-9\-_.:\/@#? $&+%="]++)'/
 
     static {
         doNotInsertCacheDigestIntoUrlForCompiledExtension('html')
@@ -21,6 +21,8 @@ import asset.pipeline.AssetHelper
 import asset.pipeline.AssetFile
 import asset.pipeline.AbstractProcessor
 import asset.pipeline.AssetPipelineConfigHolder
+import asset.pipeline.ProcessorScope
+import asset.pipeline.ProcessorScoped
 import java.util.regex.Pattern
 
 import static asset.pipeline.utils.net.Urls.isRelative
@@ -33,6 +35,7 @@ import static asset.pipeline.utils.net.Urls.isRelative
  *
  * @author David Estes
  */
+@ProcessorScoped(ProcessorScope.SHARED)
 class JsNodeInjectProcessor extends AbstractProcessor  {
 
 
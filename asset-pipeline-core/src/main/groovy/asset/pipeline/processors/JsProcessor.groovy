@@ -19,6 +19,8 @@ package asset.pipeline.processors
 import asset.pipeline.AssetCompiler
 import asset.pipeline.AssetHelper
 import asset.pipeline.AssetFile
+import asset.pipeline.ProcessorScope
+import asset.pipeline.ProcessorScoped
 import java.util.regex.Pattern
 
 import static asset.pipeline.utils.net.Urls.isRelative
@@ -31,9 +33,10 @@ import static asset.pipeline.utils.net.Urls.isRelative
  *
  * @author David Estes
  */
+@ProcessorScoped(ProcessorScope.SHARED)
 class JsProcessor extends AbstractUrlRewritingProcessor {
 
-	private static final Pattern URL_CALL_PATTERN = ~/asset_url\((?:\s*)(['"]?)([a-zA-Z0-9\-_.:\/@#? $&+%=]++)\1?(?:\s*)\)/
+	static final Pattern URL_CALL_PATTERN = ~/asset_url\((?:\s*)(['"]?)([a-zA-Z0-9\-_.:\/@#? $&+%=]++)\1?(?:\s*)\)/
 
 	static {
         doNotInsertCacheDigestIntoUrlForCompiledExtension('html')
@@ -6,14 +6,16 @@ import asset.pipeline.AssetFile
 import asset.pipeline.GenericAssetFile
 import asset.pipeline.AssetPipelineConfigHolder
 import asset.pipeline.AssetHelper
-import groovy.json.JsonSlurper
 import groovy.transform.CompileStatic
 import asset.pipeline.CacheManager
+import asset.pipeline.ProcessorScope
+import asset.pipeline.ProcessorScoped
 import java.util.regex.Pattern
 import groovy.util.logging.Slf4j
 
 @CompileStatic
 @Slf4j
+@ProcessorScoped(ProcessorScope.SHARED)
 class JsRequireProcessor extends AbstractUrlRewritingProcessor {
 
 	private static final Pattern URL_CALL_PATTERN = ~/[^\.a-zA-Z_\-0-9]require\((?:\s*)(['"]?)([a-zA-Z0-9\-_.:\/@#?$ &+%=]++)\1?(?:\s*)\)/
@@ -27,8 +29,12 @@ class JsRequireProcessor extends AbstractUrlRewritingProcessor {
     }
 
 
+	/** Module resolutions shared by every file processed with this instance */
+	private final ModuleResolutionCache resolutionCache
+
 	JsRequireProcessor(final AssetCompiler precompiler) {
 		super(precompiler)
+		resolutionCache = new ModuleResolutionCache(precompiler == null)
 	}
 
 
@@ -64,74 +70,8 @@ class JsRequireProcessor extends AbstractUrlRewritingProcessor {
 						return resultPrefix+"_asset_pipeline_require(${quote}${cachedPath}${quote})"
 					}
 				} else if(assetPath.size() > 0) {
-					AssetFile currFile
-					if(!assetPath.startsWith('/') && assetFile.parentPath != null) {
-						def relativeFileName = [ assetFile.parentPath, assetPath ].join( AssetHelper.DIRECTIVE_FILE_SEPARATOR )
-						relativeFileName = AssetHelper.normalizePath(relativeFileName)
-						currFile = AssetHelper.fileForUri(relativeFileName,'application/javascript')
-
-					}
-					
-					if(!currFile) {
-						currFile = AssetHelper.fileForUri(assetPath,'application/javascript')
-					}
-					
-					if(!currFile) {
-						currFile = AssetHelper.fileForUri(assetPath + '/' + assetPath,'application/javascript')
-					}
-
-					// look for a node module
-					if(!currFile){
-						if(!assetPath.startsWith('/')) {
-							def packageFileName = [  assetPath, 'package.json' ].join( AssetHelper.DIRECTIVE_FILE_SEPARATOR )
-							packageFileName = AssetHelper.normalizePath(packageFileName)
-							AssetFile packageJsonFile = AssetHelper.fileForUri(packageFileName)
-							if (packageJsonFile) {
-								JsonSlurper slurper = new JsonSlurper()
-								def packageJson = slurper.parse(packageJsonFile.getInputStream()) as Map
-								def realAssetFileName = [assetPath, packageJson.get("main")].join(AssetHelper.DIRECTIVE_FILE_SEPARATOR)
-								realAssetFileName = AssetHelper.normalizePath(realAssetFileName)
-								currFile = AssetHelper.fileForUri(realAssetFileName, 'application/javascript')
-							}
-						}
-					}
-					
-					//look for index.js
-					if(!currFile) {
-						if(!assetPath.startsWith('/') && assetFile.parentPath != null) {
-							def relativeFileName = [ assetFile.parentPath, assetPath, 'index.js' ].join( AssetHelper.DIRECTIVE_FILE_SEPARATOR )	
-							relativeFileName = AssetHelper.normalizePath(relativeFileName)
-							currFile = AssetHelper.fileForUri(relativeFileName,'application/javascript')
-						}
-						
-						if(!currFile) {
-							currFile = AssetHelper.fileForUri(assetPath + '/index.js','application/javascript')
-						}
-						
-						if(!currFile) {
-							currFile = AssetHelper.fileForUri(assetPath + '/' + assetPath.tokenize('/')[-1] + '/index.js','application/javascript')
-						}
-					}
-
-					
-
-					//look for non js file
-					if(!currFile) {
-						if(!assetPath.startsWith('/')) {
-							def relativeFileName = [ assetFile.parentPath, assetPath].join( AssetHelper.DIRECTIVE_FILE_SEPARATOR )	
-							relativeFileName = AssetHelper.normalizePath(relativeFileName)
-
-							currFile = AssetHelper.fileForUri(relativeFileName)
-						}
-						
-						if(!currFile) {
-							currFile = AssetHelper.fileForUri(assetPath)
-						}
-						
-						if(!currFile) {
-							currFile = AssetHelper.fileForUri(assetPath + '/' + assetPath.tokenize('/')[-1])
-						}
-
+					AssetFile currFile = resolutionCache.resolve(assetFile.parentPath, assetPath) { ->
+						resolveModule(assetPath, assetFile)
 					}
 					if(!currFile) {
 						cachedPaths[assetPath] = null as String
@@ -169,6 +109,57 @@ class JsRequireProcessor extends AbstractUrlRewritingProcessor {
 		}
 	}
 
+	/**
+	 * Probes the resolvers for a module the way node does: relative to the requiring file, from the root of the
+	 * resolvers, through the main entry of its package.json, as an index.js and finally as a non js file
+	 * @return the successful probe or null if the module could not be found
+	 */
+	private ModuleResolutionCache.Resolution resolveModule(final String assetPath, final AssetFile assetFile) {
+		final boolean relative = !assetPath.startsWith('/') && assetFile.parentPath != null
+		final String moduleName = assetPath.tokenize('/') ? assetPath.tokenize('/')[-1] : assetPath
+		final String jsContentType = 'application/javascript'
+		ModuleResolutionCache.Resolution resolution =
+			(relative ? probe(AssetHelper.normalizePath([assetFile.parentPath, assetPath].join(AssetHelper.DIRECTIVE_FILE_SEPARATOR)), jsContentType) : null) ?:
+			probe(assetPath, jsContentType) ?:
+			probe(assetPath + '/' + assetPath, jsContentType)
+		if(resolution) {
+			return resolution
+		}
+
+		// look for a node module
+		if(!assetPath.startsWith('/')) {
+			final String packageFileName = AssetHelper.normalizePath([assetPath, 'package.json'].join(AssetHelper.DIRECTIVE_FILE_SEPARATOR))
+			AssetFile packageJsonFile = AssetHelper.fileForUri(packageFileName)
+			if(packageJsonFile) {
+				final String main = resolutionCache.packageMain(packageFileName, packageJsonFile)
+				final String realAssetFileName = AssetHelper.normalizePath([assetPath, main].join(AssetHelper.DIRECTIVE_FILE_SEPARATOR))
+				AssetFile mainFile = AssetHelper.fileForUri(realAssetFileName, jsContentType)
+				if(mainFile) {
+					return new ModuleResolutionCache.Resolution(realAssetFileName, jsContentType, packageFileName, main, mainFile)
+				}
+			}
+		}
+
+		//look for index.js
+		resolution =
+			(relative ? probe(AssetHelper.normalizePath([assetFile.parentPath, assetPath, 'index.js'].join(AssetHelper.DIRECTIVE_FILE_SEPARATOR)), jsContentType) : null) ?:
+			probe(assetPath + '/index.js', jsContentType) ?:
+			probe(assetPath + '/' + moduleName + '/index.js', jsContentType)
+		if(resolution) {
+			return resolution
+		}
+
+		//look for non js file
+		return (relative ? probe(AssetHelper.normalizePath([assetFile.parentPath, assetPath].join(AssetHelper.DIRECTIVE_FILE_SEPARATOR)), null) : null) ?:
+			probe(assetPath, null) ?:
+			probe(assetPath + '/' + moduleName, null)
+	}
+
+	private static ModuleResolutionCache.Resolution probe(final String uri, final String contentType) {
+		AssetFile file = AssetHelper.fileForUri(uri, contentType)
+		return file ? new ModuleResolutionCache.Resolution(uri, contentType, null, null, file) : null
+	}
+
 	private appendModule(AssetFile assetFile) {
 		Map<String,String> moduleMap = commonJsModules.get()
 		if(!moduleMap) {
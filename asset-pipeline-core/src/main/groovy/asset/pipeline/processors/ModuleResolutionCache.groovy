@@ -0,0 +1,183 @@
+/*
+* Copyright 2026 the original author or authors.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package asset.pipeline.processors
+
+import asset.pipeline.AbstractAssetFile
+import asset.pipeline.AssetFile
+import asset.pipeline.AssetHelper
+import asset.pipeline.AssetPipelineConfigHolder
+import asset.pipeline.fs.AbstractAssetResolver
+import asset.pipeline.fs.AssetResolver
+import groovy.json.JsonSlurper
+import groovy.transform.CompileStatic
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Remembers how the <code>require()</code> calls of {@link JsRequireProcessor} were resolved, keyed by the directory of
+ * the requiring file and the module name, so the probes across all resolvers are only made once per build. Modules
+ * that could not be found are remembered as well. The <code>main</code> entry of each package.json is kept too.
+ *
+ * Only the uri and content type of the successful probe are kept. Hits look the file up again with them since
+ * {@link AssetFile} instances carry per request state. The file found by the probe itself is returned as is.
+ *
+ * When precompiling the cache lives as long as the {@link asset.pipeline.ProcessorRegistry} of the compile. In
+ * development it is only used while every resolver is indexed, which means its directories are watched, and it
+ * is discarded whenever a resolver index is invalidated because files were added or removed.
+ */
+@CompileStatic
+class ModuleResolutionCache {
+	private static final String KEY_SEPARATOR = '\u0000'
+	/** Marks a module which could not be found */
+	static final Resolution NOT_FOUND = new Resolution(null, null, null, null)
+
+	final boolean development
+	final AtomicLong hits = new AtomicLong()
+	final AtomicLong misses = new AtomicLong()
+
+	private final Map<String, Resolution> resolutions = new ConcurrentHashMap<String, Resolution>()
+	private final Map<String, List<String>> packageMains = new ConcurrentHashMap<String, List<String>>()
+	private volatile List<Object> resolverState
+
+	ModuleResolutionCache(boolean development) {
+		this.development = development
+	}
+
+	/**
+	 * Resolves a module, using the cached resolution if there is one
+	 * @param parentPath the directory of the requiring file
+	 * @param resolver performs the probes when there is no cached resolution, reporting the successful one via
+	 * {@link Resolution}
+	 * @return the module file or null if it could not be found
+	 */
+	AssetFile resolve(String parentPath, String moduleName, Closure<Resolution> resolver) {
+		if(!isEnabled()) {
+			Resolution resolution = resolver.call()
+			return resolution != null ? (resolution.file ?: resolution.lookup()) : null
+		}
+		String key = (parentPath ?: '') + KEY_SEPARATOR + moduleName
+		Resolution resolution = resolutions.get(key)
+		if(resolution != null) {
+			if(resolution.is(NOT_FOUND)) {
+				hits.incrementAndGet()
+				return null
+			}
+			if(resolution.packageJsonUri == null || packageMain(resolution.packageJsonUri, null) == resolution.packageMain) {
+				AssetFile file = resolution.lookup()
+				if(file != null) {
+					hits.incrementAndGet()
+					return file
+				}
+			}
+		}
+		misses.incrementAndGet()
+		resolution = resolver.call()
+		if(resolution == null) {
+			resolutions.put(key, NOT_FOUND)
+			return null
+		}
+		resolutions.put(key, resolution.detached())
+		return resolution.file ?: resolution.lookup()
+	}
+
+	/**
+	 * The main entry of a package.json, parsed once per build or, in development, again when the file changed
+	 * @param packageJsonFile the package.json or null to look it up by its uri
+	 * @return the main entry or null if the package.json does not exist or has none
+	 */
+	String packageMain(String packageJsonUri, AssetFile packageJsonFile) {
+		List<String> cached = packageMains.get(packageJsonUri)
+		if(cached != null && !development) {
+			return cached[1]
+		}
+		if(packageJsonFile == null) {
+			packageJsonFile = AssetHelper.fileForUri(packageJsonUri, null)
+			if(packageJsonFile == null) {
+				packageMains.remove(packageJsonUri)
+				return null
+			}
+		}
+		String stat = packageJsonFile instanceof AbstractAssetFile ? ((AbstractAssetFile) packageJsonFile).getFileStat() : null
+		if(cached != null && stat != null && cached[0] == stat) {
+			return cached[1]
+		}
+		Map packageJson = new JsonSlurper().parse(packageJsonFile.getInputStream()) as Map
+		String main = packageJson.get('main')?.toString()
+		packageMains.put(packageJsonUri, [stat, main] as List<String>)
+		return main
+	}
+
+	void clear() {
+		resolutions.clear()
+		packageMains.clear()
+	}
+
+	/**
+	 * In development the cache is cleared when the resolvers change or their indexes are invalidated and it is
+	 * bypassed while a resolver is not indexed
+	 */
+	private boolean isEnabled() {
+		if(!development) {
+			return true
+		}
+		List<Object> state = []
+		for(AssetResolver resolver in AssetPipelineConfigHolder.resolvers) {
+			if(!(resolver instanceof AbstractAssetResolver) || !((AbstractAssetResolver) resolver).isIndexed()) {
+				return false
+			}
+			state << (Object) resolver
+			state << (Object) ((AbstractAssetResolver) resolver).getIndexGeneration()
+		}
+		if(resolverState != state) {
+			clear()
+			resolverState = state
+		}
+		return true
+	}
+
+	/**
+	 * The probe that found a module
+	 */
+	static class Resolution {
+		final String uri
+		final String contentType
+		/** The package.json whose main entry was followed, if any */
+		final String packageJsonUri
+		final String packageMain
+		/** The file found by the probe, never kept in the cache */
+		final AssetFile file
+
+		Resolution(String uri, String contentType, String packageJsonUri = null, String packageMain = null, AssetFile file = null) {
+			this.uri = uri
+			this.contentType = contentType
+			this.packageJsonUri = packageJsonUri
+			this.packageMain = packageMain
+			this.file = file
+		}
+
+		/**
+		 * @return this resolution without the file of the probe, to be cached
+		 */
+		Resolution detached() {
+			return file != null ? new Resolution(uri, contentType, packageJsonUri, packageMain) : this
+		}
+
+		AssetFile lookup() {
+			return uri != null ? AssetHelper.fileForUri(uri, contentType) : null
+		}
+	}
+}
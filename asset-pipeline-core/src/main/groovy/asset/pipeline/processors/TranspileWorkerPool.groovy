@@ -0,0 +1,371 @@
+/*
+* Copyright 2026 the original author or authors.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package asset.pipeline.processors
+
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+import java.nio.file.Files
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A small pool of resident node processes transpiling javascript with swc or Babel for the {@link BabelJsProcessor}.
+ *
+ * Spawning a process per file costs far more than the transform of a typical module, so each worker process stays
+ * alive and is fed files over a framed stdin/stdout protocol (a 4 byte length followed by a json document). Files
+ * submitted by the compiler threads are queued and every dispatcher sends whatever is waiting, up to the batch size,
+ * in a single round trip. A worker that dies is restarted and its batch retried once. The stderr of the workers is
+ * logged at debug level and its last lines again as a warning when a worker fails.
+ */
+@Slf4j
+@CompileStatic
+class TranspileWorkerPool {
+	static final String WORKER_SCRIPT = 'asset/pipeline/transpile-worker.js'
+	static final int DEFAULT_BATCH_SIZE = 16
+	static final int MAX_ATTEMPTS = 2
+	static final int MAX_FRAME_SIZE = 256 * 1024 * 1024
+	static final int STDERR_TAIL_LINES = 20
+
+	private static volatile File workerScript
+
+	/** swc or babel */
+	final String tool
+	final int size
+	final int batchSize
+	/** Options passed along with every batch (i.e. the swcrc location) */
+	final Map<String, Object> options
+	/** Directories node should resolve the transpiler modules from */
+	final String modulePath
+
+	final AtomicLong batches = new AtomicLong()
+	final AtomicLong files = new AtomicLong()
+	final AtomicLong restarts = new AtomicLong()
+
+	private final LinkedBlockingQueue<PendingTransform> queue = new LinkedBlockingQueue<PendingTransform>()
+	private final List<Thread> dispatchers = []
+	private volatile boolean closed = false
+	private volatile String unavailableReason
+
+	TranspileWorkerPool(String tool, int size, int batchSize, String modulePath, Map<String, Object> options = [:]) {
+		this.tool = tool
+		this.size = Math.max(1, size)
+		this.batchSize = Math.max(1, batchSize)
+		this.modulePath = modulePath
+		this.options = options ?: [:] as Map<String, Object>
+	}
+
+	/**
+	 * @return false once a worker failed to start (i.e. the transpiler module is not installed)
+	 */
+	boolean isAvailable() {
+		return unavailableReason == null && !closed
+	}
+
+	/**
+	 * Transpiles a file on one of the workers, blocking until its batch is answered
+	 * @throws WorkerUnavailableException if the workers can not be started
+	 * @throws Exception with the transpiler message if the file fails to transpile
+	 */
+	String transform(String input, String name) {
+		if(!isAvailable()) {
+			throw new WorkerUnavailableException("${tool} workers unavailable: ${unavailableReason ?: 'closed'}")
+		}
+		startDispatchers()
+		PendingTransform pending = new PendingTransform(name: name ?: 'input.js', source: input)
+		queue.put(pending)
+		if(!isAvailable() && queue.remove(pending)) {
+			// closed or failed after the queue was drained, nothing will pick this file up anymore
+			throw new WorkerUnavailableException("${tool} workers unavailable: ${unavailableReason ?: 'closed'}")
+		}
+		try {
+			return pending.result.get()
+		} catch(ExecutionException ex) {
+			throw ex.cause instanceof Exception ? (Exception) ex.cause : ex
+		}
+	}
+
+	/**
+	 * Stops the dispatchers and worker processes. Queued files are failed
+	 */
+	void close() {
+		closed = true
+		synchronized(dispatchers) {
+			for(Thread dispatcher in dispatchers) {
+				dispatcher.interrupt()
+			}
+			for(Thread dispatcher in dispatchers) {
+				dispatcher.join(5000)
+			}
+			dispatchers.clear()
+		}
+		failAll(drain(Integer.MAX_VALUE), new WorkerUnavailableException("${tool} workers closed"))
+		if(batches.get() > 0) {
+			log.debug("${tool} workers: ${files.get()} files in ${batches.get()} batches, ${restarts.get()} restarts")
+		}
+	}
+
+	private void startDispatchers() {
+		if(dispatchers.size() >= size) {
+			return
+		}
+		synchronized(dispatchers) {
+			while(!closed && dispatchers.size() < size) {
+				Thread dispatcher = new Thread({ -> dispatch() } as Runnable, "asset-pipeline-${tool}-worker-${dispatchers.size()}")
+				dispatcher.daemon = true
+				dispatcher.start()
+				dispatchers << dispatcher
+			}
+		}
+	}
+
+	private void dispatch() {
+		WorkerProcess worker = null
+		try {
+			while(!closed) {
+				PendingTransform first = queue.poll(1, TimeUnit.SECONDS)
+				if(first == null) {
+					continue
+				}
+				List<PendingTransform> batch = [first]
+				queue.drainTo(batch, batchSize - 1)
+				int attempt = 0
+				while(true) {
+					try {
+						if(worker == null || !worker.alive) {
+							worker = startWorker()
+						}
+						List<Map> results = worker.send(batch, options)
+						// count before completing so callers woken by the results see the batch counted
+						batches.incrementAndGet()
+						files.addAndGet(batch.size())
+						complete(batch, results)
+						break
+					} catch(WorkerUnavailableException ex) {
+						unavailableReason = ex.message
+						log.warn("Unable to start ${tool} worker - falling back to a process per file: ${ex.message}")
+						failAll(batch, ex)
+						failAll(drain(Integer.MAX_VALUE), ex)
+						return
+					} catch(IOException ex) {
+						worker?.destroy()
+						String stderr = worker?.stderrTail
+						worker = null
+						if(stderr) {
+							log.warn("${tool} worker died, its last output was:\n${stderr}")
+						}
+						if(++attempt >= MAX_ATTEMPTS) {
+							failAll(batch, ex)
+							break
+						}
+						restarts.incrementAndGet()
+						log.warn("${tool} worker failed, restarting and retrying ${batch.size()} files: ${ex.message}")
+					}
+				}
+			}
+		} catch(InterruptedException ex) {
+			// closing
+		} finally {
+			worker?.destroy()
+		}
+	}
+
+	private WorkerProcess startWorker() {
+		ProcessBuilder builder = new ProcessBuilder(isWindows() ? ['cmd', '/c', 'node', getWorkerScript().absolutePath, tool] : ['node', getWorkerScript().absolutePath, tool])
+		if(modulePath) {
+			builder.environment().put('NODE_PATH', modulePath)
+		}
+		Process process
+		try {
+			process = builder.start()
+		} catch(IOException ex) {
+			throw new WorkerUnavailableException("node could not be started (${ex.message})")
+		}
+		WorkerProcess worker = new WorkerProcess(process)
+		drainStderr(worker)
+		Map ready
+		try {
+			ready = worker.readFrame()
+		} catch(IOException ex) {
+			worker.destroy()
+			String stderr = worker.stderrTail
+			throw new WorkerUnavailableException("worker exited during startup (${ex.message})${stderr ? ': ' + stderr : ''}")
+		}
+		if(!ready?.ready) {
+			worker.destroy()
+			throw new WorkerUnavailableException(ready?.error?.toString() ?: 'worker did not start')
+		}
+		return worker
+	}
+
+	/**
+	 * Reads the stderr of a worker so it can not block on a full pipe, logging it and keeping its last lines
+	 */
+	private void drainStderr(WorkerProcess worker) {
+		Thread drainer = new Thread({ ->
+			try {
+				worker.process.errorStream.eachLine('UTF-8') { String line ->
+					log.debug("${tool} worker: ${line}")
+					worker.appendStderr(line)
+				}
+			} catch(IOException ignored) {
+				// the worker was destroyed
+			}
+		} as Runnable, "asset-pipeline-${tool}-worker-stderr")
+		drainer.daemon = true
+		drainer.start()
+		worker.stderrDrainer = drainer
+	}
+
+	private static void complete(List<PendingTransform> batch, List<Map> results) {
+		for(int i = 0; i < batch.size(); i++) {
+			Map result = i < results.size() ? results[i] : null
+			if(result?.containsKey('code')) {
+				batch[i].result.complete(result.code as String)
+			} else {
+				batch[i].result.completeExceptionally(new Exception("${batch[i].name}: ${result?.error ?: 'no result returned'}"))
+			}
+		}
+	}
+
+	private List<PendingTransform> drain(int max) {
+		List<PendingTransform> drained = []
+		queue.drainTo(drained, max)
+		return drained
+	}
+
+	private static void failAll(List<PendingTransform> batch, Exception ex) {
+		for(PendingTransform pending in batch) {
+			pending.result.completeExceptionally(ex)
+		}
+	}
+
+	private static File getWorkerScript() {
+		if(workerScript == null || !workerScript.exists()) {
+			synchronized(TranspileWorkerPool) {
+				if(workerScript == null || !workerScript.exists()) {
+					File script = Files.createTempFile('asset-pipeline-transpile-worker', '.js').toFile()
+					script.deleteOnExit()
+					script.text = TranspileWorkerPool.classLoader.getResource(WORKER_SCRIPT).getText('UTF-8')
+					workerScript = script
+				}
+			}
+		}
+		return workerScript
+	}
+
+	private static boolean isWindows() {
+		String osName = System.getProperty("os.name")
+		return (osName != null && osName.contains("Windows"))
+	}
+
+	/**
+	 * Thrown when no worker process can be started. Callers should fall back to a process per file
+	 */
+	static class WorkerUnavailableException extends IOException {
+		WorkerUnavailableException(String message) {
+			super(message)
+		}
+	}
+
+	private static class PendingTransform {
+		String name
+		String source
+		CompletableFuture<String> result = new CompletableFuture<String>()
+	}
+
+	private static class WorkerProcess {
+		private long nextId = 0
+		final Process process
+		final DataInputStream input
+		final DataOutputStream output
+		Thread stderrDrainer
+		private final ArrayDeque<String> stderrLines = new ArrayDeque<String>()
+
+		WorkerProcess(Process process) {
+			this.process = process
+			this.input = new DataInputStream(new BufferedInputStream(process.inputStream))
+			this.output = new DataOutputStream(new BufferedOutputStream(process.outputStream))
+		}
+
+		boolean isAlive() {
+			return process.alive
+		}
+
+		synchronized void appendStderr(String line) {
+			stderrLines.addLast(line)
+			if(stderrLines.size() > STDERR_TAIL_LINES) {
+				stderrLines.removeFirst()
+			}
+		}
+
+		/**
+		 * @return the last lines the worker wrote to stderr, once it exited these are complete
+		 */
+		String getStderrTail() {
+			if(!process.alive) {
+				stderrDrainer?.join(1000)
+			}
+			synchronized(this) {
+				return stderrLines.join('\n')
+			}
+		}
+
+		List<Map> send(List<PendingTransform> batch, Map<String, Object> options) {
+			long id = nextId++
+			List<Map> files = batch.collect { PendingTransform pending -> [name: pending.name, source: pending.source] as Map }
+			writeFrame([id: id, options: options, files: files])
+			Map response = readFrame()
+			if(response?.id != id) {
+				throw new IOException("Unexpected response from worker")
+			}
+			return response.results as List<Map>
+		}
+
+		void writeFrame(Map message) {
+			byte[] body = JsonOutput.toJson(message).getBytes('UTF-8')
+			output.writeInt(body.length)
+			output.write(body)
+			output.flush()
+		}
+
+		Map readFrame() {
+			int length = input.readInt()
+			if(length < 0 || length > MAX_FRAME_SIZE) {
+				throw new IOException("Invalid frame length ${length}")
+			}
+			byte[] body = new byte[length]
+			input.readFully(body)
+			return new JsonSlurper().parse(body, 'UTF-8') as Map
+		}
+
+		void destroy() {
+			try {
+				output.close()
+			} catch(IOException ignored) {
+			}
+			if(!process.waitFor(1, TimeUnit.SECONDS)) {
+				process.destroyForcibly()
+			}
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.rhino
+
+import asset.pipeline.AssetPipelineConfigHolder
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.mozilla.javascript.Context
+import org.mozilla.javascript.ContextFactory
+import org.mozilla.javascript.EvaluatorException
+import org.mozilla.javascript.Script
+import org.mozilla.javascript.Scriptable
+import org.mozilla.javascript.ScriptableObject
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * A Rhino environment with a set of compiler scripts (i.e. the CoffeeScript or TypeScript compiler) loaded, shared by
+ * all processor instances in the JVM.
+ *
+ * Each script is compiled once at the optimization level set by the rhino.optimizationLevel config (default 9).
+ * Scripts too large to compile to bytecode fall back to the interpreter. The compiled scripts are executed into a
+ * top-level scope which is sealed and shared by all threads. Compilers that are not safe to share get a small pool
+ * of top-level scopes instead, each used by one call at a time. Every such scope holds a full copy of the compiler
+ * state, so the pool is capped by the rhino.maxScopes config (default: the number of processors) rather than growing
+ * with the number of request threads. Every call runs in its own child scope of the top-level scope so the variables
+ * of one call are never seen by another.
+ */
+@Slf4j
+@CompileStatic
+class RhinoEngine {
+	static final int DEFAULT_OPTIMIZATION_LEVEL = 9
+	static final int INTERPRETED = -1
+
+	private static final Map<String, RhinoEngine> engines = new ConcurrentHashMap<String, RhinoEngine>()
+
+	final String name
+	final int optimizationLevel
+	/** true if each call takes a top-level scope of its own from the pool rather than sharing one sealed scope */
+	final boolean exclusiveScopes
+	/** the maximum number of exclusive top-level scopes */
+	final int maxScopes
+
+	private final List<Script> scripts = []
+	private final ContextFactory contextFactory
+	private volatile ScriptableObject sharedScope
+	private final LinkedBlockingQueue<ScriptableObject> idleScopes = new LinkedBlockingQueue<ScriptableObject>()
+	private final AtomicInteger scopeCount = new AtomicInteger()
+
+	/**
+	 * @param name the name of the engine used for logging
+	 * @param sources the compiler sources to load keyed by source name, executed in order
+	 * @param exclusiveScopes if true each call runs in a pooled top-level scope that no other call uses meanwhile
+	 * @param optimizationLevel the Rhino optimization level (-1 for interpreted mode)
+	 * @param maxScopes the maximum number of exclusive top-level scopes, calls beyond it wait for a free scope
+	 */
+	RhinoEngine(String name, Map<String, String> sources, boolean exclusiveScopes = false, int optimizationLevel = configuredOptimizationLevel(), int maxScopes = configuredMaxScopes()) {
+		this.name = name
+		this.exclusiveScopes = exclusiveScopes
+		this.optimizationLevel = optimizationLevel
+		this.maxScopes = Math.max(1, maxScopes)
+		this.contextFactory = new ContextFactory()
+		long start = System.currentTimeMillis()
+		Context cx = contextFactory.enterContext()
+		try {
+			sources.each { String sourceName, String source ->
+				scripts << compileScript(cx, source, sourceName)
+			}
+		} finally {
+			Context.exit()
+		}
+		log.debug("Compiled ${name} Rhino scripts in ${System.currentTimeMillis() - start}ms")
+	}
+
+	/**
+	 * Returns the engine registered under a name, creating it on first use. Engines live for the life of the JVM
+	 * @param name unique name of the engine (i.e. 'coffee-script-1.7.1')
+	 * @param factory creates the engine if it does not exist yet
+	 */
+	static RhinoEngine engine(String name, Closure<RhinoEngine> factory) {
+		RhinoEngine engine = engines.get(name)
+		if(engine == null) {
+			synchronized(engines) {
+				engine = engines.get(name)
+				if(engine == null) {
+					engine = factory.call()
+					engines.put(name, engine)
+				}
+			}
+		}
+		return engine
+	}
+
+	/**
+	 * Loads the named classpath resources as the sources of an engine
+	 */
+	static Map<String, String> resources(ClassLoader classLoader, String... resourceNames) {
+		Map<String, String> sources = new LinkedHashMap<String, String>()
+		for(String resourceName in resourceNames) {
+			URL resource = classLoader.getResource(resourceName)
+			if(resource == null) {
+				throw new FileNotFoundException("Rhino script ${resourceName} not found")
+			}
+			sources.put(resource.file, resource.getText('UTF-8'))
+		}
+		return sources
+	}
+
+	static int configuredOptimizationLevel() {
+		def level = (AssetPipelineConfigHolder.config?.rhino as Map)?.optimizationLevel
+		return level != null ? (level as Integer) : DEFAULT_OPTIMIZATION_LEVEL
+	}
+
+	static int configuredMaxScopes() {
+		def maxScopes = (AssetPipelineConfigHolder.config?.rhino as Map)?.maxScopes
+		return maxScopes != null ? (maxScopes as Integer) : Runtime.getRuntime().availableProcessors()
+	}
+
+	/**
+	 * @return the number of exclusive top-level scopes loaded so far
+	 */
+	int getScopeCount() {
+		return scopeCount.get()
+	}
+
+	/**
+	 * Compiles an expression evaluated per call (i.e. "CoffeeScript.compile(src)")
+	 */
+	Script compile(String source, String sourceName) {
+		Context cx = contextFactory.enterContext()
+		try {
+			return compileScript(cx, source, sourceName)
+		} finally {
+			Context.exit()
+		}
+	}
+
+	/**
+	 * Runs a script in a new child scope of the top-level scope
+	 * @param script a script from {@link #compile(String, String)}
+	 * @param variables the variables defined in the child scope for this call
+	 * @return the result of the script converted to a String
+	 */
+	String evaluate(Script script, Map<String, Object> variables) {
+		Context cx = contextFactory.enterContext()
+		ScriptableObject exclusiveScope = null
+		try {
+			Scriptable topLevel
+			if(exclusiveScopes) {
+				exclusiveScope = checkoutScope(cx)
+				topLevel = exclusiveScope
+			} else {
+				topLevel = getSharedScope(cx)
+			}
+			Scriptable callScope = cx.newObject(topLevel)
+			callScope.setPrototype(topLevel)
+			callScope.setParentScope(null)
+			variables.each { String key, Object value ->
+				callScope.put(key, callScope, value)
+			}
+			Object result = script.exec(cx, callScope)
+			return Context.toString(result)
+		} finally {
+			if(exclusiveScope != null) {
+				idleScopes.offer(exclusiveScope)
+			}
+			Context.exit()
+		}
+	}
+
+	private ScriptableObject checkoutScope(Context cx) {
+		ScriptableObject scope = idleScopes.poll()
+		if(scope != null) {
+			return scope
+		}
+		if(scopeCount.incrementAndGet() <= maxScopes) {
+			try {
+				return load(cx, false)
+			} catch(Throwable ex) {
+				scopeCount.decrementAndGet()
+				throw ex
+			}
+		}
+		scopeCount.decrementAndGet()
+		return idleScopes.take()
+	}
+
+	private Scriptable getSharedScope(Context cx) {
+		if(sharedScope == null) {
+			synchronized(this) {
+				if(sharedScope == null) {
+					sharedScope = load(cx, true)
+				}
+			}
+		}
+		return sharedScope
+	}
+
+	private ScriptableObject load(Context cx, boolean seal) {
+		// the built-in objects are left unsealed since compilers tweak them at runtime (i.e. Error.stackTraceLimit)
+		ScriptableObject scope = cx.initStandardObjects(null, false)
+		for(Script script in scripts) {
+			script.exec(cx, scope)
+		}
+		if(seal) {
+			scope.sealObject()
+		}
+		return scope
+	}
+
+	private Script compileScript(Context cx, String source, String sourceName) {
+		cx.setOptimizationLevel(optimizationLevel)
+		try {
+			return cx.compileString(source, sourceName, 1, null)
+		} catch(EvaluatorException ex) {
+			if(optimizationLevel == INTERPRETED) {
+				throw ex
+			}
+			// i.e. methods over the 64K bytecode limit of large compilers such as TypeScript
+			log.debug("Unable to compile ${sourceName} at optimization level ${optimizationLevel}, interpreting instead: ${ex.message}")
+			cx.setOptimizationLevel(INTERPRETED)
+			return cx.compileString(source, sourceName, 1, null)
+		}
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@link GZIPOutputStream} with a configurable deflate level. This lives in Java as the
+ * deflater field of the parent class is named with a reserved Groovy keyword.
+ */
+public class LeveledGZIPOutputStream extends GZIPOutputStream {
+
+	public LeveledGZIPOutputStream(OutputStream out, int level) throws IOException {
+		super(out, 8192);
+		def.setLevel(level);
+	}
+}
@@ -0,0 +1,69 @@
+// Long lived transpile worker used by the asset-pipeline BabelJsProcessor.
+// Requests and responses are UTF-8 json frames prefixed by a 4 byte big endian length.
+// A request carries a batch of files and is answered by a single response frame.
+'use strict';
+var path = require('path');
+var tool = process.argv[2];
+var modulePaths = (process.env.NODE_PATH || '').split(path.delimiter).filter(Boolean).concat([process.cwd()]);
+var transformer;
+var presetEnv;
+
+function send(message) {
+	var body = Buffer.from(JSON.stringify(message), 'utf8');
+	var header = Buffer.alloc(4);
+	header.writeUInt32BE(body.length, 0);
+	process.stdout.write(Buffer.concat([header, body]));
+}
+
+function resolve(name) {
+	return require.resolve(name, {paths: modulePaths});
+}
+
+function transform(file, options) {
+	if(tool === 'swc') {
+		// the same options as the swc cli with --no-swcrc, a configured swcrc is the only config file read
+		var swcOptions = {filename: file.name, swcrc: false, envName: 'production', module: {type: 'commonjs', strict: true, noInterop: true}};
+		if(options.swcrc) {
+			swcOptions.configFile = options.swcrc;
+		}
+		return transformer.transformSync(file.source, swcOptions).code;
+	}
+	return transformer.transformSync(file.source, {filename: file.name, babelrc: false, configFile: false, presets: [presetEnv]}).code;
+}
+
+try {
+	if(tool === 'swc') {
+		transformer = require(resolve('@swc/core'));
+	} else {
+		transformer = require(resolve('@babel/core'));
+		presetEnv = resolve('@babel/preset-env');
+	}
+	send({ready: true});
+} catch(e) {
+	send({ready: false, error: String(e && e.message || e)});
+	process.exit(1);
+}
+
+var pending = Buffer.alloc(0);
+process.stdin.on('data', function(chunk) {
+	pending = Buffer.concat([pending, chunk]);
+	while(pending.length >= 4) {
+		var length = pending.readUInt32BE(0);
+		if(pending.length < 4 + length) {
+			break;
+		}
+		var request = JSON.parse(pending.slice(4, 4 + length).toString('utf8'));
+		pending = pending.slice(4 + length);
+		var results = request.files.map(function(file) {
+			try {
+				return {code: transform(file, request.options || {})};
+			} catch(e) {
+				return {error: String(e && e.message || e)};
+			}
+		});
+		send({id: request.id, results: results});
+	}
+});
+process.stdin.on('end', function() {
+	process.exit(0);
+});
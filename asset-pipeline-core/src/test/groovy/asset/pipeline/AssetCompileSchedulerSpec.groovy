@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package asset.pipeline
+
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+
+class AssetCompileSchedulerSpec extends Specification {
+
+    void "should order dependencies before dependents"() {
+        expect:
+            AssetCompileScheduler.sortDependenciesFirst(['app.js', 'a.js', 'b.js', 'site.css'], ['app.js': ['b.js', 'a.js'], 'b.js': ['a.js']]) == ['a.js', 'b.js', 'app.js', 'site.css']
+    }
+
+    void "should break circular dependencies"() {
+        expect:
+            AssetCompileScheduler.sortDependenciesFirst(['a.css', 'b.css'], ['a.css': ['b.css'], 'b.css': ['a.css']]) == ['b.css', 'a.css']
+    }
+
+    @Timeout(10)
+    void "should run each task once after its dependencies"() {
+        given:
+            def scheduler = new AssetCompileScheduler(4)
+            def completed = new ConcurrentLinkedQueue<String>()
+            def tasks = ['app.js', 'a.js', 'b.js', 'c.js'].collectEntries { path ->
+                [(path): { -> sleep(path == 'a.js' ? 100 : 0); completed << path }]
+            }
+        when:
+            scheduler.run(tasks, ['app.js': ['a.js', 'b.js'], 'b.js': ['a.js']])
+        then:
+            completed.size() == 4
+            completed.toList().indexOf('a.js') < completed.toList().indexOf('b.js')
+            completed.toList().indexOf('b.js') < completed.toList().indexOf('app.js')
+        cleanup:
+            scheduler.shutdown()
+    }
+
+    @Timeout(10)
+    void "should cancel the build on the first failure"() {
+        given:
+            def scheduler = new AssetCompileScheduler(2)
+            def runs = new AtomicInteger()
+            def tasks = ['broken.js': { -> throw new IllegalStateException('broken') }]
+            (1..20).each { index -> tasks["file${index}.js".toString()] = { -> runs.incrementAndGet(); sleep(50) } }
+        when:
+            scheduler.run(tasks, ['file1.js': ['broken.js']])
+        then:
+            def ex = thrown(IllegalStateException)
+            ex.message == 'broken'
+            runs.get() < 20
+            scheduler.pool.isShutdown()
+    }
+
+    @Timeout(30)
+    void "should rethrow the failure of the last task to finish"() {
+        when:
+            int rethrown = (1..200).count {
+                def scheduler = new AssetCompileScheduler(2)
+                try {
+                    scheduler.run(['broken.js': { -> throw new IllegalStateException('broken') }], [:])
+                    return false
+                } catch(IllegalStateException ex) {
+                    return true
+                } finally {
+                    scheduler.shutdown()
+                }
+            }
+        then:
+            rethrown == 200
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import asset.pipeline.fs.AssetResolver
+import asset.pipeline.fs.FileSystemAssetResolver
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.nio.file.Files
+
+/**
+ * Checks the compiler bookkeeping on a small tree served by two resolvers and that its cost grows linearly with the
+ * number of assets. Its cost on 100k assets is measured by {@code AssetCompilerScaleBenchmark} in the jmh source set.
+ */
+class AssetCompilerDeduplicationSpec extends Specification {
+    static final int DIRECTORIES = 3
+    static final int FILES_PER_DIRECTORY = 10
+    static final int ASSET_COUNT = DIRECTORIES * FILES_PER_DIRECTORY
+    /** Ten times the assets may take at most this many times as long, quadratic bookkeeping takes about a hundred */
+    static final int MAX_SCALING_RATIO = 30
+    /** Runs faster than this are timer noise, not a measure of the bookkeeping */
+    static final long MIN_MEASURED_NANOS = 20_000_000L
+
+    @Shared File assetsDir
+    File compileDir
+    Collection<AssetResolver> originalResolvers
+
+    def setupSpec() {
+        assetsDir = Files.createTempDirectory('asset-compiler-dedup').toFile()
+        for(int directory = 0; directory < DIRECTORIES; directory++) {
+            File scriptDir = new File(assetsDir, "javascripts/module${directory}")
+            File imageDir = new File(assetsDir, "images/module${directory}")
+            scriptDir.mkdirs()
+            imageDir.mkdirs()
+            for(int index = 0; index < FILES_PER_DIRECTORY; index++) {
+                new File(index % 2 ? imageDir : scriptDir, index % 2 ? "image${index}.png" : "file${index}.js").text = "${index}"
+            }
+        }
+    }
+
+    def cleanupSpec() {
+        assetsDir?.deleteDir()
+    }
+
+    def setup() {
+        compileDir = Files.createTempDirectory('asset-compiler-dedup-compiled').toFile()
+        originalResolvers = AssetPipelineConfigHolder.resolvers
+        // the same tree twice so every path has a duplicate to remove
+        AssetPipelineConfigHolder.resolvers = [new FileSystemAssetResolver('first', assetsDir.canonicalPath), new FileSystemAssetResolver('second', assetsDir.canonicalPath)]
+    }
+
+    def cleanup() {
+        AssetPipelineConfigHolder.resolvers = originalResolvers
+        compileDir.deleteDir()
+    }
+
+    void "should deduplicate assets served by more than one resolver"() {
+        given:
+            AssetCompiler assetCompiler = new AssetCompiler([compileDir: compileDir.canonicalPath])
+        when:
+            def assets = assetCompiler.getAllAssets()
+            def descriptors = assetCompiler.getAllAssetDescriptors()
+        then:
+            assets.size() == ASSET_COUNT
+            descriptors.size() == ASSET_COUNT
+            assets.collect { it.path } == descriptors.collect { it.path }
+            assets.collect { it.path }.toSet().size() == ASSET_COUNT
+    }
+
+    void "should drop only the removed assets when diffing the manifest"() {
+        given:
+            AssetCompiler assetCompiler = new AssetCompiler([compileDir: compileDir.canonicalPath])
+            def assets = assetCompiler.getAllAssetDescriptors()
+            assets.each { AssetDescriptor asset ->
+                assetCompiler.manifestProperties.setProperty(asset.path, asset.path)
+            }
+            new File(compileDir, 'removed.js').text = 'removed'
+            new File(compileDir, 'removed-abc.js.gz').text = 'removed'
+            assetCompiler.manifestProperties.setProperty('removed.js', 'removed-abc.js')
+            assetCompiler.initializeWorkspace()
+        when:
+            assetCompiler.removeDeletedFiles(assets)
+        then:
+            !new File(compileDir, 'removed.js').exists()
+            !new File(compileDir, 'removed-abc.js.gz').exists()
+            assetCompiler.manifestProperties.isEmpty()
+    }
+
+    @Timeout(120)
+    void "should scale the bookkeeping linearly with the number of assets"() {
+        given:
+            File smallTree = createTree('asset-compiler-scale-small', 10, 100)
+            File largeTree = createTree('asset-compiler-scale-large', 100, 100)
+            // warm up the scan and diff so the small tree is not measured on cold code
+            bookkeepingNanos(smallTree)
+        when:
+            long smallNanos = Math.max(bookkeepingNanos(smallTree), MIN_MEASURED_NANOS)
+            long largeNanos = bookkeepingNanos(largeTree)
+        then:
+            largeNanos < smallNanos * MAX_SCALING_RATIO
+        cleanup:
+            smallTree?.deleteDir()
+            largeTree?.deleteDir()
+    }
+
+    private static File createTree(String prefix, int directories, int filesPerDirectory) {
+        File root = Files.createTempDirectory(prefix).toFile()
+        for(int directory = 0; directory < directories; directory++) {
+            File scriptDir = new File(root, "javascripts/module${directory}")
+            File imageDir = new File(root, "images/module${directory}")
+            scriptDir.mkdirs()
+            imageDir.mkdirs()
+            for(int index = 0; index < filesPerDirectory; index++) {
+                new File(index % 2 ? imageDir : scriptDir, index % 2 ? "image${index}.png" : "file${index}.js").text = "${index}"
+            }
+        }
+        return root
+    }
+
+    /**
+     * The fastest of a few runs of deduplicating the tree served twice and diffing a manifest listing every asset
+     * against it. The tree is scanned beforehand, walking the file system would hide the cost of the bookkeeping.
+     */
+    private long bookkeepingNanos(File tree) {
+        AssetPipelineConfigHolder.resolvers = [new FileSystemAssetResolver('first', tree.canonicalPath), new FileSystemAssetResolver('second', tree.canonicalPath)]
+        List<AssetFile> scanned = AssetPipelineConfigHolder.resolvers.collectMany { it.scanForFiles([], []) }
+        List<AssetDescriptor> descriptors = new AssetCompiler([compileDir: compileDir.canonicalPath]).getAllAssetDescriptors()
+        long fastest = Long.MAX_VALUE
+        3.times {
+            AssetCompiler assetCompiler = new AssetCompiler([compileDir: compileDir.canonicalPath])
+            descriptors.each { AssetDescriptor asset ->
+                assetCompiler.manifestProperties.setProperty(asset.path, asset.path)
+            }
+            assetCompiler.manifestProperties.setProperty('removed.js', 'removed-abc.js')
+            assetCompiler.initializeWorkspace()
+            long start = System.nanoTime()
+            AssetHelper.uniqueByPath(scanned)
+            assetCompiler.removeDeletedFiles(descriptors)
+            fastest = Math.min(fastest, System.nanoTime() - start)
+        }
+        return fastest
+    }
+}
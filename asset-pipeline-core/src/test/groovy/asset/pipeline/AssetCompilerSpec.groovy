@@ -0,0 +1,249 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import asset.pipeline.compression.GzipEncoder
+import asset.pipeline.compression.PrecompressionEncoder
+import asset.pipeline.fs.AssetResolver
+import asset.pipeline.fs.FileSystemAssetResolver
+import asset.pipeline.processors.CssMinifyPostProcessor
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.concurrent.CountDownLatch
+import java.util.zip.GZIPInputStream
+
+class AssetCompilerSpec extends Specification {
+    static final byte[] VIDEO = (0..<300000).collect { (byte) (it % 251) } as byte[]
+
+    File assetsDir
+    File compileDir
+    Collection<AssetResolver> originalResolvers
+
+    def setup() {
+        File workDir = Files.createTempDirectory('asset-compiler').toFile()
+        assetsDir = new File(workDir, 'assets')
+        compileDir = new File(workDir, 'compiled')
+        new File(assetsDir, 'videos').mkdirs()
+        new File(assetsDir, 'javascripts').mkdirs()
+        new File(assetsDir, 'videos/intro.mp4').bytes = VIDEO
+        new File(assetsDir, 'javascripts/app.js').text = "var app = true;\n"
+        originalResolvers = AssetPipelineConfigHolder.resolvers
+        AssetPipelineConfigHolder.resolvers = [new FileSystemAssetResolver('application', assetsDir.canonicalPath)]
+    }
+
+    def cleanup() {
+        AssetPipelineConfigHolder.resolvers = originalResolvers
+        assetsDir.parentFile.deleteDir()
+    }
+
+    void "should copy generic files under their digest without leaving temporary files"() {
+        when:
+            compile([:])
+            File digested = new File(compileDir, digestedName('intro.mp4'))
+        then:
+            digestedName('intro.mp4') == "intro-${AssetHelper.getByteDigest(VIDEO)}.mp4"
+            digested.bytes == VIDEO
+            new File(compileDir, 'intro.mp4').bytes == VIDEO
+            !Files.isSameFile(digested.toPath(), new File(assetsDir, 'videos/intro.mp4').toPath())
+            new File(compileDir, 'app.js').text.contains("var app = true;")
+            !compileDir.listFiles().any { it.name.endsWith('.tmp') }
+    }
+
+    void "should hard link generic files when enabled"() {
+        when:
+            compile(linkGenericAssets: true)
+        then:
+            Files.isSameFile(new File(compileDir, digestedName('intro.mp4')).toPath(), new File(assetsDir, 'videos/intro.mp4').toPath())
+            new File(compileDir, 'intro.mp4').bytes == VIDEO
+    }
+
+    void "should compile the same output from descriptors within the in flight budget"() {
+        given:
+            new File(assetsDir, 'javascripts/other.js').text = "var other = app;\n"
+            new File(assetsDir, 'videos/intro.webm').bytes = VIDEO
+        when:
+            compile([:])
+            Map<String, byte[]> unbounded = compileDir.listFiles().findAll { it.name != 'asset-dependency-graph.json' }.collectEntries { [(it.name): it.bytes] }
+            compileDir.deleteDir()
+            AssetCompiler assetCompiler = compile(boundedHeap: true, maxInFlightBytes: 1000)
+        then:
+            assetCompiler.filesToProcess.every { it instanceof AssetDescriptor }
+            assetCompiler.filesToProcess.last().generic
+            unbounded.every { String name, byte[] bytes -> name == 'manifest.properties' || new File(compileDir, name).bytes == bytes }
+            digestedName('intro.webm') == "intro-${AssetHelper.getByteDigest(VIDEO)}.webm"
+            assetCompiler.inFlightBudget.peakInFlight <= 1000
+            assetCompiler.inFlightBudget.peakHeapUsed > 0
+    }
+
+    void "should hold back acquisitions beyond the budget until bytes are released"() {
+        given:
+            InFlightBudget budget = new InFlightBudget(100)
+            long first = budget.acquire(80)
+            long oversized = 0
+            Thread waiting = Thread.start { oversized = budget.acquire(500) }
+        when:
+            waiting.join(200)
+        then:
+            first == 80
+            waiting.alive
+            budget.inFlight == 80
+        when:
+            budget.release(first)
+            waiting.join(5000)
+        then:
+            oversized == 100
+            budget.inFlight == 100
+            budget.peakInFlight == 100
+    }
+
+    void "should hold the compiled output instead of the source in the budget"() {
+        given:
+            InFlightBudget budget = new InFlightBudget(100)
+            long held = budget.acquire(10)
+            long waiting = -1
+        when: "the output turns out larger than the source"
+            held = budget.adjust(held, 90)
+            Thread next = Thread.start { waiting = budget.acquire(50) }
+            next.join(200)
+        then: "the budget grows without blocking and holds back the next task"
+            held == 90
+            budget.inFlight == 90
+            next.alive
+        when:
+            held = budget.adjust(held, 20)
+            next.join(5000)
+        then: "shrinking lets it in"
+            waiting == 50
+            budget.inFlight == 70
+        when:
+            budget.release(held)
+            budget.release(waiting)
+        then:
+            budget.inFlight == 0
+            budget.peakInFlight == 90
+    }
+
+    void "should compress and write in their own stages and report their utilisation"() {
+        when:
+            AssetCompiler assetCompiler = compile(compressThreads: 1, writerThreads: 1, stageQueueSize: 1)
+        then:
+            assetCompiler.compileStages*.name == ['scan', 'process', 'compress', 'write']
+            assetCompiler.compileStages.every { it.completed > 0 && it.utilisation >= 0d && it.utilisation <= 1d }
+            new GZIPInputStream(new File(compileDir, 'app.js.gz').newInputStream()).text == new File(compileDir, 'app.js').text
+            new File(compileDir, "${digestedName('app.js')}.gz").exists()
+            !compileDir.listFiles().any { it.name.endsWith('.tmp') }
+    }
+
+    void "should remove pending files left behind by a killed build"() {
+        given:
+            new File(compileDir, 'nested').mkdirs()
+            File stale = new File(compileDir, ".app.js.${UUID.randomUUID()}.tmp")
+            File nestedStale = new File(compileDir, "nested/.intro.mp4.gz.${UUID.randomUUID()}.tmp")
+            File unrelated = new File(compileDir, 'notes.tmp')
+            [stale, nestedStale, unrelated]*.text = 'stale'
+        when:
+            AssetCompiler assetCompiler = compile([:])
+        then:
+            !stale.exists()
+            !nestedStale.exists()
+            unrelated.exists()
+            assetCompiler.compileStages.find { it.name == 'write' }.completed > 0
+            new File(compileDir, 'app.js').text.contains("var app = true;")
+    }
+
+    void "should read the output once for the plain files and every encoder"() {
+        given:
+            compileDir.mkdirs()
+            byte[] output = (0..<100000).collect { (byte) (it % 31) } as byte[]
+            int reads = 0
+            Closure<InputStream> openSource = { -> reads++; new ByteArrayInputStream(output) }
+            List<File> plainFiles = [new File(compileDir, 'app.js'), new File(compileDir, 'app-abc.js')]
+            Map<PrecompressionEncoder, List<File>> encoderTargets = [
+                (new GzipEncoder(1)): [new File(compileDir, 'app.js.gz')],
+                (new GzipEncoder(9)): [new File(compileDir, 'app-abc.js.gz')]
+            ]
+            Map<File, File> pendingFiles = [:]
+        when:
+            AssetCompiler.encodeToPendingFiles(encoderTargets, plainFiles, openSource, pendingFiles)
+            AssetCompiler.publishPendingFiles(pendingFiles)
+        then:
+            reads == 1
+            plainFiles.every { it.bytes == output }
+            new GZIPInputStream(new File(compileDir, 'app.js.gz').newInputStream()).bytes == output
+            new GZIPInputStream(new File(compileDir, 'app-abc.js.gz').newInputStream()).bytes == output
+            !compileDir.listFiles().any { it.name.endsWith('.tmp') }
+    }
+
+    void "should fail the build when writing a compiled file fails"() {
+        given:
+            new File(compileDir, 'app.js/occupied').mkdirs()
+        when:
+            compile([:])
+        then:
+            thrown(IOException)
+            !compileDir.listFiles().any { it.name.endsWith('.tmp') }
+    }
+
+    void "should fail the build when minifying a stylesheet fails"() {
+        given:
+            new File(assetsDir, 'stylesheets').mkdirs()
+            new File(assetsDir, 'stylesheets/app.css').text = "body { color: red; }\n"
+            AssetPipelineConfigHolder.resolvers = [new FileSystemAssetResolver('application', assetsDir.canonicalPath)]
+            CssMinifyPostProcessor.metaClass.process = { Object inputText -> throw new IllegalStateException('minifier failed') }
+        when:
+            compile(minifyCss: true)
+        then:
+            IllegalStateException ex = thrown()
+            ex.message == 'minifier failed'
+            !new File(compileDir, 'app.css').exists()
+        cleanup:
+            GroovySystem.metaClassRegistry.removeMetaClass(CssMinifyPostProcessor)
+    }
+
+    void "should block submissions to a stage while its queue is full"() {
+        given:
+            CompileStage stage = new CompileStage('write', 1, 1)
+            CountDownLatch release = new CountDownLatch(1)
+            stage.submit { -> release.await() }
+            stage.submit { -> null }
+            Thread submitting = Thread.start { stage.submit { -> null }.join() }
+        when:
+            submitting.join(200)
+        then:
+            submitting.alive
+        when:
+            release.countDown()
+            submitting.join(5000)
+        then:
+            !submitting.alive
+            stage.completed == 3
+        cleanup:
+            stage.shutdown()
+    }
+
+    private AssetCompiler compile(Map options) {
+        AssetCompiler assetCompiler = new AssetCompiler([compileDir: compileDir.canonicalPath, maxThreads: 2] + options)
+        assetCompiler.compile()
+        return assetCompiler
+    }
+
+    private String digestedName(String name) {
+        def manifest = new Properties()
+        new File(compileDir, 'manifest.properties').withReader { manifest.load(it) }
+        return manifest.getProperty(name)
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package asset.pipeline
+
+import spock.lang.Specification
+
+class AssetSpecMatcherSpec extends Specification {
+    static class LongExtensionAssetFile extends AbstractAssetFile {
+        static final List<String> contentType = ['application/javascript']
+        static List<String> extensions = ['min.js', 'js']
+        static String compiledExtension = 'js'
+        static processors = []
+    }
+
+    void "should match the longest extension of any spec"() {
+        given:
+            def matcher = new AssetSpecMatcher([JsAssetFile, LongExtensionAssetFile, CssAssetFile])
+        expect:
+            matcher.specForFileName(fileName) == spec
+            matcher.extensionForFileName(fileName) == extension
+        where:
+            fileName                 | spec                   | extension
+            'app.js'                 | JsAssetFile            | 'js'
+            'vendor/jquery.min.js'   | LongExtensionAssetFile | 'min.js'
+            'site.css'               | CssAssetFile           | 'css'
+            'notes.txt'              | null                   | null
+            'js'                     | null                   | null
+            'folder.css/readme'      | null                   | null
+    }
+
+    void "should match the extensions of a single spec"() {
+        given:
+            def matcher = new AssetSpecMatcher([JsAssetFile, LongExtensionAssetFile])
+        expect:
+            matcher.extensionForFileName('jquery.min.js', LongExtensionAssetFile) == 'min.js'
+            matcher.extensionForFileName('jquery.min.js', JsAssetFile) == 'js'
+            matcher.extensionForFileName('jquery.min.js', CssAssetFile) == null
+            !matcher.isKnownSpec(CssAssetFile)
+    }
+
+    void "should list specs by content type and extension in registration order"() {
+        given:
+            def matcher = new AssetSpecMatcher([JsAssetFile, LongExtensionAssetFile, CssAssetFile])
+        expect:
+            matcher.specsForContentType('application/javascript') == [JsAssetFile, LongExtensionAssetFile]
+            matcher.specsForContentType('text/css') == [CssAssetFile]
+            matcher.specsForContentType('image/png') == []
+            matcher.specsForExtension('js') == [JsAssetFile, LongExtensionAssetFile]
+            matcher.specsForExtension(null) == []
+    }
+
+    void "should rebuild the helper matcher when specs are added"() {
+        given:
+            def matcher = AssetHelper.specMatcher
+        when:
+            AssetHelper.assetSpecs << (Class<AssetFile>) LongExtensionAssetFile
+        then:
+            AssetHelper.specMatcher != matcher
+            AssetHelper.assetForFileName('jquery.min.js') == LongExtensionAssetFile
+            AssetHelper.fileNameWithoutExtensionFromArtefact('jquery.min.js', new LongExtensionAssetFile()) == 'jquery'
+        cleanup:
+            AssetHelper.assetSpecs.remove(LongExtensionAssetFile)
+            AssetHelper.resetSpecMatcher()
+    }
+}
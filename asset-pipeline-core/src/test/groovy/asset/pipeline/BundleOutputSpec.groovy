@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import asset.pipeline.fs.FileSystemAssetResolver
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class BundleOutputSpec extends Specification {
+
+    void "should stream the prefix ahead of the contents and digest them together"() {
+        given:
+            def bundle = new BundleOutput('UTF-8')
+        when:
+            bundle.writer.append('body ü')
+            bundle.prefix = 'prefix;'
+        then:
+            bundle.newInputStream().getText('UTF-8') == 'prefix;body ü'
+            bundle.text == 'prefix;body ü'
+            bundle.length == 'prefix;body ü'.getBytes('UTF-8').length
+            bundle.digest == AssetHelper.getByteDigest('prefix;body ü'.getBytes('UTF-8'))
+            !bundle.spilled
+        cleanup:
+            bundle?.close()
+    }
+
+    void "should spill large bundles to a temporary file removed on close"() {
+        given:
+            File spillDirectory = Files.createTempDirectory('bundle-output-spec').toFile()
+            def bundle = new BundleOutput('UTF-8', spillDirectory, 1024)
+            String part = 'x' * 700
+        when:
+            3.times { bundle.writer.append(part).append('\n') }
+            bundle.writer.flush()
+        then:
+            bundle.spilled
+            spillDirectory.listFiles().size() == 1
+            bundle.text == (part + '\n') * 3
+        when:
+            bundle.close()
+        then:
+            spillDirectory.listFiles().size() == 0
+        cleanup:
+            spillDirectory?.deleteDir()
+    }
+
+    void "should compile the same bundle as a string compile"() {
+        given:
+            File assetsDir = Files.createTempDirectory('bundle-output-assets').toFile()
+            new File(assetsDir, 'javascripts/bundle').mkdirs()
+            new File(assetsDir, 'javascripts/bundle/dependency.js').text = "module.exports = 'dependency';"
+            new File(assetsDir, 'javascripts/bundle/main.js').text = "//= require_self\nvar dependency = require('./dependency');"
+            def resolver = new FileSystemAssetResolver('application', assetsDir.path)
+            AssetPipelineConfigHolder.resolvers = []
+            AssetPipelineConfigHolder.registerResolver(resolver)
+            AssetPipelineConfigHolder.config = [commonJs: true, cacheLocation: TemporaryCacheLocationExtension.CACHE_LOCATION]
+            def file = resolver.getAsset('bundle/main', 'application/javascript', 'js')
+        when:
+            String compiled = new DirectiveProcessor('application/javascript').compile(file)
+            def bundle = new DirectiveProcessor('application/javascript').compileBundle(file)
+        then:
+            compiled.contains("_asset_pipeline_modules['bundle/dependency.js']")
+            bundle.text == compiled
+            bundle.digest == AssetHelper.getByteDigest(compiled.bytes)
+        cleanup:
+            bundle?.close()
+            assetsDir?.deleteDir()
+    }
+}
@@ -112,4 +112,134 @@ class CacheManagerSpec extends Specification {
             assert cacheMiss
             CacheManager.cache[testFileName] == null
     }
+
+    void "should update cache records concurrently without losing dependencies"() {
+        given:
+            CacheManager.cache.remove('concurrent.js')
+        when:
+            def threads = (0..<8).collect { t ->
+                Thread.start {
+                    4.times { i ->
+                        CacheManager.addCacheModule('concurrent.js', "module-${t}-${i}".toString(), "content")
+                    }
+                }
+            }
+            threads*.join()
+        then:
+            CacheManager.cache['concurrent.js'].requireModules.size() == 32
+
+        when:
+            CacheManager.cache['concurrent.js'].requireModules['other'] = 'mutation'
+        then:
+            thrown(UnsupportedOperationException)
+    }
+
+    void "should only rehash dependencies whose stat changed"() {
+        given:
+            def testFile = new File('assets/stylesheets/asset-pipeline/test/test.css')
+            def testFileName = testFile.name
+            def testMd5 = AssetHelper.getByteDigest(testFile.bytes)
+            def dependentFile = new File('assets/stylesheets/asset-pipeline/test/_dependent.css')
+            dependentFile.text = "/*Cache Manager Stat Test A*/"
+            long lastModified = dependentFile.lastModified()
+            CacheManager.createCache(testFileName, testMd5, testFile.text)
+            CacheManager.addCacheDependency(testFileName, AssetHelper.fileForUri('asset-pipeline/test/_dependent','text/css','css'))
+
+        when: "the content changes without changing size or modification time"
+            dependentFile.text = "/*Cache Manager Stat Test B*/"
+            dependentFile.setLastModified(lastModified)
+        then: "the dependency is not rehashed"
+            CacheManager.findCache(testFileName, testMd5)?.processedFileText == testFile.text
+
+        when: "the modification time changes but the content is the same"
+            dependentFile.text = "/*Cache Manager Stat Test A*/"
+            dependentFile.setLastModified(lastModified - 10000)
+            def cacheRecord = CacheManager.findCache(testFileName, testMd5)
+        then: "the dependency is rehashed and its new stat recorded"
+            cacheRecord?.processedFileText == testFile.text
+            cacheRecord.dependencyStats['asset-pipeline/test/_dependent.css'] == "${dependentFile.length()}:${lastModified - 10000}".toString()
+
+        when: "the content and stat change"
+            dependentFile.text = "/*Cache Manager Stat Test Changed*/"
+        then:
+            CacheManager.findCache(testFileName, testMd5) == null
+
+        cleanup:
+            dependentFile.delete()
+    }
+
+    void "should memoize dependency validation within a validation scope"() {
+        given:
+            def testFile = new File('assets/stylesheets/asset-pipeline/test/test.css')
+            def testMd5 = AssetHelper.getByteDigest(testFile.bytes)
+            def dependentFile = new File('assets/stylesheets/asset-pipeline/test/_dependent.css')
+            dependentFile.text = "/*Cache Manager Scope Test*/"
+            def dependentAssetFile = AssetHelper.fileForUri('asset-pipeline/test/_dependent','text/css','css')
+            ['scoped-a.css', 'scoped-b.css'].each { String name ->
+                CacheManager.createCache(name, testMd5, testFile.text)
+                CacheManager.addCacheDependency(name, dependentAssetFile)
+            }
+
+        when:
+            def results = CacheManager.withValidationScope {
+                def first = CacheManager.findCache('scoped-a.css', testMd5)
+                dependentFile.text = "/*Cache Manager Scope Test Changed*/"
+                [first, CacheManager.findCache('scoped-b.css', testMd5)]
+            }
+        then: "the dependency is checked once per scope"
+            results.every { it != null }
+            CacheManager.findCache('scoped-b.css', testMd5) == null
+
+        cleanup:
+            dependentFile.delete()
+    }
+
+    void "should evict persisted records beyond the cache budget and reload them from the store"() {
+        given:
+            def originalConfig = AssetPipelineConfigHolder.config
+            AssetPipelineConfigHolder.config = (originalConfig ?: [:]) + [cacheMaxWeight: 64 * 1024, cacheCompression: compression]
+            def texts = (0..<10).collect { (0..<600).collect { UUID.randomUUID().toString() }.join('') }
+        when:
+            (0..<10).each { i -> CacheManager.createCache("evict-${i}.css".toString(), "md5-${i}".toString(), texts[i]) }
+            CacheManager.save()
+        then:
+            CacheManager.cache.size() < 10
+            CacheManager.evictionPolicy.weightedSize <= 64 * 1024
+            (0..<10).every { i -> CacheManager.findCache("evict-${i}.css".toString(), "md5-${i}".toString())?.processedFileText == texts[i] }
+
+        cleanup:
+            AssetPipelineConfigHolder.config = originalConfig
+        where:
+            compression << [false, true]
+    }
+
+    void "should keep records dirty when the store fails to write them"() {
+        given:
+            def originalStore = CacheManager.cacheStore
+            CacheManager.save()
+            def failingStore = new CacheStore(new File(TemporaryCacheLocationExtension.CACHE_LOCATION + '-failing')) {
+                @Override
+                void write(Map<String, Map<String, Object>> puts) {
+                    throw new IOException("disk full")
+                }
+            }
+            failingStore.reset(originalStore.configDigest)
+            CacheManager.cacheStore = failingStore
+            CacheManager.createCache('unsaved.css', 'md5-unsaved', 'body {}')
+        when:
+            CacheManager.save()
+        then:
+            thrown(IOException)
+            CacheManager.dirtyKeys.contains('unsaved.css')
+
+        when:
+            CacheManager.cacheStore = originalStore
+            CacheManager.save()
+        then:
+            !CacheManager.dirtyKeys.contains('unsaved.css')
+            originalStore.read('unsaved.css')?.processedFileText == 'body {}'
+
+        cleanup:
+            CacheManager.cacheStore = originalStore
+    }
 }
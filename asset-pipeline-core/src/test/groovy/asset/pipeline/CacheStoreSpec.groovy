@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package asset.pipeline
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class CacheStoreSpec extends Specification {
+    File storeFile
+
+    def setup() {
+        storeFile = new File(Files.createTempDirectory('asset-cache').toFile(), '.assetcache')
+    }
+
+    def cleanup() {
+        storeFile.parentFile.deleteDir()
+    }
+
+    void "should persist records and read them back lazily"() {
+        given:
+            def store = new CacheStore(storeFile)
+            store.open()
+            store.reset('digest')
+        when:
+            store.write([
+                'app.js': [md5: 'abc', originalFileName: null, processedFileText: 'var a = "é";', requireModules: [mod: 'content'], dependencies: ['lib/a.js': 'def']],
+                'site.css': [md5: 'xyz', originalFileName: 'site.css', processedFileText: 'body {}', requireModules: [:], dependencies: [:]]
+            ])
+            def reopened = new CacheStore(storeFile)
+            reopened.open()
+        then:
+            reopened.configDigest == 'digest'
+            reopened.keys() == ['app.js', 'site.css'] as Set
+            reopened.read('app.js') == [md5: 'abc', originalFileName: null, processedFileText: 'var a = "é";', requireModules: [mod: 'content'], dependencies: ['lib/a.js': 'def']]
+            reopened.read('site.css').processedFileText == 'body {}'
+            reopened.read('missing.js') == null
+    }
+
+    void "should append updates and removals"() {
+        given:
+            def store = new CacheStore(storeFile)
+            store.open()
+            store.reset('digest')
+            store.write(['app.js': [md5: 'one'], 'site.css': [md5: 'two']])
+            long initialLength = storeFile.length()
+        when:
+            store.write(['app.js': [md5: 'three']])
+            store.remove('site.css')
+            store.write([:])
+            def reopened = new CacheStore(storeFile)
+            reopened.open()
+        then:
+            storeFile.length() > initialLength
+            store.read('app.js').md5 == 'three'
+            reopened.read('app.js').md5 == 'three'
+            !reopened.contains('site.css')
+    }
+
+    void "should compact a store made up mostly of superseded entries"() {
+        given:
+            def store = new CacheStore(storeFile)
+            store.open()
+            store.reset('digest')
+            store.write(['app.js': [md5: 'initial']])
+        when:
+            (CacheStore.COMPACTION_MIN_ENTRIES + 2).times { i ->
+                store.write(['app.js': [md5: "update-${i}".toString()]])
+            }
+            def reopened = new CacheStore(storeFile)
+            reopened.open()
+        then:
+            storeFile.length() < 1024
+            reopened.read('app.js').md5 == "update-${CacheStore.COMPACTION_MIN_ENTRIES + 1}"
+    }
+
+    void "should keep appended entries that were never mapped when compacting"() {
+        given:
+            def store = new CacheStore(storeFile)
+            store.open()
+            store.reset('digest')
+            store.write(['app.js': [md5: 'initial']])
+            store.write(['site.css': [md5: 'appended']])
+        when:
+            (CacheStore.COMPACTION_MIN_ENTRIES + 2).times { i ->
+                store.write(['app.js': [md5: "update-${i}".toString()]])
+            }
+            def reopened = new CacheStore(storeFile)
+            reopened.open()
+        then:
+            store.read('site.css').md5 == 'appended'
+            reopened.read('site.css').md5 == 'appended'
+            reopened.read('app.js').md5 == "update-${CacheStore.COMPACTION_MIN_ENTRIES + 1}"
+            !new File(storeFile.parentFile, storeFile.name + '.tmp').exists()
+    }
+
+    void "should discard stores written in an older format or truncated mid write"() {
+        given:
+            storeFile.withObjectOutputStream { it.writeObject([configCacheBustDigest: 'digest', cache: ['app.js': [md5: 'abc']]]) }
+        when:
+            def store = new CacheStore(storeFile)
+            store.open()
+        then:
+            store.configDigest == null
+            store.keys().isEmpty()
+
+        when:
+            store.reset('digest')
+            store.write(['app.js': [md5: 'abc'], 'site.css': [md5: 'def']])
+            storeFile.bytes = storeFile.bytes[0..-3] as byte[]
+            store = new CacheStore(storeFile)
+            store.open()
+        then:
+            store.keys() == ['app.js'] as Set
+            store.read('app.js').md5 == 'abc'
+    }
+}
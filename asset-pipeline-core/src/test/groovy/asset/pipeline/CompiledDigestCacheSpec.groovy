@@ -0,0 +1,141 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package asset.pipeline
+
+import asset.pipeline.fs.FileSystemAssetResolver
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+class CompiledDigestCacheSpec extends Specification {
+
+    void "should compute a digest only once"() {
+        given:
+            def cache = new CompiledDigestCache()
+            def calls = new AtomicInteger()
+        when:
+            def first = cache.getDigest('app.css') { calls.incrementAndGet(); 'abc' }
+            def second = cache.getDigest('app.css') { calls.incrementAndGet(); 'def' }
+        then:
+            first == 'abc'
+            second == 'abc'
+            calls.get() == 1
+            cache.misses == 1
+            cache.hits == 1
+    }
+
+    void "should reuse digests stored by the compiler"() {
+        given:
+            def cache = new CompiledDigestCache()
+        when:
+            cache.putDigest('app.css', 'abc')
+        then:
+            cache.getDigest('app.css') { 'def' } == 'abc'
+            cache.hits == 1
+            cache.misses == 0
+    }
+
+    void "should share a digest being computed with concurrent lookups"() {
+        given:
+            def cache = new CompiledDigestCache()
+            def calls = new AtomicInteger()
+            def started = new CountDownLatch(1)
+            def pool = Executors.newFixedThreadPool(4)
+        when:
+            def futures = (1..8).collect {
+                pool.submit({ ->
+                    cache.getDigest('app.css') { started.countDown(); calls.incrementAndGet(); sleep(100); 'abc' }
+                } as java.util.concurrent.Callable)
+            }
+            def results = futures*.get()
+        then:
+            results.every { it == 'abc' }
+            calls.get() == 1
+        cleanup:
+            pool.shutdown()
+    }
+
+    void "should compute circular lookups directly instead of waiting on itself"() {
+        given:
+            def cache = new CompiledDigestCache()
+        when:
+            def digest = cache.getDigest('a.css') {
+                cache.getDigest('b.css') { cache.getDigest('a.css') { 'inner' } + '-b' } + '-a'
+            }
+        then:
+            digest == 'inner-b-a'
+    }
+
+    void "should not cache failures"() {
+        given:
+            def cache = new CompiledDigestCache()
+        when:
+            cache.getDigest('a.css') { throw new IllegalStateException('boom') }
+        then:
+            thrown(IllegalStateException)
+            cache.getDigest('a.css') { 'abc' } == 'abc'
+    }
+
+    void "should compile a referenced asset once per build"() {
+        given:
+            File workDir = Files.createTempDirectory('asset-digests').toFile()
+            File assetsDir = new File(workDir, 'assets')
+            new File(assetsDir, 'stylesheets').mkdirs()
+            // sorts after its referrers so they compile it first
+            new File(assetsDir, 'stylesheets/theme.css').text = ".theme { color: red; }"
+            (1..5).each { index ->
+                new File(assetsDir, "stylesheets/page${index}.css").text = "@import url('theme.css');\n.page${index} { color: blue; }"
+            }
+            def originalResolvers = AssetPipelineConfigHolder.resolvers
+            AssetPipelineConfigHolder.resolvers = [new FileSystemAssetResolver('application', assetsDir.canonicalPath)]
+            def compiler = new AssetCompiler([compileDir: new File(workDir, 'compiled').canonicalPath, maxThreads: 1])
+            Map<String, Integer> compiles = [:].withDefault { 0 }
+            MetaMethod compileBundle = DirectiveProcessor.metaClass.getMetaMethod('compileBundle', AssetFile)
+            DirectiveProcessor.metaClass.compileBundle = { AssetFile file ->
+                compiles[file.path]++
+                compileBundle.invoke(delegate, file)
+            }
+        when:
+            compiler.compile()
+        then: "the referenced asset is compiled once whether its own task or a referrer comes first"
+            compiles['theme.css'] == 1
+            compiles.values().every { it == 1 }
+            compiler.compiledDigests.hits >= 5
+        cleanup:
+            GroovySystem.metaClassRegistry.removeMetaClass(DirectiveProcessor)
+            AssetPipelineConfigHolder.resolvers = originalResolvers
+            workDir.deleteDir()
+    }
+
+    void "should hand a bundle compiled for a reference to the compile task of the asset"() {
+        given:
+            def cache = new CompiledDigestCache()
+            def bundle = new BundleOutput('UTF-8')
+            def recording = new DependencyGraph.Recording('icons.css')
+            recording.trees << 'tree|text/css|icons'
+        when:
+            cache.keepBundle('icons.css', bundle, recording)
+            def taken = cache.takeBundle('icons.css')
+        then:
+            taken.bundle.is(bundle)
+            taken.recording.trees == ['tree|text/css|icons'] as Set
+            cache.takeBundle('icons.css') == null
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package asset.pipeline
+
+import asset.pipeline.fs.AssetResolver
+import asset.pipeline.fs.FileSystemAssetResolver
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class DependencyGraphSpec extends Specification {
+    File assetsDir
+    File compileDir
+    Collection<AssetResolver> originalResolvers
+
+    def setup() {
+        File workDir = Files.createTempDirectory('asset-graph').toFile()
+        assetsDir = new File(workDir, 'assets')
+        compileDir = new File(workDir, 'compiled')
+        new File(assetsDir, 'javascripts/lib').mkdirs()
+        new File(assetsDir, 'stylesheets').mkdirs()
+        new File(assetsDir, 'javascripts/app.js').text = "//= require_tree lib\nvar app = true;"
+        new File(assetsDir, 'javascripts/lib/a.js').text = "var a = 1;"
+        new File(assetsDir, 'stylesheets/site.css').text = "body { color: red; }"
+        originalResolvers = AssetPipelineConfigHolder.resolvers
+        AssetPipelineConfigHolder.resolvers = [new FileSystemAssetResolver('application', assetsDir.canonicalPath)]
+    }
+
+    def cleanup() {
+        AssetPipelineConfigHolder.resolvers = originalResolvers
+        assetsDir.parentFile.deleteDir()
+    }
+
+    void "should skip assets whose inputs are unchanged"() {
+        given:
+            compile()
+            new File(compileDir, 'app.js').text = 'untouched'
+        when:
+            compile()
+        then:
+            new File(compileDir, 'app.js').text == 'untouched'
+            new File(compileDir, DependencyGraph.GRAPH_FILE).exists()
+    }
+
+    void "should recompile an asset when a required file changes"() {
+        given:
+            compile()
+            new File(compileDir, 'app.js').text = 'stale'
+        when:
+            new File(assetsDir, 'javascripts/lib/a.js').text = "var a = 2;"
+            compile()
+        then:
+            new File(compileDir, 'app.js').text.contains('var a = 2;')
+    }
+
+    void "should recompile an asset when a file is added to a required tree"() {
+        given:
+            compile()
+        when:
+            new File(assetsDir, 'javascripts/lib/b.js').text = "var b = 1;"
+            compile()
+        then:
+            new File(compileDir, 'app.js').text.contains('var b = 1;')
+    }
+
+    void "should remove outputs of deleted assets"() {
+        given:
+            compile()
+            def manifest = new Properties()
+            manifest.load(new File(compileDir, 'manifest.properties').newReader())
+            def digestedName = manifest.getProperty('site.css')
+        when:
+            new File(assetsDir, 'stylesheets/site.css').delete()
+            compile()
+            manifest = new Properties()
+            manifest.load(new File(compileDir, 'manifest.properties').newReader())
+        then:
+            digestedName != null
+            !new File(compileDir, digestedName).exists()
+            !new File(compileDir, 'site.css').exists()
+            manifest.getProperty('site.css') == null
+            manifest.getProperty('app.js') != null
+    }
+
+    private void compile() {
+        new AssetCompiler([compileDir: compileDir.canonicalPath, incremental: true, maxThreads: 2]).compile()
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import asset.pipeline.fs.AssetResolver
+import asset.pipeline.fs.FileSystemAssetResolver
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.concurrent.ForkJoinPool
+
+class DependencyScannerSpec extends Specification {
+    File assetsDir
+    Collection<AssetResolver> originalResolvers
+
+    def setup() {
+        assetsDir = Files.createTempDirectory('asset-dependency-scanner').toFile()
+        new File(assetsDir, 'javascripts/lib').mkdirs()
+        new File(assetsDir, 'stylesheets').mkdirs()
+        new File(assetsDir, 'images').mkdirs()
+        new File(assetsDir, 'javascripts/app.js').text = "//= require lib/util\n//= require_tree lib\nvar icon = asset_url('logo.png');\n"
+        new File(assetsDir, 'javascripts/lib/util.js').text = "var util = true;\n"
+        new File(assetsDir, 'stylesheets/page.css').text = "@import url('theme.css');\n.logo { background: url(\"logo.png?v=1#top\"); }\n.remote { background: url(http://example.com/a.png); }\n.missing { background: url(missing.png); }\n"
+        new File(assetsDir, 'stylesheets/theme.css').text = ".theme { color: red; }\n"
+        new File(assetsDir, 'images/logo.png').bytes = [1, 2, 3] as byte[]
+        originalResolvers = AssetPipelineConfigHolder.resolvers
+        AssetPipelineConfigHolder.resolvers = [new FileSystemAssetResolver('application', assetsDir.canonicalPath)]
+    }
+
+    def cleanup() {
+        AssetPipelineConfigHolder.resolvers = originalResolvers
+        assetsDir.deleteDir()
+    }
+
+    void "should find required files and referenced assets compiled in the same build"() {
+        given:
+            def scanner = new DependencyScanner(['app.js', 'lib/util.js', 'page.css', 'theme.css', 'logo.png'] as Set)
+        expect:
+            scanner.dependenciesOf(AssetHelper.fileForUri('app.js')) as Set == ['lib/util.js', 'logo.png'] as Set
+            scanner.dependenciesOf(AssetHelper.fileForUri('page.css')) as Set == ['theme.css', 'logo.png'] as Set
+            scanner.dependenciesOf(AssetHelper.fileForUri('theme.css')).isEmpty()
+    }
+
+    void "should drop dependencies on assets outside the build"() {
+        given:
+            def scanner = new DependencyScanner(['page.css', 'logo.png'] as Set)
+        expect:
+            scanner.dependenciesOf(AssetHelper.fileForUri('page.css')) as Set == ['logo.png'] as Set
+    }
+
+    void "should scan the assets on the pool"() {
+        given:
+            def files = ['app.js', 'lib/util.js', 'page.css', 'theme.css', 'logo.png'].collect { AssetHelper.fileForUri(it) }
+            def scanner = new DependencyScanner(files*.path as Set)
+            def pool = new ForkJoinPool(2)
+        when:
+            def dependencies = scanner.scan(files, pool)
+        then:
+            dependencies.keySet() == ['app.js', 'page.css'] as Set
+            dependencies['page.css'] as Set == ['theme.css', 'logo.png'] as Set
+        cleanup:
+            pool?.shutdown()
+    }
+}
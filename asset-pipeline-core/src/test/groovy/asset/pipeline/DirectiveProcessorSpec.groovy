@@ -46,5 +46,68 @@ class DirectiveProcessorSpec extends Specification {
         then:
         assetFile.matchedDirectives == ['foo', 'wrapped', 'camelCase', 'bar']
     }
-    
+
+    def "should only scan the header of a file for directives"() {
+        DirectiveProcessor directiveProcessor = new DirectiveProcessor('text/javascript')
+        String fileContent = """\
+            |/**
+            | * Library header
+            | */
+            |
+            |//= foo
+            |var a = 1;
+            |//= bar
+            |""".stripMargin()
+
+        AssetFile assetFile = new JsAssetFile(inputStreamSource: { new ByteArrayInputStream(fileContent.bytes) } )
+
+        when:
+        directiveProcessor.compile(assetFile)
+
+        then:
+        assetFile.matchedDirectives == ['foo']
+    }
+
+    def "should read the header up to the first line of code"() {
+        expect:
+        DirectiveScanner.header(new ByteArrayInputStream(content.bytes)) == header
+
+        where:
+        content                                         | header
+        "//= require a\n\n//= require b\nvar a;\n//= c" | "//= require a\n\n//= require b\n"
+        "/*\n *= require_self\n*/\n.a { }"              | "/*\n *= require_self\n*/\n"
+        "/* one line */\n#= require a\nclass A"         | "/* one line */\n#= require a\n"
+        "###\nblock\n###\n#= require a\nx = 1"         | "###\nblock\n###\n#= require a\n"
+        "'use strict';\n//= require a\nvar a;"         | "'use strict';\n//= require a\n"
+        "\"use strict\"\n//= require a"                 | "\"use strict\"\n//= require a\n"
+        "@charset \"UTF-8\";\n/*\n *= require a\n */"    | "@charset \"UTF-8\";\n/*\n *= require a\n */\n"
+        "@import 'base';\n//= require a\n.a { }"         | "@import 'base';\n//= require a\n"
+        "'use strict'; var a;\n//= require a"           | ""
+    }
+
+    def "should reuse compiled directive templates"() {
+        DirectiveProcessor directiveProcessor = new DirectiveProcessor('text/javascript')
+        String directive = 'require ${"templated"}'
+
+        when:
+        def arguments = directiveProcessor.directiveArgumentsFromGString(directive)
+
+        then:
+        arguments == ['require', 'templated'] as String[]
+        DirectiveProcessor.directiveTemplate(directiveProcessor.classLoader, directive).is(DirectiveProcessor.directiveTemplate(directiveProcessor.classLoader, directive))
+    }
+
+    def "should keep directive templates per class loader"() {
+        given:
+        String directive = 'require ${"templated"}'
+        ClassLoader loader = new URLClassLoader(new URL[0], getClass().classLoader)
+
+        when:
+        def template = DirectiveProcessor.directiveTemplate(loader, directive)
+
+        then:
+        DirectiveProcessor.directiveTemplate(loader, directive).is(template)
+        !DirectiveProcessor.directiveTemplate(getClass().classLoader, directive).is(template)
+        DirectiveProcessor.directiveTemplates instanceof WeakHashMap
+    }
 }
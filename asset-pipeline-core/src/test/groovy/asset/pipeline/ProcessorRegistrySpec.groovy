@@ -0,0 +1,188 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package asset.pipeline
+
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ProcessorRegistrySpec extends Specification {
+
+    def setup() {
+        CountingProcessor.reset()
+    }
+
+    void "should create and close a new instance per file by default"() {
+        given:
+            def registry = new ProcessorRegistry(null)
+        when:
+            def first = registry.acquire(PerFileProcessor)
+            registry.release(first)
+            def second = registry.acquire(PerFileProcessor)
+            registry.release(second)
+        then:
+            !first.is(second)
+            CountingProcessor.inits.get() == 2
+            CountingProcessor.closes.get() == 2
+    }
+
+    void "should share a single instance of shared processors"() {
+        given:
+            def registry = new ProcessorRegistry(null)
+        when:
+            def first = registry.acquire(SharedProcessor)
+            def second = registry.acquire(SharedProcessor)
+            registry.release(first)
+            registry.release(second)
+        then:
+            first.is(second)
+            CountingProcessor.inits.get() == 1
+            CountingProcessor.closes.get() == 0
+        when:
+            registry.close()
+        then:
+            CountingProcessor.closes.get() == 1
+    }
+
+    void "should not block other shared processors while one is initializing"() {
+        given:
+            def registry = new ProcessorRegistry(null)
+            SlowSharedProcessor.started = new CountDownLatch(1)
+            SlowSharedProcessor.proceed = new CountDownLatch(1)
+            def slow = null
+            def other = null
+        when:
+            Thread slowThread = Thread.start { slow = registry.acquire(SlowSharedProcessor) }
+            SlowSharedProcessor.started.await(5, TimeUnit.SECONDS)
+            Thread otherThread = Thread.start { other = registry.acquire(SharedProcessor) }
+            otherThread.join(5000)
+        then:
+            other != null
+            slow == null
+
+        when:
+            SlowSharedProcessor.proceed.countDown()
+            slowThread.join(5000)
+        then:
+            slow != null
+            registry.acquire(SlowSharedProcessor).is(slow)
+
+        cleanup:
+            SlowSharedProcessor.proceed?.countDown()
+            registry.close()
+    }
+
+    void "should reuse idle pooled instances"() {
+        given:
+            def registry = new ProcessorRegistry(null)
+        when:
+            def first = registry.acquire(PooledProcessor)
+            def second = registry.acquire(PooledProcessor)
+            registry.release(first)
+            def third = registry.acquire(PooledProcessor)
+        then:
+            !first.is(second)
+            third.is(first)
+            CountingProcessor.inits.get() == 2
+    }
+
+    void "should bind thread confined instances to their thread"() {
+        given:
+            def registry = new ProcessorRegistry(null)
+            def other = null
+        when:
+            def first = registry.acquire(ThreadConfinedProcessor)
+            registry.release(first)
+            def second = registry.acquire(ThreadConfinedProcessor)
+            registry.release(second)
+            Thread thread = Thread.start { other = registry.acquire(ThreadConfinedProcessor) }
+            thread.join()
+            registry.close()
+        then:
+            first.is(second)
+            !first.is(other)
+            CountingProcessor.closes.get() == 2
+    }
+
+    void "should process text through the processors of an asset"() {
+        given:
+            def registry = new ProcessorRegistry(null)
+        expect:
+            registry.process(SharedProcessor, 'body', null) == 'body!'
+    }
+
+    static abstract class CountingProcessor extends AbstractProcessor {
+        static AtomicInteger inits = new AtomicInteger()
+        static AtomicInteger closes = new AtomicInteger()
+
+        CountingProcessor(AssetCompiler precompiler) {
+            super(precompiler)
+        }
+
+        static void reset() {
+            inits.set(0)
+            closes.set(0)
+        }
+
+        void init() {
+            inits.incrementAndGet()
+        }
+
+        void close() {
+            closes.incrementAndGet()
+        }
+
+        String process(String inputText, AssetFile assetFile) {
+            return inputText + '!'
+        }
+    }
+
+    static class PerFileProcessor extends CountingProcessor {
+        PerFileProcessor(AssetCompiler precompiler) { super(precompiler) }
+    }
+
+    @ProcessorScoped(ProcessorScope.SHARED)
+    static class SharedProcessor extends CountingProcessor {
+        SharedProcessor(AssetCompiler precompiler) { super(precompiler) }
+    }
+
+    @ProcessorScoped(ProcessorScope.SHARED)
+    static class SlowSharedProcessor extends CountingProcessor {
+        static CountDownLatch started
+        static CountDownLatch proceed
+
+        SlowSharedProcessor(AssetCompiler precompiler) { super(precompiler) }
+
+        void init() {
+            super.init()
+            started.countDown()
+            proceed.await(5, TimeUnit.SECONDS)
+        }
+    }
+
+    @ProcessorScoped(ProcessorScope.POOLED)
+    static class PooledProcessor extends CountingProcessor {
+        PooledProcessor(AssetCompiler precompiler) { super(precompiler) }
+    }
+
+    @ProcessorScoped(ProcessorScope.THREAD_CONFINED)
+    static class ThreadConfinedProcessor extends CountingProcessor {
+        ThreadConfinedProcessor(AssetCompiler precompiler) { super(precompiler) }
+    }
+}
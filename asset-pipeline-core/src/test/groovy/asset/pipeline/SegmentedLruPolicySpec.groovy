@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package asset.pipeline
+
+import spock.lang.Specification
+
+class SegmentedLruPolicySpec extends Specification {
+
+    void "should evict the least recently used entries until the weight fits"() {
+        given:
+            def policy = new SegmentedLruPolicy<String, String>(100)
+            ['a', 'b', 'c'].each { policy.recordWrite(it, it, 40) }
+        when:
+            def victims = policy.evict({ false })
+        then:
+            victims*.key == ['a']
+            policy.weightedSize == 80
+    }
+
+    void "should keep entries accessed again over entries used once"() {
+        given:
+            def policy = new SegmentedLruPolicy<String, String>(100)
+            policy.recordWrite('hot', 'hot', 40)
+            policy.recordAccess('hot')
+            policy.recordWrite('b', 'b', 40)
+            policy.recordWrite('c', 'c', 40)
+        when:
+            def victims = policy.evict({ false })
+        then:
+            victims*.key == ['b']
+    }
+
+    void "should skip pinned entries and ignore stale removals"() {
+        given:
+            def policy = new SegmentedLruPolicy<String, String>(100)
+            ['a', 'b', 'c'].each { policy.recordWrite(it, it, 40) }
+        when:
+            policy.recordRemoval('c', 'other value')
+            def victims = policy.evict({ String key -> key == 'a' })
+        then:
+            victims*.key == ['b']
+            policy.weightedSize == 80
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline
+
+import org.spockframework.runtime.extension.IGlobalExtension
+
+import java.nio.file.Files
+
+/**
+ * Points the persisted asset cache of the {@link CacheManager} at a temporary directory for the whole test run so
+ * specs never write a .assetcache file into the module. Specs replacing the config keep {@link #CACHE_LOCATION}.
+ */
+class TemporaryCacheLocationExtension implements IGlobalExtension {
+    static final String CACHE_LOCATION = new File(Files.createTempDirectory('asset-cache-specs').toFile(), '.assetcache').path
+
+    @Override
+    void start() {
+        AssetPipelineConfigHolder.config = (AssetPipelineConfigHolder.config ?: [:]) + [cacheLocation: CACHE_LOCATION]
+    }
+
+    @Override
+    void stop() {
+        CacheManager.shutdown()
+        new File(CACHE_LOCATION).parentFile.deleteDir()
+    }
+}
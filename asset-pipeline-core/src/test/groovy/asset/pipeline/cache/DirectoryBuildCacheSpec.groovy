@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package asset.pipeline.cache
+
+import asset.pipeline.AssetCompiler
+import asset.pipeline.AssetPipelineConfigHolder
+import asset.pipeline.fs.AssetResolver
+import asset.pipeline.fs.FileSystemAssetResolver
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class DirectoryBuildCacheSpec extends Specification {
+    File workDir
+    File cacheDir
+
+    def setup() {
+        workDir = Files.createTempDirectory('asset-build-cache').toFile()
+        cacheDir = new File(workDir, 'cache')
+    }
+
+    def cleanup() {
+        workDir.deleteDir()
+    }
+
+    void "should store and load entries"() {
+        given:
+            def cache = new DirectoryBuildCache(cacheDir)
+            def key = 'a' * 64
+        when:
+            cache.store(key, new BuildCacheEntry(processedText: 'var a = "é";', inputs: ['lib/a.js': 'abc'], references: ['logo.png': ''], modules: ['lib/mod.js': 'module']))
+            def entry = new DirectoryBuildCache(cacheDir).load(key)
+        then:
+            entry.processedText == 'var a = "é";'
+            entry.inputs == ['lib/a.js': 'abc']
+            entry.references == ['logo.png': '']
+            entry.modules == ['lib/mod.js': 'module']
+            cache.load('b' * 64) == null
+            cacheDir.listFiles().findAll { it.isDirectory() }*.listFiles().flatten().every { it.name.endsWith(DirectoryBuildCache.ENTRY_EXTENSION) }
+    }
+
+    void "should treat corrupt entries as misses"() {
+        given:
+            def cache = new DirectoryBuildCache(cacheDir)
+            def key = 'c' * 64
+            cache.store(key, new BuildCacheEntry(processedText: 'body {}'))
+            File entryFile = new File(cacheDir, "${key.substring(0, 2)}/${key}${DirectoryBuildCache.ENTRY_EXTENSION}")
+            byte[] bytes = entryFile.bytes
+            bytes[bytes.length - 12] = (byte) (bytes[bytes.length - 12] ^ 0xFF)
+            entryFile.bytes = bytes
+        when:
+            def entry = cache.load(key)
+        then:
+            entry == null
+            !entryFile.exists()
+            cache.misses.get() == 1
+    }
+
+    void "should trim the least recently used entries"() {
+        given:
+            def cache = new DirectoryBuildCache(cacheDir, 10000L)
+            String text = 'x' * 2000
+            (0..<4).each { i ->
+                String key = "${i}".padLeft(64, '0')
+                cache.store(key, new BuildCacheEntry(processedText: text))
+                new File(cacheDir, "${key.substring(0, 2)}/${key}${DirectoryBuildCache.ENTRY_EXTENSION}").setLastModified(1000000L * (i + 1))
+            }
+        when:
+            cache.store('f' * 64, new BuildCacheEntry(processedText: text))
+            cache.trim()
+        then:
+            cache.load('0' * 64) == null
+            cache.load('f' * 64) != null
+    }
+
+    void "should reuse processed assets across compile directories"() {
+        given:
+            File assetsDir = new File(workDir, 'assets')
+            new File(assetsDir, 'javascripts/lib').mkdirs()
+            new File(assetsDir, 'javascripts/app.js').text = "//= require lib/a\nvar app = true;"
+            new File(assetsDir, 'javascripts/lib/a.js').text = "var a = 1;"
+            Collection<AssetResolver> originalResolvers = AssetPipelineConfigHolder.resolvers
+            AssetPipelineConfigHolder.resolvers = [new FileSystemAssetResolver('application', assetsDir.canonicalPath)]
+            def firstCache = new DirectoryBuildCache(cacheDir)
+            def secondCache = new DirectoryBuildCache(cacheDir)
+        when:
+            new AssetCompiler([compileDir: new File(workDir, 'first').canonicalPath, buildCache: firstCache, maxThreads: 2]).compile()
+            new AssetCompiler([compileDir: new File(workDir, 'second').canonicalPath, buildCache: secondCache, maxThreads: 2]).compile()
+        then:
+            firstCache.hits.get() == 0
+            secondCache.hits.get() > 0
+            new File(workDir, 'second/app.js').text == new File(workDir, 'first/app.js').text
+            new File(workDir, 'second/app.js').text.contains('var a = 1;')
+        cleanup:
+            AssetPipelineConfigHolder.resolvers = originalResolvers
+    }
+}
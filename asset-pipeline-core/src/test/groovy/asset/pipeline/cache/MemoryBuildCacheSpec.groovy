@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.cache
+
+import spock.lang.Specification
+
+class MemoryBuildCacheSpec extends Specification {
+
+    void "should evict the least recently used entries"() {
+        given:
+            def cache = new MemoryBuildCache(2)
+        when:
+            cache.store('a', new BuildCacheEntry(processedText: 'A'))
+            cache.store('b', new BuildCacheEntry(processedText: 'B'))
+            cache.load('a')
+            cache.store('c', new BuildCacheEntry(processedText: 'C'))
+        then:
+            cache.size() == 2
+            cache.load('a').processedText == 'A'
+            cache.load('b') == null
+            cache.load('c').processedText == 'C'
+            cache.hits.get() == 3
+            cache.misses.get() == 1
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package asset.pipeline.compression
+
+import asset.pipeline.AssetCompiler
+import asset.pipeline.AssetPipelineConfigHolder
+import asset.pipeline.fs.AssetResolver
+import asset.pipeline.fs.FileSystemAssetResolver
+import com.aayushatharva.brotli4j.decoder.BrotliInputStream
+import com.github.luben.zstd.ZstdInputStream
+import spock.lang.Requires
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.zip.GZIPInputStream
+
+class PrecompressionEncodersSpec extends Specification {
+    static final String SOURCE = "var app = true;\n" * 50
+
+    File assetsDir
+    File compileDir
+    Collection<AssetResolver> originalResolvers
+
+    def setup() {
+        File workDir = Files.createTempDirectory('asset-encoders').toFile()
+        assetsDir = new File(workDir, 'assets')
+        compileDir = new File(workDir, 'compiled')
+        new File(assetsDir, 'javascripts').mkdirs()
+        new File(assetsDir, 'images').mkdirs()
+        new File(assetsDir, 'javascripts/app.js').text = SOURCE
+        new File(assetsDir, 'images/logo.png').bytes = [1, 2, 3] as byte[]
+        originalResolvers = AssetPipelineConfigHolder.resolvers
+        AssetPipelineConfigHolder.resolvers = [new FileSystemAssetResolver('application', assetsDir.canonicalPath)]
+    }
+
+    def cleanup() {
+        AssetPipelineConfigHolder.resolvers = originalResolvers
+        assetsDir.parentFile.deleteDir()
+    }
+
+    void "should only enable gzip by default"() {
+        expect:
+            PrecompressionEncoders.fromOptions(new AssetCompiler([:]).options)*.extension == ['gz']
+    }
+
+    void "should write gzip variants at the configured level"() {
+        when:
+            compile(gzipLevel: 9)
+        then:
+            decode(new File(compileDir, 'app.js.gz')) { new GZIPInputStream(it) } == compiled('app.js')
+            decode(new File(compileDir, digestedName('app.js') + '.gz')) { new GZIPInputStream(it) } == compiled('app.js')
+            !new File(compileDir, 'logo.png.gz').exists()
+    }
+
+    @Requires({ new BrotliEncoder().available })
+    void "should write brotli variants alongside gzip"() {
+        when:
+            compile(enableBrotli: true, brotliLevel: 5)
+        then:
+            decode(new File(compileDir, 'app.js.br')) { new BrotliInputStream(it) } == compiled('app.js')
+            decode(new File(compileDir, digestedName('app.js') + '.br')) { new BrotliInputStream(it) } == compiled('app.js')
+            new File(compileDir, 'app.js.gz').exists()
+            !new File(compileDir, 'logo.png.br').exists()
+    }
+
+    @Requires({ new ZstdEncoder().available })
+    void "should write zstd variants honoring excludes"() {
+        when:
+            compile(enableGzip: false, enableZstd: true, zstdLevel: 3, excludesZstd: ['css'])
+        then:
+            decode(new File(compileDir, 'app.js.zst')) { new ZstdInputStream(it) } == compiled('app.js')
+            !new File(compileDir, 'app.js.gz').exists()
+            !new File(compileDir, 'logo.png.zst').exists()
+    }
+
+    void "should run custom encoders"() {
+        given:
+            PrecompressionEncoder identity = new AbstractPrecompressionEncoder(null, ['png']) {
+                String getExtension() { 'raw' }
+                OutputStream encode(OutputStream target) { new FilterOutputStream(target) }
+            }
+        when:
+            compile(enableGzip: false, precompressionEncoders: [identity])
+        then:
+            new File(compileDir, 'app.js.raw').text == compiled('app.js')
+            !new File(compileDir, 'logo.png.raw').exists()
+    }
+
+    private void compile(Map options) {
+        new AssetCompiler([compileDir: compileDir.canonicalPath, maxThreads: 2] + options).compile()
+    }
+
+    private String compiled(String name) {
+        return new File(compileDir, name).getText('UTF-8')
+    }
+
+    private String digestedName(String name) {
+        def manifest = new Properties()
+        new File(compileDir, 'manifest.properties').withReader { manifest.load(it) }
+        return manifest.getProperty(name)
+    }
+
+    private static String decode(File file, Closure<InputStream> decoder) {
+        return file.withInputStream { stream -> decoder.call(stream).getText('UTF-8') }
+    }
+}
@@ -18,6 +18,9 @@ package asset.pipeline.fs
 
 import asset.pipeline.*
 import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.nio.file.Files
 
 /**
 * @author David Estes
@@ -88,5 +91,101 @@ class FileSystemAssetResolverSpec extends Specification {
 		then:
 			files?.size() == 4
 	}
-	
+
+	void "should resolve the same files through the index"() {
+		given:
+			def resolver = new FileSystemAssetResolver('application','assets')
+			resolver.indexed = true
+		expect:
+			resolver.getAsset('asset-pipeline/test/test','application/javascript') instanceof JsAssetFile
+			resolver.getAsset('asset-pipeline/test/test','text/css') instanceof CssAssetFile
+			resolver.getAsset('grails_logo',null,'png') instanceof GenericAssetFile
+			resolver.getAsset('asset-pipeline/test/missing','application/javascript') == null
+			resolver.resolvers.every { it.indexed }
+		cleanup:
+			resolver.closeIndex()
+	}
+
+	@Timeout(30)
+	void "should pick up files added after the index was built"() {
+		given:
+			File baseDir = Files.createTempDirectory('asset-index').toFile()
+			new File(baseDir, 'javascripts').mkdirs()
+			new File(baseDir, 'javascripts/app.js').text = 'var app = true;'
+			def resolver = new FileSystemAssetResolver('application', baseDir.canonicalPath)
+			resolver.indexed = true
+		when:
+			def missing = resolver.getAsset('added', 'application/javascript')
+			new File(baseDir, 'javascripts/added.js').text = 'var added = true;'
+			def added = null
+			while(added == null) {
+				sleep(50)
+				added = resolver.getAsset('added', 'application/javascript')
+			}
+		then:
+			resolver.getAsset('app', 'application/javascript') instanceof JsAssetFile
+			missing == null
+			added instanceof JsAssetFile
+		cleanup:
+			resolver.closeIndex()
+			baseDir.deleteDir()
+	}
+
+	@Timeout(30)
+	void "should update the index in place for files added or removed"() {
+		given:
+			File baseDir = Files.createTempDirectory('asset-index').toFile()
+			new File(baseDir, 'javascripts').mkdirs()
+			new File(baseDir, 'javascripts/app.js').text = 'var app = true;'
+			def resolver = new FileSystemAssetResolver('application', baseDir.canonicalPath)
+			resolver.indexed = true
+			def scriptResolver = resolver.resolvers.first()
+		when:
+			resolver.getAsset('app', 'application/javascript')
+			def index = scriptResolver.pathIndexes.values().first()
+			long generation = resolver.indexGeneration
+			new File(baseDir, 'javascripts/lib').mkdirs()
+			new File(baseDir, 'javascripts/lib/util.js').text = 'var util = true;'
+			while(resolver.getAsset('lib/util', 'application/javascript') == null) {
+				Thread.sleep(50)
+			}
+			new File(baseDir, 'javascripts/app.js').delete()
+			while(index.containsKey('app.js')) {
+				Thread.sleep(50)
+			}
+		then:
+			resolver.getAsset('app', 'application/javascript') == null
+			scriptResolver.pathIndexes.values().first().is(index)
+			resolver.indexGeneration > generation
+		cleanup:
+			resolver.closeIndex()
+			baseDir.deleteDir()
+	}
+
+	@Timeout(30)
+	void "should not invalidate lookups for editor temporary files"() {
+		given:
+			File baseDir = Files.createTempDirectory('asset-index').toFile()
+			new File(baseDir, 'javascripts').mkdirs()
+			new File(baseDir, 'javascripts/app.js').text = 'var app = true;'
+			def resolver = new FileSystemAssetResolver('application', baseDir.canonicalPath)
+			resolver.indexed = true
+			def scriptResolver = resolver.resolvers.first()
+		when:
+			resolver.getAsset('app', 'application/javascript')
+			def index = scriptResolver.pathIndexes.values().first()
+			long generation = resolver.indexGeneration
+			['.app.js.swp', 'app.js~', '4913'].each { new File(baseDir, "javascripts/${it}").text = 'swap' }
+			while(!index.keySet().containsAll(['.app.js.swp', 'app.js~', '4913'])) {
+				Thread.sleep(50)
+			}
+			Thread.sleep(100)
+		then:
+			resolver.indexGeneration == generation
+			scriptResolver.pathIndexes.values().first().is(index)
+			resolver.getAsset('app', 'application/javascript') instanceof JsAssetFile
+		cleanup:
+			resolver.closeIndex()
+			baseDir.deleteDir()
+	}
 }
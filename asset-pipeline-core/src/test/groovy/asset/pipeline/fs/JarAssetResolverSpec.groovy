@@ -53,4 +53,15 @@ class JarAssetResolverSpec extends Specification {
 		then:
             files.name == ['jquery.js']
 	}
+
+	void "should resolve files through the jar index"() {
+		given:
+			def resolver = new JarAssetResolver('application','lib/test-lib.zip','META-INF/assets')
+			resolver.indexed = true
+		expect:
+			resolver.getAsset('jartest','application/javascript') instanceof JsAssetFile
+			resolver.getAsset('/jartest','application/javascript') instanceof JsAssetFile
+			resolver.getAsset('missing','application/javascript') == null
+			resolver.pathIndexes['META-INF/assets'] != null
+	}
 }
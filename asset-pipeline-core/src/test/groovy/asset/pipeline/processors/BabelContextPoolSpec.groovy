@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package asset.pipeline.processors
+
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+
+class BabelContextPoolSpec extends Specification {
+
+    void "should transpile concurrently with pooled contexts"() {
+        given:
+            def pool = new BabelContextPool(2)
+            def executor = Executors.newFixedThreadPool(4)
+        when:
+            pool.warmUp()
+            def results = executor.invokeAll((0..<6).collect { i ->
+                { -> pool.transform("const value${i} = () => ${i};", "file${i}.js") } as Callable<String>
+            })*.get()
+        then:
+            results.size() == 6
+            results.every { it.contains('function') }
+            results[3].contains('value3')
+            pool.transforms.get() == 6
+            pool.transformNanos.get() > 0
+        cleanup:
+            executor?.shutdown()
+            pool?.close()
+    }
+
+    void "should unbind the input of a failed transform before returning the context"() {
+        given:
+            def pool = new BabelContextPool(1)
+        when:
+            pool.transform("const = ;", "broken.js")
+        then:
+            thrown(Exception)
+            pool.idle.size() == 1
+            pool.idle.peek().eval('js', 'typeof input').asString() == 'undefined'
+            pool.transform("const ok = () => 1;", "ok.js").contains('function')
+        cleanup:
+            pool?.close()
+    }
+
+    void "should discard a context the engine closed instead of returning it"() {
+        given:
+            def pool = new BabelContextPool(1)
+            pool.warmUp()
+            pool.idle.peek().close()
+        when:
+            pool.transform("const value = () => 1;", "closed.js")
+        then:
+            thrown(IllegalStateException)
+            pool.idle.isEmpty()
+            pool.created.get() == 0
+            pool.transform("const ok = () => 1;", "ok.js").contains('function')
+        cleanup:
+            pool?.close()
+    }
+
+    void "should fail transforms waiting for a context once the pool is closed"() {
+        given:
+            def pool = new BabelContextPool(1)
+            def executor = Executors.newSingleThreadExecutor()
+            def held = pool.checkout()
+        when:
+            Future<String> waiting = executor.submit({ -> pool.transform("const value = () => 1;", "waiting.js") } as Callable<String>)
+            Thread.sleep(200)
+            pool.close()
+            waiting.get(5, TimeUnit.SECONDS)
+        then:
+            ExecutionException ex = thrown()
+            ex.cause instanceof IllegalStateException
+        when:
+            pool.checkin(held)
+            pool.transform("const late = () => 1;", "late.js")
+        then:
+            thrown(IllegalStateException)
+            pool.created.get() == 0
+        cleanup:
+            executor?.shutdownNow()
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.processors
+
+import asset.pipeline.AssetCompiler
+import asset.pipeline.cache.BuildCaches
+import asset.pipeline.cache.MemoryBuildCache
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class ClosureCompilerProcessorSpec extends Specification {
+
+    static final String SOURCE = "function add(first, second) { var total = first + second; return total; }\nwindow.sum = add(1, 2);"
+
+    void "should reuse cached minification results and their source maps"() {
+        given:
+            File compileDir = Files.createTempDirectory('minify-cache-spec').toFile()
+            def assetCompiler = new AssetCompiler([compileDir: compileDir.path, minifyJs: true, enableSourceMaps: true])
+            def minifyCache = new MemoryBuildCache()
+            assetCompiler.minifyCache = minifyCache
+            def processor = new ClosureCompilerProcessor(assetCompiler)
+        when:
+            def minified = processor.process('app/application', SOURCE, [:])
+            new File(compileDir, 'app/application.js.map').delete()
+            def cached = processor.process('app/application', SOURCE, [:])
+        then:
+            minified.startsWith('//# sourceMappingURL=application.js.map')
+            cached == minified
+            minifyCache.misses.get() == 1
+            minifyCache.hits.get() == 1
+            new File(compileDir, 'app/application.js.map').text.contains('application.unminified.js')
+            new File(compileDir, 'app/application.unminified.js').text == SOURCE
+        cleanup:
+            compileDir?.deleteDir()
+    }
+
+    void "should key minification results by content and effective options"() {
+        expect:
+            ClosureCompilerProcessor.minifyCacheKey('a', SOURCE, [:], false) == ClosureCompilerProcessor.minifyCacheKey('b', SOURCE, [optimizationLevel: 'SIMPLE', excludes: ['*.min.js']], false)
+            ClosureCompilerProcessor.minifyCacheKey('a', SOURCE, [:], false) != ClosureCompilerProcessor.minifyCacheKey('a', SOURCE, [optimizationLevel: 'ADVANCED'], false)
+            ClosureCompilerProcessor.minifyCacheKey('a', SOURCE, [:], false) != ClosureCompilerProcessor.minifyCacheKey('a', SOURCE + ';', [:], false)
+            ClosureCompilerProcessor.minifyCacheKey('a', SOURCE, [:], true) != ClosureCompilerProcessor.minifyCacheKey('b', SOURCE, [:], true)
+    }
+
+    void "should only cache minification results when enabled"() {
+        given:
+            File projectDir = Files.createTempDirectory('minify-cache-spec').toFile()
+            String compileDir = new File(projectDir, 'assets').path
+        expect:
+            BuildCaches.minifyCacheFromOptions([compileDir: compileDir], null) == null
+            BuildCaches.minifyCacheFromOptions([compileDir: compileDir, enableMinifyCache: true], null).directory == new File(projectDir, '.asset-minify-cache')
+        cleanup:
+            projectDir?.deleteDir()
+    }
+
+    void "should leave no temporary files behind when writing source maps"() {
+        given:
+            File compileDir = Files.createTempDirectory('minify-cache-spec').toFile()
+            def assetCompiler = new AssetCompiler([compileDir: compileDir.path, minifyJs: true, enableSourceMaps: true])
+            def processor = new ClosureCompilerProcessor(assetCompiler)
+        when:
+            processor.process('app/application', SOURCE, [:])
+            processor.process('app/application', SOURCE, [:])
+        then:
+            new File(compileDir, 'app').list().sort() == ['application.js.map', 'application.unminified.js']
+        cleanup:
+            compileDir?.deleteDir()
+    }
+}
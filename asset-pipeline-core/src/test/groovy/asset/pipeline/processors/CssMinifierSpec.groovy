@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.processors
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class CssMinifierSpec extends Specification {
+
+    @Unroll
+    void "should minify #css"() {
+        expect:
+            CssMinifier.minify(css) == minified
+        where:
+            css                                                   | minified
+            "a {\n\tcolor: red;\n}\n"                             | "a{color:red}"
+            "a, b > c {\n  margin: 0 auto;\n  padding: 0;\n}"     | "a,b>c{margin:0 auto;padding:0}"
+            "/* comment */a{color:red}/**/"                       | "a{color:red}"
+            "a:hover, a :hover { color : red }"                   | "a:hover,a :hover{color :red}"
+            "a{margin:0\nauto}"                                   | "a{margin:0 auto}"
+            "a{margin:0px 10px 0em .0px}"                         | "a{margin:0 10px 0 .0px}"
+            "a{width:calc(0px + 10%);transition:0s}"              | "a{width:calc(0px + 10%);transition:0s}"
+            "@keyframes x{0%{top:0}100%{top:10px}}"               | "@keyframes x{0%{top:0}100%{top:10px}}"
+            "a{content:\"  /* kept */ ; \";}"                     | "a{content:\"  /* kept */ ; \"}"
+            "a{content:'it\\'s  }'}"                              | "a{content:'it\\'s  }'}"
+            "a{background:url( a b.png ) no-repeat}"              | "a{background:url( a b.png ) no-repeat}"
+            "a{background:url(//x.com/a.png)}"                    | "a{background:url(//x.com/a.png)}"
+            "@media screen and (max-width: 100px) { a { b: c } }" | "@media screen and (max-width:100px){a{b:c}}"
+            ".w-1\\/2 { width: 50% }"                             | ".w-1\\/2{width:50%}"
+            "a{color:red}"                                        | "a{color:red}"
+            "a{color:red;}b{}"                                    | "a{color:red}b{}"
+            "a{color:red};"                                       | "a{color:red};"
+            ":root{--gap: 0px}a{margin:calc(var(--gap) + 0px)}"   | ":root{--gap:0px}a{margin:calc(var(--gap) + 0px)}"
+            ":root{--Gap:0em;top:0px}"                            | ":root{--Gap:0em;top:0}"
+            "a{flex:1 1 0px;margin:0px}"                          | "a{flex:1 1 0px;margin:0}"
+            "a{flex-basis:0%;-webkit-flex:1 0 0px}"               | "a{flex-basis:0%;-webkit-flex:1 0 0px}"
+            ".flex a:hover{top:0px}"                              | ".flex a:hover{top:0}"
+    }
+
+    void "should only remove what is enabled"() {
+        expect:
+            CssMinifier.minify("a {\n  color: red; /* x's */\n}", false, true) == "a{color:red;/* x's */}"
+            CssMinifier.minify("a {\n  color: red; /* x */\n}", true, false) == "a {\n  color: red; \n}"
+    }
+
+    void "should minify the same from a reader"() {
+        given:
+            String css = (1..2000).collect { "/* rule ${it} */\n.rule-${it} {\n  margin: 0px;\n  background: url('a${it}.png');\n}\n" }.join('')
+            StringBuilder out = new StringBuilder()
+        when:
+            CssMinifier.minify(new StringReader(css), out)
+        then:
+            out.toString() == CssMinifier.minify(css)
+            out.toString().startsWith(".rule-1{margin:0;background:url('a1.png')}.rule-2{")
+    }
+
+    void "should keep the result of the line based minifier"() {
+        given:
+            String css = new File('assets/stylesheets/asset-pipeline/test/test.css').text
+        expect:
+            new CssMinifyPostProcessor().process(css) == legacyMinify(css).replace(';}', '}')
+    }
+
+    private static String legacyMinify(String css) {
+        css.replaceAll(~/(?s)(\/\*\*\/)|(\/\*(.+?)?\*\/)/, '').replaceAll("\r\n", "\n").split("\n")*.trim().join('').replaceAll(/\s*([{};:,>])\s*/, '$1')
+    }
+}
@@ -30,7 +30,7 @@ class JsRequireProcessorSpec extends Specification {
 			def resolver = new FileSystemAssetResolver('application','assets')
 			AssetPipelineConfigHolder.resolvers = []
 			AssetPipelineConfigHolder.registerResolver(resolver)
-			AssetPipelineConfigHolder.config = [commonJs: true]
+			AssetPipelineConfigHolder.config = [commonJs: true, cacheLocation: TemporaryCacheLocationExtension.CACHE_LOCATION]
 		when:
 			def file = resolver.getAsset('asset-pipeline/test/test-common-js','application/javascript','js')
 			println "file class: ${file.class.name} - ${file.processors}"
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.processors
+
+import asset.pipeline.AssetCompiler
+import asset.pipeline.AssetPipelineConfigHolder
+import asset.pipeline.TemporaryCacheLocationExtension
+import asset.pipeline.fs.FileSystemAssetResolver
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class ModuleResolutionCacheSpec extends Specification {
+    File assetsDir
+    FileSystemAssetResolver resolver
+
+    def setup() {
+        assetsDir = Files.createTempDirectory('module-resolution-spec').toFile()
+        new File(assetsDir, 'javascripts/app').mkdirs()
+        new File(assetsDir, 'javascripts/app/helper.js').text = "module.exports = 'helper';"
+        new File(assetsDir, 'javascripts/widget').mkdirs()
+        new File(assetsDir, 'javascripts/widget/package.json').text = '{"main": "dist/widget.js"}'
+        new File(assetsDir, 'javascripts/widget/dist').mkdirs()
+        new File(assetsDir, 'javascripts/widget/dist/widget.js').text = "module.exports = 'widget';"
+        resolver = new FileSystemAssetResolver('application', assetsDir.path)
+        AssetPipelineConfigHolder.resolvers = []
+        AssetPipelineConfigHolder.registerResolver(resolver)
+        AssetPipelineConfigHolder.config = [commonJs: true, cacheLocation: TemporaryCacheLocationExtension.CACHE_LOCATION]
+    }
+
+    def cleanup() {
+        resolver?.closeIndex()
+        assetsDir?.deleteDir()
+    }
+
+    void "should resolve each module once per directory while precompiling"() {
+        given:
+            def cache = new ModuleResolutionCache(false)
+            int probes = 0
+            Closure<ModuleResolutionCache.Resolution> probe = { ->
+                probes++
+                return new ModuleResolutionCache.Resolution('app/helper.js', 'application/javascript')
+            }
+            Closure<ModuleResolutionCache.Resolution> missing = { ->
+                probes++
+                return null
+            }
+        when:
+            def first = cache.resolve('app', './helper', probe)
+            def second = cache.resolve('app', './helper', probe)
+            cache.resolve('app', 'react', missing)
+            def unresolved = cache.resolve('app', 'react', missing)
+        then:
+            first.path == 'app/helper.js'
+            second.path == 'app/helper.js'
+            !first.is(second)
+            unresolved == null
+            probes == 2
+            cache.hits.get() == 2
+            cache.misses.get() == 2
+    }
+
+    void "should only cache in development while the resolvers are indexed and discard it when files are added"() {
+        given:
+            def cache = new ModuleResolutionCache(true)
+            Closure<ModuleResolutionCache.Resolution> probe = { ->
+                new File(assetsDir, 'javascripts/app/late.js').exists() ? new ModuleResolutionCache.Resolution('app/late.js', 'application/javascript') : null
+            }
+        when:
+            cache.resolve('app', './late', probe)
+            cache.resolve('app', './late', probe)
+        then:
+            cache.hits.get() == 0
+        when:
+            resolver.indexed = true
+            cache.resolve('app', './late', probe)
+            def cached = cache.resolve('app', './late', probe)
+        then:
+            cached == null
+            cache.hits.get() == 1
+        when:
+            new File(assetsDir, 'javascripts/app/late.js').text = "module.exports = 'late';"
+            resolver.invalidateIndex()
+            def found = cache.resolve('app', './late', probe)
+        then:
+            found.path == 'app/late.js'
+    }
+
+    void "should return the file of the probe without looking it up again"() {
+        given:
+            def helper = resolver.getAsset('app/helper', 'application/javascript', 'js')
+            Closure<ModuleResolutionCache.Resolution> probe = { ->
+                // an uri that would not resolve, so a second lookup would lose the file
+                new ModuleResolutionCache.Resolution('app/unlisted.js', 'application/javascript', null, null, helper)
+            }
+        expect: "in development without an index the cache is bypassed"
+            new ModuleResolutionCache(true).resolve('app', './helper', probe).is(helper)
+        and: "on a miss"
+            new ModuleResolutionCache(false).resolve('app', './helper', probe).is(helper)
+    }
+
+    void "should follow the main entry of a package.json and reuse the resolution"() {
+        given:
+            def compiler = new AssetCompiler([compileDir: new File(assetsDir, 'out').path])
+            def processor = new JsRequireProcessor(compiler)
+            def app = resolver.getAsset('app/helper', 'application/javascript', 'js')
+        when:
+            def first = processor.process("var w = require('widget');", app)
+            def second = processor.process("var w = require('widget');\nvar h = require('./helper');", app)
+        then:
+            first.contains("_asset_pipeline_require('widget/dist/widget.js')")
+            second.contains("_asset_pipeline_require('widget/dist/widget.js')")
+            second.contains("_asset_pipeline_require('app/helper.js')")
+            processor.resolutionCache.hits.get() == 1
+            processor.resolutionCache.misses.get() == 2
+    }
+}
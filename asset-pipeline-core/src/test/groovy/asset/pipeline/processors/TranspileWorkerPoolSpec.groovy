@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package asset.pipeline.processors
+
+import spock.lang.Requires
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+/**
+ * Runs the worker protocol against a stub @babel/core module so no real transpiler is needed
+ */
+@Requires({ TranspileWorkerPoolSpec.nodeAvailable() })
+class TranspileWorkerPoolSpec extends Specification {
+    File modulesDir
+    TranspileWorkerPool pool
+
+    def setup() {
+        modulesDir = Files.createTempDirectory('asset-transpile-worker').toFile()
+        File babelCore = new File(modulesDir, '@babel/core')
+        babelCore.mkdirs()
+        new File(modulesDir, '@babel/preset-env').mkdirs()
+        new File(modulesDir, '@babel/preset-env/index.js').text = "module.exports = {};"
+        String crashMarker = new File(modulesDir, 'crashed').absolutePath.replace('\\', '/')
+        String gateMarker = new File(modulesDir, 'gate').absolutePath.replace('\\', '/')
+        babelCore.toPath().resolve('index.js').toFile().text = """
+            var fs = require('fs');
+            exports.transformSync = function(source, options) {
+                if(source.indexOf('syntax error') >= 0) { throw new Error('Unexpected token'); }
+                if(source.indexOf('wait') >= 0) {
+                    fs.writeFileSync('${gateMarker}.waiting', '');
+                    while(!fs.existsSync('${gateMarker}')) {}
+                }
+                if(source.indexOf('crash') >= 0 && !fs.existsSync('${crashMarker}')) {
+                    fs.writeFileSync('${crashMarker}', '');
+                    process.exit(3);
+                }
+                return {code: '/* ' + options.filename + ' */ ' + source.toUpperCase()};
+            };
+        """
+    }
+
+    def cleanup() {
+        pool?.close()
+        modulesDir.deleteDir()
+    }
+
+    void "should transpile batches of files on resident workers"() {
+        given:
+            pool = new TranspileWorkerPool('babel', 1, 8, modulesDir.absolutePath)
+            def executor = Executors.newFixedThreadPool(9)
+        when: "files queue up while the only worker is busy"
+            def blocking = executor.submit({ -> pool.transform("wait", "wait.js") } as Callable<String>)
+            await { new File(modulesDir, 'gate.waiting').exists() }
+            def queued = (0..<8).collect { i ->
+                executor.submit({ -> pool.transform("var a${i};", "file${i}.js") } as Callable<String>)
+            }
+            await { pool.queue.size() == 8 }
+            new File(modulesDir, 'gate').text = ''
+            def results = queued*.get()
+        then: "they are sent in a single batch"
+            blocking.get() == '/* wait.js */ WAIT'
+            results[5] == '/* file5.js */ VAR A5;'
+            pool.files.get() == 9
+            pool.batches.get() == 2
+        cleanup:
+            executor?.shutdown()
+    }
+
+    void "should report transpile errors per file"() {
+        given:
+            pool = new TranspileWorkerPool('babel', 1, 8, modulesDir.absolutePath)
+        when:
+            pool.transform('a syntax error', 'broken.js')
+        then:
+            def ex = thrown(Exception)
+            ex.message.contains('Unexpected token')
+            pool.transform('ok', 'ok.js') == '/* ok.js */ OK'
+    }
+
+    void "should restart a crashed worker and retry its files"() {
+        given:
+            pool = new TranspileWorkerPool('babel', 1, 8, modulesDir.absolutePath)
+        expect:
+            pool.transform('crash', 'crash.js') == '/* crash.js */ CRASH'
+            pool.restarts.get() == 1
+    }
+
+    void "should fail files submitted after the pool was closed"() {
+        given:
+            pool = new TranspileWorkerPool('babel', 1, 8, modulesDir.absolutePath)
+            pool.transform('ok', 'ok.js')
+        when:
+            pool.close()
+            pool.transform('late', 'late.js')
+        then:
+            thrown(TranspileWorkerPool.WorkerUnavailableException)
+    }
+
+    void "should become unavailable when the transpiler is not installed"() {
+        given:
+            pool = new TranspileWorkerPool('swc', 1, 8, modulesDir.absolutePath)
+        when:
+            pool.transform('var a;', 'a.js')
+        then:
+            thrown(TranspileWorkerPool.WorkerUnavailableException)
+            !pool.available
+    }
+
+    void "should report the stderr of a worker that dies during startup"() {
+        given:
+            new File(modulesDir, '@swc/core').mkdirs()
+            new File(modulesDir, '@swc/core/index.js').text = "console.error('native binding not found'); process.exit(2);"
+            pool = new TranspileWorkerPool('swc', 1, 8, modulesDir.absolutePath)
+        when:
+            pool.transform('var a;', 'a.js')
+        then:
+            def ex = thrown(TranspileWorkerPool.WorkerUnavailableException)
+            ex.message.contains('native binding not found')
+    }
+
+    void "should pass swc the same options as the cli without looking up a swcrc"() {
+        given:
+            new File(modulesDir, '@swc/core').mkdirs()
+            new File(modulesDir, '@swc/core/index.js').text = """
+                exports.transformSync = function(source, options) {
+                    return {code: JSON.stringify({swcrc: options.swcrc, configFile: options.configFile})};
+                };
+            """
+            pool = new TranspileWorkerPool('swc', 1, 8, modulesDir.absolutePath, [swcrc: '/app/.swcrc'] as Map<String, Object>)
+        expect:
+            pool.transform('var a;', 'a.js') == '{"swcrc":false,"configFile":"/app/.swcrc"}'
+    }
+
+    private static void await(Closure<Boolean> condition) {
+        long deadline = System.currentTimeMillis() + 10000
+        while(!condition.call() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+    }
+
+    static boolean nodeAvailable() {
+        try {
+            Process process = ['node', '-v'].execute()
+            return process.waitFor() == 0
+        } catch(IOException ex) {
+            return false
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.rhino
+
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+class RhinoEngineSpec extends Specification {
+
+    static final String COMPILER = """
+        var compiled = 0;
+        var Compiler = { compile: function(src) { compiled++; return src.toUpperCase() + ':' + compiled; } };
+    """
+
+    void "should compile sources once and evaluate with call variables"() {
+        given:
+            def engine = new RhinoEngine('test', [compiler: COMPILER], true)
+            def script = engine.compile('Compiler.compile(src)', 'test command')
+        expect:
+            engine.evaluate(script, [src: 'a']) == 'A:1'
+            engine.evaluate(script, [src: 'b']) == 'B:2'
+    }
+
+    void "should not leak variables between calls"() {
+        given:
+            def engine = new RhinoEngine('test', [lib: 'var greeting = "hello";'])
+        when:
+            engine.evaluate(engine.compile('var leaked = name; greeting + " " + name', 'set'), [name: 'world'])
+            def result = engine.evaluate(engine.compile('typeof leaked + " " + typeof name + " " + greeting', 'get'), [:])
+        then:
+            result == 'undefined undefined hello'
+    }
+
+    void "should seal the shared top level scope"() {
+        given:
+            def engine = new RhinoEngine('test', [lib: 'var greeting = "hello"; function greet() { greeting = "bye"; }'])
+        when:
+            engine.evaluate(engine.compile('greet()', 'greet'), [:])
+        then:
+            thrown(org.mozilla.javascript.EvaluatorException)
+    }
+
+    void "should hand each call an exclusive top level scope from a bounded pool"() {
+        given:
+            def engine = new RhinoEngine('test', [compiler: COMPILER], true, RhinoEngine.DEFAULT_OPTIMIZATION_LEVEL, 1)
+            def script = engine.compile('Compiler.compile(src)', 'test command')
+            def executor = Executors.newFixedThreadPool(4)
+        when:
+            def results = executor.invokeAll((0..<8).collect { i ->
+                { -> engine.evaluate(script, [src: "t${i}".toString()]) } as Callable<String>
+            })*.get()
+        then: "calls on more threads than scopes share the one scope in turn"
+            results.collect { it.split(':')[1] as Integer }.sort() == (1..8).toList()
+            engine.scopeCount == 1
+        cleanup:
+            executor?.shutdown()
+    }
+
+    void "should interpret scripts that fail to compile at the configured optimization level"() {
+        given:
+            // a single function body over the 64K bytecode limit of a class method
+            def source = 'function big() { var x = 0; ' + ('x = x + 1;' * 20000) + ' return x; }'
+        when:
+            def engine = new RhinoEngine('test', [big: source], false, 9)
+        then:
+            engine.evaluate(engine.compile('big()', 'call'), [:]) == '20000'
+    }
+
+    void "should register engines by name"() {
+        given:
+            int created = 0
+            def factory = { -> created++; new RhinoEngine('test', [lib: '1']) }
+        when:
+            def first = RhinoEngine.engine('rhino-engine-spec', factory)
+            def second = RhinoEngine.engine('rhino-engine-spec', factory)
+        then:
+            first.is(second)
+            created == 1
+    }
+}
@@ -17,6 +17,7 @@
 package asset.pipeline.gradle
 
 import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Internal
 import org.gradle.api.tasks.Optional
 
 /**
@@ -45,6 +46,15 @@ interface AssetPipelineExtension {
     boolean getEnableGzip()
     void setEnableGzip(boolean value)
     @Input
+    boolean getEnableBrotli()
+    void setEnableBrotli(boolean value)
+    @Input
+    boolean getEnableZstd()
+    void setEnableZstd(boolean value)
+    @Input
+    boolean getIncremental()
+    void setIncremental(boolean value)
+    @Input
     boolean getPackagePlugin()
     void setPackagePlugin(boolean value)
     @Input
@@ -57,6 +67,51 @@ interface AssetPipelineExtension {
     @Optional
     Integer getMaxThreads()
     void setMaxThreads(Integer value)
+    @Internal
+    String getBuildCacheLocation()
+    void setBuildCacheLocation(String value)
+    @Internal
+    Long getBuildCacheMaxSize()
+    void setBuildCacheMaxSize(Long value)
+    @Internal
+    boolean getEnableMinifyCache()
+    void setEnableMinifyCache(boolean value)
+    @Internal
+    String getMinifyCacheLocation()
+    void setMinifyCacheLocation(String value)
+    @Internal
+    Long getMinifyCacheMaxSize()
+    void setMinifyCacheMaxSize(Long value)
+    @Internal
+    boolean getLinkGenericAssets()
+    void setLinkGenericAssets(boolean value)
+    @Internal
+    boolean getBoundedHeap()
+    void setBoundedHeap(boolean value)
+    @Internal
+    Long getMaxInFlightBytes()
+    void setMaxInFlightBytes(Long value)
+    @Internal
+    Integer getCompressThreads()
+    void setCompressThreads(Integer value)
+    @Internal
+    Integer getWriterThreads()
+    void setWriterThreads(Integer value)
+    @Internal
+    Integer getStageQueueSize()
+    void setStageQueueSize(Integer value)
+    @Input
+    @Optional
+    Integer getGzipLevel()
+    void setGzipLevel(Integer value)
+    @Input
+    @Optional
+    Integer getBrotliLevel()
+    void setBrotliLevel(Integer value)
+    @Input
+    @Optional
+    Integer getZstdLevel()
+    void setZstdLevel(Integer value)
     @Input
     @Optional
     String getCompileDir()
@@ -84,6 +139,14 @@ interface AssetPipelineExtension {
     void setExcludesGzip(List value)
     @Input
     @Optional
+    List getExcludesBrotli()
+    void setExcludesBrotli(List value)
+    @Input
+    @Optional
+    List getExcludesZstd()
+    void setExcludesZstd(List value)
+    @Input
+    @Optional
     List getExcludes()
     void setExcludes(List value)
     @Input
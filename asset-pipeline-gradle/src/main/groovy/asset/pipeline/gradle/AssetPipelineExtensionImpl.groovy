@@ -16,10 +16,27 @@ class AssetPipelineExtensionImpl implements AssetPipelineExtension {
     boolean enableDigests = true
     boolean skipNonDigests = true
     boolean enableGzip = true
+    boolean enableBrotli = false
+    boolean enableZstd = false
+    boolean incremental = false
     boolean packagePlugin=false
     boolean developmentRuntime=true
     boolean verbose = true
     Integer maxThreads=null
+    String buildCacheLocation
+    Long buildCacheMaxSize
+    boolean enableMinifyCache = false
+    String minifyCacheLocation
+    Long minifyCacheMaxSize
+    boolean linkGenericAssets = false
+    boolean boundedHeap = false
+    Long maxInFlightBytes
+    Integer compressThreads
+    Integer writerThreads
+    Integer stageQueueSize
+    Integer gzipLevel
+    Integer brotliLevel
+    Integer zstdLevel
     String compileDir = 'build/assets'
     String assetsPath = 'src/assets'
 	String jarTaskName
@@ -27,6 +44,8 @@ class AssetPipelineExtensionImpl implements AssetPipelineExtension {
     Map configOptions
 
     List excludesGzip
+    List excludesBrotli
+    List excludesZstd
     List excludes = []
     List includes = []
     List<String> resolvers = []
@@ -36,6 +55,6 @@ class AssetPipelineExtensionImpl implements AssetPipelineExtension {
     }
 
     Map toMap() {
-        return [minifyJs: minifyJs, minifyCss: minifyCss, minifyOptions: minifyOptions, compileDir: compileDir, enableGzip: enableGzip, skipNonDigests: skipNonDigests, enableDigests: enableDigests, excludesGzip: excludesGzip, enableSourceMaps: enableSourceMaps, maxThreads: maxThreads]
+        return [minifyJs: minifyJs, minifyCss: minifyCss, minifyOptions: minifyOptions, compileDir: compileDir, enableGzip: enableGzip, skipNonDigests: skipNonDigests, enableDigests: enableDigests, excludesGzip: excludesGzip, gzipLevel: gzipLevel, enableBrotli: enableBrotli, excludesBrotli: excludesBrotli, brotliLevel: brotliLevel, enableZstd: enableZstd, excludesZstd: excludesZstd, zstdLevel: zstdLevel, enableSourceMaps: enableSourceMaps, maxThreads: maxThreads, incremental: incremental, buildCacheLocation: buildCacheLocation, buildCacheMaxSize: buildCacheMaxSize, enableMinifyCache: enableMinifyCache, minifyCacheLocation: minifyCacheLocation, minifyCacheMaxSize: minifyCacheMaxSize, linkGenericAssets: linkGenericAssets, boundedHeap: boundedHeap, maxInFlightBytes: maxInFlightBytes, compressThreads: compressThreads, writerThreads: writerThreads, stageQueueSize: stageQueueSize]
     }
 }
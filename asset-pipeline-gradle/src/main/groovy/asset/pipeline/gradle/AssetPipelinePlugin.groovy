@@ -105,8 +105,27 @@ class AssetPipelinePlugin implements Plugin<Project> {
                 enableSourceMaps = assetPipeline.enableSourceMaps
                 resolvers = assetPipeline.resolvers
                 enableGzip = assetPipeline.enableGzip
+                gzipLevel = assetPipeline.gzipLevel
+                enableBrotli = assetPipeline.enableBrotli
+                excludesBrotli = assetPipeline.excludesBrotli
+                brotliLevel = assetPipeline.brotliLevel
+                enableZstd = assetPipeline.enableZstd
+                excludesZstd = assetPipeline.excludesZstd
+                zstdLevel = assetPipeline.zstdLevel
                 verbose = assetPipeline.verbose
                 maxThreads = assetPipeline.maxThreads
+                incremental = assetPipeline.incremental
+                buildCacheLocation = assetPipeline.buildCacheLocation
+                buildCacheMaxSize = assetPipeline.buildCacheMaxSize
+                enableMinifyCache = assetPipeline.enableMinifyCache
+                minifyCacheLocation = assetPipeline.minifyCacheLocation
+                minifyCacheMaxSize = assetPipeline.minifyCacheMaxSize
+                linkGenericAssets = assetPipeline.linkGenericAssets
+                boundedHeap = assetPipeline.boundedHeap
+                maxInFlightBytes = assetPipeline.maxInFlightBytes
+                compressThreads = assetPipeline.compressThreads
+                writerThreads = assetPipeline.writerThreads
+                stageQueueSize = assetPipeline.stageQueueSize
             }
 
             configureBootRun(project)
@@ -17,60 +17,33 @@
 package asset.pipeline.coffee
 
 import asset.pipeline.AssetFile
-import org.mozilla.javascript.Context
-import org.mozilla.javascript.Scriptable
 import asset.pipeline.AbstractProcessor
 import asset.pipeline.AssetCompiler
+import asset.pipeline.ProcessorScope
+import asset.pipeline.ProcessorScoped
+import asset.pipeline.rhino.RhinoEngine
+import org.mozilla.javascript.Script
 
 // CoffeeScript engine will attempt to use Node.JS coffee if it is available on
 // the system path. If not, it uses Mozilla Rhino to compile the CoffeeScript
 // template using the javascript in-browser compiler.
+@ProcessorScoped(ProcessorScope.SHARED)
 class CoffeeScriptProcessor extends AbstractProcessor {
 
 	static Boolean NODE_SUPPORTED
-	Scriptable globalScope
-	ClassLoader classLoader
+	RhinoEngine engine
+	Script processScript
 
-	static org.mozilla.javascript.Script compilerScript
-	static org.mozilla.javascript.Script processScript
-	private static final $LOCK = new Object[0]
 	CoffeeScriptProcessor(AssetCompiler precompiler) {
 		super(precompiler)
-		
-			try {
-				classLoader = getClass().getClassLoader()
-				Context cx = Context.enter()
-				cx.setOptimizationLevel(-1)
-				globalScope = cx.initStandardObjects()
-				loadCoffee(cx)
-			} catch(Exception e) {
-				throw new Exception("CoffeeScript Engine initialization failed.", e)
-			} finally {
-				try {
-					Context.exit()
-				} catch(IllegalStateException e) {
-				}
-			}
-		
-	}
-
-	protected void loadCoffee(Context cx) {
-		if(!compilerScript) {
-			synchronized($LOCK) {
-				if(!compilerScript) {
-					def coffeeScriptJsResource = classLoader.getResource('asset/pipeline/coffee/coffee-script-1.7.1.js')
-					compilerScript = cx.compileString(coffeeScriptJsResource.getText('UTF-8'),coffeeScriptJsResource.file,1,null)
-				}
-			}
-		}
-		compilerScript.exec(cx,globalScope)
-
-		if(!processScript) {
-			synchronized($LOCK) {
-				if(!processScript) {
-					processScript = cx.compileString("CoffeeScript.compile(coffeeScriptSrc)", "CoffeeScript compile command", 0, null)
-				}
+		try {
+			// the CoffeeScript parser keeps its lexer state in the global scope, so every call takes a scope of its own
+			engine = RhinoEngine.engine('coffee-script-1.7.1') { ->
+				new RhinoEngine('CoffeeScript', RhinoEngine.resources(CoffeeScriptProcessor.classLoader, 'asset/pipeline/coffee/coffee-script-1.7.1.js'), true)
 			}
+			processScript = engine.compile("CoffeeScript.compile(coffeeScriptSrc)", "CoffeeScript compile command")
+		} catch(Exception e) {
+			throw new Exception("CoffeeScript Engine initialization failed.", e)
 		}
 	}
 
@@ -82,23 +55,14 @@ class CoffeeScriptProcessor extends AbstractProcessor {
 	* @return  String of compiled javascript
 	*/
 	String process(String input,AssetFile  assetFile) {
-	
 		try {
-			def cx = Context.enter()
-			def compileScope = cx.newObject(globalScope)
-			compileScope.setParentScope(globalScope)
-			compileScope.put("coffeeScriptSrc", compileScope, input)
-			def result = processScript.exec(cx,compileScope)
-			return result
+			return engine.evaluate(processScript, [coffeeScriptSrc: input])
 		} catch(Exception e) {
 			throw new Exception("""
 			CoffeeScript Engine compilation of coffeescript to javascript failed.
 			$e
 			""")
-		} finally {
-			Context.exit()
 		}
-	
 	}
 
 
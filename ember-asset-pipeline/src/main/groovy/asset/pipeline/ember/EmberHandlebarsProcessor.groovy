@@ -17,67 +17,56 @@
 package asset.pipeline.ember
 import asset.pipeline.handlebars.*
 import asset.pipeline.AssetHelper
-import org.mozilla.javascript.Context
-import org.mozilla.javascript.Scriptable
 import asset.pipeline.AssetCompiler
 import asset.pipeline.AssetFile
 import asset.pipeline.AbstractProcessor
 import asset.pipeline.AssetPipelineConfigHolder
+import asset.pipeline.ProcessorScope
+import asset.pipeline.ProcessorScoped
+import asset.pipeline.rhino.RhinoEngine
+import org.mozilla.javascript.Script
 
 /**
  * Compiles Ember Specific Handlebars files into Javascript
  *
  * @author David Estes
  */
+@ProcessorScoped(ProcessorScope.SHARED)
 class EmberHandlebarsProcessor extends AbstractProcessor {
 
-	Scriptable globalScope
-	ClassLoader classLoader
+	RhinoEngine engine
+	Script processScript
 	def precompilerMode
 	EmberHandlebarsProcessor(AssetCompiler precompiler){
 		super(precompiler)
 		try {
 			this.precompilerMode = precompiler
-			classLoader = getClass().getClassLoader()
-
-			// def handlebarsJsResource  = classLoader.getResource('asset/pipeline/handlebars/handlebars.js')
-			def emberCompilerResource = classLoader.getResource('asset/pipeline/ember/ember-template-compiler.js')
-
-
-			Context cx = Context.enter()
-			cx.setOptimizationLevel(-1)
-			globalScope = cx.initStandardObjects()
-			// cx.evaluateString globalScope, handlebarsJsResource.getText("UTF-8"), handlebarsJsResource.file, 1, null
-			cx.evaluateString globalScope, """
-			function precompileEmberHandlebars(string) {
-				return exports.precompile(string).toString();
+			// the template parser is not reentrant so every call takes a scope with the compiler loaded of its own
+			engine = RhinoEngine.engine('ember-template-compiler') { ->
+				Map<String,String> sources = new LinkedHashMap<String,String>()
+				sources.put('precompileEmberHandlebars', """
+				function precompileEmberHandlebars(string) {
+					return exports.precompile(string).toString();
+				}
+				""")
+				sources.putAll(RhinoEngine.resources(EmberHandlebarsProcessor.classLoader, 'asset/pipeline/ember/ember-template-compiler.js'))
+				new RhinoEngine('Ember', sources, true)
 			}
-			""", "", 1, null
-			cx.evaluateString globalScope, emberCompilerResource.getText("UTF-8"), emberCompilerResource.file, 1, null
+			processScript = engine.compile("exports.precompile(handlebarsSrc).toString();", "Handlebars compile command")
 		} catch (Exception e) {
 			throw new Exception("Ember Template Engine initialization failed.", e)
-		} finally {
-			try {
-			Context.exit()
-			} catch (IllegalStateException e) {}
 		}
 	}
 
  	String process(String input,AssetFile assetFile) {
 		try {
-			def cx = Context.enter()
-			def compileScope = cx.newObject(globalScope)
-			compileScope.setParentScope(globalScope)
-			compileScope.put("handlebarsSrc", compileScope, input)
-			def result = cx.evaluateString(compileScope, "exports.precompile(handlebarsSrc).toString();", "Handlebars compile command", 0, null)
+			def result = engine.evaluate(processScript, [handlebarsSrc: input])
 			return wrapTemplate(templateNameForFile(assetFile), result)
 		} catch (Exception e) {
 			throw new Exception("""
 			Handlebars Engine compilation of handlebars to javascript failed.
 			$e
 			""")
-		} finally {
-			Context.exit()
 		}
 	}
 
@@ -4,6 +4,7 @@ import asset.pipeline.AbstractAssetFile
 import asset.pipeline.AssetCompiler
 import asset.pipeline.CacheManager
 import asset.pipeline.AssetPipelineConfigHolder
+import asset.pipeline.ProcessorRegistry
 import asset.pipeline.processors.CssProcessor
 import org.groocss.Config
 import org.groocss.GrooCSS
@@ -51,9 +52,9 @@ class GroocssAssetFile extends AbstractAssetFile {
             fileText = GrooCSS.process(config, fileText)
 
             if (precompiler) {
+                ProcessorRegistry processorRegistry = ProcessorRegistry.forCompiler(precompiler)
                 for(processor in processors) {
-                    def processInstance = processor.newInstance(precompiler)
-                    fileText = processInstance.process(fileText, this)
+                    fileText = processorRegistry.process(processor, fileText, this)
                 }
             }
 
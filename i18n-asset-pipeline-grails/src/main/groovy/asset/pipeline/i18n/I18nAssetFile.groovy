@@ -24,6 +24,7 @@ import asset.pipeline.AssetCompiler
 import asset.pipeline.AssetHelper
 import asset.pipeline.CacheManager
 import asset.pipeline.Processor
+import asset.pipeline.ProcessorRegistry
 import groovy.transform.CompileStatic
 import java.util.regex.Pattern
 
@@ -70,9 +71,9 @@ class I18nAssetFile extends AbstractAssetFile {
         //     }
         // }
 
+        ProcessorRegistry processorRegistry = ProcessorRegistry.forCompiler(precompiler)
         for (processor in processors) {
-            def processInstance = processor.newInstance(precompiler)
-            fileText = processInstance.process(fileText, this)
+            fileText = processorRegistry.process(processor, fileText, this)
         }
 
         // if (!skipCache) {
@@ -54,8 +54,10 @@ class AssetPipelineLessSource extends LessSource {
 		if(contents) {
 			return contents
 		}
-		def cssProcessor = new CssProcessor(this.precompiler)
-		return cssProcessor.process(sourceFile.inputStream.text, sourceFile)
+		return LessImportCache.processedImport(sourceFile, this.precompiler) { ->
+			def cssProcessor = new CssProcessor(this.precompiler)
+			cssProcessor.process(sourceFile.inputStream.text, sourceFile)
+		}
 	}
 
 	public byte[] getBytes() {
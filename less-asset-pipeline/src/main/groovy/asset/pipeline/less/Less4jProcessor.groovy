@@ -5,10 +5,13 @@ import com.github.sommeri.less4j.core.ThreadUnsafeLessCompiler
 import com.github.sommeri.less4j_javascript.Less4jJavascript
 import asset.pipeline.AbstractProcessor
 import asset.pipeline.AssetFile
+import asset.pipeline.ProcessorScope
+import asset.pipeline.ProcessorScoped
 import com.github.sommeri.less4j.Less4jException
 import groovy.util.logging.Slf4j
 
 @Slf4j
+@ProcessorScoped(ProcessorScope.SHARED)
 class Less4jProcessor extends AbstractProcessor {
 
     Less4jProcessor(precompiler) {
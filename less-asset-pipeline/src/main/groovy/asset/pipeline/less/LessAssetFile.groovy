@@ -3,6 +3,7 @@ package asset.pipeline.less
 import asset.pipeline.AbstractAssetFile
 import asset.pipeline.AssetCompiler
 import asset.pipeline.CacheManager
+import asset.pipeline.ProcessorRegistry
 import asset.pipeline.AssetPipelineConfigHolder
 import asset.pipeline.processors.CssProcessor
 import java.util.regex.Pattern
@@ -35,18 +36,12 @@ class LessAssetFile extends AbstractAssetFile {
 				}
 			}
 
-	        def lessProcessor
+	        def processorRegistry = ProcessorRegistry.forCompiler(precompiler)
 	        def compilerMode = AssetPipelineConfigHolder.config?.less?.compiler ?: 'less4j'
-	        if (compilerMode != 'standard') {
-	            lessProcessor = new Less4jProcessor(precompiler)
-	        } else {
-	            lessProcessor = new LessProcessor(precompiler)
-	        }
-	        fileText = lessProcessor.process(fileText, this)
+	        fileText = processorRegistry.process(compilerMode != 'standard' ? Less4jProcessor : LessProcessor, fileText, this)
 
 			for(processor in processors) {
-				def processInstance = processor.newInstance(precompiler)
-				fileText = processInstance.process(fileText, this)
+				fileText = processorRegistry.process(processor, fileText, this)
 			}
 
 			if(!skipCache) {
@@ -0,0 +1,58 @@
+package asset.pipeline.less
+
+import asset.pipeline.AssetCompiler
+import asset.pipeline.AssetFile
+import asset.pipeline.AssetPipelineConfigHolder
+import asset.pipeline.cache.BuildCacheCapture
+import asset.pipeline.cache.BuildCaches
+import asset.pipeline.cache.MemoryBuildCache
+
+/**
+ * Caches the processed source of LESS imports (i.e. shared mixin and variable partials) so each partial is read and
+ * url rewritten once rather than once per stylesheet importing it. Entries are keyed like the build cache, by the
+ * path, content digest and base file of the import, and live for the life of the JVM so they are shared within a
+ * build and between development requests. The urls an import references are recorded with the entry and reported
+ * again on every hit.
+ * <ul>
+ *  <li>less.importCacheSize - maximum number of cached imports (default 1000, 0 disables)</li>
+ * </ul>
+ */
+class LessImportCache {
+	private static MemoryBuildCache cache
+	private static Integer cacheSize
+
+	/**
+	 * @param importFile the imported asset
+	 * @param process processes the source of the import when it is not cached
+	 * @return the processed source of the import
+	 */
+	static String processedImport(AssetFile importFile, AssetCompiler precompiler, Closure<String> process) {
+		MemoryBuildCache importCache = getCache()
+		if(importCache == null) {
+			return process.call()
+		}
+		String key = BuildCaches.cacheKey(importFile, precompiler)
+		String processedText = BuildCaches.restore(importCache, key, importFile, precompiler, false)
+		if(processedText != null) {
+			return processedText
+		}
+		BuildCacheCapture capture = BuildCacheCapture.start(importFile.path)
+		try {
+			processedText = process.call()
+		} finally {
+			capture.stop()
+		}
+		BuildCaches.save(importCache, key, processedText, capture)
+		return processedText
+	}
+
+	static synchronized MemoryBuildCache getCache() {
+		def configuredSize = AssetPipelineConfigHolder.config?.less?.importCacheSize
+		Integer size = configuredSize != null ? configuredSize as Integer : MemoryBuildCache.DEFAULT_MAX_ENTRIES
+		if(size != cacheSize) {
+			cache = size > 0 ? new MemoryBuildCache(size) : null
+			cacheSize = size
+		}
+		return cache
+	}
+}
@@ -5,20 +5,21 @@ import asset.pipeline.CacheManager
 import asset.pipeline.AbstractProcessor
 import asset.pipeline.AssetCompiler
 import asset.pipeline.AssetFile
+import asset.pipeline.ProcessorScope
+import asset.pipeline.ProcessorScoped
 import asset.pipeline.processors.CssProcessor
 import groovy.util.logging.Slf4j
 import org.mozilla.javascript.Context
 import org.mozilla.javascript.JavaScriptException
 import org.mozilla.javascript.NativeArray
-import org.mozilla.javascript.NativeObject
 import org.mozilla.javascript.Scriptable
 import asset.pipeline.utils.Handler
 
 @Slf4j
+@ProcessorScoped(ProcessorScope.THREAD_CONFINED)
 class LessProcessor extends AbstractProcessor {
     public static final java.lang.ThreadLocal threadLocal   = new ThreadLocal();
     public static final java.lang.ThreadLocal localCompiler = new ThreadLocal();
-    public static final java.lang.ThreadLocal resultsMap    = new ThreadLocal();
     Scriptable globalScope
     ClassLoader classLoader
 
@@ -63,27 +64,15 @@ class LessProcessor extends AbstractProcessor {
         try {
             threadLocal.set(assetFile);
             localCompiler.set(precompiler)
-            resultsMap.set(null);
 
             def cx = Context.enter()
             def compileScope = cx.newObject(globalScope)
             compileScope.setParentScope(globalScope)
             compileScope.put("lessSrc", compileScope, input)
 
-            cx.evaluateString(compileScope, "compile(lessSrc, ['assets'])", "LESS compile command", 0, null)
-            while(resultsMap.get() == null) {
-                Thread.sleep(5)
-            }
-
-            def results = resultsMap.get();
-            if(!results.get('success')) {
-                println "Error Processing Results ${results.get('error')}";
-                return ''
-                // throw new Exception('Less Compiler Failed to Return Successfully.')
-            } else {
-                return results.get('css').toString();
-            }
-            // return result.toString()
+            // compile returns once less has called back, compile errors are thrown as JavaScriptExceptions
+            def result = cx.evaluateString(compileScope, "compile(lessSrc, ['assets'])", "LESS compile command", 0, null)
+            return Context.toString(result)
         } catch (JavaScriptException e) {
             org.mozilla.javascript.NativeObject errorMeta = (org.mozilla.javascript.NativeObject) e.value
 
@@ -129,18 +118,16 @@ class LessProcessor extends AbstractProcessor {
         return new java.net.URL(null,uri, new Handler());
     }
 
-    static void setResults(NativeObject resultObject) {
-        resultsMap.set(resultObject);
-    }
-
     static String contentForURL(String text, URL url) {
         def assetFile = threadLocal.get();
         def precompiler = localCompiler.get();
         def baseFile = assetFile?.baseFile ?: assetFile
         AssetFile newFile = AssetHelper.fileForUri( url.path, null, null, baseFile)
         if(newFile) {
-            def cssProcessor = new CssProcessor(precompiler)
-            return cssProcessor.process(text, newFile)
+            return LessImportCache.processedImport(newFile, precompiler) { ->
+                def cssProcessor = new CssProcessor(precompiler)
+                cssProcessor.process(text, newFile)
+            }
         } else {
             return null;            
         }
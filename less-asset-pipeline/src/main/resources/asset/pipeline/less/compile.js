@@ -1,19 +1,19 @@
 var compile = function(fileText, paths) {
-    var me = this;
     globalPaths = paths;
 
-    var parser = new(less.Parser);
-
-    var result;
+    var result = null;
     less.render(fileText,{}, function(e, output) {
-        var lessResults = {};
-        if(output) {
-            lessResults.success = true
-            lessResults.css = output.css
-        } else {
-            throw(e);
-        }
-        Packages.asset.pipeline.less.LessProcessor.setResults(lessResults)
-    })
-    return result;
+        result = output ? {success: true, css: output.css} : {success: false, error: e};
+    });
+    // callbacks deferred with setTimeout are queued on the Envjs event loop, run them on this thread until drained
+    if(result === null) {
+        Envjs.wait();
+    }
+    if(result === null) {
+        throw new Error("LESS compiler did not complete");
+    }
+    if(!result.success) {
+        throw(result.error);
+    }
+    return result.css;
 };
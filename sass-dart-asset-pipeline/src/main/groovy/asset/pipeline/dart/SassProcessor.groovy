@@ -19,22 +19,29 @@ import asset.pipeline.AbstractProcessor
 import asset.pipeline.AssetCompiler
 import asset.pipeline.AssetFile
 import asset.pipeline.AssetPipelineConfigHolder
+import asset.pipeline.ProcessorScope
+import asset.pipeline.ProcessorScoped
 import com.caoccao.javet.enums.JSRuntimeType
-import com.caoccao.javet.interop.NodeRuntime
-import com.caoccao.javet.interop.V8Host
 import com.caoccao.javet.interop.loader.IJavetLibLoadingListener
 import com.caoccao.javet.interop.loader.JavetLibLoader
-import com.caoccao.javet.values.reference.V8ValueObject
 import groovy.transform.CompileStatic
 import groovy.util.logging.Slf4j
 
 @Slf4j
 @CompileStatic
+@ProcessorScoped(ProcessorScope.SHARED)
 class SassProcessor extends AbstractProcessor {
-    final String sassCompiler
+    // Options of the processor itself that are not passed on to the compiler
+    static final List<String> PROCESSOR_OPTIONS = ['poolSize']
 
-    // Compiler options
-    final Map configOptions = (AssetPipelineConfigHolder.config?.sass ?: [:]) as Map
+    private SassRuntimePool runtimePool
+
+    /**
+     * The compiler options from the sass config. Read per file as one instance serves many files
+     */
+    Map getConfigOptions() {
+        ((AssetPipelineConfigHolder.config?.sass ?: [:]) as Map).findAll { k, v -> !(k in PROCESSOR_OPTIONS) }
+    }
 
     static {
         File nativeLibrary = new NativeLibraryLoader(JSRuntimeType.Node).extractNativeLibrary()
@@ -60,10 +67,29 @@ class SassProcessor extends AbstractProcessor {
 
     SassProcessor(AssetCompiler precompiler) {
         super(precompiler)
+    }
 
-        // Load script from classpath
-        URL resource = getClass().classLoader.getResource("js/compiler.js")
-        sassCompiler = resource.openStream().text
+    /**
+     * Closes the Node runtimes of this processor
+     */
+    @Override
+    void close() {
+        synchronized(this) {
+            runtimePool?.close()
+            runtimePool = null
+        }
+    }
+
+    /**
+     * The runtime pool of this processor, sized by sass.poolSize or the maxThreads of the precompiler
+     */
+    protected synchronized SassRuntimePool getRuntimePool() {
+        if(runtimePool == null) {
+            Map sassConfig = (AssetPipelineConfigHolder.config?.sass ?: [:]) as Map
+            Integer poolSize = (sassConfig.poolSize ?: precompiler?.options?.maxThreads ?: Runtime.getRuntime().availableProcessors()) as Integer
+            runtimePool = new SassRuntimePool(poolSize)
+        }
+        return runtimePool
     }
 
     /**
@@ -75,42 +101,13 @@ class SassProcessor extends AbstractProcessor {
     String process(String input, AssetFile assetFile) {
         log.debug "Compiling $assetFile.path"
 
-        String output = null
-
-        NodeRuntime nodeRuntime = V8Host.getNodeInstance().createV8Runtime(true, JSRuntimeType.Node.runtimeOptions) as NodeRuntime
-        try {
-            nodeRuntime.allowEval(true)
-
-            // Bind the importer callback
-            SassAssetFileLoader loader = new SassAssetFileLoader(assetFile)
-
-            V8ValueObject v8ValueObject = nodeRuntime.createV8ValueObject()
-            try {
-                nodeRuntime.getGlobalObject().set("importer", v8ValueObject)
-                v8ValueObject.bind(loader)
-            }
-            finally {
-                v8ValueObject.close()
-            }
+        // The importer callback resolving imports for this file
+        SassAssetFileLoader loader = new SassAssetFileLoader(assetFile)
 
-            // Combine options
-            Map compileOptions = configOptions + [data: input]
-
-            // Setup the options passed to the SASS compiler
-            // https://sass-lang.com/documentation/js-api/interfaces/LegacyStringOptions
-            nodeRuntime.getGlobalObject().setProperty("compileOptions", compileOptions)
-
-            // Compile and retrieve the CSS output
-            nodeRuntime.getExecutor(sassCompiler).executeVoid()
-            output = nodeRuntime.getGlobalObject().get("css") as String
-
-            // Cleanup the global importer
-            nodeRuntime.getGlobalObject().delete("importer")
-        }
-        finally {
-            nodeRuntime.close()
-        }
+        // Combine options
+        // https://sass-lang.com/documentation/js-api/interfaces/LegacyStringOptions
+        Map compileOptions = getConfigOptions() + [data: input]
 
-        output
+        getRuntimePool().compile(compileOptions, loader)
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package asset.pipeline.dart
+
+import com.caoccao.javet.enums.JSRuntimeType
+import com.caoccao.javet.exceptions.JavetExecutionException
+import com.caoccao.javet.interop.NodeRuntime
+import com.caoccao.javet.interop.V8Host
+import com.caoccao.javet.values.reference.V8ValueObject
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * A pool of Javet {@link NodeRuntime}s with the Dart Sass compiler already loaded.
+ *
+ * Creating a Node runtime and evaluating the bundled compiler.js is most of the cost of compiling a small SCSS file,
+ * so runtimes are created once (lazily, up to the pool size) and reused. The compiler script only defines a global
+ * compileSass function; the options and importer of a file are passed as arguments so no per file state is left on
+ * the runtime between files. A Sass error thrown by the compiler leaves the runtime usable, so it is returned to the
+ * pool; a runtime that fails for any other reason (i.e. the engine itself) is discarded.
+ *
+ * Each {@link SassProcessor} owns its pool and closes it, together with its runtimes, when the processor is closed.
+ */
+@Slf4j
+@CompileStatic
+class SassRuntimePool {
+    private static volatile String bundledCompilerScript
+
+    private final String compilerScript
+    private final LinkedBlockingQueue<NodeRuntime> idle = new LinkedBlockingQueue<NodeRuntime>()
+    private final AtomicInteger created = new AtomicInteger()
+    final int maxSize
+    private volatile boolean closed = false
+
+    SassRuntimePool(int maxSize) {
+        this(getBundledCompilerScript(), maxSize)
+    }
+
+    SassRuntimePool(String compilerScript, int maxSize) {
+        this.compilerScript = compilerScript
+        this.maxSize = Math.max(1, maxSize)
+    }
+
+    /**
+     * @return the number of runtimes currently alive, idle or checked out
+     */
+    int getSize() {
+        return created.get()
+    }
+
+    /**
+     * Compiles SCSS on a pooled runtime, waiting for one to free up if all are in use
+     * @param compileOptions the options passed to sass.renderSync (including the data to compile)
+     * @param loader the importer resolving imports through the asset pipeline resolvers
+     * @return the compiled css
+     */
+    String compile(Map compileOptions, SassAssetFileLoader loader) {
+        NodeRuntime nodeRuntime = checkout()
+        boolean healthy = false
+        try {
+            String css
+            V8ValueObject importer = nodeRuntime.createV8ValueObject()
+            try {
+                importer.bind(loader)
+                css = nodeRuntime.getGlobalObject().invokeString("compileSass", compileOptions, importer)
+            } finally {
+                importer.close()
+            }
+            healthy = true
+            return css
+        } catch(JavetExecutionException ex) {
+            // the compiler threw (i.e. a syntax error in the stylesheet), the runtime itself is fine
+            healthy = !nodeRuntime.closed
+            throw ex
+        } finally {
+            if(healthy) {
+                checkin(nodeRuntime)
+            } else {
+                discard(nodeRuntime)
+            }
+        }
+    }
+
+    /**
+     * Closes the idle runtimes. Runtimes still compiling are closed when they are returned
+     */
+    void close() {
+        closed = true
+        NodeRuntime nodeRuntime
+        while((nodeRuntime = idle.poll()) != null) {
+            discard(nodeRuntime)
+        }
+    }
+
+    private NodeRuntime checkout() {
+        while(true) {
+            NodeRuntime nodeRuntime = idle.poll()
+            if(nodeRuntime != null) {
+                return nodeRuntime
+            }
+            if(created.incrementAndGet() <= maxSize) {
+                try {
+                    return newRuntime()
+                } catch(Throwable ex) {
+                    created.decrementAndGet()
+                    throw ex
+                }
+            }
+            created.decrementAndGet()
+            // poll rather than take so a runtime discarded meanwhile can be replaced
+            nodeRuntime = idle.poll(100, TimeUnit.MILLISECONDS)
+            if(nodeRuntime != null) {
+                return nodeRuntime
+            }
+        }
+    }
+
+    private void checkin(NodeRuntime nodeRuntime) {
+        if(closed) {
+            discard(nodeRuntime)
+        } else {
+            idle.offer(nodeRuntime)
+        }
+    }
+
+    private void discard(NodeRuntime nodeRuntime) {
+        created.decrementAndGet()
+        try {
+            nodeRuntime.close()
+        } catch(Exception ex) {
+            log.debug("Error closing Sass runtime", ex)
+        }
+    }
+
+    private static String getBundledCompilerScript() {
+        if(bundledCompilerScript == null) {
+            synchronized(SassRuntimePool) {
+                if(bundledCompilerScript == null) {
+                    URL resource = SassRuntimePool.classLoader.getResource("js/compiler.js")
+                    bundledCompilerScript = resource.openStream().getText('UTF-8')
+                }
+            }
+        }
+        return bundledCompilerScript
+    }
+
+    private NodeRuntime newRuntime() {
+        log.debug("Creating Sass runtime")
+        NodeRuntime nodeRuntime = V8Host.getNodeInstance().createV8Runtime(true, JSRuntimeType.Node.runtimeOptions) as NodeRuntime
+        try {
+            nodeRuntime.allowEval(true)
+            nodeRuntime.getExecutor(compilerScript).setResourceName("compiler.js").executeVoid()
+            return nodeRuntime
+        } catch(Throwable ex) {
+            nodeRuntime.close()
+            throw ex
+        }
+    }
+}
@@ -1,8 +1,11 @@
 const sass = require('sass');
 
-// Call back for resolving imports via the Java asset pipeline resolvers
-compileOptions.importer = [importer.resolveImport];
+// Defines the compile function once per runtime. The options and the importer call back (resolving
+// imports via the Java asset pipeline resolvers) are passed per file so nothing is kept between files.
+globalThis.compileSass = function(compileOptions, importer) {
+    compileOptions.importer = [importer.resolveImport];
 
-// Compile and return the rendered CSS
-const result = sass.renderSync(compileOptions);
-css = result.css;
+    // Compile and return the rendered CSS
+    const result = sass.renderSync(compileOptions);
+    return result.css.toString();
+};
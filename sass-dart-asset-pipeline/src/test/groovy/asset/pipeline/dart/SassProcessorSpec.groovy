@@ -130,4 +130,39 @@ class SassProcessorSpec extends Specification {
 		then:
 		output.contains('Twitter')
 	}
+
+	void "should keep the runtime after a sass error"() {
+		given:
+		AssetPipelineConfigHolder.resolvers = []
+		AssetPipelineConfigHolder.registerResolver(new FileSystemAssetResolver('test','assets'))
+		AssetPipelineConfigHolder.config = [sass: [quietDeps: true, poolSize: 1]]
+		def assetFile = AssetHelper.fileForFullName('test.scss')
+		def processor = new SassProcessor()
+		when:
+		processor.process('.broken { color: ', assetFile)
+		then:
+		thrown(Exception)
+		processor.runtimePool.size == 1
+		processor.process(assetFile.inputStream.text, assetFile).contains('margin')
+		processor.runtimePool.size == 1
+		cleanup:
+		processor.close()
+	}
+
+	void "should close its runtimes when closed"() {
+		given:
+		AssetPipelineConfigHolder.resolvers = []
+		AssetPipelineConfigHolder.registerResolver(new FileSystemAssetResolver('test','assets'))
+		def assetFile = AssetHelper.fileForFullName('test.scss')
+		def processor = new SassProcessor()
+		processor.process(assetFile.inputStream.text, assetFile)
+		def pool = processor.runtimePool
+		when:
+		processor.close()
+		then:
+		pool.size == 0
+		!processor.runtimePool.is(pool)
+		cleanup:
+		processor.close()
+	}
 }
@@ -17,59 +17,34 @@
 package asset.pipeline.typescript
 
 import asset.pipeline.AssetFile
-import org.mozilla.javascript.Context
-import org.mozilla.javascript.Scriptable
 import asset.pipeline.AbstractProcessor
 import asset.pipeline.AssetCompiler
+import asset.pipeline.ProcessorScope
+import asset.pipeline.ProcessorScoped
+import asset.pipeline.rhino.RhinoEngine
+import org.mozilla.javascript.Script
 
 // TypeScript engine will attempt to use Node.JS tsc  if it is available on
 // the system path. If not, it uses Mozilla Rhino to compile the TypeScript
 // template using the javascript in-browser compiler.
+@ProcessorScoped(ProcessorScope.SHARED)
 class TypeScriptProcessor extends AbstractProcessor {
 
 	static Boolean NODE_SUPPORTED
-	Scriptable globalScope
-	ClassLoader classLoader
+	RhinoEngine engine
+	Script processScript
 
-	static org.mozilla.javascript.Script compilerScript
-	static org.mozilla.javascript.Script processScript
-	private static final $LOCK = new Object[0]
 	TypeScriptProcessor(AssetCompiler precompiler) {
 		super(precompiler)
 		if(!isNodeSupported()) {
 			try {
-				classLoader = getClass().getClassLoader()
-				Context cx = Context.enter()
-				cx.setOptimizationLevel(-1)
-				globalScope = cx.initStandardObjects()
-				loadTypeScript(cx)
+				// The TypeScript compiler keeps state between calls so every call takes a top-level scope of its own
+				engine = RhinoEngine.engine('typescript-services') { ->
+					new RhinoEngine('TypeScript', RhinoEngine.resources(TypeScriptProcessor.classLoader, 'asset/pipeline/typescript/tsServices.js'), true)
+				}
+				processScript = engine.compile("ts.transpile(typeScriptSrc)", "TypeScript compile command")
 			} catch(Exception e) {
 				throw new Exception("TypeScript Engine initialization failed.", e)
-			} finally {
-				try {
-					Context.exit()
-				} catch(IllegalStateException e) {
-				}
-			}
-		}
-	}
-
-	protected void loadTypeScript(Context cx) {
-		if(!compilerScript) {
-			synchronized($LOCK) {
-				if(!compilerScript) {
-					def typeScriptJsResource = classLoader.getResource('asset/pipeline/typescript/tsServices.js')
-					compilerScript = cx.compileString(typeScriptJsResource.getText('UTF-8'),typeScriptJsResource.file,1,null)
-				}
-			}
-		}
-		compilerScript.exec(cx,globalScope)
-
-		if(!processScript) {
-			synchronized($LOCK) {
-				if(!processScript) {
-					processScript = cx.compileString("ts.transpile(typeScriptSrc)", "TypeScript compile command", 0, null)
-				}
 			}
 		}
 	}
@@ -87,19 +62,12 @@ class TypeScriptProcessor extends AbstractProcessor {
 		}
 		else {
 			try {
-				def cx = Context.enter()
-				def compileScope = cx.newObject(globalScope)
-				compileScope.setParentScope(globalScope)
-				compileScope.put("typeScriptSrc", compileScope, input)
-				def result = processScript.exec(cx,compileScope)
-				return result
+				return engine.evaluate(processScript, [typeScriptSrc: input])
 			} catch(Exception e) {
 				throw new Exception("""
 				TypeScript Engine compilation of coffeescript to javascript failed.
 				$e
 				""")
-			} finally {
-				Context.exit()
 			}
 		}
 	}